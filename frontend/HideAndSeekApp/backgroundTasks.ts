@@ -23,14 +23,23 @@ TaskManager.defineTask(BACKGROUND_LOCATION_TASK, async ({ data, error }: { data?
     if (!teamId || !gameId) return;
 
     const latest = locations[locations.length - 1];
-    console.log('Background location update:', latest.coords);
+    console.log(`Background location update: ${locations.length} fix(es), latest`, latest.coords);
     
-    await ApiService.updateLocation(
-      teamId,
-      latest.coords.latitude,
-      latest.coords.longitude,
-      gameId
-    );
+    if (locations.length > 1) {
+      // Deliver every queued fix in one request; the server keeps them as trail history
+      await ApiService.updateLocationBatch(
+        teamId,
+        gameId,
+        locations.map(l => ({ latitude: l.coords.latitude, longitude: l.coords.longitude, timestamp: l.timestamp }))
+      );
+    } else {
+      await ApiService.updateLocation(
+        teamId,
+        latest.coords.latitude,
+        latest.coords.longitude,
+        gameId
+      );
+    }
     
     // Update last sync time
     await AsyncStorage.setItem('last_location_sync', Date.now().toString());
@@ -10,6 +10,7 @@ import {
   FlatList,
   Image,
   Dimensions,
+  Modal,
 } from 'react-native';
 import { Game, Team, ClueType, Clue, HiderClueData } from '../types';
 import * as ExpoLocation from 'expo-location';
@@ -20,6 +21,10 @@ import useGameWebSocket from '../hooks/useGameWebSocket';
 import { getWebsocketUrl } from '../config/api';
 import MapModal from './MapModal';
 
+// Uploaded selfies are served in sizes: small thumbs for lists, screen-sized when opened
+const withVariant = (url: string, variant: 'thumb' | 'screen') =>
+  `${url}${url.includes('?') ? '&' : '?'}variant=${variant}`;
+
 interface CluesTabProps {
   game: Game;
   currentTeam: Team;
@@ -302,6 +307,7 @@ const CluesTab: React.FC<CluesTabProps> = ({ game, currentTeam, onRefresh }) =>
 
   const [visibleClueIds, setVisibleClueIds] = useState<Set<string>>(new Set());
   const [visibleMultiHiderImages, setVisibleMultiHiderImages] = useState<Set<string>>(new Set());
+  const [openedImageUrl, setOpenedImageUrl] = useState<string | null>(null);
   const [clueNavigationIndices, setClueNavigationIndices] = useState<Map<string, number>>(new Map());
 
   const viewabilityConfig = useRef({ itemVisiblePercentThreshold: 50 }).current;
@@ -421,14 +427,18 @@ const CluesTab: React.FC<CluesTabProps> = ({ game, currentTeam, onRefresh }) =>
           ) : isSelfieClue && currentHider.additionalData && currentHider.additionalData.includes('/api/uploads/') ? (
             // Selfie image
             shouldShowImage ? (
-              <TouchableOpacity onPress={toggleImageVisibility}>
-                <Image
-                  source={{ uri: currentHider.additionalData }}
-                  style={styles.selfieImage}
-                  resizeMode="cover"
-                />
-                <Text style={styles.tapToHideText}>Tap to hide</Text>
-              </TouchableOpacity>
+              <View>
+                <TouchableOpacity onPress={() => setOpenedImageUrl(withVariant(currentHider.additionalData!, 'screen'))}>
+                  <Image
+                    source={{ uri: withVariant(currentHider.additionalData, 'thumb') }}
+                    style={styles.selfieImage}
+                    resizeMode="cover"
+                  />
+                </TouchableOpacity>
+                <TouchableOpacity onPress={toggleImageVisibility}>
+                  <Text style={styles.tapToHideText}>Tap to hide</Text>
+                </TouchableOpacity>
+              </View>
             ) : (
               <TouchableOpacity onPress={toggleImageVisibility} style={styles.imagePlaceholder}>
                 <Text style={styles.placeholderText}>Selfie from {currentHider.teamName}</Text>
@@ -533,11 +543,13 @@ const CluesTab: React.FC<CluesTabProps> = ({ game, currentTeam, onRefresh }) =>
         {/* Legacy single image display */}
         {isImage && !hasMultiHiderData && (
           shouldRenderImage ? (
-            <Image
-              source={{ uri: item.text }}
-              style={{ width: '100%', height: 240, borderRadius: 8, marginTop: 8 }}
-              resizeMode="cover"
-            />
+            <TouchableOpacity onPress={() => setOpenedImageUrl(withVariant(item.text, 'screen'))}>
+              <Image
+                source={{ uri: withVariant(item.text, 'thumb') }}
+                style={{ width: '100%', height: 240, borderRadius: 8, marginTop: 8 }}
+                resizeMode="cover"
+              />
+            </TouchableOpacity>
           ) : (
             <View style={{ width: '100%', height: 120, borderRadius: 8, marginTop: 8, backgroundColor: '#eee', alignItems: 'center', justifyContent: 'center' }}>
               <Text style={{ color: '#666' }}>Image (tap to view)</Text>
@@ -634,6 +646,15 @@ const CluesTab: React.FC<CluesTabProps> = ({ game, currentTeam, onRefresh }) =>
           locations={mapLocations}
         />
       )}
+
+      {/* Full-size viewer for an opened selfie */}
+      <Modal visible={openedImageUrl !== null} transparent animationType="fade" onRequestClose={() => setOpenedImageUrl(null)}>
+        <TouchableOpacity style={styles.imageViewer} activeOpacity={1} onPress={() => setOpenedImageUrl(null)}>
+          {openedImageUrl && (
+            <Image source={{ uri: openedImageUrl }} style={styles.imageViewerImage} resizeMode="contain" />
+          )}
+        </TouchableOpacity>
+      </Modal>
     </SafeAreaView>
   );
 };
@@ -932,6 +953,16 @@ const styles = StyleSheet.create({
     borderRadius: 8,
     marginBottom: 8,
   },
+  imageViewer: {
+    flex: 1,
+    backgroundColor: 'rgba(0, 0, 0, 0.9)',
+    justifyContent: 'center',
+    alignItems: 'center',
+  },
+  imageViewerImage: {
+    width: '100%',
+    height: '100%',
+  },
   imagePlaceholder: {
     width: '100%',
     height: 120,
@@ -34,6 +34,7 @@ const HiderClueListener: React.FC<Props> = ({ gameId, teamId }) => {
   useGameWebSocket({
     wsUrl,
     gameId,
+    teamId,
     onMessage: (data) => {
       if (data?.type === 'clueRequest' && data?.targetTeamId === teamId) {
         const req = data.request as ClueRequestPayload;
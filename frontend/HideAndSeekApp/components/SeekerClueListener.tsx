@@ -50,6 +50,7 @@ const SeekerClueListener: React.FC<Props> = ({ gameId, teamId }) => {
   useGameWebSocket({
     wsUrl,
     gameId,
+    teamId,
     onMessage: (msg: any) => {
       const data = msg as ClueResponseMsg;
       if (data?.type !== 'clueResponse') return;
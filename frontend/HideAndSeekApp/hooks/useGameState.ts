@@ -39,10 +39,13 @@ export default function useGameState({
   const { connected, send } = useGameWebSocket({
     wsUrl: enabled ? wsUrl : '',
     gameId: enabled ? gameId : '',
+    teamId,
     onMessage: (data: any) => {
       if (data?.type === 'gameUpdate' && data?.game) {
         console.log('Received WebSocket game update:', data.game.id);
         updateGameState(data.game);
+      } else if (data?.type === 'locations' && Array.isArray(data?.teams)) {
+        applyLocations(data.teams);
       }
     },
     heartbeatMs: 30000,
@@ -58,6 +61,28 @@ export default function useGameState({
     setError(null);
   }, [teamId]);
 
+  // Merge a compact locations frame: [teamId, lat, lon, ts] rows; lat/lon are null for teams we may not see
+  const applyLocations = useCallback((rows: [string, number | null, number | null, number][]) => {
+    setGame(prev => {
+      if (!prev) return prev;
+      const byId = new Map(rows.map(r => [r[0], r]));
+      const teams = prev.teams.map(t => {
+        const row = byId.get(t.id);
+        if (!row) return t;
+        const [, latitude, longitude, timestamp] = row;
+        if (latitude != null && longitude != null) {
+          return { ...t, location: { latitude, longitude, timestamp } };
+        }
+        return t.location ? { ...t, location: { ...t.location, timestamp } } : t;
+      });
+      const next = { ...prev, teams };
+      if (teamId) {
+        setCurrentTeam(teams.find(t => t.id === teamId) || null);
+      }
+      return next;
+    });
+  }, [teamId]);
+
   // Initial load and manual refresh function
   const refresh = useCallback(async () => {
     if (!enabled || !gameId) return;
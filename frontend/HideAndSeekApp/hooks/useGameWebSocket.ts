@@ -4,6 +4,8 @@ import { AppState, AppStateStatus } from 'react-native';
 type Options = {
   wsUrl: string;
   gameId: string;
+  // Team this device plays as; lets the socket carry "loc" location updates
+  teamId?: string;
   onMessage?: (data: any) => void;
   // Heartbeat every heartbeatMs; reconnect if no pong/activity for missAfterMs
   heartbeatMs?: number;
@@ -25,10 +27,43 @@ type Manager = {
   disconnect: () => void;
   send: (payload: any) => void;
   appStateSub: { remove: () => void } | null;
+  gameId: string;
+  teamId?: string;
+  locSeq: number;
+  // Last clue response delivered to teamId, so a reconnect only replays the ones it missed
+  clueSeq: number;
+  clueEpoch: number | null;
 };
 
 const managers = new Map<string, Manager>();
 
+function joinMessage(mgr: Manager) {
+  if (!mgr.teamId) return { type: 'join', gameId: mgr.gameId };
+  return {
+    type: 'join',
+    gameId: mgr.gameId,
+    teamId: mgr.teamId,
+    lastClueResponseSeq: mgr.clueSeq,
+    ...(mgr.clueEpoch != null ? { clueResponseEpoch: mgr.clueEpoch } : {}),
+  };
+}
+
+// Ack a clue response for our team once subscribers have handled it, so the server drops it
+function acknowledgeClueResponse(mgr: Manager, data: any) {
+  if (data?.type !== 'clueResponse' || !mgr.teamId || data.requestingTeamId !== mgr.teamId) return;
+  const seq = data.response?.seq;
+  if (typeof seq !== 'number' || seq <= 0) return;
+  const epoch = typeof data.response?.epoch === 'number' ? data.response.epoch : null;
+  if (epoch !== mgr.clueEpoch) {
+    // Server restarted: its sequence numbers started over
+    mgr.clueEpoch = epoch;
+    mgr.clueSeq = 0;
+  }
+  if (seq <= mgr.clueSeq) return;
+  mgr.clueSeq = seq;
+  mgr.send({ type: 'clueAck', seq, ...(epoch != null ? { clueResponseEpoch: epoch } : {}) });
+}
+
 function getManager(key: string, wsUrl: string, gameId: string, heartbeatMs: number): Manager {
   const existing = managers.get(key);
   if (existing) return existing;
@@ -47,6 +82,11 @@ function getManager(key: string, wsUrl: string, gameId: string, heartbeatMs: num
     disconnect: () => {},
     send: (_: any) => {},
     appStateSub: null,
+    gameId,
+    teamId: undefined,
+    locSeq: 0,
+    clueSeq: 0,
+    clueEpoch: null,
   };
 
   const clearTimers = () => {
@@ -109,14 +149,15 @@ function getManager(key: string, wsUrl: string, gameId: string, heartbeatMs: num
         mgr.backoff = 1000;
         notifyStatus(true);
         // Join room
-        try { ws.send(JSON.stringify({ type: 'join', gameId })); } catch {}
+        try { ws.send(JSON.stringify(joinMessage(mgr))); } catch {}
         startHeartbeat();
       };
       (ws as any).onmessage = (ev: MessageEvent) => {
         try {
           const data = JSON.parse((ev as any).data);
-          if (data?.type === 'pong') return;
+          if (data?.type === 'pong' || data?.type === 'locAck') return;
           mgr.subscribers.forEach((fn) => { try { fn(data); } catch {} });
+          acknowledgeClueResponse(mgr, data);
         } catch {}
       };
       const onCloseOrError = () => {
@@ -183,9 +224,28 @@ function getManager(key: string, wsUrl: string, gameId: string, heartbeatMs: num
   return mgr;
 }
 
+/**
+ * Send a location fix over an open game socket that joined with a teamId.
+ * Returns false when no such socket is open, so callers can fall back to HTTP.
+ */
+export function sendLocationOverWebSocket(gameId: string, teamId: string, latitude: number, longitude: number): boolean {
+  for (const mgr of managers.values()) {
+    if (mgr.gameId !== gameId || mgr.teamId !== teamId) continue;
+    if (!(mgr.ws && (mgr.ws as any).readyState === WebSocket.OPEN)) continue;
+    try {
+      mgr.ws.send(JSON.stringify({ type: 'loc', lat: latitude, lon: longitude, seq: ++mgr.locSeq }));
+      return true;
+    } catch {
+      return false;
+    }
+  }
+  return false;
+}
+
 export default function useGameWebSocket({
   wsUrl,
   gameId,
+  teamId,
   onMessage,
   heartbeatMs = 30000,
   missAfterMs = 120000, // retained for API compat; no longer used to force close
@@ -203,6 +263,15 @@ export default function useGameWebSocket({
     const key = `${wsUrl}|${gameId}`;
     const mgr = getManager(key, wsUrl, gameId, heartbeatMs);
     mgrRef.current = mgr;
+    if (teamId && mgr.teamId !== teamId) {
+      // Register the team on the shared socket (re-join if it is already open)
+      if (mgr.teamId) {
+        mgr.clueSeq = 0;
+        mgr.clueEpoch = null;
+      }
+      mgr.teamId = teamId;
+      mgr.send(joinMessage(mgr));
+    }
 
     const sub = (data: any) => {
       try { onMessage?.(data); } catch {}
@@ -220,7 +289,7 @@ export default function useGameWebSocket({
       // Do not fully disconnect to allow other screens to keep using it
       // Manager will stay alive until app exit; optional: could add ref counting
     };
-  }, [wsUrl, gameId, heartbeatMs, onMessage]);
+  }, [wsUrl, gameId, teamId, heartbeatMs, onMessage]);
 
   return { connected, send };
 }
@@ -2,6 +2,7 @@ import { useEffect, useRef } from 'react';
 import * as Location from 'expo-location';
 import { Alert, AppState } from 'react-native';
 import ApiService from '../services/api';
+import { sendLocationOverWebSocket } from './useGameWebSocket';
 import * as TaskManager from 'expo-task-manager';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { BACKGROUND_LOCATION_TASK } from '../backgroundTasks';
@@ -105,12 +106,21 @@ const useLocationTracker = ({ teamId, gameId, isHider, enabled, isActive, onLoca
           });
 
           console.log('Sending foreground location update to server...');
-          await ApiService.updateLocation(
+          // Prefer the already-open game socket; fall back to HTTP when it is not connected
+          const sentOverSocket = sendLocationOverWebSocket(
+            gameId,
             teamId,
             location.coords.latitude,
-            location.coords.longitude,
-            gameId
+            location.coords.longitude
           );
+          if (!sentOverSocket) {
+            await ApiService.updateLocation(
+              teamId,
+              location.coords.latitude,
+              location.coords.longitude,
+              gameId
+            );
+          }
           console.log('Foreground location update sent successfully:', location.coords);
           if (onLocationSent) {
             onLocationSent(location);
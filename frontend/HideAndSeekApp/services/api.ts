@@ -416,21 +416,14 @@ class ApiService {
   }
 
   async uploadSelfie(requestId: string, teamId: string, gameId: string, fileUri: string) {
-    const formData = new FormData();
-    // React Native FormData file object shape; cast to any to appease TypeScript
-    formData.append(
-      'file',
-      // eslint-disable-next-line @typescript-eslint/no-explicit-any
-      ({ uri: fileUri, name: 'selfie.jpg', type: 'image/jpeg' } as any)
-    );
-    formData.append('requestId', requestId);
-    formData.append('teamId', teamId);
-    formData.append('gameId', gameId);
-
-    const response = await fetch(`${API_BASE_URL}/uploads/selfie`, {
+    // Send the image itself as the request body; the server streams it to disk and finishes the
+    // clue request in the background (202), so nothing is buffered as multipart on either side
+    const file = await (await fetch(fileUri)).blob();
+    const query = new URLSearchParams({ requestId, teamId, gameId }).toString();
+    const response = await fetch(`${API_BASE_URL}/uploads/selfie/stream?${query}`, {
       method: 'POST',
-      // Don't set Content-Type manually; let fetch set multipart boundary
-      body: formData as any,
+      headers: { 'Content-Type': file.type && file.type.startsWith('image/') ? file.type : 'image/jpeg' },
+      body: file,
     });
     if (!response.ok) {
       try {
@@ -552,6 +545,27 @@ class ApiService {
     }
   }
 
+  // Send several timestamped fixes at once (e.g. queued while backgrounded); only the newest becomes live
+  async updateLocationBatch(
+    teamId: string,
+    gameId: string,
+    fixes: { latitude: number; longitude: number; timestamp: number }[]
+  ) {
+    const response = await fetch(`${API_BASE_URL}/location/batch`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+      body: JSON.stringify({ teamId, gameId, fixes }),
+    });
+
+    if (!response.ok) {
+      const errorText = await response.text();
+      throw new Error(`HTTP ${response.status}: ${errorText}`);
+    }
+    return response.json();
+  }
+
   async getDistance(seekerLat: number, seekerLon: number, hiderTeamId: string) {
     const response = await fetch(`${API_BASE_URL}/location/distance`, {
       method: 'POST',
@@ -1,16 +1,24 @@
 package com.hideandseek.controller;
 
 import com.hideandseek.store.GameStore;
+import com.hideandseek.store.GameStoreSnapshotter;
 import com.hideandseek.model.Game;
 import com.hideandseek.model.Team;
 import com.hideandseek.service.GameService;
+import com.hideandseek.service.GeofenceService;
+import com.hideandseek.service.LocationBroadcastFilter;
+import com.hideandseek.service.ProximityAlertService;
 import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.logging.GameEventReplayer;
+import com.hideandseek.logging.GameEventStream;
 import com.hideandseek.logging.LocationSnapshotLogger;
+import com.hideandseek.logging.TeamTrailStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -32,6 +40,27 @@ public class AdminController {
     @Autowired
     private LocationSnapshotLogger locationSnapshotLogger;
 
+    @Autowired
+    private TeamTrailStore teamTrailStore;
+
+    @Autowired
+    private GameEventReplayer gameEventReplayer;
+
+    @Autowired
+    private GameStoreSnapshotter gameStoreSnapshotter;
+
+    @Autowired
+    private GameEventStream gameEventStream;
+
+    @Autowired
+    private LocationBroadcastFilter locationBroadcastFilter;
+
+    @Autowired
+    private GeofenceService geofenceService;
+
+    @Autowired
+    private ProximityAlertService proximityAlertService;
+
     /**
      * Get comprehensive system statistics
      */
@@ -95,6 +124,7 @@ public class AdminController {
             } else {
                 stats.put("averageGameDurationMinutes", 0);
             }
+            stats.put("locationBroadcasts", locationBroadcastFilter.getStats());
             
             return ResponseEntity.ok(stats);
             
@@ -249,6 +279,7 @@ public class AdminController {
             payload.put("roundLengthMinutes", game.getRoundLengthMinutes());
             payload.put("startTime", game.getStartTime());
             payload.put("endTime", game.getEndTime());
+            List<String> outOfBounds = geofenceService.getOutOfBoundsTeams(gameId);
             payload.put("teams", game.getTeams().stream().map(team -> {
                 Map<String, Object> t = new HashMap<>();
                 t.put("id", team.getId());
@@ -259,9 +290,13 @@ public class AdminController {
                     t.put("latitude", team.getLocation().getLatitude());
                     t.put("longitude", team.getLocation().getLongitude());
                     t.put("timestamp", team.getLocation().getTimestamp());
+                    double nearest = gameStore.getNearestTeamDistance(game, team, "hider".equals(team.getRole()) ? "seeker" : "hider");
+                    if (!Double.isNaN(nearest)) t.put("nearestOpponentMeters", nearest);
                 }
+                t.put("outOfBounds", outOfBounds.contains(team.getId()));
                 return t;
             }).collect(Collectors.toList()));
+            payload.put("proximityAlerts", proximityAlertService.getActiveAlerts(gameId));
             return ResponseEntity.ok(payload);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", "Failed to get live game data: " + e.getMessage()));
@@ -290,6 +325,43 @@ public class AdminController {
         }
     }
 
+    /**
+     * Live tail of game events as Server-Sent Events.
+     * gameIds: comma-separated list (omit for all games).
+     * since: last sequence already seen, either one number for all listed games or "gameId:seq,...".
+     * The Last-Event-ID header sent by EventSource on reconnect ("gameId:seq") is honoured too.
+     */
+    @GetMapping(value = "/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvents(@RequestParam(required = false) List<String> gameIds,
+                                   @RequestParam(required = false) String since,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        List<String> ids = gameIds != null ? gameIds.stream().filter(id -> id != null && !id.isBlank()).toList() : List.of();
+        Map<String, Long> resume = new HashMap<>();
+        if (since != null && !since.isBlank()) {
+            for (String part : since.split(",")) {
+                String p = part.trim();
+                int colon = p.lastIndexOf(':');
+                try {
+                    if (colon > 0) {
+                        resume.put(p.substring(0, colon), Long.parseLong(p.substring(colon + 1)));
+                    } else {
+                        long seq = Long.parseLong(p);
+                        ids.forEach(id -> resume.put(id, seq));
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        if (lastEventId != null && lastEventId.lastIndexOf(':') > 0) {
+            int colon = lastEventId.lastIndexOf(':');
+            try {
+                resume.merge(lastEventId.substring(0, colon), Long.parseLong(lastEventId.substring(colon + 1)), Math::max);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return gameEventStream.subscribe(ids, resume);
+    }
+
     /**
      * Download game event logs as NDJSON
      */
@@ -362,6 +434,120 @@ public class AdminController {
         }
     }
 
+    /**
+     * Location trails by time window, in columnar form (timestamps/latitudes/longitudes per team).
+     * With maxPoints, each trail comes from the finest simplification level that fits.
+     */
+    @GetMapping("/games/{gameId}/trails")
+    public ResponseEntity<?> getGameTrails(@PathVariable String gameId,
+                                           @RequestParam(required = false) String teamId,
+                                           @RequestParam(defaultValue = "0") long from,
+                                           @RequestParam(required = false) Long to,
+                                           @RequestParam(defaultValue = "5000") int limit,
+                                           @RequestParam(required = false) Integer maxPoints) {
+        try {
+            Game game = gameStore.getGame(gameId);
+            if (game == null) {
+                return ResponseEntity.notFound().build();
+            }
+            long until = to != null ? to : Long.MAX_VALUE;
+            if (limit < 1 || limit > 100000) {
+                return ResponseEntity.badRequest().body(Map.of("error", "limit must be between 1 and 100000"));
+            }
+            if (maxPoints != null && (maxPoints < 2 || maxPoints > 100000)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "maxPoints must be between 2 and 100000"));
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("gameId", gameId);
+            if (teamId != null && !teamId.isBlank()) {
+                if (gameStore.getTeam(gameId, teamId) == null) {
+                    return ResponseEntity.status(404).body(Map.of("error", "Team not found"));
+                }
+                result.put("trails", Map.of(teamId, maxPoints != null
+                        ? teamTrailStore.querySimplified(gameId, teamId, from, until, maxPoints)
+                        : teamTrailStore.query(gameId, teamId, from, until, limit)));
+            } else {
+                result.put("trails", maxPoints != null
+                        ? teamTrailStore.queryGameSimplified(gameId, from, until, maxPoints)
+                        : teamTrailStore.queryGame(gameId, from, until, limit));
+            }
+            result.put("storageBytes", teamTrailStore.getStorageBytes(gameId));
+            result.put("simplification", teamTrailStore.getSimplificationStats(gameId));
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to read trails: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Play area of a game as GeoJSON (404 when none is set)
+     */
+    @GetMapping(value = "/games/{gameId}/geofence", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getGeofence(@PathVariable String gameId) {
+        if (gameStore.getGame(gameId) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String geoJson = geofenceService.getGeofence(gameId);
+        if (geoJson == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "No geofence set"));
+        }
+        return ResponseEntity.ok(geoJson);
+    }
+
+    /**
+     * Set the play area from a GeoJSON Polygon, MultiPolygon, Feature or FeatureCollection
+     */
+    @PutMapping(value = "/games/{gameId}/geofence", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<?> setGeofence(@PathVariable String gameId, @RequestBody String geoJson) {
+        try {
+            return ResponseEntity.ok(geofenceService.setGeofence(gameId, geoJson));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to set geofence: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/games/{gameId}/geofence")
+    public ResponseEntity<?> clearGeofence(@PathVariable String gameId) {
+        try {
+            if (gameStore.getGame(gameId) == null) {
+                return ResponseEntity.notFound().build();
+            }
+            geofenceService.clearGeofence(gameId);
+            return ResponseEntity.ok(Map.of("message", "Geofence removed"));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to remove geofence: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Result of the startup event-log recovery
+     */
+    @GetMapping("/recovery")
+    public ResponseEntity<Map<String, Object>> getRecoveryReport() {
+        return ResponseEntity.ok(gameEventReplayer.getLastReport());
+    }
+
+    /**
+     * Last GameStore snapshot load and write
+     */
+    @GetMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> getSnapshotStatus() {
+        return ResponseEntity.ok(Map.of(
+            "lastLoad", gameStoreSnapshotter.getLastLoad(),
+            "lastWrite", gameStoreSnapshotter.getLastWrite()
+        ));
+    }
+
+    /**
+     * Write a GameStore snapshot now (e.g. right before a redeploy)
+     */
+    @PostMapping("/snapshot")
+    public ResponseEntity<Map<String, Object>> writeSnapshot() {
+        return ResponseEntity.ok(gameStoreSnapshotter.writeSnapshot());
+    }
+
     private Map<String, Object> formatGameForAdmin(Game game) {
         Map<String, Object> details = new HashMap<>();
         details.put("id", game.getId());
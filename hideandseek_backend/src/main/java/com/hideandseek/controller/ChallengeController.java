@@ -49,13 +49,18 @@ public class ChallengeController {
     }
 
     @PostMapping("/complete")
-    public ResponseEntity<Map<String, Object>> completeChallenge(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> completeChallenge(@RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String challengeTitle = (String) request.get("challengeTitle");
             String teamId = (String) request.get("teamId");
             String gameId = (String) request.get("gameId");
             
-            Map<String, Object> result = challengeService.completeChallenge(gameId, teamId, challengeTitle);
+            if (idempotencyKey == null) {
+                idempotencyKey = (String) request.get("idempotencyKey");
+            }
+            
+            Map<String, Object> result = challengeService.completeChallenge(gameId, teamId, challengeTitle, idempotencyKey);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -63,14 +68,19 @@ public class ChallengeController {
     }
 
     @PostMapping("/complete-custom")
-    public ResponseEntity<Map<String, Object>> completeChallengeWithCustomTokens(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> completeChallengeWithCustomTokens(@RequestBody Map<String, Object> request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String challengeTitle = (String) request.get("challengeTitle");
             String teamId = (String) request.get("teamId");
             String gameId = (String) request.get("gameId");
             Integer customTokens = (Integer) request.get("customTokens");
             
-            Map<String, Object> result = challengeService.completeChallengeWithCustomTokens(gameId, teamId, challengeTitle, customTokens);
+            if (idempotencyKey == null) {
+                idempotencyKey = (String) request.get("idempotencyKey");
+            }
+            
+            Map<String, Object> result = challengeService.completeChallengeWithCustomTokens(gameId, teamId, challengeTitle, customTokens, idempotencyKey);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
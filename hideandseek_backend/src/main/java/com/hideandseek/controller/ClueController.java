@@ -31,10 +31,18 @@ public class ClueController {
     }
 
     @GetMapping("/{gameId}/teams/{teamId}/history")
-    public ResponseEntity<?> getClueHistory(@PathVariable String gameId, @PathVariable String teamId) {
+    public ResponseEntity<?> getClueHistory(@PathVariable String gameId, @PathVariable String teamId,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(required = false) Long sinceVersion) {
         try {
-            var history = clueService.getClueHistory(gameId, teamId);
-            return ResponseEntity.ok(history);
+            // Without paging parameters keep returning the full list, oldest first
+            if (limit == null && cursor == null && sinceVersion == null) {
+                return ResponseEntity.ok(clueService.getClueHistory(gameId, teamId));
+            }
+            return ResponseEntity.ok(clueService.getClueHistoryPage(gameId, teamId, limit, cursor, sinceVersion));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             log.error("Error fetching clue history", e);
             return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
@@ -42,7 +50,8 @@ public class ClueController {
     }
 
     @PostMapping("/purchase")
-    public ResponseEntity<?> purchaseClue(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> purchaseClue(@RequestBody Map<String, Object> request,
+                                          @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String gameId = (String) request.get("gameId");
             String teamId = (String) request.get("purchasingTeamId");
@@ -53,7 +62,11 @@ public class ClueController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Missing required fields: gameId, purchasingTeamId, clueTypeId"));
             }
 
-            var result = clueService.purchaseClue(gameId, teamId, clueTypeId, description);
+            if (idempotencyKey == null) {
+                idempotencyKey = (String) request.get("idempotencyKey");
+            }
+
+            var result = clueService.purchaseClue(gameId, teamId, clueTypeId, description, idempotencyKey);
             return ResponseEntity.ok(result);
             
         } catch (IllegalArgumentException e) {
@@ -100,6 +113,34 @@ public class ClueController {
         }
     }
 
+    @GetMapping("/{gameId}/teams/{teamId}/responses")
+    public ResponseEntity<?> getPendingClueResponses(@PathVariable String gameId, @PathVariable String teamId,
+                                                     @RequestParam(defaultValue = "0") long afterSeq,
+                                                     @RequestParam(required = false) Long epoch) {
+        try {
+            return ResponseEntity.ok(clueService.getPendingClueResponses(gameId, teamId, epoch, afterSeq));
+        } catch (Exception e) {
+            log.error("Error fetching clue responses", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{gameId}/teams/{teamId}/responses/ack")
+    public ResponseEntity<?> acknowledgeClueResponses(@PathVariable String gameId, @PathVariable String teamId,
+                                                      @RequestBody Map<String, Object> request) {
+        try {
+            if (!(request.get("seq") instanceof Number seq)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Missing required field: seq"));
+            }
+            Long epoch = request.get("epoch") instanceof Number e ? e.longValue() : null;
+            clueService.acknowledgeClueResponses(gameId, teamId, epoch, seq.longValue());
+            return ResponseEntity.ok(Map.of("acknowledged", seq.longValue()));
+        } catch (Exception e) {
+            log.error("Error acknowledging clue responses", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/debug/requests/{gameId}")
     public ResponseEntity<?> getClueRequestsDebug(@PathVariable String gameId) {
         try {
@@ -17,13 +17,17 @@ public class CurseController {
     private CurseService curseService;
 
     @PostMapping("/apply")
-    public ResponseEntity<Map<String, Object>> applyCurse(@RequestBody Map<String, Object> request) {
+    public ResponseEntity<Map<String, Object>> applyCurse(@RequestBody Map<String, Object> request,
+                                                          @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String gameId = (String) request.get("gameId");
             String seekerTeamId = (String) request.get("seekerTeamId");
             String targetTeamId = (String) request.get("targetTeamId");
+            if (idempotencyKey == null) {
+                idempotencyKey = (String) request.get("idempotencyKey");
+            }
             
-            Map<String, Object> result = curseService.curseTeam(gameId, seekerTeamId, targetTeamId);
+            Map<String, Object> result = curseService.curseTeam(gameId, seekerTeamId, targetTeamId, idempotencyKey);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
@@ -1,22 +1,30 @@
 package com.hideandseek.controller;
 
 import com.hideandseek.service.ClueService;
+import com.hideandseek.service.SelfieFileService;
+import com.hideandseek.service.SelfieUploadService;
+import com.hideandseek.service.SelfieVariantService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/uploads")
@@ -24,30 +32,23 @@ import java.util.UUID;
 public class FileUploadController {
 
     private static final Logger log = LoggerFactory.getLogger(FileUploadController.class);
-    // Optional override via configuration; if empty, we resolve a safe default at runtime
-    @Value("${uploads.selfies.dir:}")
-    private String configuredUploadDir;
-
-    private Path resolveUploadDir() {
-        // Prefer explicit configuration
-        if (configuredUploadDir != null && !configuredUploadDir.isBlank()) {
-            return Paths.get(configuredUploadDir).toAbsolutePath().normalize();
-        }
-        // WildFly/JBoss: use server data dir if available
-        String dataDir = System.getProperty("jboss.server.data.dir");
-        Path base;
-        if (dataDir != null && !dataDir.isBlank()) {
-            base = Paths.get(dataDir);
-        } else {
-            // Fallback to process working dir to avoid writing to filesystem root
-            base = Paths.get(System.getProperty("user.dir", "."));
-        }
-        return base.resolve("hideandseek").resolve("uploads").resolve("selfies").toAbsolutePath().normalize();
-    }
 
     @Autowired
     private ClueService clueService;
 
+    @Autowired
+    private SelfieUploadService selfieUploadService;
+
+    @Autowired
+    private SelfieVariantService selfieVariantService;
+
+    @Autowired
+    private SelfieFileService selfieFileService;
+
+    private Path resolveUploadDir() {
+        return selfieUploadService.resolveUploadDir();
+    }
+
     @PostMapping("/selfie")
     public ResponseEntity<?> uploadSelfie(
             @RequestParam("file") MultipartFile file,
@@ -60,46 +61,37 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body(Map.of("error", "No file provided"));
             }
 
-            // Validate file type
-            String contentType = file.getContentType();
-            if (contentType == null || !contentType.startsWith("image/")) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File must be an image"));
-            }
+            // Validate file type and size, and that the request can still be answered
+            selfieUploadService.checkUpload(file.getContentType(), file.getSize());
+            clueService.checkCanRespond(requestId, teamId);
 
-            // Create game-specific upload directory
-            Path uploadPath = resolveUploadDir().resolve(gameId);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            SelfieUploadService.StoredFile stored;
+            try (InputStream in = file.getInputStream()) {
+                stored = selfieUploadService.store(gameId, file.getContentType(), file.getOriginalFilename(), in);
             }
-
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".") 
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-            String filename = UUID.randomUUID().toString() + extension;
-            Path filePath = uploadPath.resolve(filename).normalize();
-
-            // Save file
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Generate absolute URL for the file
-            String baseUrl = "";
-            try {
-                // Best-effort: infer host from X-Forwarded-* headers or request context
-                baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
-            } catch (Exception ignored) {}
-            String relativePath = "/api/uploads/files/" + gameId + "/" + filename;
-            String fileUrl = (baseUrl != null && !baseUrl.isEmpty()) ? baseUrl + relativePath : relativePath;
+            String relativePath = relativePathOf(stored);
+            String fileUrl = absoluteUrl(relativePath);
 
             // Submit the photo URL as the response to the clue request
-            var result = clueService.respondToClueRequest(requestId, teamId, fileUrl);
+            Map<String, Object> result;
+            try {
+                result = clueService.respondToClueRequest(requestId, teamId, fileUrl);
+                selfieUploadService.release(stored);
+            } catch (RuntimeException e) {
+                selfieUploadService.discard(stored);
+                throw e;
+            }
             result.put("fileUrl", fileUrl);
-            result.put("filename", filename);
+            result.put("filename", stored.getFilename());
             result.put("relativePath", relativePath);
+            result.put("sha256", stored.getSha256());
 
             return ResponseEntity.ok(result);
 
+        } catch (SelfieUploadService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "2").body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             log.error("Error uploading file", e);
             return ResponseEntity.internalServerError().body(Map.of("error", "Failed to upload file"));
@@ -111,28 +103,99 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * Streaming upload: the request body is the image itself (Content-Type image/*), ids in the
+     * query string. Type, declared length and the clue request are checked before the body is read;
+     * the clue request is completed in the background once the file is on disk (202 Accepted), and
+     * the requesting team sees it through the usual clueResponse message.
+     */
+    @PostMapping("/selfie/stream")
+    public ResponseEntity<?> streamSelfie(
+            @RequestParam("requestId") String requestId,
+            @RequestParam("teamId") String teamId,
+            @RequestParam("gameId") String gameId,
+            HttpServletRequest request) {
+        try {
+            String contentType = request.getContentType();
+            if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+                return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", "File must be an image"));
+            }
+            selfieUploadService.checkUpload(contentType, request.getContentLengthLong());
+            clueService.checkCanRespond(requestId, teamId);
+
+            SelfieUploadService.StoredFile stored;
+            try (InputStream in = request.getInputStream()) {
+                stored = selfieUploadService.store(gameId, contentType, null, in);
+            }
+            String relativePath = relativePathOf(stored);
+            String fileUrl = absoluteUrl(relativePath);
+            selfieUploadService.completeAsync(requestId, teamId, stored, fileUrl);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("requestId", requestId);
+            result.put("status", "processing");
+            result.put("fileUrl", fileUrl);
+            result.put("filename", stored.getFilename());
+            result.put("relativePath", relativePath);
+            result.put("size", stored.getSize());
+            result.put("sha256", stored.getSha256());
+            return ResponseEntity.accepted().body(result);
+
+        } catch (SelfieUploadService.UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "2").body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("Error streaming selfie upload", e);
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to upload file"));
+        }
+    }
+
+    /**
+     * The requested variant (?variant=thumb|screen|original) of an upload. Until it has been
+     * generated, e.g. for uploads from before variants existed, the original is served and
+     * generation is queued; originals that cannot be decoded (e.g. HEIC) are served as they are.
+     */
+    private Path pickVariant(Path original, String variant) {
+        SelfieVariantService.Variant requested = SelfieVariantService.Variant.parse(variant);
+        if (requested == null || SelfieVariantService.isVariant(original)) {
+            return original;
+        }
+        Path variantPath = SelfieVariantService.variantPath(original, requested);
+        if (Files.exists(variantPath)) {
+            return variantPath;
+        }
+        selfieVariantService.generateAsync(original);
+        return original;
+    }
+
+    private static String relativePathOf(SelfieUploadService.StoredFile stored) {
+        return "/api/uploads/files/" + stored.getGameId() + "/" + stored.getFilename();
+    }
+
+    private static String absoluteUrl(String relativePath) {
+        String baseUrl = "";
+        try {
+            // Best-effort: infer host from X-Forwarded-* headers or request context
+            baseUrl = ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString();
+        } catch (Exception ignored) {}
+        return (baseUrl != null && !baseUrl.isEmpty()) ? baseUrl + relativePath : relativePath;
+    }
+
     @GetMapping("/files/{gameId}/{filename}")
-    public ResponseEntity<?> getFile(@PathVariable String gameId, @PathVariable String filename) {
+    public ResponseEntity<?> getFile(@PathVariable String gameId, @PathVariable String filename,
+                                     @RequestParam(required = false) String variant) {
         try {
             // Prevent path traversal by normalizing to a basename
             String safeGameId = Paths.get(gameId).getFileName().toString();
             String safeName = Paths.get(filename).getFileName().toString();
             Path filePath = resolveUploadDir().resolve(safeGameId).resolve(safeName).normalize();
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Return the file content
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType)
-                    .body(fileContent);
+            return serveUpload(filePath, variant);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             log.error("Error retrieving file", e);
             return ResponseEntity.internalServerError().build();
@@ -141,29 +204,43 @@ public class FileUploadController {
 
     // Legacy endpoint for backward compatibility
     @GetMapping("/files/{filename}")
-    public ResponseEntity<?> getFileLegacy(@PathVariable String filename) {
+    public ResponseEntity<?> getFileLegacy(@PathVariable String filename,
+                                           @RequestParam(required = false) String variant) {
         try {
             // Prevent path traversal by normalizing to a basename
             String safeName = Paths.get(filename).getFileName().toString();
             Path filePath = resolveUploadDir().resolve(safeName).normalize();
-            if (!Files.exists(filePath)) {
-                return ResponseEntity.notFound().build();
-            }
-
-            // Return the file content
-            byte[] fileContent = Files.readAllBytes(filePath);
-            String contentType = Files.probeContentType(filePath);
-            if (contentType == null) {
-                contentType = "application/octet-stream";
-            }
-
-            return ResponseEntity.ok()
-                    .header("Content-Type", contentType)
-                    .body(fileContent);
+            return serveUpload(filePath, variant);
 
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             log.error("Error retrieving file", e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Upload names are content hashes (random UUIDs before) and never rewritten, so responses are immutable and carry a
+     * strong ETag of the content; Spring answers Range and If-None-Match requests for the Resource.
+     * A variant that is not ready yet is answered with the original, which must not be cached
+     * under the variant's URL.
+     */
+    private ResponseEntity<?> serveUpload(Path original, String variant) throws IOException {
+        if (!Files.exists(original)) {
+            return ResponseEntity.notFound().build();
+        }
+        Path filePath = pickVariant(original, variant);
+        boolean fallback = SelfieVariantService.Variant.parse(variant) != null && filePath.equals(original)
+                && !SelfieVariantService.isVariant(original);
+        SelfieFileService.ServedFile served = selfieFileService.open(filePath);
+        if (served == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(served.getContentType())
+                .eTag(served.getETag())
+                .cacheControl(fallback ? CacheControl.noCache() : CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+                .body(served.getResource());
+    }
 }
@@ -185,6 +185,20 @@ public class GameController {
         }
     }
 
+    @GetMapping("/game/{gameId}/teams/{teamId}/tokens/history")
+    public ResponseEntity<?> getTokenHistory(
+            @PathVariable String gameId,
+            @PathVariable String teamId,
+            @RequestParam(value = "afterSeq", defaultValue = "0") long afterSeq) {
+        try {
+            return ResponseEntity.ok(gameService.getTokenHistory(gameId, teamId, afterSeq));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Failed to load token history"));
+        }
+    }
+
     @PostMapping("/game/{gameId}/teams/{teamId}/role")
     public ResponseEntity<Team> switchTeamRole(
             @PathVariable String gameId,
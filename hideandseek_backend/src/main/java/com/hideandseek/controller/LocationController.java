@@ -6,6 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -13,6 +15,8 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class LocationController {
 
+    private static final int MAX_BATCH_FIXES = 1000;
+
     @Autowired
     private LocationService locationService;
 
@@ -37,4 +41,35 @@ public class LocationController {
             return ResponseEntity.badRequest().body("Failed to update location: " + e.getMessage());
         }
     }
+
+    /**
+     * Body: { gameId, teamId, fixes: [{ latitude, longitude, timestamp }, ...] }
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> updateLocationBatch(@RequestBody Map<String, Object> request) {
+        try {
+            String teamId = (String) request.get("teamId");
+            String gameId = (String) request.get("gameId");
+            Object rawFixes = request.get("fixes");
+            if (!(rawFixes instanceof List<?> list) || list.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "fixes must be a non-empty array"));
+            }
+            if (list.size() > MAX_BATCH_FIXES) {
+                return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BATCH_FIXES + " fixes per batch"));
+            }
+            List<Location> fixes = new ArrayList<>(list.size());
+            for (Object item : list) {
+                if (!(item instanceof Map<?, ?> fix)) continue;
+                if (!(fix.get("latitude") instanceof Number lat) || !(fix.get("longitude") instanceof Number lon)) continue;
+                long ts = fix.get("timestamp") instanceof Number t ? t.longValue() : 0L;
+                fixes.add(new Location(lat.doubleValue(), lon.doubleValue(), ts));
+            }
+
+            return ResponseEntity.ok(locationService.updateLocationBatch(gameId, teamId, fixes));
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Failed to update locations: " + e.getMessage()));
+        }
+    }
 }
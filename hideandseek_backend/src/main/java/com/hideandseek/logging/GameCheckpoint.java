@@ -0,0 +1,51 @@
+package com.hideandseek.logging;
+
+import com.hideandseek.model.ClueRequest;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.PurchasedClue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Full state of one game at a given event sequence. Replay starts from the
+ * newest checkpoint and only applies events with a higher sequence number.
+ */
+public class GameCheckpoint {
+    private String version;
+    private String gameId;
+    private long sequence;   // Last event sequence included in this state
+    private long takenAt;
+    private Game game;
+    private Map<String, List<PurchasedClue>> clueHistory = new HashMap<>(); // key: teamId
+    private List<ClueRequest> clueRequests = new ArrayList<>();
+
+    public GameCheckpoint() {}
+
+    public String getVersion() { return version; }
+    public void setVersion(String version) { this.version = version; }
+
+    public String getGameId() { return gameId; }
+    public void setGameId(String gameId) { this.gameId = gameId; }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+
+    public long getTakenAt() { return takenAt; }
+    public void setTakenAt(long takenAt) { this.takenAt = takenAt; }
+
+    public Game getGame() { return game; }
+    public void setGame(Game game) { this.game = game; }
+
+    public Map<String, List<PurchasedClue>> getClueHistory() { return clueHistory; }
+    public void setClueHistory(Map<String, List<PurchasedClue>> clueHistory) {
+        this.clueHistory = clueHistory != null ? clueHistory : new HashMap<>();
+    }
+
+    public List<ClueRequest> getClueRequests() { return clueRequests; }
+    public void setClueRequests(List<ClueRequest> clueRequests) {
+        this.clueRequests = clueRequests != null ? clueRequests : new ArrayList<>();
+    }
+}
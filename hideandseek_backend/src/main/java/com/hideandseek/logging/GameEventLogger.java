@@ -15,20 +15,32 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class GameEventLogger {
     private static final Logger log = LoggerFactory.getLogger(GameEventLogger.class);
     private static final String VERSION = "1.0";
+    private static final DateTimeFormatter READABLE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final DateTimeFormatter EVENT_ID_TIME = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").withZone(ZoneId.systemDefault());
 
     private final ObjectMapper mapper;
     private final Map<String, AtomicLong> seqMap = new ConcurrentHashMap<>();
     private final Path baseDir;
     private final GameStore gameStore;
+    // Enrichment caches: catalog titles never change after startup, team names are rebuilt when a game's team list changes
+    private volatile Map<String, String> challengeTitles;
+    private volatile Map<String, String> curseTitles;
+    private volatile Map<String, String> clueTypeNames;
+    private final Map<String, TeamNames> teamNames = new ConcurrentHashMap<>();
+    private final List<Consumer<GameEvent>> listeners = new CopyOnWriteArrayList<>();
 
     public GameEventLogger(@Value("${events.log.baseDir:}") String baseDir, GameStore gameStore) {
         this.baseDir = resolveBaseDir(baseDir);
@@ -62,37 +74,89 @@ public class GameEventLogger {
     }
 
     public synchronized void appendEvent(String gameId, String type, String actorType, String actorId, Map<String, Object> payload) {
+        appendEvents(gameId, List.of(new PendingEvent(type, actorType, actorId, payload)));
+    }
+
+    /**
+     * An event to append with appendEvents.
+     */
+    public static final class PendingEvent {
+        final String type;
+        final String actorType;
+        final String actorId;
+        final Map<String, Object> payload;
+
+        public PendingEvent(String type, String actorType, String actorId, Map<String, Object> payload) {
+            this.type = type;
+            this.actorType = actorType;
+            this.actorId = actorId;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Append several events of one game as a unit: consecutive sequence numbers, one write per
+     * log file, then the listeners in order.
+     */
+    public synchronized void appendEvents(String gameId, List<PendingEvent> pending) {
+        if (pending.isEmpty()) return;
         try {
-            long seq = nextSequence(gameId);
-            long nowTs = System.currentTimeMillis();
-            Map<String, Object> enriched = payload == null ? new HashMap<>() : new HashMap<>(payload);
-            // Enrich payload with human-readable team names, domain names, and timestamp strings
-            enrichPayloadWithNames(gameId, enriched);
-            enrichPayloadWithDomainNames(gameId, enriched);
-            enrichPayloadWithFormattedTimestamps(enriched);
-
-            GameEvent evt = new GameEvent(
-                    VERSION,
-                    generateEventId(),
-                    gameId,
-                    seq,
-                    nowTs,
-                    type,
-                    actorType,
-                    actorId,
-                    enriched
-            );
-            // Add human-readable timestamp and actor name
-            evt.setTimestampFormatted(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(nowTs)));
-            evt.setActorName(resolveActorName(gameId, actorType, actorId));
-            writeNdjson(gameId, evt);
-            // Additionally write human-only readable line (IDs removed)
-            writeReadableNdjson(gameId, evt, enriched);
+            List<GameEvent> events = new ArrayList<>(pending.size());
+            List<Map<String, Object>> readable = new ArrayList<>(pending.size());
+            for (PendingEvent p : pending) {
+                long seq = nextSequence(gameId);
+                long nowTs = System.currentTimeMillis();
+                Map<String, Object> enriched = p.payload == null ? new HashMap<>() : new HashMap<>(p.payload);
+                // Enrich payload with human-readable team names, domain names, and timestamp strings
+                enrichPayloadWithNames(gameId, enriched);
+                enrichPayloadWithDomainNames(gameId, enriched);
+                enrichPayloadWithFormattedTimestamps(enriched);
+
+                GameEvent evt = new GameEvent(
+                        VERSION,
+                        generateEventId(),
+                        gameId,
+                        seq,
+                        nowTs,
+                        p.type,
+                        p.actorType,
+                        p.actorId,
+                        enriched
+                );
+                // Add human-readable timestamp and actor name
+                evt.setTimestampFormatted(READABLE_TIME.format(Instant.ofEpochMilli(nowTs)));
+                evt.setActorName(resolveActorName(gameId, p.actorType, p.actorId));
+                events.add(evt);
+                // Additionally a human-only readable line (IDs removed)
+                readable.add(toReadable(gameId, evt, enriched));
+            }
+            writeLines(gameId, "events.ndjson", events);
+            writeLines(gameId, "events.readable.ndjson", readable);
+            for (GameEvent evt : events) {
+                for (Consumer<GameEvent> l : listeners) {
+                    try {
+                        l.accept(evt);
+                    } catch (Exception ex) {
+                        log.debug("Event listener failed for game {}: {}", gameId, ex.getMessage());
+                    }
+                }
+                if ("game.deleted".equals(evt.getType())) {
+                    teamNames.remove(gameId);
+                }
+            }
         } catch (Exception e) {
-            log.warn("Failed to append event for game {} type {}: {}", gameId, type, e.getMessage());
+            log.warn("Failed to append {} event(s) for game {} type {}: {}", pending.size(), gameId, pending.get(0).type, e.getMessage());
         }
     }
 
+    /**
+     * Register a callback invoked (in sequence order, while holding the append lock) after each
+     * event is written. Listeners must not block.
+     */
+    public void addListener(Consumer<GameEvent> listener) {
+        listeners.add(listener);
+    }
+
     public File getLogFile(String gameId) {
         Path dir = gameDir(gameId);
         Path file = dir.resolve("events.ndjson");
@@ -105,6 +169,23 @@ public class GameEventLogger {
         return file.toFile();
     }
 
+    public File getCheckpointFile(String gameId) {
+        Path dir = gameDir(gameId);
+        Path file = dir.resolve("checkpoint.json");
+        return file.toFile();
+    }
+
+    public Path getBaseDir() {
+        return baseDir;
+    }
+
+    /**
+     * Last sequence number assigned for a game (0 if no events were written yet).
+     */
+    public long getCurrentSequence(String gameId) {
+        return seqMap.computeIfAbsent(gameId, this::loadInitialSequence).get();
+    }
+
     private Path gameDir(String gameId) {
         Path dir = baseDir.resolve(gameId);
         try {
@@ -115,13 +196,14 @@ public class GameEventLogger {
         return dir;
     }
 
-    private void writeNdjson(String gameId, GameEvent event) throws IOException {
+    private void writeLines(String gameId, String fileName, List<?> lines) throws IOException {
         Path dir = gameDir(gameId);
-        Path file = dir.resolve("events.ndjson");
+        Path file = dir.resolve(fileName);
         try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file.toFile(), true), StandardCharsets.UTF_8))) {
-            String json = mapper.writeValueAsString(event);
-            w.write(json);
-            w.write("\n");
+            for (Object line : lines) {
+                w.write(mapper.writeValueAsString(line));
+                w.write("\n");
+            }
         }
     }
 
@@ -153,7 +235,7 @@ public class GameEventLogger {
 
     private String generateEventId() {
         // Simple ULID-like: time-based + random. Good enough for uniqueness here.
-        String ts = new SimpleDateFormat("yyyyMMddHHmmssSSS").format(new Date());
+        String ts = EVENT_ID_TIME.format(Instant.now());
         String rand = UUID.randomUUID().toString().replace("-", "");
         return ts + "-" + rand.substring(0, 12);
     }
@@ -162,8 +244,7 @@ public class GameEventLogger {
         try {
             if (actorId == null || actorId.isBlank()) return actorType;
             if ("team".equalsIgnoreCase(actorType)) {
-                Team t = gameStore.getTeam(gameId, actorId);
-                return t != null && t.getName() != null ? t.getName() : actorId;
+                return resolveTeamName(gameId, actorId);
             } else if ("admin".equalsIgnoreCase(actorType)) {
                 return "Admin";
             } else if ("system".equalsIgnoreCase(actorType)) {
@@ -219,7 +300,6 @@ public class GameEventLogger {
     private void enrichPayloadWithFormattedTimestamps(Map<String, Object> payload) {
         try {
             if (payload == null || payload.isEmpty()) return;
-            SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
             for (Map.Entry<String, Object> e : new ArrayList<>(payload.entrySet())) {
                 String k = e.getKey();
                 Object v = e.getValue();
@@ -228,7 +308,7 @@ public class GameEventLogger {
                     if (k.endsWith("Time") || k.endsWith("At") || k.equalsIgnoreCase("timestamp")) {
                         String fmtKey = k + "Formatted";
                         if (!payload.containsKey(fmtKey)) {
-                            payload.put(fmtKey, fmt.format(new Date(millis)));
+                            payload.put(fmtKey, READABLE_TIME.format(Instant.ofEpochMilli(millis)));
                         }
                     }
                 }
@@ -262,40 +342,79 @@ public class GameEventLogger {
 
     private String resolveTeamName(String gameId, String teamId) {
         try {
-            Team t = gameStore.getTeam(gameId, teamId);
-            return t != null && t.getName() != null ? t.getName() : teamId;
+            Game game = gameStore.getGame(gameId);
+            if (game == null || game.getTeams() == null) return teamId;
+            TeamNames cached = teamNames.get(gameId);
+            if (cached == null || !cached.matches(game.getTeams())) {
+                cached = new TeamNames(game.getTeams());
+                teamNames.put(gameId, cached);
+            }
+            return cached.names.getOrDefault(teamId, teamId);
         } catch (Exception ignored) {
             return teamId;
         }
     }
 
     private String resolveChallengeTitle(String challengeId) {
-        try {
+        Map<String, String> titles = challengeTitles;
+        if (titles == null) {
+            Map<String, String> m = new HashMap<>();
             for (var c : gameStore.getAllChallenges()) {
-                if (challengeId.equals(c.getId())) return c.getTitle();
+                if (c.getId() != null && c.getTitle() != null) m.put(c.getId(), c.getTitle());
             }
-        } catch (Exception ignored) {}
-        return null;
+            titles = challengeTitles = Map.copyOf(m);
+        }
+        return titles.get(challengeId);
     }
 
     private String resolveClueTypeName(String clueTypeId) {
-        try {
-            var ct = gameStore.getClueTypeById(clueTypeId);
-            return ct != null ? ct.getName() : null;
-        } catch (Exception ignored) {}
-        return null;
+        Map<String, String> names = clueTypeNames;
+        if (names == null) {
+            Map<String, String> m = new HashMap<>();
+            for (var ct : gameStore.getAllClueTypes()) {
+                if (ct.getId() != null && ct.getName() != null) m.put(ct.getId(), ct.getName());
+            }
+            names = clueTypeNames = Map.copyOf(m);
+        }
+        return names.get(clueTypeId);
     }
 
     private String resolveCurseTitle(String curseId) {
-        try {
+        Map<String, String> titles = curseTitles;
+        if (titles == null) {
+            Map<String, String> m = new HashMap<>();
             for (var c : gameStore.getAllCurses()) {
-                if (curseId.equals(c.getId())) return c.getTitle();
+                if (c.getId() != null && c.getTitle() != null) m.put(c.getId(), c.getTitle());
+            }
+            titles = curseTitles = Map.copyOf(m);
+        }
+        return titles.get(curseId);
+    }
+
+    /**
+     * Team id to name snapshot for one game. Stale once the game's team list is replaced or resized.
+     */
+    private static final class TeamNames {
+        final List<Team> source;
+        final int size;
+        final Map<String, String> names;
+
+        TeamNames(List<Team> teams) {
+            Map<String, String> m = new HashMap<>();
+            for (Team t : new ArrayList<>(teams)) {
+                if (t.getId() != null) m.put(t.getId(), t.getName() != null ? t.getName() : t.getId());
             }
-        } catch (Exception ignored) {}
-        return null;
+            this.source = teams;
+            this.size = teams.size();
+            this.names = Map.copyOf(m);
+        }
+
+        boolean matches(List<Team> teams) {
+            return teams == source && teams.size() == size;
+        }
     }
 
-    private void writeReadableNdjson(String gameId, GameEvent evt, Map<String, Object> enrichedPayload) throws IOException {
+    private Map<String, Object> toReadable(String gameId, GameEvent evt, Map<String, Object> enrichedPayload) {
         // Build human-only map: keep names and formatted times, remove IDs
         Map<String, Object> human = new LinkedHashMap<>();
         human.put("time", evt.getTimestampFormatted());
@@ -327,12 +446,6 @@ public class GameEventLogger {
         }
         if (!details.isEmpty()) human.put("details", details);
 
-        Path dir = gameDir(gameId);
-        Path file = dir.resolve("events.readable.ndjson");
-        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file.toFile(), true), StandardCharsets.UTF_8))) {
-            String json = mapper.writeValueAsString(human);
-            w.write(json);
-            w.write("\n");
-        }
+        return human;
     }
 }
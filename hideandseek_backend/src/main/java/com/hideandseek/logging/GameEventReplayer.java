@@ -0,0 +1,662 @@
+package com.hideandseek.logging;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hideandseek.model.*;
+import com.hideandseek.store.GameStore;
+import com.hideandseek.store.GameStoreSnapshotter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Rebuilds in-memory game state after a restart, before any request is served. This is the only
+ * restore path: each game starts from the newer of its GameStore snapshot entry and its
+ * checkpoint (by event sequence), and only replays the events logged after it. Games are
+ * replayed independently on a fork-join pool.
+ */
+@Service
+public class GameEventReplayer {
+    private static final Logger log = LoggerFactory.getLogger(GameEventReplayer.class);
+
+    private final GameStore gameStore;
+    private final GameEventLogger gameEventLogger;
+    private final GameStoreSnapshotter gameStoreSnapshotter;
+    private final ObjectMapper mapper;
+    private final boolean enabled;
+    private final long maxAgeMs;
+    private final int parallelism;
+
+    private volatile Map<String, Object> lastReport = Map.of("status", "not run");
+
+    public GameEventReplayer(GameStore gameStore,
+                             GameEventLogger gameEventLogger,
+                             GameStoreSnapshotter gameStoreSnapshotter,
+                             @Value("${events.recovery.enabled:true}") boolean enabled,
+                             @Value("${events.recovery.maxAgeHours:12}") long maxAgeHours,
+                             @Value("${events.recovery.parallelism:0}") int parallelism) {
+        this.gameStore = gameStore;
+        this.gameEventLogger = gameEventLogger;
+        this.gameStoreSnapshotter = gameStoreSnapshotter;
+        this.enabled = enabled;
+        this.maxAgeMs = maxAgeHours * 60L * 60L * 1000L;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.mapper = new ObjectMapper();
+        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        // Game exposes computed getters (gameDuration, roundDuration) with no setters
+        this.mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @PostConstruct
+    public void recoverOnStartup() {
+        try {
+            GameStoreSnapshotter.Snapshot snapshot = null;
+            try {
+                snapshot = gameStoreSnapshotter.readSnapshot();
+            } catch (Exception e) {
+                log.warn("Ignoring unreadable GameStore snapshot: {}", e.getMessage());
+            }
+            if (!enabled) {
+                log.info("Event log recovery disabled, restoring the GameStore snapshot only");
+            }
+            Map<String, Object> report = recover(enabled ? gameEventLogger.getBaseDir() : null, snapshot, true);
+            log.info("Startup recovery finished: {}", report);
+        } catch (Exception e) {
+            log.warn("Startup recovery failed: {}", e.getMessage());
+        } finally {
+            gameStoreSnapshotter.recoveryFinished();
+        }
+    }
+
+    public Map<String, Object> getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Replay every game directory under baseDir (none if null) on top of the snapshot, if any;
+     * snapshot games without a log are taken as they are. When register is true the rebuilt games
+     * are added to the GameStore (existing games are never overwritten).
+     */
+    public Map<String, Object> recover(Path baseDir, GameStoreSnapshotter.Snapshot snapshot, boolean register)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        List<Path> dirs = new ArrayList<>();
+        if (baseDir != null && Files.isDirectory(baseDir)) {
+            try (Stream<Path> s = Files.list(baseDir)) {
+                s.filter(Files::isDirectory).forEach(dirs::add);
+            }
+        }
+
+        List<Callable<ReplayState>> tasks = new ArrayList<>();
+        Set<String> logged = new HashSet<>();
+        for (Path dir : dirs) {
+            logged.add(dir.getFileName().toString());
+            tasks.add(() -> replayGame(dir, snapshot));
+        }
+        if (snapshot != null) {
+            for (Game game : snapshot.getGames()) {
+                if (!logged.contains(game.getId())) {
+                    tasks.add(() -> fromSnapshot(snapshot, game.getId()));
+                }
+            }
+        }
+        List<ReplayState> results = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<ReplayState> f : pool.invokeAll(tasks)) {
+                try {
+                    ReplayState st = f.get();
+                    if (st != null) results.add(st);
+                } catch (Exception e) {
+                    log.warn("Replay task failed: {}", e.getMessage());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        long now = System.currentTimeMillis();
+        int restored = 0, skipped = 0, checkpoints = 0, snapshots = 0;
+        long events = 0;
+        List<String> restoredIds = new ArrayList<>();
+        for (ReplayState st : results) {
+            events += st.eventsApplied;
+            if (st.fromCheckpoint) checkpoints++;
+            if (st.fromSnapshot) snapshots++;
+            // Games in the snapshot were live when it was written and are kept whatever their age
+            boolean stale = !st.fromSnapshot && now - st.lastActivity > maxAgeMs;
+            if (st.game == null || st.deleted || stale) {
+                skipped++;
+                continue;
+            }
+            if (register && gameStore.getGame(st.game.getId()) == null) {
+                st.game.setLastActivityTime(st.lastActivity);
+                gameStore.restoreGame(st.game);
+                for (Map.Entry<String, List<PurchasedClue>> e : st.clueHistory.entrySet()) {
+                    gameStore.restoreClueHistory(st.game.getId(), e.getKey(), e.getValue());
+                }
+                for (ClueRequest req : st.clueRequests.values()) {
+                    gameStore.addClueRequest(req);
+                }
+                restoredIds.add(st.game.getId());
+                restored++;
+            }
+        }
+        if (register && snapshot != null) {
+            gameStoreSnapshotter.restorePushRegistrations(snapshot, restoredIds);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("status", "completed");
+        report.put("finishedAt", now);
+        report.put("durationMs", (System.nanoTime() - started) / 1_000_000L);
+        report.put("parallelism", parallelism);
+        report.put("gamesScanned", results.size());
+        report.put("gamesRestored", restored);
+        report.put("gamesSkipped", skipped);
+        report.put("checkpointsUsed", checkpoints);
+        report.put("snapshotsUsed", snapshots);
+        report.put("eventsReplayed", events);
+        if (register) lastReport = report;
+        return report;
+    }
+
+    ReplayState replayGame(Path dir, GameStoreSnapshotter.Snapshot snapshot) {
+        String gameId = dir.getFileName().toString();
+        ReplayState st = new ReplayState();
+        File checkpointFile = dir.resolve("checkpoint.json").toFile();
+        long fromSeq = 0L;
+        GameCheckpoint cp = null;
+        if (checkpointFile.exists()) {
+            try {
+                cp = mapper.readValue(checkpointFile, GameCheckpoint.class);
+            } catch (IOException e) {
+                // Corrupt checkpoint: fall back to the snapshot or a full replay
+                log.warn("Ignoring unreadable checkpoint {}: {}", checkpointFile, e.getMessage());
+            }
+        }
+        // Start from whichever of the snapshot and the checkpoint has seen more events
+        long snapshotSeq = snapshot != null && snapshot.getGame(gameId) != null ? snapshot.getEventSequence(gameId) : -2L;
+        if (snapshotSeq == -1L) {
+            // Written before snapshots recorded sequences: its state wins, as it did then
+            snapshotSeq = Long.MAX_VALUE;
+        }
+        if (snapshotSeq >= 0 && (cp == null || cp.getSequence() <= snapshotSeq)) {
+            st = fromSnapshot(snapshot, gameId);
+            fromSeq = snapshotSeq;
+        } else if (cp != null) {
+            st.game = cp.getGame();
+            st.clueHistory.putAll(cp.getClueHistory());
+            for (ClueRequest req : cp.getClueRequests()) {
+                st.clueRequests.put(req.getId(), req);
+            }
+            st.lastActivity = cp.getGame() != null && cp.getGame().getLastActivityTime() != null
+                    ? cp.getGame().getLastActivityTime() : cp.getTakenAt();
+            st.fromCheckpoint = true;
+            fromSeq = cp.getSequence();
+        }
+
+        File logFile = dir.resolve("events.ndjson").toFile();
+        if (!logFile.exists()) return st;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                GameEvent evt;
+                try {
+                    evt = mapper.readValue(line, GameEvent.class);
+                } catch (Exception e) {
+                    continue; // Torn last line after a crash
+                }
+                if (evt.getSequence() <= fromSeq) {
+                    // Deletion is final even if the base state predates it
+                    if ("game.deleted".equals(evt.getType())) st.deleted = true;
+                    continue;
+                }
+                try {
+                    apply(st, evt);
+                } catch (Exception e) {
+                    log.debug("Failed to apply event {} #{}: {}", evt.getType(), evt.getSequence(), e.getMessage());
+                }
+                st.eventsApplied++;
+                st.lastActivity = Math.max(st.lastActivity, evt.getTimestamp());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read event log {}: {}", logFile, e.getMessage());
+        }
+        return st;
+    }
+
+    private static ReplayState fromSnapshot(GameStoreSnapshotter.Snapshot snapshot, String gameId) {
+        ReplayState st = new ReplayState();
+        st.game = snapshot.getGame(gameId);
+        snapshot.getClueHistory(gameId).forEach((teamId, clues) -> st.clueHistory.put(teamId, new ArrayList<>(clues)));
+        for (ClueRequest req : snapshot.getClueRequests(gameId)) {
+            st.clueRequests.put(req.getId(), req);
+        }
+        st.lastActivity = st.game.getLastActivityTime() != null ? st.game.getLastActivityTime() : 0L;
+        st.fromSnapshot = true;
+        return st;
+    }
+
+    private void apply(ReplayState st, GameEvent evt) {
+        String type = evt.getType();
+        Map<String, Object> p = evt.getPayload() != null ? evt.getPayload() : Map.of();
+        long ts = evt.getTimestamp();
+
+        if ("game.created".equals(type)) {
+            st.game = createGame(evt.getGameId(), p);
+            return;
+        }
+        if ("game.deleted".equals(type)) {
+            st.deleted = true;
+            return;
+        }
+        Game game = st.game;
+        if (game == null) return; // Log predates team snapshots in game.created
+
+        switch (type) {
+            case "game.started" -> {
+                game.setStatus("active");
+                game.setStartTime(ts);
+                if (game.getGameStartTime() == null) game.setGameStartTime(ts);
+                game.setRoundStartTime(ts);
+                game.setPausedDurationAtRoundStart(totalPaused(game));
+                startHiderClocks(game, ts);
+            }
+            case "game.status_changed" -> {
+                String from = str(p, "from");
+                String to = str(p, "to");
+                if ("paused".equals(to) && "active".equals(from)) {
+                    game.setPauseTime(ts);
+                    game.setPausedByTimeLimit(Boolean.TRUE.equals(p.get("pausedByTimeLimit")));
+                    stopHiderClocks(game, ts);
+                } else if ("active".equals(to) && "paused".equals(from)) {
+                    closePause(game, ts);
+                    startHiderClocks(game, ts);
+                }
+                game.setStatus(to);
+                if ("active".equals(to) && game.getStartTime() == null) {
+                    game.setStartTime(ts);
+                    if (game.getGameStartTime() == null) game.setGameStartTime(ts);
+                    if (game.getRoundStartTime() == null) game.setRoundStartTime(ts);
+                    if (game.getPausedDurationAtRoundStart() == null) game.setPausedDurationAtRoundStart(totalPaused(game));
+                }
+            }
+            case "game.round_started" -> {
+                Integer round = integer(p, "round");
+                game.setRound(round != null ? round : game.getRound() + 1);
+                game.setStatus("active");
+                game.setPausedByTimeLimit(false);
+                closePause(game, ts);
+                game.setStartTime(ts);
+                game.setRoundStartTime(ts);
+                game.setPausedDurationAtRoundStart(totalPaused(game));
+                if (game.getGameStartTime() == null) game.setGameStartTime(ts);
+                startHiderClocks(game, ts);
+            }
+            case "game.ended" -> {
+                if ("paused".equals(game.getStatus())) closePause(game, ts);
+                stopHiderClocks(game, ts);
+                game.setStatus("ended");
+                Long endTime = lng(p, "endTime");
+                game.setEndTime(endTime != null ? endTime : ts);
+            }
+            case "game.restarted" -> {
+                game.setStatus("waiting");
+                game.setRound(1);
+                game.setStartTime(null);
+                game.setPauseTime(null);
+                game.setTotalPausedDuration(0L);
+                game.setEndTime(null);
+                game.setGameStartTime(null);
+                game.setRoundStartTime(null);
+                game.setPausedDurationAtRoundStart(0L);
+                for (Team team : game.getTeams()) {
+                    team.setTokens(10);
+                    team.setLocation(null);
+                    team.getCompletedChallenges().clear();
+                    team.getActiveCurses().clear();
+                    team.getAppliedCurses().clear();
+                    team.setVetoEndTime(null);
+                    team.setTotalHiderTime(0L);
+                    team.setHiderStartTime(null);
+                    team.setActiveChallenge(null);
+                }
+            }
+            case "team.tokens_updated" -> {
+                Team team = team(game, str(p, "teamId"));
+                Integer tokens = integer(p, "tokens");
+                if (team != null && tokens != null) team.setTokens(tokens);
+            }
+            case "team.role_switched" -> {
+                Team team = team(game, str(p, "teamId"));
+                if (team != null && str(p, "newRole") != null) team.setRole(str(p, "newRole"));
+            }
+            case "team.role_changed" -> {
+                Team team = team(game, str(p, "teamId"));
+                String to = str(p, "to");
+                if (team == null || to == null) return;
+                if ("hider".equals(team.getRole()) && "seeker".equals(to)) {
+                    stopHiderClock(team, ts);
+                }
+                team.setRole(to);
+                team.setHiderStartTime("hider".equals(to) && "active".equals(game.getStatus()) ? ts : null);
+            }
+            case "team.found" -> {
+                Team hider = team(game, str(p, "hiderTeamId"));
+                if (hider == null) return;
+                stopHiderClock(hider, ts);
+                hider.setRole("seeker");
+                boolean anyHiders = game.getTeams().stream().anyMatch(t -> "hider".equals(t.getRole()));
+                if (!anyHiders) {
+                    game.setStatus("paused");
+                }
+            }
+            case "team.location_update" -> {
+                Team team = team(game, str(p, "teamId"));
+                Double lat = dbl(p, "latitude");
+                Double lon = dbl(p, "longitude");
+                if (team != null && lat != null && lon != null) {
+                    team.setLocation(new Team.TeamLocation(lat, lon, ts));
+                }
+            }
+            case "challenge.drawn" -> {
+                Team team = team(game, str(p, "teamId"));
+                Challenge challenge = findChallenge(str(p, "challengeId"));
+                if (team == null || challenge == null) return;
+                Long start = lng(p, "startTime");
+                team.setActiveChallenge(new ActiveChallenge(challenge, start != null ? start : ts, false));
+            }
+            case "challenge.completed" -> {
+                Team team = team(game, str(p, "teamId"));
+                if (team == null) return;
+                String challengeId = str(p, "challengeId");
+                if (challengeId != null && !team.getCompletedChallenges().contains(challengeId)) {
+                    team.getCompletedChallenges().add(challengeId);
+                }
+                team.setActiveChallenge(null);
+                Integer balance = integer(p, "newTokenBalance");
+                Integer awarded = integer(p, "tokensAwarded");
+                if (balance != null) {
+                    team.setTokens(balance);
+                } else if (awarded != null) {
+                    team.setTokens(team.getTokens() + awarded);
+                }
+            }
+            case "challenge.refused", "challenge.vetoed" -> {
+                Team team = team(game, str(p, "teamId"));
+                if (team == null) return;
+                Long vetoEnd = lng(p, "vetoEndTime");
+                team.setVetoEndTime(vetoEnd != null ? vetoEnd : ts + 5 * 60 * 1000L);
+                team.setActiveChallenge(null);
+            }
+            case "curse.applied" -> {
+                Team seeker = team(game, str(p, "seekerTeamId"));
+                Team target = team(game, str(p, "targetTeamId"));
+                Curse curse = findCurse(str(p, "curseId"));
+                Long start = lng(p, "startTime");
+                Integer minutes = integer(p, "durationMinutes");
+                if (target == null || curse == null || start == null || minutes == null) return;
+                long end = start + minutes * 60L * 1000L;
+                if (target.getActiveCurses().stream().noneMatch(ac -> ac.getStartTime() == start)) {
+                    target.getActiveCurses().add(new ActiveCurse(curse, start, end));
+                }
+                if (seeker != null && seeker.getAppliedCurses().stream().noneMatch(ac -> ac.getStartTime() == start)) {
+                    seeker.getAppliedCurses().add(new AppliedCurse(curse, target.getId(), target.getName(), start, end));
+                }
+            }
+            case "curse.completed", "curse.acknowledged" -> {
+                Team team = team(game, str(p, "teamId"));
+                String curseId = str(p, "curseId");
+                if (team == null || curseId == null) return;
+                for (ActiveCurse ac : team.getActiveCurses()) {
+                    if (ac.getCurse() != null && curseId.equals(ac.getCurse().getId())) {
+                        if ("curse.completed".equals(type)) {
+                            ac.setCompleted(true);
+                            ac.setCompletedAt(lng(p, "completedAt"));
+                        } else {
+                            ac.setAcknowledged(true);
+                        }
+                    }
+                }
+            }
+            case "curse.expired" -> {
+                Team team = team(game, str(p, "teamId"));
+                Long start = lng(p, "startTime");
+                if (team != null && start != null) {
+                    team.getActiveCurses().removeIf(ac -> ac.getStartTime() == start);
+                }
+            }
+            case "curse.penalty_applied" -> {
+                Team team = team(game, str(p, "teamId"));
+                Long total = lng(p, "newTotalHiderTimeMs");
+                if (team != null && total != null) team.setTotalHiderTime(total);
+            }
+            case "clue.purchased" -> {
+                String clueId = str(p, "clueId");
+                String teamId = evt.getActorId();
+                if (clueId == null || teamId == null) return;
+                List<PurchasedClue> clues = st.clueHistory.computeIfAbsent(teamId, k -> new ArrayList<>());
+                if (clues.stream().anyMatch(c -> clueId.equals(c.getId()))) return;
+                Integer cost = integer(p, "cost");
+                PurchasedClue clue = new PurchasedClue(clueId, str(p, "clueTypeId"), teamId, game.getId(),
+                        str(p, "clueText"), cost != null ? cost : 0);
+                clue.setTimestamp(ts);
+                clue.setStatus(str(p, "status"));
+                clue.setResponseType(str(p, "responseType"));
+                Object targets = p.get("targetHiderTeamIds");
+                if (targets instanceof List<?> list) {
+                    List<String> ids = new ArrayList<>();
+                    for (Object o : list) if (o != null) ids.add(o.toString());
+                    clue.setTargetHiderTeamIds(ids);
+                }
+                if (p.get("requestIds") instanceof List<?> requestIds && !requestIds.isEmpty()) {
+                    List<String> ids = new ArrayList<>();
+                    for (Object o : requestIds) if (o != null) ids.add(o.toString());
+                    clue.setRequestId(String.join(",", ids));
+                }
+                clue.setHiderData(hiderData(p.get("hiderData")));
+                clues.add(clue);
+            }
+            case "clue.completed" -> {
+                String clueId = str(p, "clueId");
+                List<PurchasedClue> clues = st.clueHistory.get(evt.getActorId());
+                if (clueId == null || clues == null) return;
+                for (PurchasedClue c : clues) {
+                    if (clueId.equals(c.getId())) c.setStatus("completed");
+                }
+            }
+            case "clue.requested" -> {
+                String requestId = str(p, "requestId");
+                if (requestId == null || st.clueRequests.containsKey(requestId)) return;
+                ClueRequest req = new ClueRequest();
+                req.setId(requestId);
+                req.setGameId(game.getId());
+                req.setRequestingTeamId(evt.getActorId());
+                req.setTargetHiderTeamId(str(p, "targetHiderTeamId"));
+                req.setClueTypeId(str(p, "clueTypeId"));
+                req.setClueTypeName(str(p, "clueTypeName"));
+                req.setResponseType(str(p, "responseType"));
+                req.setRequestTimestamp(ts);
+                Long expiresAt = lng(p, "expiresAt");
+                req.setExpirationTimestamp(expiresAt != null ? expiresAt : 0L);
+                st.clueRequests.put(requestId, req);
+            }
+            case "clue.response_received" -> {
+                ClueRequest req = st.clueRequests.get(str(p, "requestId"));
+                if (req != null) {
+                    req.setStatus("completed");
+                    req.setResponse(str(p, "responseData"));
+                }
+                applyClueState(st, p.get("clue"));
+            }
+            case "clue.request_expired" -> {
+                ClueRequest req = st.clueRequests.get(str(p, "requestId"));
+                if (req != null && "pending".equals(req.getStatus())) req.setStatus("expired");
+            }
+            case "clue.auto_revealed" -> {
+                String clueId = str(p, "timeoutClueId");
+                String teamId = str(p, "requestingTeamId");
+                String hiderId = str(p, "hiderTeamId");
+                if (clueId != null && teamId != null) {
+                    List<PurchasedClue> clues = st.clueHistory.computeIfAbsent(teamId, k -> new ArrayList<>());
+                    if (clues.stream().noneMatch(c -> clueId.equals(c.getId()))) {
+                        PurchasedClue clue = new PurchasedClue(clueId, "exact-location", teamId, game.getId(),
+                                str(p, "clueText"), 0, "completed", null, "location",
+                                hiderId != null ? List.of(hiderId) : null, hiderData(p.get("hiderData")));
+                        clue.setTimestamp(ts);
+                        clues.add(clue);
+                    }
+                }
+                applyClueState(st, p.get("originalClue"));
+            }
+            default -> {
+                // Informational events carry no replayable state
+            }
+        }
+    }
+
+    // Text, status and hider data logged for a clue after a response or timeout changed it
+    private void applyClueState(ReplayState st, Object state) {
+        if (!(state instanceof Map<?, ?> m)) return;
+        Object clueId = m.get("clueId");
+        List<PurchasedClue> clues = st.clueHistory.get(Objects.toString(m.get("teamId"), null));
+        if (clueId == null || clues == null) return;
+        for (PurchasedClue clue : clues) {
+            if (!clueId.equals(clue.getId())) continue;
+            if (m.get("clueText") != null) clue.setClueText(m.get("clueText").toString());
+            if (m.get("status") != null) clue.setStatus(m.get("status").toString());
+            if (m.get("hiderData") != null) clue.setHiderData(hiderData(m.get("hiderData")));
+        }
+    }
+
+    private List<PurchasedClue.HiderClueData> hiderData(Object value) {
+        if (!(value instanceof List<?> list)) return null;
+        List<PurchasedClue.HiderClueData> result = new ArrayList<>(list.size());
+        for (Object o : list) {
+            if (o != null) result.add(mapper.convertValue(o, PurchasedClue.HiderClueData.class));
+        }
+        return result;
+    }
+
+    private Game createGame(String gameId, Map<String, Object> p) {
+        Object teams = p.get("teams");
+        if (!(teams instanceof List<?> list) || list.isEmpty()) return null;
+        Game game = new Game();
+        game.setId(gameId);
+        game.setCode(str(p, "gameCode"));
+        game.setTeams(new ArrayList<>());
+        game.setRound(1);
+        game.setStatus("waiting");
+        for (Object o : list) {
+            if (!(o instanceof Map<?, ?> m)) continue;
+            Team team = new Team();
+            team.setId(Objects.toString(m.get("id"), null));
+            team.setName(Objects.toString(m.get("name"), null));
+            team.setRole(Objects.toString(m.get("role"), null));
+            team.setTokens(m.get("tokens") instanceof Number n ? n.intValue() : 0);
+            game.getTeams().add(team);
+        }
+        return game;
+    }
+
+    private Challenge findChallenge(String id) {
+        if (id == null) return null;
+        for (Challenge c : gameStore.getAllChallenges()) {
+            if (id.equals(c.getId())) return c;
+        }
+        return null;
+    }
+
+    private Curse findCurse(String id) {
+        if (id == null) return null;
+        for (Curse c : gameStore.getAllCurses()) {
+            if (id.equals(c.getId())) return c;
+        }
+        return null;
+    }
+
+    private static Team team(Game game, String teamId) {
+        if (teamId == null) return null;
+        for (Team t : game.getTeams()) {
+            if (teamId.equals(t.getId())) return t;
+        }
+        return null;
+    }
+
+    private static long totalPaused(Game game) {
+        return game.getTotalPausedDuration() != null ? game.getTotalPausedDuration() : 0L;
+    }
+
+    private static void closePause(Game game, long ts) {
+        if (game.getPauseTime() != null) {
+            game.setTotalPausedDuration(totalPaused(game) + (ts - game.getPauseTime()));
+            game.setPauseTime(null);
+        }
+    }
+
+    private static void startHiderClocks(Game game, long ts) {
+        for (Team team : game.getTeams()) {
+            if ("hider".equals(team.getRole())) {
+                team.setHiderStartTime(ts);
+            } else if ("seeker".equals(team.getRole())) {
+                team.setHiderStartTime(null);
+            }
+        }
+    }
+
+    private static void stopHiderClocks(Game game, long ts) {
+        for (Team team : game.getTeams()) {
+            if ("hider".equals(team.getRole())) stopHiderClock(team, ts);
+        }
+    }
+
+    private static void stopHiderClock(Team team, long ts) {
+        if (team.getHiderStartTime() != null) {
+            team.addHiderTime(ts - team.getHiderStartTime());
+            team.setHiderStartTime(null);
+        }
+    }
+
+    private static String str(Map<String, Object> p, String key) {
+        Object v = p.get(key);
+        return v != null ? v.toString() : null;
+    }
+
+    private static Integer integer(Map<String, Object> p, String key) {
+        return p.get(key) instanceof Number n ? n.intValue() : null;
+    }
+
+    private static Long lng(Map<String, Object> p, String key) {
+        return p.get(key) instanceof Number n ? n.longValue() : null;
+    }
+
+    private static Double dbl(Map<String, Object> p, String key) {
+        return p.get(key) instanceof Number n ? n.doubleValue() : null;
+    }
+
+    static class ReplayState {
+        Game game;
+        boolean deleted;
+        boolean fromCheckpoint;
+        boolean fromSnapshot;
+        long lastActivity;
+        long eventsApplied;
+        final Map<String, List<PurchasedClue>> clueHistory = new HashMap<>();
+        final Map<String, ClueRequest> clueRequests = new LinkedHashMap<>();
+    }
+}
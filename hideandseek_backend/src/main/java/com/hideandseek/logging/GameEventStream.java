@@ -0,0 +1,277 @@
+package com.hideandseek.logging;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Live tail of appended GameEvents over Server-Sent Events.
+ * Every subscriber has a bounded buffer drained on a small worker pool, so a slow admin
+ * connection never blocks GameEventLogger. When a buffer overflows the oldest events are
+ * dropped and a "gap" event tells the client which sequence to resume from.
+ */
+@Service
+public class GameEventStream {
+    private static final Logger log = LoggerFactory.getLogger(GameEventStream.class);
+    private static final String ALL_GAMES = "*";
+
+    private final GameEventLogger gameEventLogger;
+    private final ObjectMapper mapper;
+    private final int bufferSize;
+    private final int maxBackfill;
+    private final long timeoutMs;
+    private final ExecutorService senders;
+    // key: gameId, or "*" for subscribers following every game
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    public GameEventStream(GameEventLogger gameEventLogger,
+                           @Value("${events.stream.bufferSize:256}") int bufferSize,
+                           @Value("${events.stream.maxBackfill:5000}") int maxBackfill,
+                           @Value("${events.stream.timeoutMs:1800000}") long timeoutMs) {
+        this.gameEventLogger = gameEventLogger;
+        this.bufferSize = Math.max(16, bufferSize);
+        this.maxBackfill = Math.max(0, maxBackfill);
+        this.timeoutMs = timeoutMs;
+        this.senders = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "event-stream-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        this.mapper = new ObjectMapper();
+        this.mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        gameEventLogger.addListener(this::publish);
+    }
+
+    /**
+     * Open a stream for the given games (empty = all games). since maps gameId to the last
+     * sequence the client already has; events after it are replayed from events.ndjson first.
+     */
+    public SseEmitter subscribe(Collection<String> gameIds, Map<String, Long> since) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Set<String> keys = gameIds == null || gameIds.isEmpty() ? Set.of(ALL_GAMES) : new LinkedHashSet<>(gameIds);
+        Subscriber sub = new Subscriber(emitter, keys, bufferSize);
+        if (since != null) sub.lastSent.putAll(since);
+
+        Runnable remove = () -> unsubscribe(sub);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        // Register before backfilling so nothing appended in between is missed; the drain skips
+        // whatever the backfill already delivered.
+        for (String key : keys) {
+            subscribers.computeIfAbsent(key, k -> new CopyOnWriteArraySet<>()).add(sub);
+        }
+        senders.execute(() -> backfill(sub));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        Set<Subscriber> all = new HashSet<>();
+        subscribers.values().forEach(all::addAll);
+        return all.size();
+    }
+
+    private void publish(GameEvent evt) {
+        Set<Subscriber> forGame = subscribers.get(evt.getGameId());
+        Set<Subscriber> forAll = subscribers.get(ALL_GAMES);
+        if (forGame != null) forGame.forEach(s -> enqueue(s, evt));
+        if (forAll != null) forAll.forEach(s -> enqueue(s, evt));
+    }
+
+    private void enqueue(Subscriber sub, GameEvent evt) {
+        synchronized (sub.buffer) {
+            if (sub.buffer.size() >= sub.capacity) {
+                GameEvent dropped = sub.buffer.pollFirst();
+                sub.dropped.merge(dropped.getGameId(), 1, Integer::sum);
+            }
+            sub.buffer.addLast(evt);
+        }
+        scheduleDrain(sub);
+    }
+
+    private void scheduleDrain(Subscriber sub) {
+        if (!sub.backfilled || sub.closed) return;
+        if (sub.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(sub));
+        }
+    }
+
+    private void backfill(Subscriber sub) {
+        try {
+            synchronized (sub) {
+                for (Map.Entry<String, Long> e : new ArrayList<>(sub.lastSent.entrySet())) {
+                    String gameId = e.getKey();
+                    if (!sub.keys.contains(gameId) && !sub.keys.contains(ALL_GAMES)) continue;
+                    replayFromLog(sub, gameId, e.getValue());
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            unsubscribe(sub);
+            return;
+        }
+        sub.backfilled = true;
+        scheduleDrain(sub);
+    }
+
+    private void replayFromLog(Subscriber sub, String gameId, long afterSeq) throws IOException {
+        Path file = gameEventLogger.getBaseDir().resolve(gameId).resolve("events.ndjson");
+        if (!Files.exists(file) || maxBackfill == 0) return;
+        // Keep only the newest maxBackfill events after the requested sequence
+        ArrayDeque<GameEvent> pending = new ArrayDeque<>();
+        boolean truncated = false;
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file.toFile()), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isBlank()) continue;
+                GameEvent evt;
+                try {
+                    evt = mapper.readValue(line, GameEvent.class);
+                } catch (Exception ignored) {
+                    continue;
+                }
+                if (evt.getSequence() <= afterSeq) continue;
+                pending.addLast(evt);
+                if (pending.size() > maxBackfill) {
+                    pending.pollFirst();
+                    truncated = true;
+                }
+            }
+        }
+        if (truncated) {
+            sendGap(sub, gameId, afterSeq, pending.isEmpty() ? afterSeq : pending.peekFirst().getSequence() - 1);
+        }
+        for (GameEvent evt : pending) {
+            send(sub, evt);
+        }
+    }
+
+    private void drain(Subscriber sub) {
+        try {
+            while (true) {
+                GameEvent evt;
+                Map<String, Integer> dropped;
+                synchronized (sub.buffer) {
+                    dropped = sub.dropped.isEmpty() ? null : new HashMap<>(sub.dropped);
+                    sub.dropped.clear();
+                    evt = sub.buffer.pollFirst();
+                    if (evt == null && dropped == null) {
+                        sub.draining.set(false);
+                        return;
+                    }
+                }
+                synchronized (sub) {
+                    if (dropped != null) {
+                        for (Map.Entry<String, Integer> d : dropped.entrySet()) {
+                            long last = sub.lastSent.getOrDefault(d.getKey(), 0L);
+                            sendGap(sub, d.getKey(), last, -1);
+                        }
+                    }
+                    if (evt != null) send(sub, evt);
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            sub.draining.set(false);
+            unsubscribe(sub);
+        }
+    }
+
+    private void send(Subscriber sub, GameEvent evt) throws IOException {
+        long last = sub.lastSent.getOrDefault(evt.getGameId(), 0L);
+        if (evt.getSequence() <= last) return; // already delivered by backfill
+        sub.emitter.send(SseEmitter.event()
+                .id(evt.getGameId() + ":" + evt.getSequence())
+                .name("event")
+                .data(evt, MediaType.APPLICATION_JSON));
+        sub.lastSent.put(evt.getGameId(), evt.getSequence());
+    }
+
+    /**
+     * Tell the client events were skipped; it can reconnect with since=resumeFrom to fetch them from the log.
+     */
+    private void sendGap(Subscriber sub, String gameId, long resumeFrom, long skippedThrough) throws IOException {
+        Map<String, Object> gap = new LinkedHashMap<>();
+        gap.put("gameId", gameId);
+        gap.put("resumeFrom", resumeFrom);
+        if (skippedThrough >= 0) {
+            gap.put("skippedThrough", skippedThrough);
+            // Events before skippedThrough are not going to be sent on this connection
+            sub.lastSent.put(gameId, Math.max(sub.lastSent.getOrDefault(gameId, 0L), skippedThrough));
+        }
+        sub.emitter.send(SseEmitter.event().name("gap").data(gap, MediaType.APPLICATION_JSON));
+    }
+
+    private void unsubscribe(Subscriber sub) {
+        boolean wasClosed = sub.closed;
+        sub.closed = true;
+        for (String key : sub.keys) {
+            Set<Subscriber> set = subscribers.get(key);
+            if (set != null) {
+                set.remove(sub);
+                if (set.isEmpty()) subscribers.remove(key, set);
+            }
+        }
+        if (wasClosed) return;
+        log.debug("Event stream subscriber for {} closed", sub.keys);
+        // Release the async request after a failed send; a no-op if the emitter already completed
+        try {
+            sub.emitter.complete();
+        } catch (IllegalStateException ignored) {}
+    }
+
+    @Scheduled(fixedRate = 20000, initialDelay = 20000)
+    public void keepAlive() {
+        Set<Subscriber> all = new HashSet<>();
+        subscribers.values().forEach(all::addAll);
+        for (Subscriber sub : all) {
+            if (!sub.backfilled) continue;
+            senders.execute(() -> {
+                synchronized (sub) {
+                    try {
+                        sub.emitter.send(SseEmitter.event().comment("keepalive"));
+                    } catch (IOException | IllegalStateException e) {
+                        unsubscribe(sub);
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final Set<String> keys;
+        final int capacity;
+        final ArrayDeque<GameEvent> buffer = new ArrayDeque<>();
+        final Map<String, Integer> dropped = new HashMap<>();          // guarded by buffer
+        final Map<String, Long> lastSent = new ConcurrentHashMap<>();  // gameId -> last delivered sequence
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        volatile boolean backfilled;
+        volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, Set<String> keys, int capacity) {
+            this.emitter = emitter;
+            this.keys = keys;
+            this.capacity = capacity;
+        }
+    }
+}
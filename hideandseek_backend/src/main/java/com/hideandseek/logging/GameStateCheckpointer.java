@@ -0,0 +1,119 @@
+package com.hideandseek.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.hideandseek.model.ClueRequest;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import com.hideandseek.store.GameStoreSnapshotter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodically writes a full-state checkpoint next to each game's events.ndjson so that
+ * crash recovery only has to replay the events written after the checkpoint. The live game is
+ * copied through the snapshot codec first (as GameStoreSnapshotter encodes it), so request
+ * threads changing it cannot tear the JSON.
+ */
+@Service
+public class GameStateCheckpointer {
+    private static final Logger log = LoggerFactory.getLogger(GameStateCheckpointer.class);
+    private static final String VERSION = "1.0";
+
+    private final GameStore gameStore;
+    private final GameEventLogger gameEventLogger;
+    private final GameStoreSnapshotter gameStoreSnapshotter;
+    private final ObjectMapper mapper;
+    // Last event sequence checkpointed per game; games without new events are skipped
+    private final Map<String, Long> checkpointedSeq = new ConcurrentHashMap<>();
+
+    public GameStateCheckpointer(GameStore gameStore, GameEventLogger gameEventLogger, GameStoreSnapshotter gameStoreSnapshotter) {
+        this.gameStore = gameStore;
+        this.gameEventLogger = gameEventLogger;
+        this.gameStoreSnapshotter = gameStoreSnapshotter;
+        this.mapper = new ObjectMapper();
+        this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Scheduled(fixedRateString = "${events.checkpoint.intervalMs:60000}", initialDelayString = "${events.checkpoint.intervalMs:60000}")
+    public void checkpointAllGames() {
+        List<Game> games = gameStore.getAllGames();
+        if (games == null || games.isEmpty()) return;
+        for (Game game : games) {
+            try {
+                checkpointGame(game);
+            } catch (Exception e) {
+                // Recovery replays more events until the next checkpoint succeeds
+                log.warn("Checkpoint skipped for game {}: {}", game.getId(), e.toString());
+            }
+        }
+    }
+
+    /**
+     * Write a checkpoint for one game if events were logged since the last one.
+     * Returns true when a new checkpoint file was written.
+     */
+    public boolean checkpointGame(Game game) throws IOException {
+        String gameId = game.getId();
+        // Capture the sequence before reading state: events racing with the snapshot
+        // are re-applied on replay, which is safe since every handler sets absolute values
+        long seq = gameEventLogger.getCurrentSequence(gameId);
+        if (seq <= 0 || seq <= checkpointedSeq.getOrDefault(gameId, 0L)) {
+            return false;
+        }
+
+        GameCheckpoint checkpoint = new GameCheckpoint();
+        checkpoint.setVersion(VERSION);
+        checkpoint.setGameId(gameId);
+        checkpoint.setSequence(seq);
+        checkpoint.setTakenAt(System.currentTimeMillis());
+        Game copy = gameStoreSnapshotter.copyGame(game);
+        checkpoint.setGame(copy);
+        Map<String, List<PurchasedClue>> history = new HashMap<>();
+        for (Team team : copy.getTeams()) {
+            List<PurchasedClue> clues = gameStore.getClueHistoryForTeam(gameId, team.getId());
+            if (clues != null && !clues.isEmpty()) {
+                history.put(team.getId(), gameStoreSnapshotter.copyClues(clues));
+            }
+        }
+        checkpoint.setClueHistory(history);
+        List<ClueRequest> requests = gameStoreSnapshotter.copyClueRequests(gameStore.getClueRequestsForGame(gameId));
+        checkpoint.setClueRequests(requests);
+
+        writeAtomically(gameEventLogger.getCheckpointFile(gameId), mapper.writeValueAsBytes(checkpoint));
+        checkpointedSeq.put(gameId, seq);
+        return true;
+    }
+
+    /**
+     * Drop the checkpoint bookkeeping of a deleted game.
+     */
+    public void forget(String gameId) {
+        checkpointedSeq.remove(gameId);
+    }
+
+    static void writeAtomically(File target, byte[] data) throws IOException {
+        Path targetPath = target.toPath();
+        Path tmp = targetPath.resolveSibling(target.getName() + ".tmp");
+        Files.write(tmp, data);
+        try {
+            Files.move(tmp, targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Some filesystems do not support atomic moves; fall back to a plain replace
+            Files.move(tmp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -5,35 +5,57 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.hideandseek.model.Game;
 import com.hideandseek.model.Team;
 import com.hideandseek.store.GameStore;
+import com.hideandseek.util.GeoUtils;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedWriter;
-import java.io.FileOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Writes team locations to locations.readable.ndjson as they change.
+ * Updates are filtered per team (minimum movement and minimum interval), queued per game and
+ * flushed in one write per game on a channel that stays open while the game is active.
+ */
 @Service
 public class LocationSnapshotLogger {
     private static final Logger log = LoggerFactory.getLogger(LocationSnapshotLogger.class);
+    private static final DateTimeFormatter READABLE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final String FILE_NAME = "locations.readable.ndjson";
 
     private final GameStore gameStore;
     private final Path baseDir;
     private final ObjectMapper mapper;
+    private final double minMovementMeters;
+    private final long minIntervalMs;
+    // gameId -> teamId -> last location written for that team
+    private final Map<String, Map<String, Recorded>> lastRecorded = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    private final Map<String, FileChannel> channels = new ConcurrentHashMap<>();
 
     public LocationSnapshotLogger(@Value("${events.log.baseDir:}") String baseDir,
+                                  @Value("${locations.snapshot.minMovementMeters:10}") double minMovementMeters,
+                                  @Value("${locations.snapshot.minIntervalMs:5000}") long minIntervalMs,
                                   GameStore gameStore) {
         this.baseDir = resolveBaseDir(baseDir);
+        this.minMovementMeters = Math.max(0, minMovementMeters);
+        this.minIntervalMs = Math.max(0, minIntervalMs);
         this.gameStore = gameStore;
         this.mapper = new ObjectMapper();
         this.mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
@@ -72,53 +94,127 @@ public class LocationSnapshotLogger {
         return dir;
     }
 
-    @Scheduled(fixedRate = 5000, initialDelay = 5000)
-    public void snapshotAllGames() {
-        try {
-            long now = System.currentTimeMillis();
-            String nowFmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(now));
-            List<Game> games = gameStore.getAllGames();
-            for (Game g : games) {
-                // Skip games with no teams
-                if (g.getTeams() == null || g.getTeams().isEmpty()) continue;
-                Path file = gameDir(g.getId()).resolve("locations.readable.ndjson");
-
-                for (Team t : g.getTeams()) {
-                    Map<String, Object> line = new LinkedHashMap<>();
-                    line.put("time", nowFmt);
-                    if (g.getCode() != null) line.put("gameCode", g.getCode());
-                    line.put("team", t.getName() != null ? t.getName() : t.getId());
-                    line.put("role", t.getRole());
-                    if (t.getLocation() != null) {
-                        line.put("latitude", t.getLocation().getLatitude());
-                        line.put("longitude", t.getLocation().getLongitude());
-                        long ts = t.getLocation().getTimestamp();
-                        line.put("lastUpdate", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(ts)));
-                    } else {
-                        line.put("hasLocation", false);
-                    }
-
-                    writeNdjson(file, line);
-                }
+    /**
+     * Called after a team's location was updated. Queues a line when the game is active and the
+     * team moved far enough since the last recorded line, and not sooner than minIntervalMs.
+     */
+    public void recordLocation(Game game, Team team) {
+        if (game == null || team == null || !"active".equals(game.getStatus())) return;
+        Team.TeamLocation loc = team.getLocation();
+        if (loc == null) return;
+
+        Map<String, Recorded> teams = lastRecorded.computeIfAbsent(game.getId(), k -> new ConcurrentHashMap<>());
+        Recorded prev = teams.get(team.getId());
+        long ts = loc.getTimestamp() > 0 ? loc.getTimestamp() : System.currentTimeMillis();
+        if (prev != null) {
+            if (ts - prev.timestamp < minIntervalMs) return;
+            if (GeoUtils.distanceMeters(prev.latitude, prev.longitude, loc.getLatitude(), loc.getLongitude()) < minMovementMeters) return;
+        }
+        teams.put(team.getId(), new Recorded(loc.getLatitude(), loc.getLongitude(), ts));
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("time", READABLE_TIME.format(Instant.ofEpochMilli(System.currentTimeMillis())));
+        if (game.getCode() != null) line.put("gameCode", game.getCode());
+        line.put("team", team.getName() != null ? team.getName() : team.getId());
+        line.put("role", team.getRole());
+        line.put("latitude", loc.getLatitude());
+        line.put("longitude", loc.getLongitude());
+        line.put("lastUpdate", READABLE_TIME.format(Instant.ofEpochMilli(ts)));
+        // Added under the key's lock, so flushGame cannot drop the queue between lookup and add
+        pending.compute(game.getId(), (k, queue) -> {
+            if (queue == null) queue = new ConcurrentLinkedQueue<>();
+            queue.add(line);
+            return queue;
+        });
+    }
+
+    /**
+     * Flush queued lines, one write per game, and release channels of games that are no longer active.
+     */
+    @Scheduled(fixedRateString = "${locations.snapshot.flushMs:5000}", initialDelayString = "${locations.snapshot.flushMs:5000}")
+    public void flushPending() {
+        for (String gameId : new ArrayList<>(pending.keySet())) {
+            flushGame(gameId);
+        }
+        for (String gameId : new ArrayList<>(channels.keySet())) {
+            Game game = gameStore.getGame(gameId);
+            if (game == null || !"active".equals(game.getStatus())) {
+                closeChannel(gameId);
+                if (game == null) lastRecorded.remove(gameId);
             }
-        } catch (Exception e) {
-            log.debug("Location snapshot failed: {}", e.getMessage());
         }
+        lastRecorded.keySet().removeIf(gameId -> gameStore.getGame(gameId) == null);
     }
 
-    private void writeNdjson(Path file, Map<String, Object> line) {
-        try (Writer w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file.toFile(), true), StandardCharsets.UTF_8))) {
-            String json = mapper.writeValueAsString(line);
-            w.write(json);
-            w.write("\n");
+    private synchronized void flushGame(String gameId) {
+        Queue<Map<String, Object>> queue = pending.get(gameId);
+        if (queue == null) return;
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        Map<String, Object> line;
+        try {
+            while ((line = queue.poll()) != null) {
+                mapper.writeValue(batch, line);
+                batch.write('\n');
+            }
         } catch (IOException e) {
-            log.warn("Failed writing location snapshot to {}: {}", file, e.getMessage());
+            log.warn("Failed to encode location snapshot for {}: {}", gameId, e.getMessage());
+        }
+        // Only drop the queue if nothing was added since the loop above drained it
+        pending.computeIfPresent(gameId, (k, current) -> current.isEmpty() ? null : current);
+        if (batch.size() == 0) return;
+
+        try {
+            FileChannel ch = channels.get(gameId);
+            if (ch == null || !ch.isOpen()) {
+                ch = FileChannel.open(gameDir(gameId).resolve(FILE_NAME),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                channels.put(gameId, ch);
+            }
+            ByteBuffer buf = ByteBuffer.wrap(batch.toByteArray());
+            while (buf.hasRemaining()) {
+                ch.write(buf);
+            }
+        } catch (IOException e) {
+            log.warn("Failed writing location snapshot for {}: {}", gameId, e.getMessage());
+            closeChannel(gameId);
+        }
+    }
+
+    private synchronized void closeChannel(String gameId) {
+        FileChannel ch = channels.remove(gameId);
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {}
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (String gameId : new ArrayList<>(pending.keySet())) {
+            flushGame(gameId);
+        }
+        for (String gameId : new ArrayList<>(channels.keySet())) {
+            closeChannel(gameId);
         }
     }
 
     public java.io.File getReadableLocationsFile(String gameId) {
+        // Make the download include lines still waiting for the next flush
+        flushGame(gameId);
         Path dir = gameDir(gameId);
-        Path file = dir.resolve("locations.readable.ndjson");
+        Path file = dir.resolve(FILE_NAME);
         return file.toFile();
     }
+
+    private static final class Recorded {
+        final double latitude;
+        final double longitude;
+        final long timestamp;
+
+        Recorded(double latitude, double longitude, long timestamp) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+    }
 }
@@ -0,0 +1,551 @@
+package com.hideandseek.logging;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only location trail per team, stored next to the game's event log as
+ * trail/{teamId}/{n}.seg. Each segment is a memory-mapped file holding up to segmentPoints
+ * points in three int columns: timestamp delta from the previous point (ms), latitude and
+ * longitude in 1e-7 degree fixed point. A point costs 12 bytes on disk. The most recent points
+ * of each team are also kept in an in-memory ring so live map requests never touch disk.
+ *
+ * Segment layout: MAGIC, version, capacity, count, baseTimestamp, lastTimestamp (32 bytes),
+ * then the delta, latitude and longitude columns of capacity ints each. The count is written
+ * after the columns, so a crash mid-append only loses that point.
+ *
+ * Every append also feeds one TrailSimplifier per tolerance level (trails.simplify.tolerancesMeters),
+ * so zoomed-out views can ask for a bounded number of points without reading the raw segments.
+ * Simplified levels live in memory and are rebuilt from the segments when a trail is reopened.
+ */
+@Service
+public class TeamTrailStore {
+    private static final Logger log = LoggerFactory.getLogger(TeamTrailStore.class);
+    private static final int MAGIC = 0x48535452; // "HSTR"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int OFF_COUNT = 12;
+    private static final int OFF_BASE_TS = 16;
+    private static final int OFF_LAST_TS = 24;
+    private static final double FIXED_POINT = 1e7;
+    private static final long IDLE_CLOSE_MS = 10 * 60 * 1000L;
+
+    private final GameEventLogger gameEventLogger;
+    private final int segmentPoints;
+    private final int ringSize;
+    private final double[] tolerancesMeters;
+    // key: gameId + "/" + teamId
+    private final Map<String, Trail> trails = new ConcurrentHashMap<>();
+
+    public TeamTrailStore(GameEventLogger gameEventLogger,
+                          @Value("${trails.segmentPoints:16384}") int segmentPoints,
+                          @Value("${trails.ringSize:512}") int ringSize,
+                          @Value("${trails.simplify.tolerancesMeters:5,25,100}") double[] tolerancesMeters) {
+        this.gameEventLogger = gameEventLogger;
+        this.segmentPoints = Math.max(64, segmentPoints);
+        this.ringSize = Math.max(16, ringSize);
+        // Finest level first
+        this.tolerancesMeters = Arrays.stream(tolerancesMeters).filter(t -> t > 0).sorted().toArray();
+    }
+
+    /**
+     * Append a point to the team's trail. Points older than the last one are stored with the
+     * last timestamp so the delta column stays non-negative.
+     */
+    public void append(String gameId, String teamId, double latitude, double longitude, long timestamp) {
+        if (gameId == null || teamId == null) return;
+        try {
+            // A trail evicted by closeIdleTrails in between refuses the point; the next look-up reopens it
+            while (!trail(gameId, teamId).append(latitude, longitude, timestamp)) {
+                Thread.onSpinWait();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to append trail point for team {} in game {}: {}", teamId, gameId, e.getMessage());
+        }
+    }
+
+    /**
+     * Points of one team with from <= timestamp <= to, oldest first, at most limit points
+     * (the newest ones are kept when the window holds more).
+     */
+    public TrailWindow query(String gameId, String teamId, long from, long to, int limit) throws IOException {
+        TrailWindow window = new TrailWindow(teamId);
+        if (from > to || limit <= 0) return window;
+        Trail trail = existingTrail(gameId, teamId);
+        if (trail == null) return window;
+        trail.query(from, to, limit, window);
+        return window;
+    }
+
+    /**
+     * Simplified points of one team with from <= timestamp <= to, using the finest tolerance level
+     * that fits in maxPoints. If even the coarsest level is larger, it is thinned evenly.
+     * The chosen tolerance is reported in TrailWindow.getToleranceMeters().
+     */
+    public TrailWindow querySimplified(String gameId, String teamId, long from, long to, int maxPoints) throws IOException {
+        TrailWindow window = new TrailWindow(teamId);
+        if (from > to || maxPoints <= 0) return window;
+        Trail trail = existingTrail(gameId, teamId);
+        if (trail == null) return window;
+        trail.querySimplified(from, to, maxPoints, window);
+        return window;
+    }
+
+    /**
+     * Trails of every team that has one in this game.
+     */
+    public Map<String, TrailWindow> queryGame(String gameId, long from, long to, int limit) throws IOException {
+        Map<String, TrailWindow> result = new LinkedHashMap<>();
+        for (String teamId : teamIds(gameId)) {
+            result.put(teamId, query(gameId, teamId, from, to, limit));
+        }
+        return result;
+    }
+
+    /**
+     * Simplified trails of every team that has one in this game.
+     */
+    public Map<String, TrailWindow> queryGameSimplified(String gameId, long from, long to, int maxPoints) throws IOException {
+        Map<String, TrailWindow> result = new LinkedHashMap<>();
+        for (String teamId : teamIds(gameId)) {
+            result.put(teamId, querySimplified(gameId, teamId, from, to, maxPoints));
+        }
+        return result;
+    }
+
+    /**
+     * Per team: raw point count and, per tolerance level, the kept points and the compression
+     * ratio (raw / kept).
+     */
+    public Map<String, Object> getSimplificationStats(String gameId) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String teamId : teamIds(gameId)) {
+            Trail trail = existingTrail(gameId, teamId);
+            if (trail != null) result.put(teamId, trail.simplificationStats());
+        }
+        return result;
+    }
+
+    private List<String> teamIds(String gameId) throws IOException {
+        List<String> teamIds = new ArrayList<>();
+        Path root = gameEventLogger.getBaseDir().resolve(gameId).resolve("trail");
+        if (!Files.isDirectory(root)) return teamIds;
+        try (DirectoryStream<Path> teams = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path teamDir : teams) {
+                teamIds.add(teamDir.getFileName().toString());
+            }
+        }
+        return teamIds;
+    }
+
+    private Trail existingTrail(String gameId, String teamId) throws IOException {
+        Trail trail = trails.get(key(gameId, teamId));
+        if (trail != null) return trail;
+        if (!Files.isDirectory(trailDir(gameId, teamId))) return null;
+        return trail(gameId, teamId);
+    }
+
+    /**
+     * Bytes used by the game's trail segments, for comparison with locations.readable.ndjson.
+     */
+    public long getStorageBytes(String gameId) {
+        Path root = gameEventLogger.getBaseDir().resolve(gameId).resolve("trail");
+        if (!Files.isDirectory(root)) return 0;
+        long total = 0;
+        try (var files = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                if (p.toString().endsWith(".seg")) total += usedBytes(p);
+            }
+        } catch (IOException e) {
+            log.debug("Failed to size trail of {}: {}", gameId, e.getMessage());
+        }
+        return total;
+    }
+
+    private long usedBytes(Path segment) throws IOException {
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            return HEADER_BYTES + 12L * buf.getInt(OFF_COUNT);
+        }
+    }
+
+    /**
+     * Drop the writable mapping of trails that have not been appended to for a while.
+     */
+    @Scheduled(fixedRate = 60000, initialDelay = 60000)
+    public void closeIdleTrails() {
+        long cutoff = System.currentTimeMillis() - IDLE_CLOSE_MS;
+        for (String key : trails.keySet()) {
+            trails.computeIfPresent(key, (k, trail) -> trail.closeIfIdle(cutoff) ? null : trail);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trails.values().forEach(Trail::close);
+        trails.clear();
+    }
+
+    private Trail trail(String gameId, String teamId) throws IOException {
+        String key = key(gameId, teamId);
+        Trail trail = trails.get(key);
+        if (trail != null) return trail;
+        try {
+            // Opened inside the map so no two Trails ever map the same segment for writing
+            return trails.computeIfAbsent(key, k -> {
+                try {
+                    return new Trail(trailDir(gameId, teamId));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Path trailDir(String gameId, String teamId) {
+        return gameEventLogger.getBaseDir().resolve(gameId).resolve("trail").resolve(teamId);
+    }
+
+    private static String key(String gameId, String teamId) {
+        return gameId + "/" + teamId;
+    }
+
+    private static int toFixed(double degrees) {
+        return (int) Math.round(degrees * FIXED_POINT);
+    }
+
+    private static double fromFixed(int fixed) {
+        return fixed / FIXED_POINT;
+    }
+
+    private static int deltaOffset(int i) {
+        return HEADER_BYTES + 4 * i;
+    }
+
+    private static int latOffset(int capacity, int i) {
+        return HEADER_BYTES + 4 * capacity + 4 * i;
+    }
+
+    private static int lonOffset(int capacity, int i) {
+        return HEADER_BYTES + 8 * capacity + 4 * i;
+    }
+
+    private final class Trail {
+        final Path dir;
+        // Recent points, oldest at ringStart
+        final long[] ringTs = new long[ringSize];
+        final int[] ringLat = new int[ringSize];
+        final int[] ringLon = new int[ringSize];
+        int ringStart;
+        int ringCount;
+        // True once the ring no longer holds every point ever appended
+        boolean ringTruncated;
+
+        int segmentIndex = -1;
+        MappedByteBuffer segment;
+        int segmentCapacity;
+        int segmentCount;
+        long lastTs;
+        // Every point ever appended, across all segments
+        long rawCount;
+        final TrailSimplifier[] levels = new TrailSimplifier[tolerancesMeters.length];
+        volatile long lastAppendAt = System.currentTimeMillis();
+        // Set when evicted from the map; appends must then go to the Trail that replaces it
+        boolean closed;
+
+        Trail(Path dir) throws IOException {
+            this.dir = dir;
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new TrailSimplifier(tolerancesMeters[i]);
+            }
+            List<Integer> existing = segmentIndexes();
+            if (!existing.isEmpty()) {
+                // Resume the last segment; replay every segment into the ring and simplified levels
+                segmentIndex = existing.get(existing.size() - 1);
+                reopenSegment();
+                for (int index : existing) {
+                    MappedByteBuffer buf = index == segmentIndex ? segment : map(segmentFile(index), true);
+                    int capacity = buf.getInt(8);
+                    int count = buf.getInt(OFF_COUNT);
+                    long ts = buf.getLong(OFF_BASE_TS);
+                    for (int i = 0; i < count; i++) {
+                        ts += buf.getInt(deltaOffset(i));
+                        record(ts, buf.getInt(latOffset(capacity, i)), buf.getInt(lonOffset(capacity, i)));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns false, storing nothing, if this trail has been closed.
+         */
+        synchronized boolean append(double latitude, double longitude, long timestamp) throws IOException {
+            if (closed) return false;
+            lastAppendAt = System.currentTimeMillis();
+            long ts = Math.max(timestamp, lastTs);
+            int lat = toFixed(latitude);
+            int lon = toFixed(longitude);
+            if (segment == null || segmentCount >= segmentCapacity || ts - lastTs > Integer.MAX_VALUE) {
+                startSegment(ts);
+            }
+            segment.putInt(deltaOffset(segmentCount), segmentCount == 0 ? 0 : (int) (ts - lastTs));
+            segment.putInt(latOffset(segmentCapacity, segmentCount), lat);
+            segment.putInt(lonOffset(segmentCapacity, segmentCount), lon);
+            segment.putLong(OFF_LAST_TS, ts);
+            segment.putInt(OFF_COUNT, ++segmentCount);
+            lastTs = ts;
+            record(ts, lat, lon);
+            return true;
+        }
+
+        synchronized void querySimplified(long from, long to, int maxPoints, TrailWindow out) {
+            if (levels.length == 0) return;
+            TrailSimplifier chosen = levels[levels.length - 1];
+            for (TrailSimplifier level : levels) {
+                if (level.count(from, to) <= maxPoints) {
+                    chosen = level;
+                    break;
+                }
+            }
+            out.toleranceMeters = chosen.getToleranceMeters();
+            int count = chosen.count(from, to);
+            if (count <= maxPoints) {
+                chosen.query(from, to, out);
+                return;
+            }
+            // Thin the coarsest level evenly, always keeping its first and last point
+            TrailWindow all = new TrailWindow(out.getTeamId());
+            chosen.query(from, to, all);
+            for (int i = 0; i < maxPoints; i++) {
+                int idx = maxPoints == 1 ? count - 1 : (int) ((long) i * (count - 1) / (maxPoints - 1));
+                out.add(all.timestamps[idx], all.latitudes[idx], all.longitudes[idx]);
+            }
+        }
+
+        synchronized Map<String, Object> simplificationStats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("rawPoints", rawCount);
+            List<Map<String, Object>> levelStats = new ArrayList<>();
+            for (TrailSimplifier level : levels) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                int kept = level.size();
+                entry.put("toleranceMeters", level.getToleranceMeters());
+                entry.put("points", kept);
+                entry.put("compressionRatio", kept > 0 ? (double) rawCount / kept : 1.0);
+                levelStats.add(entry);
+            }
+            stats.put("levels", levelStats);
+            return stats;
+        }
+
+        private void record(long ts, int lat, int lon) {
+            rawCount++;
+            pushRing(ts, lat, lon);
+            for (TrailSimplifier level : levels) {
+                level.add(ts, lat, lon);
+            }
+        }
+
+        synchronized void query(long from, long to, int limit, TrailWindow out) throws IOException {
+            ArrayDeque<long[]> points = new ArrayDeque<>();
+            long ringOldest = ringCount > 0 ? ringTs[ringStart] : Long.MAX_VALUE;
+            if (ringCount > 0 && (!ringTruncated || from >= ringOldest)) {
+                // Entire window is in memory
+                for (int i = 0; i < ringCount; i++) {
+                    int idx = (ringStart + i) % ringSize;
+                    keep(points, ringTs[idx], ringLat[idx], ringLon[idx], from, to, limit);
+                }
+            } else {
+                for (int index : segmentIndexes()) {
+                    MappedByteBuffer buf = index == segmentIndex && segment != null
+                            ? segment : map(segmentFile(index), true);
+                    int capacity = buf.getInt(8);
+                    int count = buf.getInt(OFF_COUNT);
+                    long base = buf.getLong(OFF_BASE_TS);
+                    if (count == 0 || buf.getLong(OFF_LAST_TS) < from || base > to) continue;
+                    long ts = base;
+                    for (int i = 0; i < count; i++) {
+                        ts += buf.getInt(deltaOffset(i));
+                        if (ts > to) break;
+                        keep(points, ts, buf.getInt(latOffset(capacity, i)), buf.getInt(lonOffset(capacity, i)), from, to, limit);
+                    }
+                }
+            }
+            for (long[] p : points) {
+                out.add(p[0], fromFixed((int) p[1]), fromFixed((int) p[2]));
+            }
+        }
+
+        private void keep(ArrayDeque<long[]> points, long ts, int lat, int lon, long from, long to, int limit) {
+            if (ts < from || ts > to) return;
+            points.addLast(new long[]{ts, lat, lon});
+            if (points.size() > limit) points.pollFirst();
+        }
+
+        private void pushRing(long ts, int lat, int lon) {
+            int idx;
+            if (ringCount < ringSize) {
+                idx = (ringStart + ringCount++) % ringSize;
+            } else {
+                idx = ringStart;
+                ringStart = (ringStart + 1) % ringSize;
+                ringTruncated = true;
+            }
+            ringTs[idx] = ts;
+            ringLat[idx] = lat;
+            ringLon[idx] = lon;
+        }
+
+        private void startSegment(long baseTs) throws IOException {
+            if (segment != null) segment.force();
+            segmentIndex++;
+            segment = map(segmentFile(segmentIndex), false);
+            segment.putInt(0, MAGIC);
+            segment.putInt(4, FORMAT_VERSION);
+            segment.putInt(8, segmentPoints);
+            segment.putInt(OFF_COUNT, 0);
+            segment.putLong(OFF_BASE_TS, baseTs);
+            segment.putLong(OFF_LAST_TS, baseTs);
+            segmentCapacity = segmentPoints;
+            segmentCount = 0;
+            lastTs = baseTs;
+        }
+
+        private void reopenSegment() throws IOException {
+            segment = map(segmentFile(segmentIndex), false);
+            segmentCapacity = segment.getInt(8);
+            segmentCount = segment.getInt(OFF_COUNT);
+            lastTs = segment.getLong(OFF_LAST_TS);
+        }
+
+        private MappedByteBuffer map(Path file, boolean readOnly) throws IOException {
+            if (readOnly) {
+                try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                    checkHeader(buf, file);
+                    return buf;
+                }
+            }
+            Files.createDirectories(dir);
+            boolean fresh = !Files.exists(file);
+            long size = HEADER_BYTES + 12L * segmentPoints;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (!fresh) size = Math.max(size, ch.size());
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                if (!fresh) checkHeader(buf, file);
+                return buf;
+            }
+        }
+
+        private void checkHeader(MappedByteBuffer buf, Path file) throws IOException {
+            if (buf.capacity() < HEADER_BYTES || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION
+                    || buf.capacity() < HEADER_BYTES + 12L * buf.getInt(8)) {
+                throw new IOException("Not a trail segment: " + file);
+            }
+        }
+
+        private Path segmentFile(int index) {
+            return dir.resolve(String.format("%06d.seg", index));
+        }
+
+        private List<Integer> segmentIndexes() throws IOException {
+            List<Integer> indexes = new ArrayList<>();
+            if (!Files.isDirectory(dir)) return indexes;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.seg")) {
+                for (Path p : files) {
+                    String name = p.getFileName().toString();
+                    try {
+                        indexes.add(Integer.parseInt(name.substring(0, name.length() - 4)));
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+            Collections.sort(indexes);
+            return indexes;
+        }
+
+        synchronized boolean closeIfIdle(long cutoff) {
+            if (lastAppendAt >= cutoff) return false;
+            close();
+            return true;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (segment != null) segment.force();
+            segment = null;
+        }
+    }
+
+    /**
+     * Query result in columnar form: timestamps[i], latitudes[i], longitudes[i] describe one point.
+     */
+    public static final class TrailWindow {
+        private final String teamId;
+        private long[] timestamps = new long[16];
+        private double[] latitudes = new double[16];
+        private double[] longitudes = new double[16];
+        private int size;
+        private double toleranceMeters;
+
+        TrailWindow(String teamId) {
+            this.teamId = teamId;
+        }
+
+        void add(long ts, double lat, double lon) {
+            if (size == timestamps.length) {
+                int n = size * 2;
+                timestamps = Arrays.copyOf(timestamps, n);
+                latitudes = Arrays.copyOf(latitudes, n);
+                longitudes = Arrays.copyOf(longitudes, n);
+            }
+            timestamps[size] = ts;
+            latitudes[size] = lat;
+            longitudes[size] = lon;
+            size++;
+        }
+
+        public String getTeamId() {
+            return teamId;
+        }
+
+        public int getCount() {
+            return size;
+        }
+
+        /**
+         * Simplification tolerance these points were taken at; 0 for raw points.
+         */
+        public double getToleranceMeters() {
+            return toleranceMeters;
+        }
+
+        public long[] getTimestamps() {
+            return Arrays.copyOf(timestamps, size);
+        }
+
+        public double[] getLatitudes() {
+            return Arrays.copyOf(latitudes, size);
+        }
+
+        public double[] getLongitudes() {
+            return Arrays.copyOf(longitudes, size);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.hideandseek.logging;
+
+import com.hideandseek.util.GeoUtils;
+
+import java.util.Arrays;
+
+/**
+ * Streaming line simplification with a bounded error (opening-window variant of Douglas-Peucker).
+ * Points arrive one at a time; a point is only dropped while every point since the last kept one
+ * stays within toleranceMeters of the straight line from that kept point to the newest point.
+ * Coordinates are the same 1e-7 degree fixed-point ints TeamTrailStore stores on disk.
+ */
+final class TrailSimplifier {
+    private static final double FIXED_POINT = 1e7;
+    // Bounds the per-point work; a window this long forces a kept point
+    private static final int MAX_WINDOW = 128;
+
+    private final double toleranceMeters;
+
+    private long[] keptTs = new long[64];
+    private int[] keptLat = new int[64];
+    private int[] keptLon = new int[64];
+    private int keptCount;
+
+    // Points after the last kept one, newest last
+    private final long[] windowTs = new long[MAX_WINDOW];
+    private final int[] windowLat = new int[MAX_WINDOW];
+    private final int[] windowLon = new int[MAX_WINDOW];
+    private int windowCount;
+
+    TrailSimplifier(double toleranceMeters) {
+        this.toleranceMeters = toleranceMeters;
+    }
+
+    double getToleranceMeters() {
+        return toleranceMeters;
+    }
+
+    void add(long ts, int lat, int lon) {
+        if (keptCount == 0) {
+            keep(ts, lat, lon);
+            return;
+        }
+        windowTs[windowCount] = ts;
+        windowLat[windowCount] = lat;
+        windowLon[windowCount] = lon;
+        windowCount++;
+        if (windowCount == 1) return;
+
+        if (windowCount == MAX_WINDOW || exceedsTolerance()) {
+            // The point before the newest becomes the new anchor
+            int prev = windowCount - 2;
+            keep(windowTs[prev], windowLat[prev], windowLon[prev]);
+            windowTs[0] = windowTs[windowCount - 1];
+            windowLat[0] = windowLat[windowCount - 1];
+            windowLon[0] = windowLon[windowCount - 1];
+            windowCount = 1;
+        }
+    }
+
+    private boolean exceedsTolerance() {
+        int a = keptCount - 1;
+        double lat0 = keptLat[a] / FIXED_POINT;
+        double lon0 = keptLon[a] / FIXED_POINT;
+        double lonScale = GeoUtils.metersPerDegreeLon(lat0);
+        int last = windowCount - 1;
+        // Local planar frame around the anchor, in meters
+        double bx = (windowLon[last] / FIXED_POINT - lon0) * lonScale;
+        double by = (windowLat[last] / FIXED_POINT - lat0) * GeoUtils.METERS_PER_DEGREE_LAT;
+        double len2 = bx * bx + by * by;
+        for (int i = 0; i < last; i++) {
+            double px = (windowLon[i] / FIXED_POINT - lon0) * lonScale;
+            double py = (windowLat[i] / FIXED_POINT - lat0) * GeoUtils.METERS_PER_DEGREE_LAT;
+            double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / len2));
+            double dx = px - t * bx;
+            double dy = py - t * by;
+            if (dx * dx + dy * dy > toleranceMeters * toleranceMeters) return true;
+        }
+        return false;
+    }
+
+    private void keep(long ts, int lat, int lon) {
+        if (keptCount == keptTs.length) {
+            int n = keptCount * 2;
+            keptTs = Arrays.copyOf(keptTs, n);
+            keptLat = Arrays.copyOf(keptLat, n);
+            keptLon = Arrays.copyOf(keptLon, n);
+        }
+        keptTs[keptCount] = ts;
+        keptLat[keptCount] = lat;
+        keptLon[keptCount] = lon;
+        keptCount++;
+    }
+
+    /**
+     * Number of points a query over the whole trail returns (kept points plus the current tail).
+     */
+    int size() {
+        return keptCount + (windowCount > 0 ? 1 : 0);
+    }
+
+    /**
+     * Points with from <= ts <= to: the kept points, then the newest point so the line ends at the
+     * current position.
+     */
+    int count(long from, long to) {
+        int n = Math.max(0, upperBound(to) - lowerBound(from));
+        if (windowCount > 0) {
+            long tail = windowTs[windowCount - 1];
+            if (tail >= from && tail <= to) n++;
+        }
+        return n;
+    }
+
+    void query(long from, long to, TeamTrailStore.TrailWindow out) {
+        for (int i = lowerBound(from), end = upperBound(to); i < end; i++) {
+            out.add(keptTs[i], keptLat[i] / FIXED_POINT, keptLon[i] / FIXED_POINT);
+        }
+        if (windowCount > 0) {
+            int last = windowCount - 1;
+            if (windowTs[last] >= from && windowTs[last] <= to) {
+                out.add(windowTs[last], windowLat[last] / FIXED_POINT, windowLon[last] / FIXED_POINT);
+            }
+        }
+    }
+
+    private int lowerBound(long ts) {
+        int lo = 0, hi = keptCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keptTs[mid] < ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int upperBound(long ts) {
+        int lo = 0, hi = keptCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keptTs[mid] <= ts) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -1,6 +1,8 @@
 package com.hideandseek.model;
 
 public class ClueRequest {
+    public static final long DEFAULT_EXPIRY_MS = 60 * 1000;
+
     private String id;
     private String gameId;
     private String requestingTeamId;
@@ -22,6 +24,12 @@ public class ClueRequest {
     // Constructor with essential fields
     public ClueRequest(String id, String gameId, String requestingTeamId, String targetHiderTeamId, 
                       String clueTypeId, String clueTypeName, String responseType) {
+        this(id, gameId, requestingTeamId, targetHiderTeamId, clueTypeId, clueTypeName, responseType, DEFAULT_EXPIRY_MS);
+    }
+
+    // Manual responses (text, photo) expire after expiryMs
+    public ClueRequest(String id, String gameId, String requestingTeamId, String targetHiderTeamId, 
+                      String clueTypeId, String clueTypeName, String responseType, long expiryMs) {
         this.id = id;
         this.gameId = gameId;
         this.requestingTeamId = requestingTeamId;
@@ -31,9 +39,8 @@ public class ClueRequest {
         this.responseType = responseType;
         this.requestTimestamp = System.currentTimeMillis();
         this.status = "pending";
-        // Set expiration to 1 minute from now for manual responses
         if ("text".equals(responseType) || "photo".equals(responseType)) {
-            this.expirationTimestamp = System.currentTimeMillis() + (1 * 60 * 1000);
+            this.expirationTimestamp = this.requestTimestamp + expiryMs;
         }
     }
     
@@ -9,12 +9,11 @@ public class ClueResponse {
     private String responseType; // "text", "photo", "location", "automatic"
     private String responseData; // The actual response content
     private long responseTimestamp;
-    private boolean delivered; // Whether the response has been delivered to requesting team
+    private long deliverySeq; // Position in the requesting team's delivery queue (0 until queued)
     
     // Default constructor
     public ClueResponse() {
         this.responseTimestamp = System.currentTimeMillis();
-        this.delivered = false;
     }
     
     // Constructor with essential fields
@@ -28,7 +27,6 @@ public class ClueResponse {
         this.responseType = responseType;
         this.responseData = responseData;
         this.responseTimestamp = System.currentTimeMillis();
-        this.delivered = false;
     }
     
     // Getters and Setters
@@ -96,11 +94,11 @@ public class ClueResponse {
         this.responseTimestamp = responseTimestamp;
     }
     
-    public boolean isDelivered() {
-        return delivered;
+    public long getDeliverySeq() {
+        return deliverySeq;
     }
     
-    public void setDelivered(boolean delivered) {
-        this.delivered = delivered;
+    public void setDeliverySeq(long deliverySeq) {
+        this.deliverySeq = deliverySeq;
     }
 }
@@ -6,6 +6,7 @@ public class ClueType {
     private String description;
     private int cost;
     private Integer range; // Range in meters, null means unlimited range
+    private Integer expirySeconds; // How long hiders have to respond to requests; null means the default
 
     // Default constructor
     public ClueType() {}
@@ -59,4 +60,12 @@ public class ClueType {
     public void setRange(Integer range) {
         this.range = range;
     }
+
+    public Integer getExpirySeconds() {
+        return expirySeconds;
+    }
+
+    public void setExpirySeconds(Integer expirySeconds) {
+        this.expirySeconds = expirySeconds;
+    }
 }
@@ -3,12 +3,13 @@ package com.hideandseek.model;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Team {
     private String id;
     private String name;
     private String role;              // "seeker" or "hider" to match frontend
-    private int tokens;
+    private final AtomicInteger tokens = new AtomicInteger(); // Changed through TokenLedger
     @JsonProperty("location")
     private TeamLocation location;    // Nested location object to match frontend structure
     private List<String> completedChallenges = new ArrayList<>();
@@ -34,7 +35,7 @@ public class Team {
         this.id = id;
         this.name = name;
         this.role = role;
-        this.tokens = tokens;
+        this.tokens.set(tokens);
         this.location = location;
         this.completedChallenges = completedChallenges != null ? completedChallenges : new ArrayList<>();
         this.completedCurses = completedCurses != null ? completedCurses : new ArrayList<>();
@@ -77,11 +78,15 @@ public class Team {
     }
 
     public int getTokens() {
-        return tokens;
+        return tokens.get();
     }
 
     public void setTokens(int tokens) {
-        this.tokens = tokens;
+        this.tokens.set(tokens);
+    }
+
+    public boolean compareAndSetTokens(int expected, int tokens) {
+        return this.tokens.compareAndSet(expected, tokens);
     }
 
     public TeamLocation getLocation() {
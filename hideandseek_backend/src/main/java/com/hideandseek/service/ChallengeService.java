@@ -1,5 +1,6 @@
 package com.hideandseek.service;
 
+import com.hideandseek.logging.GameEventLogger;
 import com.hideandseek.model.*;
 import com.hideandseek.store.GameStore;
 import com.hideandseek.websocket.GameWebSocketHandler;
@@ -17,6 +18,12 @@ public class ChallengeService {
     @Autowired
     private GameWebSocketHandler webSocketHandler;
 
+    @Autowired
+    private GameEventLogger gameEventLogger;
+
+    @Autowired
+    private TokenLedger tokenLedger;
+
     public Map<String, Object> getAllChallengesAndCurses() {
         List<Challenge> challenges = gameStore.getAllChallenges();
         List<Curse> curses = gameStore.getAllCurses();
@@ -96,6 +103,14 @@ public class ChallengeService {
     active.setCompleted(false);
     team.setActiveChallenge(active);
     gameStore.updateGame(game);
+    try {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("teamId", teamId);
+        payload.put("challengeId", drawnChallenge.getId());
+        payload.put("title", drawnChallenge.getTitle());
+        payload.put("startTime", active.getStartTime());
+        gameEventLogger.appendEvent(gameId, "challenge.drawn", "team", teamId, payload);
+    } catch (Exception ignored) {}
     // Broadcast to clients so UI hydrates active challenge
     webSocketHandler.broadcastToGame(gameId, game);
 
@@ -113,7 +128,13 @@ public class ChallengeService {
     return result;
     }
 
-    public Map<String, Object> completeChallenge(String gameId, String teamId, String challengeTitle) {
+    public Map<String, Object> completeChallenge(String gameId, String teamId, String challengeTitle, String idempotencyKey) {
+        // A retried request gets the original response instead of being credited again
+        Map<String, Object> replayed = tokenLedger.replay(gameId, teamId, idempotencyKey, "challenge.completed");
+        if (replayed != null) {
+            return replayed;
+        }
+
         Game game = gameStore.getGame(gameId);
         if (game == null) {
             throw new IllegalArgumentException("Game not found");
@@ -153,32 +174,28 @@ public class ChallengeService {
         }
 
         // Update team state: tokens, completed list (normalize to use ID), clear active
-        team.setTokens(team.getTokens() + tokensEarned);
-        List<String> completed = team.getCompletedChallenges();
-        boolean hasId = completed.contains(challenge.getId());
-        boolean hasTitle = completed.contains(challenge.getTitle());
-        if (!hasId) {
-            completed.add(challenge.getId());
-        }
-        // Optionally remove legacy title entry to normalize
-        if (hasTitle) {
-            completed.remove(challenge.getTitle());
+        TokenLedger.Entry credit = tokenLedger.credit(gameId, team, tokensEarned, "challenge.completed",
+                creditKey(idempotencyKey, active), Map.of("challengeId", challenge.getId()));
+        if (credit.isReplay()) {
+            return credit.awaitOutcome();
+        }
+        try {
+            Map<String, Object> result = finishCompletion(game, team, challenge, tokensEarned, credit);
+            credit.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            tokenLedger.reverse(gameId, team, credit, e);
+            throw e;
         }
-        team.setActiveChallenge(null);
-
-        gameStore.updateGame(game);
-        // Broadcast to WebSocket
-        webSocketHandler.broadcastToGame(gameId, game);
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("tokensEarned", tokensEarned);
-        result.put("newTokenBalance", team.getTokens());
-        result.put("challenge", challenge);
-        result.put("message", String.format("Challenge completed! Earned %d tokens.", tokensEarned));
-        return result;
     }
 
-    public Map<String, Object> completeChallengeWithCustomTokens(String gameId, String teamId, String challengeTitle, Integer customTokens) {
+    public Map<String, Object> completeChallengeWithCustomTokens(String gameId, String teamId, String challengeTitle, Integer customTokens, String idempotencyKey) {
+        // A retried request gets the original response instead of being credited again
+        Map<String, Object> replayed = tokenLedger.replay(gameId, teamId, idempotencyKey, "challenge.completed");
+        if (replayed != null) {
+            return replayed;
+        }
+
         Game game = gameStore.getGame(gameId);
         if (game == null) {
             throw new IllegalArgumentException("Game not found");
@@ -224,7 +241,26 @@ public class ChallengeService {
         Integer tokensEarned = customTokens;
 
         // Update team state: tokens, completed list (normalize to use ID), clear active
-        team.setTokens(team.getTokens() + tokensEarned);
+        TokenLedger.Entry credit = tokenLedger.credit(gameId, team, tokensEarned, "challenge.completed",
+                creditKey(idempotencyKey, active), Map.of("challengeId", challenge.getId()));
+        if (credit.isReplay()) {
+            return credit.awaitOutcome();
+        }
+        try {
+            Map<String, Object> result = finishCompletion(game, team, challenge, tokensEarned, credit);
+            credit.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            tokenLedger.reverse(gameId, team, credit, e);
+            throw e;
+        }
+    }
+
+    // Records the completion once the tokens are credited: completed list, event, then WebSocket
+    private Map<String, Object> finishCompletion(Game game, Team team, Challenge challenge, Integer tokensEarned,
+                                                 TokenLedger.Entry credit) {
+        String gameId = game.getId();
+        String teamId = team.getId();
         List<String> completed = team.getCompletedChallenges();
         boolean hasId = completed.contains(challenge.getId());
         boolean hasTitle = completed.contains(challenge.getTitle());
@@ -238,17 +274,32 @@ public class ChallengeService {
         team.setActiveChallenge(null);
 
         gameStore.updateGame(game);
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("teamId", teamId);
+            payload.put("challengeId", challenge.getId());
+            payload.put("title", challenge.getTitle());
+            payload.put("tokensAwarded", tokensEarned);
+            payload.put("newTokenBalance", credit.getBalance());
+            gameEventLogger.appendEvent(gameId, "challenge.completed", "team", teamId, payload);
+        } catch (Exception ignored) {}
         // Broadcast to WebSocket
         webSocketHandler.broadcastToGame(gameId, game);
 
         Map<String, Object> result = new HashMap<>();
         result.put("tokensEarned", tokensEarned);
-        result.put("newTokenBalance", team.getTokens());
+        result.put("newTokenBalance", credit.getBalance());
         result.put("challenge", challenge);
         result.put("message", String.format("Challenge completed! Earned %d tokens.", tokensEarned));
         return result;
     }
 
+    // Without a client key, each drawn challenge still pays out only once
+    private static String creditKey(String idempotencyKey, ActiveChallenge active) {
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) return idempotencyKey;
+        return "challenge:" + active.getChallenge().getId() + "@" + active.getStartTime();
+    }
+
     public Map<String, Object> vetoChallenge(String gameId, String teamId, String challengeTitle) {
         Game game = gameStore.getGame(gameId);
         if (game == null) {
@@ -286,6 +337,13 @@ public class ChallengeService {
         team.setActiveChallenge(null);
         
         gameStore.updateGame(game);
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("teamId", teamId);
+            payload.put("challengeId", active.getChallenge().getId());
+            payload.put("vetoEndTime", vetoEnd);
+            gameEventLogger.appendEvent(gameId, "challenge.vetoed", "team", teamId, payload);
+        } catch (Exception ignored) {}
         // Broadcast to WebSocket
         webSocketHandler.broadcastToGame(gameId, game);
 
@@ -0,0 +1,121 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Asks each hider in range to name the closest landmark of a type they choose. With a POI index
+ * configured (clues.closestBuilding.poiIndex, built by PoiIndexBuilder) the clue is answered
+ * automatically from the hiders' last known locations instead, as long as every targeted hider has
+ * a location and a landmark within clues.closestBuilding.maxDistanceMeters.
+ */
+@Component
+public class ClosestBuildingClueHandler implements ClueTypeHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClosestBuildingClueHandler.class);
+
+    private static final String INSTRUCTIONS = "Choose from: 1. Named street, 2. Library, 3. Museum, 4. Parking lot. Tell the seekers the name of the closest landmark of your chosen type.";
+
+    private final PoiIndex poiIndex;
+    private final double maxDistanceMeters;
+
+    public ClosestBuildingClueHandler(@Value("${clues.closestBuilding.poiIndex:}") String poiIndexPath,
+                                      @Value("${clues.closestBuilding.maxDistanceMeters:1500}") double maxDistanceMeters) {
+        this.poiIndex = loadIndex(poiIndexPath);
+        this.maxDistanceMeters = maxDistanceMeters;
+    }
+
+    private static PoiIndex loadIndex(String path) {
+        if (path == null || path.isBlank()) return null;
+        try {
+            PoiIndex index = PoiIndex.load(Path.of(path));
+            logger.info("Closest-building clues answered automatically from {} ({} points)", path, index.size());
+            return index;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to load POI index {}, hiders will answer closest-building clues: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public String getClueTypeId() {
+        return "closest-building";
+    }
+
+    @Override
+    public Draft createClue(Context context) {
+        List<Target> targets = context.getTargets();
+        Draft automatic = answerFromIndex(targets);
+        if (automatic != null) {
+            return automatic;
+        }
+
+        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
+        for (Target target : targets) {
+            Team hider = target.getTeam();
+            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
+            hiderData.setAdditionalData("Pending landmark response from " + hider.getName());
+            hiderDataList.add(hiderData);
+        }
+
+        String clueText;
+        if (targets.size() == 1) {
+            clueText = "Waiting for landmark information from " + targets.get(0).getTeam().getName() + "...";
+        } else {
+            clueText = String.format("Waiting for landmark information from %d hider teams...", targets.size());
+        }
+
+        Draft draft = Draft.pending(clueText, "text", hiderDataList);
+        for (Target target : targets) {
+            draft.request(target, INSTRUCTIONS);
+        }
+        return draft;
+    }
+
+    /**
+     * The completed clue from the POI index, or null to fall back to asking the hiders.
+     */
+    private Draft answerFromIndex(List<Target> targets) {
+        if (poiIndex == null || targets.isEmpty()) return null;
+        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
+        List<String> landmarks = new ArrayList<>();
+        for (Target target : targets) {
+            Team hider = target.getTeam();
+            Team.TeamLocation location = hider.getLocation();
+            if (location == null) return null;
+            PoiIndex.Hit hit = poiIndex.nearest(location.getLatitude(), location.getLongitude(), maxDistanceMeters);
+            if (hit == null) return null;
+            String landmark = hit.getName() + " (" + hit.getCategory().getLabel() + ")";
+            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
+            hiderData.setAdditionalData(landmark);
+            hiderDataList.add(hiderData);
+            landmarks.add(landmark);
+        }
+
+        String clueText;
+        if (targets.size() == 1) {
+            clueText = String.format("The closest landmark to the hider (%s) is %s.", targets.get(0).getTeam().getName(), landmarks.get(0));
+        } else {
+            StringBuilder lines = new StringBuilder();
+            lines.append(String.format("Closest landmarks to %d hiders within range:\n", targets.size()));
+            for (int i = 0; i < targets.size(); i++) {
+                lines.append(String.format("• %s: %s\n", targets.get(i).getTeam().getName(), landmarks.get(i)));
+            }
+            clueText = lines.toString().trim();
+        }
+        return Draft.completed(clueText, "automatic", hiderDataList).notifyTargets();
+    }
+
+    @Override
+    public String describeSingleResponse(PurchasedClue.HiderClueData hider) {
+        return "Landmark information received from " + hider.getTeamName() + ": " + hider.getAdditionalData();
+    }
+}
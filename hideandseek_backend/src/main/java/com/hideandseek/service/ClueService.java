@@ -6,29 +6,78 @@ import com.hideandseek.websocket.GameWebSocketHandler;
 import com.hideandseek.logging.GameEventLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @Service
 public class ClueService {
 
     private static final Logger logger = LoggerFactory.getLogger(ClueService.class);
+    private static final long PAUSED_RETRY_MS = 5000;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 20;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
 
     private final GameStore gameStore;
     private final GameWebSocketHandler webSocketHandler;
     private final PushService pushService;
     private final GameEventLogger gameEventLogger;
+    private final TokenLedger tokenLedger;
+    // Clue type id -> handler; every ClueTypeHandler bean registers itself here
+    private final Map<String, ClueTypeHandler> handlers = new HashMap<>();
+    // One timer per pending request, cancelled when the hider responds
+    private final Map<String, HashedTimingWheel.Timeout> expiryTimers = new ConcurrentHashMap<>();
+    // Rendered clue history per "gameId:teamId", reused until the team's history version moves
+    private final Map<String, RenderedHistory> historyCache = new ConcurrentHashMap<>();
+    private final ExecutorService expiryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "clue-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+    private final HashedTimingWheel expiryWheel;
 
     // No randomness currently used in this service
 
-    public ClueService(GameStore gameStore, GameWebSocketHandler webSocketHandler, PushService pushService, GameEventLogger gameEventLogger) {
+    public ClueService(GameStore gameStore, GameWebSocketHandler webSocketHandler, PushService pushService, GameEventLogger gameEventLogger,
+                       TokenLedger tokenLedger, List<ClueTypeHandler> clueTypeHandlers,
+                       @Value("${clues.expiry.tickMs:100}") long expiryTickMs) {
         this.gameStore = gameStore;
         this.webSocketHandler = webSocketHandler;
         this.pushService = pushService;
         this.gameEventLogger = gameEventLogger;
+        this.tokenLedger = tokenLedger;
+        this.expiryWheel = new HashedTimingWheel(expiryTickMs, 512, expiryExecutor, "clue-expiry-wheel");
+        for (ClueTypeHandler handler : clueTypeHandlers) {
+            ClueTypeHandler previous = handlers.put(handler.getClueTypeId(), handler);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate handler for clue type " + handler.getClueTypeId());
+            }
+        }
+        for (ClueType clueType : gameStore.getAllClueTypes()) {
+            if (!handlers.containsKey(clueType.getId())) {
+                logger.warn("No handler for clue type {}; it cannot be purchased", clueType.getId());
+            }
+        }
+        webSocketHandler.setClueResponseDelivery(new GameWebSocketHandler.ClueResponseDelivery() {
+            @Override
+            public List<Map<String, Object>> missedSince(String gameId, String teamId, Long epoch, long afterSeq) {
+                return pendingClueResponses(gameId, teamId, epoch, afterSeq);
+            }
+
+            @Override
+            public void acknowledge(String gameId, String teamId, Long epoch, long seq) {
+                acknowledgeClueResponses(gameId, teamId, epoch, seq);
+            }
+        });
     }
 
     public List<Map<String, Object>> getClueTypes() {
@@ -40,18 +89,69 @@ public class ClueService {
                     map.put("description", clueType.getDescription());
                     map.put("cost", clueType.getCost());
                     map.put("range", clueType.getRange()); // Include range field
+                    map.put("expirySeconds", clueType.getExpirySeconds());
                     return map;
                 })
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Full clue history of a team, oldest first.
+     */
     public List<Map<String, Object>> getClueHistory(String gameId, String teamId) {
+        return renderClueHistory(gameId, teamId).entries;
+    }
+
+    /**
+     * One page of a team's clue history, newest first. Pages are addressed by the cursor returned
+     * with the previous page, which stays valid while new clues arrive. With sinceVersion only clues
+     * added or changed after that version are returned, so clients can poll for changes cheaply.
+     */
+    public Map<String, Object> getClueHistoryPage(String gameId, String teamId, Integer limit, String cursor, Long sinceVersion) {
+        int pageSize = limit == null ? DEFAULT_HISTORY_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        RenderedHistory history = renderClueHistory(gameId, teamId);
+        int before = history.entries.size();
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                before = Math.min(before, Integer.parseInt(cursor));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            if (before < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        long since = sinceVersion == null ? 0 : sinceVersion;
+
+        List<Map<String, Object>> page = new ArrayList<>();
+        int index = before - 1;
+        for (; index >= 0 && page.size() < pageSize; index--) {
+            if (history.entryVersions[index] > since) {
+                page.add(history.entries.get(index));
+            }
+        }
+        // Only point at another page if an older entry would actually be on it
+        while (index >= 0 && history.entryVersions[index] <= since) {
+            index--;
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("entries", page);
+        result.put("version", history.version);
+        result.put("nextCursor", index >= 0 ? String.valueOf(index + 1) : null);
+        return result;
+    }
+
+    private RenderedHistory renderClueHistory(String gameId, String teamId) {
         // Get purchased clues (both completed and pending)
         List<PurchasedClue> purchasedClues = gameStore.getClueHistoryForTeam(gameId, teamId);
 
         // Merge undelivered responses into the in-memory purchased clues before returning
-        List<ClueResponse> responses = gameStore.getUndeliveredClueResponsesForTeam(gameId, teamId);
-        if (responses != null && !responses.isEmpty()) {
+        List<ClueResponse> responses = gameStore.getClueResponsesAfter(gameId, teamId, 0);
+        if (!responses.isEmpty()) {
             for (ClueResponse response : responses) {
                 purchasedClues.stream()
                         .filter(clue -> clue.getRequestId() != null && clue.getRequestId().equals(response.getRequestId()))
@@ -59,50 +159,102 @@ public class ClueService {
                         .ifPresent(clue -> {
                             clue.setClueText(response.getResponseData());
                             clue.setStatus("completed");
+                            gameStore.updateClueInHistory(gameId, clue);
                         });
-
-                // Mark response as delivered so it isn't re-applied
-                gameStore.markClueResponseAsDelivered(response.getRequestId(), teamId, gameId);
             }
+            // Delivered with the history, so they aren't re-applied
+            gameStore.acknowledgeClueResponses(gameId, teamId, responses.get(responses.size() - 1).getDeliverySeq());
         }
 
-        // Build response payload from the updated list
-        List<Map<String, Object>> result = new ArrayList<>();
-        for (PurchasedClue clue : purchasedClues) {
-            Map<String, Object> map = new HashMap<>();
-            map.put("id", clue.getId());
-            map.put("text", clue.getClueText());
-            map.put("cost", clue.getCost());
-            map.put("timestamp", clue.getTimestamp());
-            map.put("status", clue.getStatus());
-            map.put("clueTypeId", clue.getClueTypeId());
-            map.put("responseType", clue.getResponseType());
-            map.put("targetHiderTeamId", clue.getTargetHiderTeamId());
-            
-            // Include multi-hider data if available
-            if (clue.getTargetHiderTeamIds() != null) {
-                map.put("targetHiderTeamIds", clue.getTargetHiderTeamIds());
-            }
-            if (clue.getHiderData() != null) {
-                map.put("hiderData", clue.getHiderData());
-            }
-            
-            // Include location data for exact location clues (legacy support)
-            if (clue.getLatitude() != null && clue.getLongitude() != null) {
-                Map<String, Object> location = new HashMap<>();
-                location.put("latitude", clue.getLatitude());
-                location.put("longitude", clue.getLongitude());
-                location.put("teamName", clue.getTargetTeamName());
-                map.put("location", location);
+        String key = gameId + ":" + teamId;
+        long version = gameStore.getClueHistoryVersion(gameId, teamId);
+        RenderedHistory cached = historyCache.get(key);
+        if (cached != null && cached.version == version) {
+            return cached;
+        }
+
+        // Rebuild, re-rendering only the clues that changed since the cached copy
+        List<PurchasedClue> clues = new ArrayList<>(purchasedClues);
+        List<Map<String, Object>> entries = new ArrayList<>(clues.size());
+        long[] entryVersions = new long[clues.size()];
+        Map<String, Map<String, Object>> byClueId = new HashMap<>();
+        for (int i = 0; i < clues.size(); i++) {
+            PurchasedClue clue = clues.get(i);
+            long clueVersion = gameStore.getClueVersion(gameId, teamId, clue.getId());
+            Map<String, Object> entry = cached != null ? cached.byClueId.get(clue.getId()) : null;
+            if (entry == null || !Objects.equals(entry.get("version"), clueVersion)) {
+                entry = renderClue(clue, clueVersion);
             }
-            
-            result.add(map);
+            entries.add(entry);
+            entryVersions[i] = clueVersion;
+            byClueId.put(clue.getId(), entry);
         }
+        RenderedHistory rendered = new RenderedHistory(version, Collections.unmodifiableList(entries), entryVersions, byClueId);
+        historyCache.put(key, rendered);
+        return rendered;
+    }
 
-        return result;
+    private Map<String, Object> renderClue(PurchasedClue clue, long version) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", clue.getId());
+        map.put("text", clue.getClueText());
+        map.put("cost", clue.getCost());
+        map.put("timestamp", clue.getTimestamp());
+        map.put("status", clue.getStatus());
+        map.put("clueTypeId", clue.getClueTypeId());
+        map.put("responseType", clue.getResponseType());
+        map.put("targetHiderTeamId", clue.getTargetHiderTeamId());
+        map.put("version", version);
+
+        // Include multi-hider data if available
+        if (clue.getTargetHiderTeamIds() != null) {
+            map.put("targetHiderTeamIds", clue.getTargetHiderTeamIds());
+        }
+        if (clue.getHiderData() != null) {
+            map.put("hiderData", clue.getHiderData());
+        }
+
+        // Include location data for exact location clues (legacy support)
+        if (clue.getLatitude() != null && clue.getLongitude() != null) {
+            Map<String, Object> location = new HashMap<>();
+            location.put("latitude", clue.getLatitude());
+            location.put("longitude", clue.getLongitude());
+            location.put("teamName", clue.getTargetTeamName());
+            map.put("location", location);
+        }
+
+        // Shared between responses until the clue changes
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static final class RenderedHistory {
+        final long version;
+        // Oldest first, with the version each entry was rendered at
+        final List<Map<String, Object>> entries;
+        final long[] entryVersions;
+        final Map<String, Map<String, Object>> byClueId;
+
+        RenderedHistory(long version, List<Map<String, Object>> entries, long[] entryVersions,
+                        Map<String, Map<String, Object>> byClueId) {
+            this.version = version;
+            this.entries = entries;
+            this.entryVersions = entryVersions;
+            this.byClueId = byClueId;
+        }
     }
 
-    public Map<String, Object> purchaseClue(String gameId, String teamId, String clueTypeId, String description) {
+    @Scheduled(fixedRate = 600000, initialDelay = 600000)
+    public void forgetRemovedGameHistory() {
+        historyCache.keySet().removeIf(key -> gameStore.getGame(key.substring(0, key.indexOf(':'))) == null);
+    }
+
+    public Map<String, Object> purchaseClue(String gameId, String teamId, String clueTypeId, String description, String idempotencyKey) {
+        // A retried purchase gets the original response instead of buying again
+        Map<String, Object> replayed = tokenLedger.replay(gameId, teamId, idempotencyKey, "clue.purchased");
+        if (replayed != null) {
+            return replayed;
+        }
+
         Game game = gameStore.getGame(gameId);
         if (game == null) {
             throw new IllegalArgumentException("Game not found");
@@ -133,6 +285,11 @@ public class ClueService {
                 .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("Clue type not found"));
 
+        ClueTypeHandler handler = handlers.get(clueType.getId());
+        if (handler == null) {
+            throw new IllegalArgumentException("Unknown clue type: " + clueType.getId());
+        }
+
         if (team.getTokens() < clueType.getCost()) {
             throw new IllegalStateException("Insufficient tokens");
         }
@@ -143,485 +300,138 @@ public class ClueService {
             throw new IllegalStateException("No hider teams found within range. No tokens deducted.");
         }
 
-        // Process clue based on the new clue types from JSON
-        return processClueByType(game, team, targetHiderTeams, clueType);
-    }
-
-    private Map<String, Object> processClueByType(Game game, Team requestingTeam, List<Team> targetHiderTeams, ClueType clueType) {
-        String clueId = UUID.randomUUID().toString();
-        
-        switch (clueType.getId()) {
-            case "exact-location":
-                return handleExactLocationClue(game, requestingTeam, targetHiderTeams, clueType, clueId);
-                
-            case "selfie":
-                return handleSelfieClue(game, requestingTeam, targetHiderTeams, clueType, clueId);
-                
-            case "closest-building":
-                return handleClosestLandmarkClue(game, requestingTeam, targetHiderTeams, clueType, clueId);
-                
-            case "relative-direction":
-                return handleRelativeDirectionClue(game, requestingTeam, targetHiderTeams, clueType, clueId);
-                
-            case "distance-from-seekers":
-                return handleDistanceFromSeekersClue(game, requestingTeam, targetHiderTeams, clueType, clueId);
-                
-            default:
-                throw new IllegalArgumentException("Unknown clue type: " + clueType.getId());
-        }
-    }
-
-    private Map<String, Object> handleExactLocationClue(Game game, Team requestingTeam, List<Team> targetHiderTeams, ClueType clueType, String clueId) {
-        // Create aggregated clue data for all hiders in range
-        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
-        List<String> targetTeamIds = new ArrayList<>();
-        StringBuilder clueTextBuilder = new StringBuilder();
-        
-        if (targetHiderTeams.size() == 1) {
-            Team hider = targetHiderTeams.get(0);
-            clueTextBuilder.append(String.format("Exact location of %s: %.6f, %.6f", 
-                    hider.getName(),
-                    hider.getLocation().getLatitude(),
-                    hider.getLocation().getLongitude()));
-        } else {
-            clueTextBuilder.append("Exact locations of hiders within range:\n");
-            for (int i = 0; i < targetHiderTeams.size(); i++) {
-                Team hider = targetHiderTeams.get(i);
-                clueTextBuilder.append(String.format("%d. %s: %.6f, %.6f", 
-                        i + 1,
-                        hider.getName(),
-                        hider.getLocation().getLatitude(),
-                        hider.getLocation().getLongitude()));
-                if (i < targetHiderTeams.size() - 1) {
-                    clueTextBuilder.append("\n");
-                }
-            }
-        }
-        
+        // Distances and directions are computed once and shared by the handler and the pipeline
+        List<ClueTypeHandler.Target> targets = new ArrayList<>(targetHiderTeams.size());
         for (Team hider : targetHiderTeams) {
-            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
-            hiderData.setLatitude(hider.getLocation().getLatitude());
-            hiderData.setLongitude(hider.getLocation().getLongitude());
-            
-            // Calculate distance from seeker
-            double distance = calculateDistance(requestingTeam.getLocation(), hider.getLocation());
-            hiderData.setDistance(distance);
-            
-            hiderDataList.add(hiderData);
-            targetTeamIds.add(hider.getId());
+            targets.add(new ClueTypeHandler.Target(hider, distanceBetween(game, team, hider), directionBetween(game, team, hider)));
         }
-        
-        var purchasedClue = new PurchasedClue(
-                clueId, clueType.getId(), requestingTeam.getId(), game.getId(),
-                clueTextBuilder.toString(), clueType.getCost(), "completed", null, "location", 
-                targetTeamIds, hiderDataList
-        );
-        
-        // Deduct tokens and save clue
-        requestingTeam.setTokens(requestingTeam.getTokens() - clueType.getCost());
-        gameStore.updateGame(game);
-        gameStore.addClueToHistory(game.getId(), purchasedClue);
-        // Log token deduction and clue purchase/completion
-        try {
-            Map<String, Object> tokenPayload = new HashMap<>();
-            tokenPayload.put("teamId", requestingTeam.getId());
-            tokenPayload.put("tokens", requestingTeam.getTokens());
-            tokenPayload.put("delta", -clueType.getCost());
-            tokenPayload.put("reason", "clue.purchased");
-            tokenPayload.put("clueTypeId", clueType.getId());
-            gameEventLogger.appendEvent(game.getId(), "team.tokens_updated", "team", requestingTeam.getId(), tokenPayload);
-
-            Map<String, Object> purchasedPayload = new HashMap<>();
-            purchasedPayload.put("clueId", clueId);
-            purchasedPayload.put("clueTypeId", clueType.getId());
-            purchasedPayload.put("clueTypeName", clueType.getName());
-            purchasedPayload.put("cost", clueType.getCost());
-            purchasedPayload.put("status", "completed");
-            purchasedPayload.put("responseType", "location");
-            purchasedPayload.put("targetHiderTeamIds", targetTeamIds);
-            gameEventLogger.appendEvent(game.getId(), "clue.purchased", "team", requestingTeam.getId(), purchasedPayload);
+        ClueTypeHandler.Draft draft = handler.createClue(new ClueTypeHandler.Context(game, team, clueType, targets));
 
-            Map<String, Object> completedPayload = new HashMap<>();
-            completedPayload.put("clueId", clueId);
-            completedPayload.put("clueTypeId", clueType.getId());
-            completedPayload.put("completedAt", System.currentTimeMillis());
-            completedPayload.put("mode", "immediate");
-            gameEventLogger.appendEvent(game.getId(), "clue.completed", "team", requestingTeam.getId(), completedPayload);
-        } catch (Exception ignored) {}
-        
-        // Broadcast update
-        webSocketHandler.broadcastToGame(game.getId(), game);
-        
-        // Push notify all targeted hider teams
-        for (Team hider : targetHiderTeams) {
-            pushService.notifyClueRequested(game.getId(), hider.getId(), clueType.getId(), clueType.getName());
+        TokenLedger.Entry debit = tokenLedger.debit(gameId, team, clueType.getCost(), "clue.purchased", idempotencyKey,
+                Map.of("clueTypeId", clueType.getId()));
+        if (debit.isReplay()) {
+            return debit.awaitOutcome();
         }
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("id", purchasedClue.getId());
-        result.put("text", purchasedClue.getClueText());
-        result.put("cost", purchasedClue.getCost());
-        result.put("timestamp", purchasedClue.getTimestamp());
-        result.put("status", "completed");
-        
-        // Create locations array for multiple hiders
-        List<Map<String, Object>> locations = new ArrayList<>();
-        for (PurchasedClue.HiderClueData hiderData : hiderDataList) {
-            locations.add(Map.of(
-                    "latitude", hiderData.getLatitude(),
-                    "longitude", hiderData.getLongitude(),
-                    "teamName", hiderData.getTeamName(),
-                    "teamId", hiderData.getTeamId(),
-                    "distance", hiderData.getDistance()
-            ));
+        try {
+            Map<String, Object> result = completePurchase(game, team, clueType, draft, targets, debit);
+            debit.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            tokenLedger.reverse(gameId, team, debit, e);
+            throw e;
         }
-        result.put("locations", locations);
-        
-        return result;
     }
 
-    private Map<String, Object> handleSelfieClue(Game game, Team requestingTeam, List<Team> hiderTeams, ClueType clueType, String clueId) {
-        // For multiple hiders, create separate selfie requests for each and prepare for aggregation
+    // Stores the purchase and emits its side effects: one event batch, then WebSocket, then push
+    private Map<String, Object> completePurchase(Game game, Team requestingTeam, ClueType clueType,
+                                                 ClueTypeHandler.Draft draft, List<ClueTypeHandler.Target> targets,
+                                                 TokenLedger.Entry debit) {
+        String clueId = UUID.randomUUID().toString();
+        List<String> targetTeamIds = targets.stream().map(t -> t.getTeam().getId()).collect(Collectors.toList());
+        List<GameEventLogger.PendingEvent> events = new ArrayList<>();
+        List<ClueRequest> clueRequests = new ArrayList<>();
         List<String> requestIds = new ArrayList<>();
-        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
-        
-        for (Team hider : hiderTeams) {
+        long expiryMs = clueType.getExpirySeconds() != null ? clueType.getExpirySeconds() * 1000L : ClueRequest.DEFAULT_EXPIRY_MS;
+
+        for (Map.Entry<ClueTypeHandler.Target, String> e : draft.getRequests().entrySet()) {
+            Team hider = e.getKey().getTeam();
             String requestId = UUID.randomUUID().toString();
-            requestIds.add(requestId);
-            
             ClueRequest clueRequest = new ClueRequest(
                     requestId, game.getId(), requestingTeam.getId(), hider.getId(),
-                    clueType.getId(), clueType.getName(), "photo"
+                    clueType.getId(), clueType.getName(), draft.getResponseType(), expiryMs
             );
             gameStore.addClueRequest(clueRequest);
-            
-            // Create hider data entry for aggregation (selfie URLs will be added when responses come in)
-            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
-            hiderData.setAdditionalData("Pending selfie from " + hider.getName());
-            hiderDataList.add(hiderData);
-            
-            // Broadcast clue request to this specific hider team
-            Map<String, Object> requestData = new HashMap<>();
-            requestData.put("id", requestId);
-            requestData.put("clueTypeId", clueType.getId());
-            requestData.put("clueTypeName", clueType.getName());
-            requestData.put("requestingTeamName", "Seeker Team");
-            requestData.put("responseType", "photo");
-            requestData.put("description", "Take a selfie of your whole team at arm's length, including your surroundings.\n\n\"Surroundings\" is defined as:\n• The exterior of your nearest building, including its roof,\n• OR the interior of the building you are in,\n• OR if neither are possible, then your photo must capture your general surroundings and can be definitively photo-matched to the IRL spot it was taken at, with no room for doubt.");
-            requestData.put("expirationTimestamp", clueRequest.getExpirationTimestamp());
-            
-            webSocketHandler.broadcastClueRequest(game.getId(), hider.getId(), requestData);
-            pushService.notifyClueRequested(game.getId(), hider.getId(), clueType.getId(), clueType.getName());
-            // Log clue.requested per target
-            try {
-                Map<String, Object> reqPayload = new HashMap<>();
-                reqPayload.put("requestId", requestId);
-                reqPayload.put("clueTypeId", clueType.getId());
-                reqPayload.put("responseType", "photo");
-                reqPayload.put("targetHiderTeamId", hider.getId());
-                reqPayload.put("expiresAt", clueRequest.getExpirationTimestamp());
-                gameEventLogger.appendEvent(game.getId(), "clue.requested", "team", requestingTeam.getId(), reqPayload);
-            } catch (Exception ignored) {}
-        }
-        
-        // Create aggregated pending clue
-        String clueText;
-        if (hiderTeams.size() == 1) {
-            clueText = "Waiting for selfie from " + hiderTeams.get(0).getName() + "...";
-        } else {
-            clueText = String.format("Waiting for selfies from %d hider teams. You'll be able to swipe through all received selfies.", hiderTeams.size());
+            scheduleExpiry(clueRequest);
+            clueRequests.add(clueRequest);
+            requestIds.add(requestId);
+
+            Map<String, Object> reqPayload = new HashMap<>();
+            reqPayload.put("requestId", requestId);
+            reqPayload.put("clueTypeId", clueType.getId());
+            reqPayload.put("clueTypeName", clueType.getName());
+            reqPayload.put("responseType", draft.getResponseType());
+            reqPayload.put("targetHiderTeamId", hider.getId());
+            reqPayload.put("expiresAt", clueRequest.getExpirationTimestamp());
+            events.add(new GameEventLogger.PendingEvent("clue.requested", "team", requestingTeam.getId(), reqPayload));
         }
-        
+        boolean completed = "completed".equals(draft.getStatus());
+
         var purchasedClue = new PurchasedClue(
                 clueId, clueType.getId(), requestingTeam.getId(), game.getId(),
-                clueText, clueType.getCost(), "pending", 
-                String.join(",", requestIds), // Store all request IDs
-                "photo", 
-                hiderTeams.stream().map(Team::getId).collect(Collectors.toList()),
-                hiderDataList
+                draft.getClueText(), clueType.getCost(), draft.getStatus(),
+                requestIds.isEmpty() ? null : String.join(",", requestIds), // Store all request IDs
+                draft.getResponseType(), targetTeamIds, draft.getHiderData()
         );
-        
-        // Deduct tokens and save
-        requestingTeam.setTokens(requestingTeam.getTokens() - clueType.getCost());
         gameStore.updateGame(game);
         gameStore.addClueToHistory(game.getId(), purchasedClue);
-        // Log token deduction and clue purchase
+
+        Map<String, Object> tokenPayload = new HashMap<>();
+        tokenPayload.put("teamId", requestingTeam.getId());
+        tokenPayload.put("tokens", debit.getBalance());
+        tokenPayload.put("delta", debit.getDelta());
+        tokenPayload.put("reason", "clue.purchased");
+        tokenPayload.put("clueTypeId", clueType.getId());
+        events.add(new GameEventLogger.PendingEvent("team.tokens_updated", "team", requestingTeam.getId(), tokenPayload));
+
+        Map<String, Object> purchasedPayload = new HashMap<>();
+        purchasedPayload.put("clueId", clueId);
+        purchasedPayload.put("clueTypeId", clueType.getId());
+        purchasedPayload.put("clueTypeName", clueType.getName());
+        purchasedPayload.put("cost", clueType.getCost());
+        purchasedPayload.put("clueText", purchasedClue.getClueText());
+        purchasedPayload.put("status", draft.getStatus());
+        purchasedPayload.put("responseType", draft.getResponseType());
+        if (!requestIds.isEmpty()) purchasedPayload.put("requestIds", requestIds);
+        purchasedPayload.put("targetHiderTeamIds", targetTeamIds);
+        if (purchasedClue.getHiderData() != null) purchasedPayload.put("hiderData", hiderDataPayload(purchasedClue.getHiderData()));
+        events.add(new GameEventLogger.PendingEvent("clue.purchased", "team", requestingTeam.getId(), purchasedPayload));
+
+        if (completed) {
+            Map<String, Object> completedPayload = new HashMap<>();
+            completedPayload.put("clueId", clueId);
+            completedPayload.put("clueTypeId", clueType.getId());
+            completedPayload.put("completedAt", System.currentTimeMillis());
+            completedPayload.put("mode", "immediate");
+            events.add(new GameEventLogger.PendingEvent("clue.completed", "team", requestingTeam.getId(), completedPayload));
+        }
         try {
-            Map<String, Object> tokenPayload = new HashMap<>();
-            tokenPayload.put("teamId", requestingTeam.getId());
-            tokenPayload.put("tokens", requestingTeam.getTokens());
-            tokenPayload.put("delta", -clueType.getCost());
-            tokenPayload.put("reason", "clue.purchased");
-            tokenPayload.put("clueTypeId", clueType.getId());
-            gameEventLogger.appendEvent(game.getId(), "team.tokens_updated", "team", requestingTeam.getId(), tokenPayload);
-
-            Map<String, Object> purchasedPayload = new HashMap<>();
-            purchasedPayload.put("clueId", clueId);
-            purchasedPayload.put("clueTypeId", clueType.getId());
-            purchasedPayload.put("clueTypeName", clueType.getName());
-            purchasedPayload.put("cost", clueType.getCost());
-            purchasedPayload.put("status", "pending");
-            purchasedPayload.put("responseType", "photo");
-            purchasedPayload.put("requestIds", requestIds);
-            purchasedPayload.put("targetHiderTeamIds", hiderTeams.stream().map(Team::getId).collect(Collectors.toList()));
-            gameEventLogger.appendEvent(game.getId(), "clue.purchased", "team", requestingTeam.getId(), purchasedPayload);
+            gameEventLogger.appendEvents(game.getId(), events);
         } catch (Exception ignored) {}
-        
-        // Also broadcast general game update
-        webSocketHandler.broadcastToGame(game.getId(), game);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("id", purchasedClue.getId());
-        result.put("text", purchasedClue.getClueText());
-        result.put("cost", purchasedClue.getCost());
-        result.put("timestamp", purchasedClue.getTimestamp());
-        result.put("status", "pending");
-        result.put("requestIds", requestIds); // Changed to requestIds array
-        return result;
-    }
 
-    private Map<String, Object> handleClosestLandmarkClue(Game game, Team requestingTeam, List<Team> hiderTeams, ClueType clueType, String clueId) {
-        // For multiple hiders, create separate requests for each and aggregate responses
-        List<String> requestIds = new ArrayList<>();
-        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
-        
-        for (Team hider : hiderTeams) {
-            String requestId = UUID.randomUUID().toString();
-            requestIds.add(requestId);
-            
-            ClueRequest clueRequest = new ClueRequest(
-                    requestId, game.getId(), requestingTeam.getId(), hider.getId(),
-                    clueType.getId(), clueType.getName(), "text"
-            );
-            gameStore.addClueRequest(clueRequest);
-            
-            // Create hider data entry for aggregation
-            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
-            hiderData.setAdditionalData("Pending landmark response from " + hider.getName());
-            hiderDataList.add(hiderData);
-            
-            // Broadcast clue request to this specific hider team
+        // Broadcast clue requests to each targeted hider team, then the general game update
+        Iterator<String> descriptions = draft.getRequests().values().iterator();
+        for (ClueRequest clueRequest : clueRequests) {
             Map<String, Object> requestData = new HashMap<>();
-            requestData.put("id", requestId);
+            requestData.put("id", clueRequest.getId());
             requestData.put("clueTypeId", clueType.getId());
             requestData.put("clueTypeName", clueType.getName());
             requestData.put("requestingTeamName", "Seeker Team");
-            requestData.put("responseType", "text");
-            requestData.put("description", "Choose from: 1. Named street, 2. Library, 3. Museum, 4. Parking lot. Tell the seekers the name of the closest landmark of your chosen type.");
+            requestData.put("responseType", draft.getResponseType());
+            requestData.put("description", descriptions.next());
             requestData.put("expirationTimestamp", clueRequest.getExpirationTimestamp());
-            
-            webSocketHandler.broadcastClueRequest(game.getId(), hider.getId(), requestData);
-            pushService.notifyClueRequested(game.getId(), hider.getId(), clueType.getId(), clueType.getName());
-            // Log clue.requested per target
-            try {
-                Map<String, Object> reqPayload = new HashMap<>();
-                reqPayload.put("requestId", requestId);
-                reqPayload.put("clueTypeId", clueType.getId());
-                reqPayload.put("responseType", "text");
-                reqPayload.put("targetHiderTeamId", hider.getId());
-                reqPayload.put("expiresAt", clueRequest.getExpirationTimestamp());
-                gameEventLogger.appendEvent(game.getId(), "clue.requested", "team", requestingTeam.getId(), reqPayload);
-            } catch (Exception ignored) {}
-        }
-        
-        // Create aggregated pending clue
-        String clueText;
-        if (hiderTeams.size() == 1) {
-            clueText = "Waiting for landmark information from " + hiderTeams.get(0).getName() + "...";
-        } else {
-            clueText = String.format("Waiting for landmark information from %d hider teams...", hiderTeams.size());
+            webSocketHandler.broadcastClueRequest(game.getId(), clueRequest.getTargetHiderTeamId(), requestData);
         }
-        
-        var purchasedClue = new PurchasedClue(
-                clueId, clueType.getId(), requestingTeam.getId(), game.getId(),
-                clueText, clueType.getCost(), "pending", 
-                String.join(",", requestIds), // Store all request IDs
-                "text", 
-                hiderTeams.stream().map(Team::getId).collect(Collectors.toList()),
-                hiderDataList
-        );
-        
-        // Deduct tokens and save
-        requestingTeam.setTokens(requestingTeam.getTokens() - clueType.getCost());
-        gameStore.updateGame(game);
-        gameStore.addClueToHistory(game.getId(), purchasedClue);
-        // Log token deduction and clue purchase
-        try {
-            Map<String, Object> tokenPayload = new HashMap<>();
-            tokenPayload.put("teamId", requestingTeam.getId());
-            tokenPayload.put("tokens", requestingTeam.getTokens());
-            tokenPayload.put("delta", -clueType.getCost());
-            tokenPayload.put("reason", "clue.purchased");
-            tokenPayload.put("clueTypeId", clueType.getId());
-            gameEventLogger.appendEvent(game.getId(), "team.tokens_updated", "team", requestingTeam.getId(), tokenPayload);
-
-            Map<String, Object> purchasedPayload = new HashMap<>();
-            purchasedPayload.put("clueId", clueId);
-            purchasedPayload.put("clueTypeId", clueType.getId());
-            purchasedPayload.put("clueTypeName", clueType.getName());
-            purchasedPayload.put("cost", clueType.getCost());
-            purchasedPayload.put("status", "pending");
-            purchasedPayload.put("responseType", "text");
-            purchasedPayload.put("requestIds", requestIds);
-            purchasedPayload.put("targetHiderTeamIds", hiderTeams.stream().map(Team::getId).collect(Collectors.toList()));
-            gameEventLogger.appendEvent(game.getId(), "clue.purchased", "team", requestingTeam.getId(), purchasedPayload);
-        } catch (Exception ignored) {}
-        
-        // Also broadcast general game update
         webSocketHandler.broadcastToGame(game.getId(), game);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("id", purchasedClue.getId());
-        result.put("text", purchasedClue.getClueText());
-        result.put("cost", purchasedClue.getCost());
-        result.put("timestamp", purchasedClue.getTimestamp());
-        result.put("status", "pending");
-        result.put("requestIds", requestIds); // Changed to requestIds array
-        return result;
-    }
 
-    private Map<String, Object> handleRelativeDirectionClue(Game game, Team requestingTeam, List<Team> hiderTeams, ClueType clueType, String clueId) {
-        // Create aggregated direction clue for all hiders within range
-        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
-        
-        for (Team hider : hiderTeams) {
-            String direction = getDirection(requestingTeam.getLocation(), hider.getLocation());
-            double distance = calculateDistance(requestingTeam.getLocation(), hider.getLocation());
-            
-            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
-            hiderData.setDirection(direction);
-            hiderData.setDistance(distance);
-            hiderData.setAdditionalData(String.format("Team %s is generally to the %s (%.0fm away)", 
-                    hider.getName(), direction, distance));
-            
-            hiderDataList.add(hiderData);
-        }
-        
-        // Create aggregated clue text
-        String clueText;
-        if (hiderTeams.size() == 1) {
-            clueText = String.format("The hider (%s) is generally to the %s of your current position.", 
-                    hiderTeams.get(0).getName(), getDirection(requestingTeam.getLocation(), hiderTeams.get(0).getLocation()));
-        } else {
-            // Include all directions in the main text
-            StringBuilder directions = new StringBuilder();
-            directions.append(String.format("Found %d hiders within range:\n", hiderTeams.size()));
-            for (Team hider : hiderTeams) {
-                String direction = getDirection(requestingTeam.getLocation(), hider.getLocation());
-                double distance = calculateDistance(requestingTeam.getLocation(), hider.getLocation());
-                directions.append(String.format("• %s: %s (%.0fm away)\n", hider.getName(), direction, distance));
+        // Push notify the hiders that have to respond, or all targets when the handler asks for it
+        if (!clueRequests.isEmpty()) {
+            for (ClueRequest clueRequest : clueRequests) {
+                pushService.notifyClueRequested(game.getId(), clueRequest.getTargetHiderTeamId(), clueType.getId(), clueType.getName());
             }
-            clueText = directions.toString().trim();
-        }
-        
-        var purchasedClue = new PurchasedClue(
-                clueId, clueType.getId(), requestingTeam.getId(), game.getId(),
-                clueText, clueType.getCost(), "completed", null, "automatic", 
-                hiderTeams.stream().map(Team::getId).collect(Collectors.toList()),
-                hiderDataList
-        );
-        
-        // Deduct tokens and save clue
-        requestingTeam.setTokens(requestingTeam.getTokens() - clueType.getCost());
-        gameStore.updateGame(game);
-        gameStore.addClueToHistory(game.getId(), purchasedClue);
-        // Log token deduction and clue purchase/completion
-        try {
-            Map<String, Object> tokenPayload = new HashMap<>();
-            tokenPayload.put("teamId", requestingTeam.getId());
-            tokenPayload.put("tokens", requestingTeam.getTokens());
-            tokenPayload.put("delta", -clueType.getCost());
-            tokenPayload.put("reason", "clue.purchased");
-            tokenPayload.put("clueTypeId", clueType.getId());
-            gameEventLogger.appendEvent(game.getId(), "team.tokens_updated", "team", requestingTeam.getId(), tokenPayload);
-
-            Map<String, Object> purchasedPayload = new HashMap<>();
-            purchasedPayload.put("clueId", clueId);
-            purchasedPayload.put("clueTypeId", clueType.getId());
-            purchasedPayload.put("clueTypeName", clueType.getName());
-            purchasedPayload.put("cost", clueType.getCost());
-            purchasedPayload.put("status", "completed");
-            purchasedPayload.put("responseType", "automatic");
-            purchasedPayload.put("targetHiderTeamIds", hiderTeams.stream().map(Team::getId).collect(Collectors.toList()));
-            gameEventLogger.appendEvent(game.getId(), "clue.purchased", "team", requestingTeam.getId(), purchasedPayload);
-
-            Map<String, Object> completedPayload = new HashMap<>();
-            completedPayload.put("clueId", clueId);
-            completedPayload.put("clueTypeId", clueType.getId());
-            completedPayload.put("completedAt", System.currentTimeMillis());
-            completedPayload.put("mode", "immediate");
-            gameEventLogger.appendEvent(game.getId(), "clue.completed", "team", requestingTeam.getId(), completedPayload);
-        } catch (Exception ignored) {}
-        
-        // Broadcast update
-        webSocketHandler.broadcastToGame(game.getId(), game);
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("id", purchasedClue.getId());
-        result.put("text", purchasedClue.getClueText());
-        result.put("cost", purchasedClue.getCost());
-        result.put("timestamp", purchasedClue.getTimestamp());
-        result.put("status", "completed");
-        return result;
-    }
-
-    private Map<String, Object> handleDistanceFromSeekersClue(Game game, Team requestingTeam, List<Team> hiderTeams, ClueType clueType, String clueId) {
-        // Create aggregated distance clue for all hiders within range
-        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
-        
-        for (Team hider : hiderTeams) {
-            double distance = calculateDistance(requestingTeam.getLocation(), hider.getLocation());
-            
-            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
-            hiderData.setDistance(distance);
-            hiderData.setAdditionalData(String.format("Distance to %s: %.0f meters", hider.getName(), distance));
-            
-            hiderDataList.add(hiderData);
-        }
-        
-        // Create aggregated clue text
-        String clueText;
-        if (hiderTeams.size() == 1) {
-            double distance = calculateDistance(requestingTeam.getLocation(), hiderTeams.get(0).getLocation());
-            clueText = String.format("Your distance to the hider (%s) is approximately %.0f meters.", 
-                    hiderTeams.get(0).getName(), distance);
-        } else {
-            // Include all distances in the main text
-            StringBuilder distances = new StringBuilder();
-            distances.append(String.format("Found %d hiders within range:\n", hiderTeams.size()));
-            for (Team hider : hiderTeams) {
-                double distance = calculateDistance(requestingTeam.getLocation(), hider.getLocation());
-                distances.append(String.format("• %s: %.0fm away\n", hider.getName(), distance));
+        } else if (draft.isNotifyTargets()) {
+            for (String hiderId : targetTeamIds) {
+                pushService.notifyClueRequested(game.getId(), hiderId, clueType.getId(), clueType.getName());
             }
-            clueText = distances.toString().trim();
         }
-        
-        var purchasedClue = new PurchasedClue(
-                clueId, clueType.getId(), requestingTeam.getId(), game.getId(),
-                clueText, clueType.getCost(), "completed", null, "automatic", 
-                hiderTeams.stream().map(Team::getId).collect(Collectors.toList()),
-                hiderDataList
-        );
-        
-        // Deduct tokens and save clue
-        requestingTeam.setTokens(requestingTeam.getTokens() - clueType.getCost());
-        gameStore.updateGame(game);
-        gameStore.addClueToHistory(game.getId(), purchasedClue);
-        
-        // Broadcast update
-        webSocketHandler.broadcastToGame(game.getId(), game);
-        
-        // Push notify all targeted hider teams
-        for (Team hider : hiderTeams) {
-            pushService.notifyClueRequested(game.getId(), hider.getId(), clueType.getId(), clueType.getName());
-        }
-        
+
         Map<String, Object> result = new HashMap<>();
         result.put("id", purchasedClue.getId());
         result.put("text", purchasedClue.getClueText());
         result.put("cost", purchasedClue.getCost());
         result.put("timestamp", purchasedClue.getTimestamp());
-        result.put("status", "completed");
+        result.put("status", draft.getStatus());
+        if (!requestIds.isEmpty()) result.put("requestIds", requestIds);
+        result.putAll(draft.getExtraResult());
         return result;
     }
 
@@ -643,8 +453,63 @@ public class ClueService {
                 .collect(Collectors.toList());
     }
 
-    // Method for hiders to respond to clue requests
-    public Map<String, Object> respondToClueRequest(String requestId, String teamId, String responseData) {
+    /**
+     * Responses the team has not acknowledged, after the last sequence number it saw. lastSeq is the
+     * newest sequence number handed out, so a client can tell whether it is up to date. A seq from
+     * another epoch (the server restarted since) counts as nothing seen.
+     */
+    public Map<String, Object> getPendingClueResponses(String gameId, String teamId, Long epoch, long afterSeq) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("responses", pendingClueResponses(gameId, teamId, epoch, afterSeq));
+        result.put("lastSeq", gameStore.getLastClueResponseSeq(gameId, teamId));
+        result.put("epoch", gameStore.getClueResponseEpoch());
+        return result;
+    }
+
+    private List<Map<String, Object>> pendingClueResponses(String gameId, String teamId, Long epoch, long afterSeq) {
+        long after = epoch == null || epoch == gameStore.getClueResponseEpoch() ? afterSeq : 0;
+        return gameStore.getClueResponsesAfter(gameId, teamId, after).stream()
+                .map(this::toDeliveryInfo)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Drop delivered responses; an ack from another epoch is ignored so it cannot drop new ones.
+     */
+    public void acknowledgeClueResponses(String gameId, String teamId, Long epoch, long seq) {
+        if (epoch != null && epoch != gameStore.getClueResponseEpoch()) {
+            return;
+        }
+        gameStore.acknowledgeClueResponses(gameId, teamId, seq);
+    }
+
+    private Map<String, Object> toDeliveryInfo(ClueResponse response) {
+        Map<String, Object> info = new HashMap<>();
+        info.put("seq", response.getDeliverySeq());
+        info.put("epoch", gameStore.getClueResponseEpoch());
+        info.put("requestId", response.getRequestId());
+        info.put("clueTypeId", response.getClueTypeId());
+        info.put("responseType", response.getResponseType());
+        info.put("responseData", response.getResponseData());
+        info.put("timestamp", response.getResponseTimestamp());
+        return info;
+    }
+
+    /**
+     * Fail early when the team could not respond to the request right now, e.g. before accepting an
+     * upload for it. respondToClueRequest repeats the checks, since the request can still expire.
+     */
+    public void checkCanRespond(String requestId, String teamId) {
+        ClueRequest request = requireRequestForTeam(requestId, teamId);
+        if (!"pending".equals(request.getStatus())) {
+            throw new IllegalStateException("This clue request is no longer pending");
+        }
+        if (request.isExpired()) {
+            throw new IllegalStateException("This clue request has expired");
+        }
+    }
+
+    private ClueRequest requireRequestForTeam(String requestId, String teamId) {
         ClueRequest request = gameStore.getClueRequest(requestId);
         if (request == null) {
             throw new IllegalArgumentException("Clue request not found");
@@ -653,39 +518,43 @@ public class ClueService {
         if (!request.getTargetHiderTeamId().equals(teamId)) {
             throw new IllegalArgumentException("This clue request is not for your team");
         }
+        return request;
+    }
+
+    // Method for hiders to respond to clue requests
+    public Map<String, Object> respondToClueRequest(String requestId, String teamId, String responseData) {
+        ClueRequest request = requireRequestForTeam(requestId, teamId);
         
-        if (!"pending".equals(request.getStatus())) {
-            throw new IllegalStateException("This clue request is no longer pending");
-        }
-        
-        if (request.isExpired()) {
-            request.setStatus("expired");
+        // Decided under the request's lock so a response and the expiry timer cannot both win
+        synchronized (request) {
+            if (!"pending".equals(request.getStatus())) {
+                throw new IllegalStateException("This clue request is no longer pending");
+            }
+            
+            // Past the deadline the expiry handler owns the request, even if its timer has not run yet
+            if (request.isExpired()) {
+                throw new IllegalStateException("This clue request has expired");
+            }
+            
+            // Update request status
+            request.setStatus("completed");
+            request.setResponse(responseData);
             gameStore.updateClueRequest(request);
-            throw new IllegalStateException("This clue request has expired");
         }
+        cancelExpiry(requestId);
         
         // Create response
         ClueResponse response = new ClueResponse(
                 requestId, request.getGameId(), teamId, request.getRequestingTeamId(),
                 request.getClueTypeId(), request.getResponseType(), responseData
         );
-        
-        // Update request status
-        request.setStatus("completed");
-        request.setResponse(responseData);
-        gameStore.updateClueRequest(request);
         gameStore.addClueResponse(response);
         
         // Handle multi-hider clue aggregation
-        updateMultiHiderClueWithResponse(request, responseData);
+        PurchasedClue updatedClue = updateMultiHiderClueWithResponse(request, responseData);
         
-        // Broadcast clue response to requesting team
-        Map<String, Object> responseInfo = new HashMap<>();
-        responseInfo.put("requestId", requestId);
-        responseInfo.put("clueTypeId", request.getClueTypeId());
-        responseInfo.put("responseType", request.getResponseType());
-        responseInfo.put("responseData", responseData);
-        responseInfo.put("timestamp", response.getResponseTimestamp());
+        // Broadcast clue response to requesting team; the seq lets it ack and catch up after reconnecting
+        Map<String, Object> responseInfo = toDeliveryInfo(response);
         
         webSocketHandler.broadcastClueResponse(request.getGameId(), request.getRequestingTeamId(), responseInfo);
         // Log clue.response_received
@@ -696,7 +565,9 @@ public class ClueService {
             respPayload.put("targetHiderTeamId", teamId);
             respPayload.put("clueTypeId", request.getClueTypeId());
             respPayload.put("responseType", request.getResponseType());
+            respPayload.put("responseData", responseData);
             respPayload.put("timestamp", response.getResponseTimestamp());
+            if (updatedClue != null) respPayload.put("clue", clueStatePayload(updatedClue));
             gameEventLogger.appendEvent(request.getGameId(), "clue.response_received", "team", teamId, respPayload);
         } catch (Exception ignored) {}
         
@@ -712,7 +583,8 @@ public class ClueService {
         return result;
     }
 
-    private void updateMultiHiderClueWithResponse(ClueRequest request, String responseData) {
+    // The purchased clue the response was applied to, or null if there is none
+    private PurchasedClue updateMultiHiderClueWithResponse(ClueRequest request, String responseData) {
         // Find the purchased clue that contains this request ID
         List<PurchasedClue> clues = gameStore.getClueHistoryForTeam(request.getGameId(), request.getRequestingTeamId());
         
@@ -721,9 +593,10 @@ public class ClueService {
                 // This is a multi-hider clue containing our request
                 updateMultiHiderClueData(clue, request, responseData);
                 gameStore.updateClueInHistory(request.getGameId(), clue);
-                break;
+                return clue;
             }
         }
+        return null;
     }
     
     private void updateMultiHiderClueData(PurchasedClue clue, ClueRequest request, String responseData) {
@@ -735,10 +608,9 @@ public class ClueService {
         for (PurchasedClue.HiderClueData hiderData : clue.getHiderData()) {
             if (hiderData.getTeamId().equals(request.getTargetHiderTeamId())) {
                 // Update the hider's data with the response
-                if ("selfie".equals(request.getClueTypeId())) {
-                    hiderData.setAdditionalData(responseData); // URL for selfie
-                } else if ("closest-building".equals(request.getClueTypeId())) {
-                    hiderData.setAdditionalData(responseData); // Landmark name
+                ClueTypeHandler handler = handlers.get(request.getClueTypeId());
+                if (handler != null) {
+                    handler.applyResponse(hiderData, responseData);
                 }
                 break;
             }
@@ -799,10 +671,12 @@ public class ClueService {
                         hiderData.getTeamName(),
                         hiderData.getLatitude(),
                         hiderData.getLongitude()));
-            } else if ("selfie".equals(clue.getClueTypeId())) {
-                clue.setClueText("Selfie received from " + hiderData.getTeamName());
-            } else if ("closest-building".equals(clue.getClueTypeId())) {
-                clue.setClueText("Landmark information received from " + hiderData.getTeamName() + ": " + hiderData.getAdditionalData());
+            } else {
+                ClueTypeHandler handler = handlers.get(clue.getClueTypeId());
+                String text = handler != null ? handler.describeSingleResponse(hiderData) : null;
+                if (text != null) {
+                    clue.setClueText(text);
+                }
             }
         } else {
             // Multiple hiders case
@@ -830,15 +704,15 @@ public class ClueService {
                 clue.setClueText(sb.toString().trim());
             } else {
                 // Regular multi-hider response text
+                ClueTypeHandler handler = handlers.get(clue.getClueTypeId());
                 StringBuilder sb = new StringBuilder();
                 sb.append(String.format("Received responses from %d/%d hider teams:\n", completedCount, totalRequests));
                 for (PurchasedClue.HiderClueData hiderData : clue.getHiderData()) {
                     if (hiderData.getAdditionalData() != null && !hiderData.getAdditionalData().startsWith("Pending")) {
-                        if ("selfie".equals(clue.getClueTypeId())) {
-                            sb.append(String.format("• %s: Selfie received\n", hiderData.getTeamName()));
-                        } else {
-                            sb.append(String.format("• %s: %s\n", hiderData.getTeamName(), hiderData.getAdditionalData()));
-                        }
+                        // Hiders that timed out keep their "No response" note
+                        boolean responded = !hiderData.getAdditionalData().startsWith("No response");
+                        String line = handler != null && responded ? handler.describeResponseLine(hiderData) : hiderData.getAdditionalData();
+                        sb.append(String.format("• %s: %s\n", hiderData.getTeamName(), line));
                     }
                 }
                 clue.setClueText(sb.toString().trim());
@@ -873,14 +747,14 @@ public class ClueService {
                 if (requestingTeam != null) {
                     // Create a new separate exact location clue
                     String timeoutClueId = UUID.randomUUID().toString();
-                    double distance = calculateDistance(requestingTeam.getLocation(), hiderTeam.getLocation());
+                    double distance = distanceBetween(game, requestingTeam, hiderTeam);
                     
                     // Create hider data for the timeout clue
                     List<PurchasedClue.HiderClueData> timeoutHiderData = new ArrayList<>();
                     PurchasedClue.HiderClueData timeoutData = new PurchasedClue.HiderClueData(hiderTeam.getId(), hiderTeam.getName());
                     timeoutData.setLatitude(hiderTeam.getLocation().getLatitude());
                     timeoutData.setLongitude(hiderTeam.getLocation().getLongitude());
-                    timeoutData.setDistance(distance);
+                    timeoutData.setDistance(Double.isNaN(distance) ? null : distance);
                     timeoutData.setAdditionalData("Auto-revealed due to no response");
                     timeoutHiderData.add(timeoutData);
                     
@@ -900,16 +774,11 @@ public class ClueService {
                     // Add the new clue to the game
                     gameStore.addClueToHistory(game.getId(), timeoutClue);
                     logger.info("Created separate timeout exact location clue: {}", timeoutClueId);
-                    // Log request expiration and auto reveal
+                    // Update the original clue to remove this hider from pending status
+                    updateOriginalClueForTimeout(clue, expiredRequest);
+                    gameStore.updateClueInHistory(game.getId(), clue);
+                    // Log the auto reveal with both clues as they are now, so replay can rebuild them
                     try {
-                        Map<String, Object> expPayload = new HashMap<>();
-                        expPayload.put("requestId", expiredRequest.getId());
-                        expPayload.put("originalClueId", clue.getId());
-                        expPayload.put("clueTypeId", expiredRequest.getClueTypeId());
-                        expPayload.put("targetHiderTeamId", expiredRequest.getTargetHiderTeamId());
-                        expPayload.put("expiredAt", System.currentTimeMillis());
-                        gameEventLogger.appendEvent(game.getId(), "clue.request_expired", "system", "system", expPayload);
-
                         Map<String, Object> autoPayload = new HashMap<>();
                         autoPayload.put("timeoutClueId", timeoutClueId);
                         autoPayload.put("requestId", expiredRequest.getId());
@@ -917,13 +786,12 @@ public class ClueService {
                         autoPayload.put("hiderTeamId", hiderTeam.getId());
                         autoPayload.put("latitude", hiderTeam.getLocation().getLatitude());
                         autoPayload.put("longitude", hiderTeam.getLocation().getLongitude());
+                        autoPayload.put("clueText", timeoutClueText);
+                        autoPayload.put("hiderData", hiderDataPayload(timeoutHiderData));
+                        autoPayload.put("originalClue", clueStatePayload(clue));
                         gameEventLogger.appendEvent(game.getId(), "clue.auto_revealed", "system", "system", autoPayload);
                     } catch (Exception ignored) {}
                     
-                    // Update the original clue to remove this hider from pending status
-                    updateOriginalClueForTimeout(clue, expiredRequest);
-                    gameStore.updateClueInHistory(game.getId(), clue);
-                    
                     // Broadcast timeout clue as a clue response to trigger frontend refresh
                     Map<String, Object> timeoutResponse = new HashMap<>();
                     timeoutResponse.put("type", "timeout");
@@ -936,6 +804,8 @@ public class ClueService {
                     timeoutResponse.put("message", "Auto-revealed location due to timeout");
                     
                     webSocketHandler.broadcastClueResponse(game.getId(), requestingTeam.getId(), timeoutResponse);
+                    pushService.notifyClueTimeoutReward(game.getId(), requestingTeam.getId(), hiderTeam.getId(),
+                            expiredRequest.getClueTypeName(), hiderTeam.getName());
                     
                     // Also broadcast general game update to all players
                     webSocketHandler.broadcastToGame(game.getId(), game);
@@ -1020,36 +890,14 @@ public class ClueService {
     }
 
     // Utility methods
-    private double calculateDistance(Team.TeamLocation loc1, Team.TeamLocation loc2) {
-        double lat1 = Math.toRadians(loc1.getLatitude());
-        double lon1 = Math.toRadians(loc1.getLongitude());
-        double lat2 = Math.toRadians(loc2.getLatitude());
-        double lon2 = Math.toRadians(loc2.getLongitude());
-
-        double dlat = lat2 - lat1;
-        double dlon = lon2 - lon1;
-
-        double a = Math.sin(dlat / 2) * Math.sin(dlat / 2) +
-                Math.cos(lat1) * Math.cos(lat2) *
-                        Math.sin(dlon / 2) * Math.sin(dlon / 2);
-        double c = 2 * Math.asin(Math.sqrt(a));
-        double radius = 6371000; // Earth's radius in meters
-
-        return radius * c;
+    // Distances and bearings come from the game's distance matrix, which only recomputes a team's row when it moves
+    private double distanceBetween(Game game, Team from, Team to) {
+        return gameStore.getTeamDistance(game.getId(), from, to);
     }
 
-    private String getDirection(Team.TeamLocation from, Team.TeamLocation to) {
-        double lat1 = Math.toRadians(from.getLatitude());
-        double lon1 = Math.toRadians(from.getLongitude());
-        double lat2 = Math.toRadians(to.getLatitude());
-        double lon2 = Math.toRadians(to.getLongitude());
-
-        double dlon = lon2 - lon1;
-        double y = Math.sin(dlon) * Math.cos(lat2);
-        double x = Math.cos(lat1) * Math.sin(lat2) - Math.sin(lat1) * Math.cos(lat2) * Math.cos(dlon);
-
-        double bearing = Math.toDegrees(Math.atan2(y, x));
-        bearing = (bearing + 360) % 360;
+    private String directionBetween(Game game, Team from, Team to) {
+        double bearing = gameStore.getTeamBearing(game.getId(), from, to);
+        if (Double.isNaN(bearing)) return "unknown";
 
         if (bearing < 22.5 || bearing >= 337.5) return "north";
         else if (bearing < 67.5) return "northeast";
@@ -1062,53 +910,121 @@ public class ClueService {
     }
 
     /**
-     * Scheduled task that checks for expired clue requests every 30 seconds
-     * and automatically reveals hider locations for landmark/selfie clues
-     * that have not received responses within the timeout period.
+     * Arm the expiry timer of a pending request; it fires once, at the request's expiration time.
      */
-    @Scheduled(fixedRate = 30000) // Run every 30 seconds
-    public void handleExpiredClueRequests() {
+    private void scheduleExpiry(ClueRequest request) {
+        if (request.getExpirationTimestamp() <= 0) return;
+        String requestId = request.getId();
+        HashedTimingWheel.Timeout timeout = expiryWheel.schedule(request.getExpirationTimestamp(), () -> expireClueRequest(requestId));
+        HashedTimingWheel.Timeout previous = expiryTimers.put(requestId, timeout);
+        if (previous != null) previous.cancel();
+    }
+
+    private void cancelExpiry(String requestId) {
+        HashedTimingWheel.Timeout timeout = expiryTimers.remove(requestId);
+        if (timeout != null) timeout.cancel();
+    }
+
+    /**
+     * Requests restored from a snapshot or the event log get their timers once startup is done;
+     * those already past their deadline fire on the next tick.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scheduleRestoredClueRequests() {
+        List<ClueRequest> pending = gameStore.getPendingClueRequests();
+        pending.forEach(this::scheduleExpiry);
+        if (!pending.isEmpty()) {
+            logger.info("Scheduled expiry for {} restored clue requests", pending.size());
+        }
+    }
+
+    /**
+     * The single expiry handler, run by the timing wheel when a request's time is up. Reveals the
+     * hider's location to the seekers unless the hider answered in the meantime.
+     */
+    private void expireClueRequest(String requestId) {
+        expiryTimers.remove(requestId);
         try {
-            List<ClueRequest> expiredRequests = gameStore.getExpiredClueRequests();
-            logger.info("Scheduled task running - found {} expired requests", expiredRequests.size());
-            
-            for (ClueRequest expiredRequest : expiredRequests) {
-                logger.info("Handling expired clue request: {} for game: {}, type: {}, target: {}", 
-                           expiredRequest.getId(), expiredRequest.getGameId(), 
-                           expiredRequest.getClueTypeId(), expiredRequest.getTargetHiderTeamId());
-                
-                // Find the game and validate it's active
-                Game game = gameStore.getGame(expiredRequest.getGameId());
-                if (game == null || !"active".equals(game.getStatus())) {
-                    logger.warn("Skipping expired request for inactive game: {}", expiredRequest.getGameId());
-                    continue; // Skip if game not found or not active
-                }
-                
-                // Find the clue that contains this request ID in its requestId field (comma-separated for multi-hider)
-                PurchasedClue targetClue = null;
-                for (Team team : game.getTeams()) {
-                    if ("seeker".equals(team.getRole())) {
-                        List<PurchasedClue> clueHistory = gameStore.getClueHistoryForTeam(expiredRequest.getGameId(), team.getId());
-                        for (PurchasedClue clue : clueHistory) {
-                            if (clue.getRequestId() != null && clue.getRequestId().contains(expiredRequest.getId())) {
-                                targetClue = clue;
-                                logger.info("Found target clue: {} for expired request: {}", clue.getId(), expiredRequest.getId());
-                                break;
-                            }
-                        }
-                    }
-                    if (targetClue != null) break;
-                }
-                
-                if (targetClue != null) {
-                    logger.info("Processing expired request timeout for clue: {}", targetClue.getId());
-                    handleExpiredClueRequest(targetClue, expiredRequest);
-                } else {
-                    logger.warn("Could not find target clue for expired request: {}", expiredRequest.getId());
-                }
+            ClueRequest request = gameStore.getClueRequest(requestId);
+            if (request == null) return;
+            Game game = gameStore.getGame(request.getGameId());
+            if (game != null && "paused".equals(game.getStatus())) {
+                // Hold the reveal until the game resumes; the request cannot be answered meanwhile
+                HashedTimingWheel.Timeout retry = expiryWheel.schedule(System.currentTimeMillis() + PAUSED_RETRY_MS,
+                        () -> expireClueRequest(requestId));
+                expiryTimers.put(requestId, retry);
+                return;
+            }
+            synchronized (request) {
+                if (!"pending".equals(request.getStatus())) return;
+                request.setStatus("expired");
+                gameStore.updateClueRequest(request);
+            }
+            try {
+                Map<String, Object> expPayload = new HashMap<>();
+                expPayload.put("requestId", request.getId());
+                expPayload.put("clueTypeId", request.getClueTypeId());
+                expPayload.put("targetHiderTeamId", request.getTargetHiderTeamId());
+                expPayload.put("expiredAt", System.currentTimeMillis());
+                gameEventLogger.appendEvent(request.getGameId(), "clue.request_expired", "system", "system", expPayload);
+            } catch (Exception ignored) {}
+            if (game == null || !"active".equals(game.getStatus())) {
+                logger.info("Expired clue request {} of inactive game {}", requestId, request.getGameId());
+                return;
+            }
+
+            PurchasedClue clue = findClueForRequest(request);
+            if (clue != null) {
+                handleExpiredClueRequest(clue, request);
+            } else {
+                logger.warn("Could not find target clue for expired request: {}", requestId);
             }
         } catch (Exception e) {
-            logger.error("Error in scheduled task for handling expired clue requests", e);
+            logger.error("Error handling expired clue request {}", requestId, e);
+        }
+    }
+
+    // Text, status and per-hider data of a clue after a change, for the event log
+    private static Map<String, Object> clueStatePayload(PurchasedClue clue) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("clueId", clue.getId());
+        state.put("teamId", clue.getTeamId());
+        state.put("clueText", clue.getClueText());
+        state.put("status", clue.getStatus());
+        if (clue.getHiderData() != null) state.put("hiderData", hiderDataPayload(clue.getHiderData()));
+        return state;
+    }
+
+    // Copied into plain maps, since the clue keeps changing after the event is logged
+    private static List<Map<String, Object>> hiderDataPayload(List<PurchasedClue.HiderClueData> hiderData) {
+        List<Map<String, Object>> list = new ArrayList<>(hiderData.size());
+        for (PurchasedClue.HiderClueData d : hiderData) {
+            Map<String, Object> m = new HashMap<>();
+            m.put("teamId", d.getTeamId());
+            m.put("teamName", d.getTeamName());
+            m.put("latitude", d.getLatitude());
+            m.put("longitude", d.getLongitude());
+            m.put("distance", d.getDistance());
+            m.put("direction", d.getDirection());
+            m.put("additionalData", d.getAdditionalData());
+            list.add(m);
+        }
+        return list;
+    }
+
+    private PurchasedClue findClueForRequest(ClueRequest request) {
+        for (PurchasedClue clue : gameStore.getClueHistoryForTeam(request.getGameId(), request.getRequestingTeamId())) {
+            if (clue.getRequestId() == null) continue;
+            for (String reqId : clue.getRequestId().split(",")) {
+                if (reqId.trim().equals(request.getId())) return clue;
+            }
         }
+        return null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryWheel.stop();
+        expiryExecutor.shutdownNow();
     }
 }
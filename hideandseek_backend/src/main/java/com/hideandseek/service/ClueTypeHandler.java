@@ -0,0 +1,141 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.ClueType;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+
+import java.util.*;
+
+/**
+ * One clue type, registered with ClueService by ClueType.id (see clue_types.json). A handler only
+ * describes the clue from the precomputed targets; the shared purchase pipeline in ClueService
+ * validates the purchase, deducts tokens, stores requests and history and emits every side effect
+ * (events, WebSocket, push). Implementations are Spring beans, so adding a clue type is one class.
+ */
+public interface ClueTypeHandler {
+
+    String getClueTypeId();
+
+    /**
+     * Build the clue for the targets in range. Must not have side effects.
+     */
+    Draft createClue(Context context);
+
+    /**
+     * Record a hider's response to one of this clue's requests.
+     */
+    default void applyResponse(PurchasedClue.HiderClueData hider, String responseData) {
+        hider.setAdditionalData(responseData);
+    }
+
+    /**
+     * Clue text once the only targeted hider responded, or null to keep the current text.
+     */
+    default String describeSingleResponse(PurchasedClue.HiderClueData hider) {
+        return null;
+    }
+
+    /**
+     * One line of a multi-hider summary for a hider that responded.
+     */
+    default String describeResponseLine(PurchasedClue.HiderClueData hider) {
+        return hider.getAdditionalData();
+    }
+
+    /**
+     * Purchase inputs, computed once by the pipeline.
+     */
+    final class Context {
+        private final Game game;
+        private final Team requestingTeam;
+        private final ClueType clueType;
+        private final List<Target> targets;
+
+        Context(Game game, Team requestingTeam, ClueType clueType, List<Target> targets) {
+            this.game = game;
+            this.requestingTeam = requestingTeam;
+            this.clueType = clueType;
+            this.targets = targets;
+        }
+
+        public Game getGame() { return game; }
+        public Team getRequestingTeam() { return requestingTeam; }
+        public ClueType getClueType() { return clueType; }
+        public List<Target> getTargets() { return targets; }
+    }
+
+    /**
+     * A hider in range, with distance (meters, NaN if unknown) and compass direction from the seeker.
+     */
+    final class Target {
+        private final Team team;
+        private final double distance;
+        private final String direction;
+
+        Target(Team team, double distance, String direction) {
+            this.team = team;
+            this.distance = distance;
+            this.direction = direction;
+        }
+
+        public Team getTeam() { return team; }
+        public double getDistance() { return distance; }
+        public String getDirection() { return direction; }
+    }
+
+    /**
+     * What the pipeline stores and sends for a purchase. Completed clues carry their text; pending
+     * ones carry one hider request per target with the instructions shown to that hider.
+     */
+    final class Draft {
+        private final String clueText;
+        private final String status;
+        private final String responseType;
+        private final List<PurchasedClue.HiderClueData> hiderData;
+        private final Map<Target, String> requests = new LinkedHashMap<>();
+        private final Map<String, Object> extraResult = new LinkedHashMap<>();
+        private boolean notifyTargets;
+
+        private Draft(String clueText, String status, String responseType, List<PurchasedClue.HiderClueData> hiderData) {
+            this.clueText = clueText;
+            this.status = status;
+            this.responseType = responseType;
+            this.hiderData = hiderData;
+        }
+
+        public static Draft completed(String clueText, String responseType, List<PurchasedClue.HiderClueData> hiderData) {
+            return new Draft(clueText, "completed", responseType, hiderData);
+        }
+
+        public static Draft pending(String clueText, String responseType, List<PurchasedClue.HiderClueData> hiderData) {
+            return new Draft(clueText, "pending", responseType, hiderData);
+        }
+
+        /** Ask a hider to respond; the description is shown with the request. */
+        public Draft request(Target target, String description) {
+            requests.put(target, description);
+            return this;
+        }
+
+        /** Push "clue requested" to every target of a completed clue. */
+        public Draft notifyTargets() {
+            this.notifyTargets = true;
+            return this;
+        }
+
+        /** Extra field of the purchase response. */
+        public Draft result(String key, Object value) {
+            extraResult.put(key, value);
+            return this;
+        }
+
+        public String getClueText() { return clueText; }
+        public String getStatus() { return status; }
+        public String getResponseType() { return responseType; }
+        public List<PurchasedClue.HiderClueData> getHiderData() { return hiderData; }
+        public Map<Target, String> getRequests() { return requests; }
+        public Map<String, Object> getExtraResult() { return extraResult; }
+        public boolean isNotifyTargets() { return notifyTargets; }
+    }
+}
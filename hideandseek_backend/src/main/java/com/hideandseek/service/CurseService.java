@@ -25,7 +25,16 @@ public class CurseService {
     @Autowired
     private GameEventLogger gameEventLogger;
 
-    public Map<String, Object> curseTeam(String gameId, String seekerTeamId, String targetTeamId) {
+    @Autowired
+    private TokenLedger tokenLedger;
+
+    public Map<String, Object> curseTeam(String gameId, String seekerTeamId, String targetTeamId, String idempotencyKey) {
+        // A retried request gets the original response instead of cursing (and paying) again
+        Map<String, Object> replayed = tokenLedger.replay(gameId, seekerTeamId, idempotencyKey, "curse.applied");
+        if (replayed != null) {
+            return replayed;
+        }
+
         Game game = gameStore.getGame(gameId);
         if (game == null) {
             throw new IllegalArgumentException("Game not found");
@@ -72,6 +81,29 @@ public class CurseService {
             throw new IllegalStateException("Not enough tokens to apply this curse. Need " + curse.getTokenCount() + " tokens.");
         }
 
+        // Deduct tokens from seeker first; a concurrent spend can still make this fail
+        Map<String, Object> debitDetails = new HashMap<>();
+        debitDetails.put("curseId", curse.getId());
+        debitDetails.put("targetTeamId", targetTeam.getId());
+        TokenLedger.Entry debit = tokenLedger.debit(gameId, seekerTeam, curse.getTokenCount(), "curse.applied", idempotencyKey, debitDetails);
+        if (debit.isReplay()) {
+            return debit.awaitOutcome();
+        }
+
+        try {
+            Map<String, Object> result = applyCurse(game, seekerTeam, targetTeam, curse, currentTime, debit);
+            debit.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            tokenLedger.reverse(gameId, seekerTeam, debit, e);
+            throw e;
+        }
+    }
+
+    private Map<String, Object> applyCurse(Game game, Team seekerTeam, Team targetTeam, Curse curse, long currentTime,
+                                           TokenLedger.Entry debit) {
+        String gameId = game.getId();
+
         // Apply the curse
         ActiveCurse activeCurse = new ActiveCurse();
         activeCurse.setCurse(curse);
@@ -92,9 +124,6 @@ public class CurseService {
         appliedCurse.setDuration(durationMinutes);
         seekerTeam.getAppliedCurses().add(appliedCurse);
 
-        // Deduct tokens from seeker
-        seekerTeam.setTokens(seekerTeam.getTokens() - curse.getTokenCount());
-
         // Update game
         gameStore.updateGame(game);
 
@@ -102,8 +131,8 @@ public class CurseService {
         try {
             Map<String, Object> tokenPayload = new HashMap<>();
             tokenPayload.put("teamId", seekerTeam.getId());
-            tokenPayload.put("tokens", seekerTeam.getTokens());
-            tokenPayload.put("delta", -curse.getTokenCount());
+            tokenPayload.put("tokens", debit.getBalance());
+            tokenPayload.put("delta", debit.getDelta());
             tokenPayload.put("reason", "curse.applied");
             tokenPayload.put("curseId", curse.getId());
             tokenPayload.put("targetTeamId", targetTeam.getId());
@@ -0,0 +1,44 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+@Component
+public class DistanceFromSeekersClueHandler implements ClueTypeHandler {
+
+    @Override
+    public String getClueTypeId() {
+        return "distance-from-seekers";
+    }
+
+    @Override
+    public Draft createClue(Context context) {
+        List<Target> targets = context.getTargets();
+        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
+        for (Target target : targets) {
+            Team hider = target.getTeam();
+            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
+            hiderData.setDistance(target.getDistance());
+            hiderData.setAdditionalData(String.format("Distance to %s: %.0f meters", hider.getName(), target.getDistance()));
+            hiderDataList.add(hiderData);
+        }
+
+        String clueText;
+        if (targets.size() == 1) {
+            clueText = String.format("Your distance to the hider (%s) is approximately %.0f meters.",
+                    targets.get(0).getTeam().getName(), targets.get(0).getDistance());
+        } else {
+            StringBuilder distances = new StringBuilder();
+            distances.append(String.format("Found %d hiders within range:\n", targets.size()));
+            for (Target target : targets) {
+                distances.append(String.format("• %s: %.0fm away\n", target.getTeam().getName(), target.getDistance()));
+            }
+            clueText = distances.toString().trim();
+        }
+
+        return Draft.completed(clueText, "automatic", hiderDataList).notifyTargets();
+    }
+}
@@ -0,0 +1,65 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+@Component
+public class ExactLocationClueHandler implements ClueTypeHandler {
+
+    @Override
+    public String getClueTypeId() {
+        return "exact-location";
+    }
+
+    @Override
+    public Draft createClue(Context context) {
+        List<Target> targets = context.getTargets();
+        StringBuilder clueTextBuilder = new StringBuilder();
+        if (targets.size() == 1) {
+            Team hider = targets.get(0).getTeam();
+            clueTextBuilder.append(String.format("Exact location of %s: %.6f, %.6f",
+                    hider.getName(),
+                    hider.getLocation().getLatitude(),
+                    hider.getLocation().getLongitude()));
+        } else {
+            clueTextBuilder.append("Exact locations of hiders within range:\n");
+            for (int i = 0; i < targets.size(); i++) {
+                Team hider = targets.get(i).getTeam();
+                clueTextBuilder.append(String.format("%d. %s: %.6f, %.6f",
+                        i + 1,
+                        hider.getName(),
+                        hider.getLocation().getLatitude(),
+                        hider.getLocation().getLongitude()));
+                if (i < targets.size() - 1) {
+                    clueTextBuilder.append("\n");
+                }
+            }
+        }
+
+        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
+        List<Map<String, Object>> locations = new ArrayList<>();
+        for (Target target : targets) {
+            Team hider = target.getTeam();
+            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
+            hiderData.setLatitude(hider.getLocation().getLatitude());
+            hiderData.setLongitude(hider.getLocation().getLongitude());
+            hiderData.setDistance(target.getDistance());
+            hiderDataList.add(hiderData);
+
+            locations.add(Map.of(
+                    "latitude", hiderData.getLatitude(),
+                    "longitude", hiderData.getLongitude(),
+                    "teamName", hiderData.getTeamName(),
+                    "teamId", hiderData.getTeamId(),
+                    "distance", hiderData.getDistance()
+            ));
+        }
+
+        return Draft.completed(clueTextBuilder.toString(), "location", hiderDataList)
+                .result("locations", locations)
+                .notifyTargets();
+    }
+}
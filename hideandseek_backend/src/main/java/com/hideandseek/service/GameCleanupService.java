@@ -1,5 +1,7 @@
 package com.hideandseek.service;
 
+import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.logging.GameStateCheckpointer;
 import com.hideandseek.model.Game;
 import com.hideandseek.store.GameStore;
 import org.slf4j.Logger;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
 
 @Service
 public class GameCleanupService {
@@ -22,6 +25,12 @@ public class GameCleanupService {
     
     @Autowired
     private GameStore gameStore;
+
+    @Autowired
+    private GameEventLogger gameEventLogger;
+
+    @Autowired
+    private GameStateCheckpointer gameStateCheckpointer;
     
     /**
      * Clean up inactive games every hour
@@ -60,8 +69,13 @@ public class GameCleanupService {
                         logger.info("Deleting inactive game {} (code: {}) with {} teams", 
                                    gameId, game.getCode(), game.getTeams().size());
                         
+                        // Record the deletion so crash recovery does not resurrect the game
+                        try {
+                            gameEventLogger.appendEvent(gameId, "game.deleted", "system", null, new HashMap<>());
+                        } catch (Exception ignored) {}
                         // Clean up all game-related data
                         gameStore.deleteGame(gameId);
+                        gameStateCheckpointer.forget(gameId);
                         
                         // Note: WebSocket clients will be disconnected when they try to access the deleted game
                     }
@@ -136,7 +150,11 @@ public class GameCleanupService {
                 if (game.getLastActivityTime() != null && 
                     (currentTime - game.getLastActivityTime()) > thresholdMs) {
                     
+                    try {
+                        gameEventLogger.appendEvent(game.getId(), "game.deleted", "system", null, new HashMap<>());
+                    } catch (Exception ignored) {}
                     gameStore.deleteGame(game.getId());
+                    gameStateCheckpointer.forget(game.getId());
                     deletedCount++;
                     logger.info("Emergency cleanup: deleted game {} (code: {})", 
                                game.getId(), game.getCode());
@@ -4,6 +4,7 @@ import com.hideandseek.model.*;
 import com.hideandseek.store.GameStore;
 import com.hideandseek.websocket.GameWebSocketHandler;
 import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.logging.GameStateCheckpointer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
@@ -31,6 +32,15 @@ public class GameService {
     @Autowired
     private GameEventLogger gameEventLogger;
 
+    @Autowired
+    private GameStateCheckpointer gameStateCheckpointer;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Autowired
+    private TokenLedger tokenLedger;
+
     public Game createGame(List<String> teamNames) {
         if (teamNames == null || teamNames.isEmpty()) {
             throw new IllegalArgumentException("Team names cannot be empty");
@@ -40,6 +50,8 @@ public class GameService {
         try {
             Map<String, Object> payload = new HashMap<>();
             payload.put("teamNames", teamNames);
+            payload.put("gameCode", game.getCode());
+            payload.put("teams", describeTeams(game));
             gameEventLogger.appendEvent(game.getId(), "game.created", "system", null, payload);
         } catch (Exception ignored) {}
         return game;
@@ -54,6 +66,8 @@ public class GameService {
         try {
             Map<String, Object> payload = new HashMap<>();
             payload.put("teamNames", teamNames);
+            payload.put("gameCode", game.getCode());
+            payload.put("teams", describeTeams(game));
             payload.put("playerRole", playerRole);
             gameEventLogger.appendEvent(game.getId(), "game.created", "system", null, payload);
         } catch (Exception ignored) {}
@@ -122,6 +136,14 @@ public class GameService {
                     }
                 }
                 
+                try {
+                    Map<String, Object> payload = new HashMap<>();
+                    payload.put("from", "active");
+                    payload.put("to", "paused");
+                    payload.put("pausedByTimeLimit", true);
+                    gameEventLogger.appendEvent(game.getId(), "game.status_changed", "system", null, payload);
+                } catch (Exception ignored) {}
+                
                 // Send notification about round time limit reached
                 pushService.sendGameEventNotification(game.getId(), "Round Time Up!", 
                     "The round time limit has been reached. Game paused.");
@@ -419,7 +441,7 @@ public class GameService {
         
         // Reset all teams
         for (Team team : game.getTeams()) {
-            team.setTokens(10);
+            tokenLedger.set(gameId, team, 10, "game.restarted", null, null);
             team.setLocation(null);
             team.getCompletedChallenges().clear();
             team.getActiveCurses().clear();
@@ -442,6 +464,21 @@ public class GameService {
         return game;
     }
 
+    public Map<String, Object> getTokenHistory(String gameId, String teamId, long afterSeq) {
+        getGame(gameId);
+        Team team = gameStore.getTeam(gameId, teamId);
+        
+        if (team == null) {
+            throw new IllegalArgumentException("Team not found");
+        }
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("teamId", teamId);
+        result.put("tokens", team.getTokens());
+        result.put("entries", tokenLedger.getHistory(gameId, teamId, afterSeq));
+        return result;
+    }
+
     public Team updateTeamTokens(String gameId, String teamId, Integer tokens) {
         Game game = getGame(gameId);
         Team team = gameStore.getTeam(gameId, teamId);
@@ -450,7 +487,11 @@ public class GameService {
             throw new IllegalArgumentException("Team not found");
         }
         
-        team.setTokens(tokens);
+        if (tokens == null) {
+            throw new IllegalArgumentException("Tokens required");
+        }
+        
+        tokenLedger.set(gameId, team, tokens, "admin.set", null, null);
         gameStore.updateGame(game);
         try {
             Map<String, Object> payload = new HashMap<>();
@@ -495,27 +536,14 @@ public class GameService {
     }
 
     public Team updateTeamLocation(String gameId, String teamId, Location location) {
-        Game game = getGame(gameId);
-        Team team = gameStore.getTeam(gameId, teamId);
-        
-        if (team == null) {
-            throw new IllegalArgumentException("Team not found");
+        if (location == null) {
+            throw new IllegalArgumentException("Location is required");
         }
+        // Same path as POST /api/location/update: trail, geofence, proximity and the locations frame
+        locationService.updateLocation(gameId, teamId, location.getLatitude(), location.getLongitude());
+        updateGameActivity(getGame(gameId));
         
-        team.setCurrentLocation(location);
-        try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("teamId", teamId);
-            if (location != null) {
-                payload.put("latitude", location.getLatitude());
-                payload.put("longitude", location.getLongitude());
-                payload.put("timestamp", location.getTimestamp());
-            }
-            gameEventLogger.appendEvent(gameId, "team.location_update", "team", teamId, payload);
-        } catch (Exception ignored) {}
-        updateGameActivity(game);
-        
-        return team;
+        return gameStore.getTeam(gameId, teamId);
     }
 
     public Team drawChallenge(String gameId, String teamId) {
@@ -585,29 +613,46 @@ public class GameService {
         ActiveChallenge activeChallenge = team.getActiveChallenge();
         Challenge challenge = activeChallenge.getChallenge();
         
-        // Add tokens
-        team.setTokens(team.getTokens() + challenge.getTokenReward());
-        
-        // Mark challenge as completed
-        activeChallenge.setCompleted(true);
-        team.getCompletedChallenges().add(challenge.getId());
-        team.setActiveChallenge(null);
-        
-        // Persist and log event
-        gameStore.updateGame(game);
+        // Add tokens; the key makes concurrent completions of the same draw pay out once
+        TokenLedger.Entry credit = tokenLedger.credit(gameId, team, challenge.getTokenReward(), "challenge.completed",
+                "challenge:" + challenge.getId() + "@" + activeChallenge.getStartTime(), Map.of("challengeId", challenge.getId()));
+        if (credit.isReplay()) {
+            // Wait for the first completion, and fail like it did
+            credit.awaitOutcome();
+            return team;
+        }
         try {
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("teamId", teamId);
-            payload.put("challengeId", challenge.getId());
-            payload.put("title", challenge.getTitle());
-            payload.put("tokensAwarded", challenge.getTokenReward());
-            gameEventLogger.appendEvent(gameId, "challenge.completed", "team", teamId, payload);
-        } catch (Exception ignored) {}
-        
-        // Broadcast to WebSocket
-        webSocketHandler.broadcastToGame(gameId, game);
-        
-        return team;
+            // Mark challenge as completed
+            activeChallenge.setCompleted(true);
+            team.getCompletedChallenges().add(challenge.getId());
+            team.setActiveChallenge(null);
+
+            // Persist and log event
+            gameStore.updateGame(game);
+            try {
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("teamId", teamId);
+                payload.put("challengeId", challenge.getId());
+                payload.put("title", challenge.getTitle());
+                payload.put("tokensAwarded", challenge.getTokenReward());
+                payload.put("newTokenBalance", credit.getBalance());
+                gameEventLogger.appendEvent(gameId, "challenge.completed", "team", teamId, payload);
+            } catch (Exception ignored) {}
+
+            // Broadcast to WebSocket
+            webSocketHandler.broadcastToGame(gameId, game);
+
+            Map<String, Object> outcome = new HashMap<>();
+            outcome.put("tokensEarned", challenge.getTokenReward());
+            outcome.put("newTokenBalance", credit.getBalance());
+            outcome.put("challenge", challenge);
+            outcome.put("message", String.format("Challenge completed! Earned %d tokens.", challenge.getTokenReward()));
+            credit.complete(outcome);
+            return team;
+        } catch (RuntimeException e) {
+            tokenLedger.reverse(gameId, team, credit, e);
+            throw e;
+        }
     }
         
     public Team refuseChallenge(String gameId, String teamId) {
@@ -635,6 +680,7 @@ public class GameService {
         try {
             Map<String, Object> payload = new HashMap<>();
             payload.put("teamId", teamId);
+            payload.put("vetoEndTime", team.getVetoEndTime());
             gameEventLogger.appendEvent(gameId, "challenge.refused", "team", teamId, payload);
         } catch (Exception ignored) {}
         
@@ -916,7 +962,27 @@ public class GameService {
     }
 
     public void deleteGame(String gameId) {
+        try {
+            gameEventLogger.appendEvent(gameId, "game.deleted", "admin", null, new HashMap<>());
+        } catch (Exception ignored) {}
         gameStore.deleteGame(gameId);
+        gameStateCheckpointer.forget(gameId);
+    }
+
+    /**
+     * Team identities recorded with game.created so the game can be rebuilt from its event log.
+     */
+    private List<Map<String, Object>> describeTeams(Game game) {
+        List<Map<String, Object>> teams = new ArrayList<>();
+        for (Team team : game.getTeams()) {
+            Map<String, Object> t = new HashMap<>();
+            t.put("id", team.getId());
+            t.put("name", team.getName());
+            t.put("role", team.getRole());
+            t.put("tokens", team.getTokens());
+            teams.add(t);
+        }
+        return teams;
     }
     
     /**
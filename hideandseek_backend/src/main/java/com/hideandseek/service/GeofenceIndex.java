@@ -0,0 +1,205 @@
+package com.hideandseek.service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Point-in-polygon test for one play area, accelerated by a uniform grid over its bounding box.
+ * All rings (outer boundaries and holes, from any number of polygons) are treated as one edge set
+ * under the even-odd rule. Each grid cell stores whether its center is inside and the edges that
+ * cross it; a query only counts crossings between the cell center and the point against those
+ * edges, so cells away from the boundary answer with a single array read.
+ * Coordinates are planar degrees (x = longitude, y = latitude), which is fine at campus scale.
+ * Immutable after construction and safe to share between threads.
+ */
+final class GeofenceIndex {
+    private static final int MIN_CELLS = 256;
+    private static final int MAX_CELLS = 512 * 512;
+    private static final int CELLS_PER_EDGE = 4;
+
+    private final double[] ax;
+    private final double[] ay;
+    private final double[] bx;
+    private final double[] by;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+    private final int cols;
+    private final int rows;
+    private final double cellW;
+    private final double cellH;
+    private final boolean[] centerInside;
+    // Edges crossing cell c: cellEdges[cellStart[c] .. cellStart[c + 1])
+    private final int[] cellStart;
+    private final int[] cellEdges;
+
+    /**
+     * @param rings each ring as {longitudes, latitudes}; closing the ring is implicit
+     */
+    GeofenceIndex(List<double[][]> rings) {
+        int edges = 0;
+        for (double[][] ring : rings) edges += ring[0].length;
+        if (edges < 3) throw new IllegalArgumentException("Geofence needs at least one polygon");
+        ax = new double[edges];
+        ay = new double[edges];
+        bx = new double[edges];
+        by = new double[edges];
+        double x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;
+        double x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;
+        int e = 0;
+        for (double[][] ring : rings) {
+            double[] xs = ring[0];
+            double[] ys = ring[1];
+            for (int i = 0; i < xs.length; i++) {
+                int j = (i + 1) % xs.length;
+                ax[e] = xs[i];
+                ay[e] = ys[i];
+                bx[e] = xs[j];
+                by[e] = ys[j];
+                e++;
+                x0 = Math.min(x0, xs[i]);
+                y0 = Math.min(y0, ys[i]);
+                x1 = Math.max(x1, xs[i]);
+                y1 = Math.max(y1, ys[i]);
+            }
+        }
+        if (!(x1 > x0) || !(y1 > y0)) throw new IllegalArgumentException("Geofence has no area");
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+
+        int target = Math.min(MAX_CELLS, Math.max(MIN_CELLS, edges * CELLS_PER_EDGE));
+        double cell = Math.sqrt((maxX - minX) * (maxY - minY) / target);
+        cols = Math.max(1, Math.min(MAX_CELLS, (int) Math.ceil((maxX - minX) / cell)));
+        rows = Math.max(1, Math.min(MAX_CELLS / cols, (int) Math.ceil((maxY - minY) / cell)));
+        cellW = (maxX - minX) / cols;
+        cellH = (maxY - minY) / rows;
+
+        centerInside = new boolean[cols * rows];
+        classifyCenters();
+        cellStart = new int[cols * rows + 1];
+        forEachEdgeCell((edge, c) -> cellStart[c + 1]++);
+        for (int c = 0; c < cols * rows; c++) cellStart[c + 1] += cellStart[c];
+        cellEdges = new int[cellStart[cols * rows]];
+        int[] fill = Arrays.copyOf(cellStart, cols * rows);
+        forEachEdgeCell((edge, c) -> cellEdges[fill[c]++] = edge);
+    }
+
+    boolean contains(double latitude, double longitude) {
+        double x = longitude, y = latitude;
+        if (!(x >= minX && x <= maxX && y >= minY && y <= maxY)) return false;
+        int col = Math.min(cols - 1, (int) ((x - minX) / cellW));
+        int row = Math.min(rows - 1, (int) ((y - minY) / cellH));
+        int c = row * cols + col;
+        boolean inside = centerInside[c];
+        int end = cellStart[c + 1];
+        if (cellStart[c] == end) return inside;
+        double cx = minX + (col + 0.5) * cellW;
+        double cy = minY + (row + 0.5) * cellH;
+        for (int k = cellStart[c]; k < end; k++) {
+            int i = cellEdges[k];
+            if (crosses(cx, cy, x, y, ax[i], ay[i], bx[i], by[i])) inside = !inside;
+        }
+        return inside;
+    }
+
+    int getEdgeCount() {
+        return ax.length;
+    }
+
+    int getCellCount() {
+        return cols * rows;
+    }
+
+    int getBoundaryCellCount() {
+        int n = 0;
+        for (int c = 0; c < cols * rows; c++) {
+            if (cellStart[c + 1] > cellStart[c]) n++;
+        }
+        return n;
+    }
+
+    /** {minLongitude, minLatitude, maxLongitude, maxLatitude} */
+    double[] getBounds() {
+        return new double[]{minX, minY, maxX, maxY};
+    }
+
+    // One scanline per cell row: sorted ray crossings give the parity of every center in the row
+    private void classifyCenters() {
+        double[] xs = new double[ax.length];
+        for (int row = 0; row < rows; row++) {
+            double y = minY + (row + 0.5) * cellH;
+            int n = 0;
+            for (int i = 0; i < ax.length; i++) {
+                if ((ay[i] > y) != (by[i] > y)) {
+                    xs[n++] = ax[i] + (y - ay[i]) * (bx[i] - ax[i]) / (by[i] - ay[i]);
+                }
+            }
+            Arrays.sort(xs, 0, n);
+            int k = 0;
+            for (int col = 0; col < cols; col++) {
+                double x = minX + (col + 0.5) * cellW;
+                // A center is inside when an odd number of crossings lie to its right
+                while (k < n && xs[k] <= x) k++;
+                centerInside[row * cols + col] = ((n - k) & 1) == 1;
+            }
+        }
+    }
+
+    private interface EdgeCellVisitor {
+        void visit(int edge, int cell);
+    }
+
+    // Cells each edge passes through, row band by row band
+    private void forEachEdgeCell(EdgeCellVisitor visitor) {
+        for (int i = 0; i < ax.length; i++) {
+            double lowY = Math.min(ay[i], by[i]);
+            double highY = Math.max(ay[i], by[i]);
+            int r0 = rowOf(lowY);
+            int r1 = rowOf(highY);
+            for (int row = r0; row <= r1; row++) {
+                double bandLow = Math.max(lowY, minY + row * cellH);
+                double bandHigh = Math.min(highY, minY + (row + 1) * cellH);
+                double xa, xb;
+                if (ay[i] == by[i]) {
+                    xa = ax[i];
+                    xb = bx[i];
+                } else {
+                    xa = ax[i] + (bandLow - ay[i]) * (bx[i] - ax[i]) / (by[i] - ay[i]);
+                    xb = ax[i] + (bandHigh - ay[i]) * (bx[i] - ax[i]) / (by[i] - ay[i]);
+                }
+                int c0 = colOf(Math.min(xa, xb));
+                int c1 = colOf(Math.max(xa, xb));
+                for (int col = c0; col <= c1; col++) {
+                    visitor.visit(i, row * cols + col);
+                }
+            }
+        }
+    }
+
+    private int rowOf(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) ((y - minY) / cellH)));
+    }
+
+    private int colOf(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) ((x - minX) / cellW)));
+    }
+
+    // Segment (px,py)-(qx,qy) against edge (ax,ay)-(bx,by); edge endpoints are half-open so a
+    // segment through a shared vertex is counted once
+    private static boolean crosses(double px, double py, double qx, double qy,
+                                   double ax, double ay, double bx, double by) {
+        double sa = orient(px, py, qx, qy, ax, ay);
+        double sb = orient(px, py, qx, qy, bx, by);
+        if ((sa > 0) == (sb > 0)) return false;
+        double sp = orient(ax, ay, bx, by, px, py);
+        double sq = orient(ax, ay, bx, by, qx, qy);
+        return (sp > 0) != (sq > 0);
+    }
+
+    private static double orient(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+}
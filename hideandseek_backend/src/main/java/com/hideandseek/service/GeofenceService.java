@@ -0,0 +1,235 @@
+package com.hideandseek.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-game play-area boundaries. Admins upload GeoJSON (Polygon, MultiPolygon, Feature or
+ * FeatureCollection); it is stored as geofence.geojson next to the game's event log and compiled
+ * into a GeofenceIndex. Every location fix is checked against it, and a team crossing the
+ * boundary emits team.out_of_bounds (with a push to that team) or team.in_bounds.
+ */
+@Service
+public class GeofenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeofenceService.class);
+    private static final String FILE_NAME = "geofence.geojson";
+    private static final Fence NONE = new Fence(null, null);
+
+    private final GameStore gameStore;
+    private final GameEventLogger gameEventLogger;
+    private final PushService pushService;
+    private final ObjectMapper mapper = new ObjectMapper();
+    // gameId -> compiled fence, NONE when the game has no geofence
+    private final Map<String, Fence> fences = new ConcurrentHashMap<>();
+    // Push is an HTTP call; keep it off the location request path
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "geofence-push");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public GeofenceService(GameStore gameStore, GameEventLogger gameEventLogger, PushService pushService) {
+        this.gameStore = gameStore;
+        this.gameEventLogger = gameEventLogger;
+        this.pushService = pushService;
+    }
+
+    private static final class Fence {
+        final GeofenceIndex index;
+        final String geoJson;
+        // teamId -> true while the team is outside
+        final Map<String, Boolean> outside = new ConcurrentHashMap<>();
+
+        Fence(GeofenceIndex index, String geoJson) {
+            this.index = index;
+            this.geoJson = geoJson;
+        }
+    }
+
+    /**
+     * Replace the game's play area. Team states start over, so the next fix of a team that is
+     * already outside fires team.out_of_bounds again.
+     */
+    public Map<String, Object> setGeofence(String gameId, String geoJson) throws IOException {
+        if (gameStore.getGame(gameId) == null) {
+            throw new IllegalArgumentException("Game not found");
+        }
+        GeofenceIndex index = compile(geoJson);
+        Path dir = gameEventLogger.getBaseDir().resolve(gameId);
+        Files.createDirectories(dir);
+        Files.writeString(dir.resolve(FILE_NAME), geoJson, StandardCharsets.UTF_8);
+        fences.put(gameId, new Fence(index, geoJson));
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("edges", index.getEdgeCount());
+            gameEventLogger.appendEvent(gameId, "game.geofence_set", "admin", null, payload);
+        } catch (Exception ignored) {}
+        return describe(index);
+    }
+
+    public void clearGeofence(String gameId) throws IOException {
+        Files.deleteIfExists(gameEventLogger.getBaseDir().resolve(gameId).resolve(FILE_NAME));
+        fences.put(gameId, NONE);
+    }
+
+    /**
+     * The game's geofence as uploaded, or null if it has none.
+     */
+    public String getGeofence(String gameId) {
+        return fence(gameId).geoJson;
+    }
+
+    public boolean isInside(String gameId, double latitude, double longitude) {
+        Fence fence = fence(gameId);
+        return fence.index == null || fence.index.contains(latitude, longitude);
+    }
+
+    /**
+     * Check the team's current location; emits an event only when the team crosses the boundary.
+     */
+    public void checkLocation(Game game, Team team) {
+        Fence fence = fence(game.getId());
+        Team.TeamLocation loc = team.getLocation();
+        if (fence.index == null || loc == null) return;
+        boolean out = !fence.index.contains(loc.getLatitude(), loc.getLongitude());
+        Boolean previous = fence.outside.put(team.getId(), out);
+        // A team first seen inside is simply in bounds; first seen outside is reported
+        if (previous == null ? !out : previous == out) return;
+
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("teamId", team.getId());
+            payload.put("latitude", loc.getLatitude());
+            payload.put("longitude", loc.getLongitude());
+            gameEventLogger.appendEvent(game.getId(), out ? "team.out_of_bounds" : "team.in_bounds", "team", team.getId(), payload);
+        } catch (Exception ignored) {}
+        if (out) {
+            String gameId = game.getId();
+            String teamId = team.getId();
+            String teamName = team.getName();
+            notifier.execute(() -> pushService.notifyOutOfBounds(gameId, teamId, teamName));
+        }
+    }
+
+    /**
+     * Teams currently outside the play area.
+     */
+    public List<String> getOutOfBoundsTeams(String gameId) {
+        List<String> teamIds = new ArrayList<>();
+        fence(gameId).outside.forEach((teamId, out) -> {
+            if (out) teamIds.add(teamId);
+        });
+        return teamIds;
+    }
+
+    private Fence fence(String gameId) {
+        return fences.computeIfAbsent(gameId, id -> {
+            Path file = gameEventLogger.getBaseDir().resolve(id).resolve(FILE_NAME);
+            if (!Files.isRegularFile(file)) return NONE;
+            try {
+                String geoJson = Files.readString(file, StandardCharsets.UTF_8);
+                return new Fence(compile(geoJson), geoJson);
+            } catch (Exception e) {
+                logger.warn("Ignoring unreadable geofence for game {}: {}", id, e.getMessage());
+                return NONE;
+            }
+        });
+    }
+
+    @Scheduled(fixedRate = 600000, initialDelay = 600000)
+    public void forgetRemovedGames() {
+        fences.keySet().removeIf(gameId -> gameStore.getGame(gameId) == null);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    private GeofenceIndex compile(String geoJson) {
+        JsonNode root;
+        try {
+            root = mapper.readTree(geoJson);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid GeoJSON: " + e.getMessage());
+        }
+        List<double[][]> rings = new ArrayList<>();
+        collectRings(root, rings);
+        if (rings.isEmpty()) {
+            throw new IllegalArgumentException("GeoJSON contains no Polygon or MultiPolygon");
+        }
+        return new GeofenceIndex(rings);
+    }
+
+    private void collectRings(JsonNode node, List<double[][]> rings) {
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Invalid GeoJSON object");
+        }
+        String type = node.path("type").asText();
+        switch (type) {
+            case "FeatureCollection" -> {
+                for (JsonNode feature : node.path("features")) collectRings(feature, rings);
+            }
+            case "Feature" -> collectRings(node.get("geometry"), rings);
+            case "GeometryCollection" -> {
+                for (JsonNode geometry : node.path("geometries")) collectRings(geometry, rings);
+            }
+            case "Polygon" -> addPolygon(node.path("coordinates"), rings);
+            case "MultiPolygon" -> {
+                for (JsonNode polygon : node.path("coordinates")) addPolygon(polygon, rings);
+            }
+            default -> throw new IllegalArgumentException("Unsupported GeoJSON type: " + type);
+        }
+    }
+
+    // Outer ring and holes alike; the even-odd rule cuts holes out
+    private void addPolygon(JsonNode polygon, List<double[][]> rings) {
+        for (JsonNode ring : polygon) {
+            int n = ring.size();
+            // GeoJSON repeats the first position at the end
+            if (n > 1 && ring.get(0).equals(ring.get(n - 1))) n--;
+            if (n < 3) throw new IllegalArgumentException("Polygon ring needs at least 3 positions");
+            double[] lons = new double[n];
+            double[] lats = new double[n];
+            for (int i = 0; i < n; i++) {
+                JsonNode position = ring.get(i);
+                double lon = position.path(0).asDouble(Double.NaN);
+                double lat = position.path(1).asDouble(Double.NaN);
+                if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180)) {
+                    throw new IllegalArgumentException("Invalid position in polygon ring: " + position);
+                }
+                lons[i] = lon;
+                lats[i] = lat;
+            }
+            rings.add(new double[][]{lons, lats});
+        }
+    }
+
+    private Map<String, Object> describe(GeofenceIndex index) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("edges", index.getEdgeCount());
+        info.put("cells", index.getCellCount());
+        info.put("boundaryCells", index.getBoundaryCellCount());
+        info.put("bounds", index.getBounds());
+        return info;
+    }
+}
@@ -0,0 +1,128 @@
+package com.hideandseek.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Hashed timing wheel: a ring of buckets, one per tick, turned by a single daemon thread. A timeout
+ * goes into the bucket its deadline falls in, with the number of full turns left before it is due,
+ * so scheduling and cancelling are O(1) and each tick only looks at one bucket. Timeouts fire
+ * within one tick after their deadline, on the given executor so slow tasks do not hold up the wheel.
+ */
+final class HashedTimingWheel {
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private final long tickMs;
+    private final List<List<Timeout>> buckets;
+    private final Executor executor;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean running = true;
+    // Ticks processed so far; only touched by the worker
+    private long tick;
+
+    final class Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * Stop the timeout from firing; the worker drops it when it next visits its bucket.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+    }
+
+    HashedTimingWheel(long tickMs, int wheelSize, Executor executor, String threadName) {
+        this.tickMs = Math.max(1, tickMs);
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) buckets.add(new ArrayList<>());
+        this.executor = executor;
+        this.startTime = System.currentTimeMillis();
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Run the task at the given wall-clock time (ms); deadlines in the past fire on the next tick.
+     */
+    Timeout schedule(long deadline, Runnable task) {
+        Timeout timeout = new Timeout(deadline, task);
+        added.add(timeout);
+        return timeout;
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long nextTickAt = startTime + (tick + 1) * tickMs;
+            long sleep = nextTickAt - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                    continue;
+                }
+            }
+            tick++;
+            transferAdded();
+            expire(buckets.get((int) (tick & (buckets.size() - 1))));
+        }
+    }
+
+    // Place newly scheduled timeouts; done on the worker so buckets need no locking
+    private void transferAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) continue;
+            long dueTick = Math.max(tick, (timeout.deadline - startTime + tickMs - 1) / tickMs);
+            timeout.remainingRounds = (dueTick - tick) / buckets.size();
+            buckets.get((int) (dueTick & (buckets.size() - 1))).add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        Iterator<Timeout> it = bucket.iterator();
+        while (it.hasNext()) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                it.remove();
+                try {
+                    executor.execute(timeout.task);
+                } catch (Exception e) {
+                    logger.warn("Failed to run timeout task: {}", e.getMessage());
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.Game;
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import com.hideandseek.util.GeoUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a location fix is worth a game broadcast. Each team's fixes are smoothed with an
+ * exponential moving average to absorb GPS jitter; a broadcast goes out when the smoothed position
+ * moved at least minMovementMeters since the last published one and the role's publish interval
+ * has passed, or when the team has been silent for maxSilenceMs.
+ * Only broadcasts are affected: raw fixes still go to the live location, trail and clue lookups.
+ */
+@Service
+public class LocationBroadcastFilter {
+
+    private final GameStore gameStore;
+    private final double minMovementMeters;
+    private final long seekerIntervalMs;
+    private final long hiderIntervalMs;
+    private final long maxSilenceMs;
+    private final double smoothing;
+    // gameId -> teamId -> filter state
+    private final Map<String, Map<String, TeamState>> states = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public LocationBroadcastFilter(GameStore gameStore,
+                                   @Value("${locations.broadcast.minMovementMeters:15}") double minMovementMeters,
+                                   @Value("${locations.broadcast.seekerIntervalMs:5000}") long seekerIntervalMs,
+                                   @Value("${locations.broadcast.hiderIntervalMs:20000}") long hiderIntervalMs,
+                                   @Value("${locations.broadcast.maxSilenceMs:120000}") long maxSilenceMs,
+                                   @Value("${locations.broadcast.smoothing:0.5}") double smoothing) {
+        this.gameStore = gameStore;
+        this.minMovementMeters = Math.max(0, minMovementMeters);
+        this.seekerIntervalMs = Math.max(0, seekerIntervalMs);
+        this.hiderIntervalMs = Math.max(0, hiderIntervalMs);
+        this.maxSilenceMs = maxSilenceMs;
+        // Weight of the newest fix; 1 disables smoothing
+        this.smoothing = Math.min(1.0, Math.max(0.05, smoothing));
+    }
+
+    /**
+     * Feed the team's current (raw) location; returns true when the game should be broadcast.
+     */
+    public boolean shouldBroadcast(Game game, Team team) {
+        Team.TeamLocation loc = team.getLocation();
+        if (loc == null) return true;
+        long now = System.currentTimeMillis();
+        TeamState state = states.computeIfAbsent(game.getId(), k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(team.getId(), k -> new TeamState());
+        boolean publish;
+        synchronized (state) {
+            if (!state.initialized) {
+                state.lat = loc.getLatitude();
+                state.lon = loc.getLongitude();
+                state.initialized = true;
+                publish = true;
+            } else {
+                state.lat += smoothing * (loc.getLatitude() - state.lat);
+                state.lon += smoothing * (loc.getLongitude() - state.lon);
+                long sincePublish = now - state.publishedAt;
+                long interval = "seeker".equals(team.getRole()) ? seekerIntervalMs : hiderIntervalMs;
+                boolean moved = GeoUtils.distanceMeters(state.publishedLat, state.publishedLon, state.lat, state.lon) >= minMovementMeters;
+                publish = (moved && sincePublish >= interval) || (maxSilenceMs > 0 && sincePublish >= maxSilenceMs);
+            }
+            if (publish) {
+                state.publishedLat = state.lat;
+                state.publishedLon = state.lon;
+                state.publishedAt = now;
+            }
+        }
+        (publish ? published : suppressed).incrementAndGet();
+        return publish;
+    }
+
+    /**
+     * Smoothed position of a team as last fed to the filter, or null if unknown.
+     */
+    public double[] getSmoothedLocation(String gameId, String teamId) {
+        Map<String, TeamState> teams = states.get(gameId);
+        TeamState state = teams != null ? teams.get(teamId) : null;
+        if (state == null) return null;
+        synchronized (state) {
+            return state.initialized ? new double[]{state.lat, state.lon} : null;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("published", published.get());
+        stats.put("suppressed", suppressed.get());
+        return stats;
+    }
+
+    @Scheduled(fixedRate = 600000, initialDelay = 600000)
+    public void forgetRemovedGames() {
+        states.keySet().removeIf(gameId -> gameStore.getGame(gameId) == null);
+    }
+
+    private static final class TeamState {
+        boolean initialized;
+        double lat;
+        double lon;
+        double publishedLat;
+        double publishedLon;
+        long publishedAt;
+    }
+}
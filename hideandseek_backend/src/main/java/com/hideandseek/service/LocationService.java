@@ -1,13 +1,20 @@
 package com.hideandseek.service;
 
+import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.logging.LocationSnapshotLogger;
+import com.hideandseek.logging.TeamTrailStore;
 import com.hideandseek.model.Game;
 import com.hideandseek.model.Team;
 import com.hideandseek.model.Location;
 import com.hideandseek.store.GameStore;
 import com.hideandseek.websocket.GameWebSocketHandler;
+import com.hideandseek.websocket.LocationFrameBroadcaster;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+
 @Service
 public class LocationService {
 
@@ -17,6 +24,33 @@ public class LocationService {
     @Autowired
     private GameWebSocketHandler webSocketHandler;
 
+    @Autowired
+    private LocationSnapshotLogger locationSnapshotLogger;
+
+    @Autowired
+    private TeamTrailStore teamTrailStore;
+
+    @Autowired
+    private GameEventLogger gameEventLogger;
+
+    @Autowired
+    private LocationBroadcastFilter broadcastFilter;
+
+    @Autowired
+    private LocationFrameBroadcaster locationFrames;
+
+    @Autowired
+    private GeofenceService geofenceService;
+
+    @Autowired
+    private ProximityAlertService proximityAlertService;
+
+    @PostConstruct
+    public void registerWebSocketLocations() {
+        // "loc" messages on an already open /ws session take the same path as POST /api/location/update
+        webSocketHandler.setLocationHandler(this::updateLocation);
+    }
+
     public void updateLocation(String gameId, String teamId, double latitude, double longitude) {
         Game game = gameStore.getGame(gameId);
         if (game == null) {
@@ -39,8 +73,103 @@ public class LocationService {
 
         team.setCurrentLocation(location);
         gameStore.updateGame(game);
+        Team.TeamLocation stored = team.getLocation();
+        teamTrailStore.append(gameId, teamId, stored.getLatitude(), stored.getLongitude(), stored.getTimestamp());
+        gameStore.updateTeamLocationIndex(gameId, team);
+        locationSnapshotLogger.recordLocation(game, team);
+        geofenceService.checkLocation(game, team);
+        proximityAlertService.onLocation(game, team);
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("teamId", teamId);
+            payload.put("latitude", stored.getLatitude());
+            payload.put("longitude", stored.getLongitude());
+            payload.put("timestamp", stored.getTimestamp());
+            gameEventLogger.appendEvent(gameId, "team.location_update", "team", teamId, payload);
+        } catch (Exception ignored) {}
+
+        // Publish the move in the next compact locations frame, unless it is jitter or too soon for the team's role
+        publishMove(game, team);
+    }
+
+    /**
+     * Apply a batch of timestamped fixes, e.g. queued by the app while it was in the background.
+     * Fixes newer than the team's current location go to the trail in time order; only the newest
+     * becomes the live location. Emits at most one locations frame entry and one team.location_update event per batch.
+     */
+    public Map<String, Object> updateLocationBatch(String gameId, String teamId, List<Location> fixes) {
+        Game game = gameStore.getGame(gameId);
+        if (game == null) {
+            throw new IllegalArgumentException("Game not found");
+        }
+
+        if (!"active".equals(game.getStatus())) {
+            throw new IllegalStateException("Cannot update location when game is not active");
+        }
+
+        Team team = gameStore.getTeam(gameId, teamId);
+        if (team == null) {
+            throw new IllegalArgumentException("Team not found");
+        }
+
+        long now = System.currentTimeMillis();
+        List<Location> ordered = new ArrayList<>(fixes.size());
+        for (Location fix : fixes) {
+            if (fix == null) continue;
+            // Fixes without a usable timestamp count as taken now; future timestamps are clamped
+            if (fix.getTimestamp() <= 0 || fix.getTimestamp() > now) fix.setTimestamp(now);
+            ordered.add(fix);
+        }
+        ordered.sort(Comparator.comparingLong(Location::getTimestamp));
+
+        Team.TeamLocation current = team.getLocation();
+        long lastTs = current != null ? current.getTimestamp() : Long.MIN_VALUE;
+        int appended = 0;
+        Location newest = null;
+        for (Location fix : ordered) {
+            if (fix.getTimestamp() <= lastTs) continue; // older than what we already have
+            teamTrailStore.append(gameId, teamId, fix.getLatitude(), fix.getLongitude(), fix.getTimestamp());
+            lastTs = fix.getTimestamp();
+            newest = fix;
+            appended++;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("received", fixes.size());
+        result.put("applied", appended);
+        result.put("stale", ordered.size() - appended);
+        if (newest == null) {
+            return result;
+        }
+
+        team.setLocation(new Team.TeamLocation(newest.getLatitude(), newest.getLongitude(), newest.getTimestamp()));
+        gameStore.updateGame(game);
+        gameStore.updateTeamLocationIndex(gameId, team);
+        locationSnapshotLogger.recordLocation(game, team);
+        geofenceService.checkLocation(game, team);
+        proximityAlertService.onLocation(game, team);
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("teamId", teamId);
+            payload.put("latitude", newest.getLatitude());
+            payload.put("longitude", newest.getLongitude());
+            payload.put("timestamp", newest.getTimestamp());
+            payload.put("batchSize", appended);
+            gameEventLogger.appendEvent(gameId, "team.location_update", "team", teamId, payload);
+        } catch (Exception ignored) {}
+
+        publishMove(game, team);
+        result.put("timestamp", newest.getTimestamp());
+        return result;
+    }
 
-        // Broadcast location update to WebSocket
-        webSocketHandler.broadcastToGame(gameId, game);
+    private void publishMove(Game game, Team team) {
+        if (!broadcastFilter.shouldBroadcast(game, team)) return;
+        // Smoothed position for display; the raw fix stays in team.getLocation() for clues and history
+        double[] smoothed = broadcastFilter.getSmoothedLocation(game.getId(), team.getId());
+        Team.TeamLocation loc = team.getLocation();
+        double lat = smoothed != null ? smoothed[0] : loc.getLatitude();
+        double lon = smoothed != null ? smoothed[1] : loc.getLongitude();
+        locationFrames.queue(game.getId(), team.getId(), lat, lon, loc.getTimestamp());
     }
 }
@@ -0,0 +1,276 @@
+package com.hideandseek.service;
+
+import com.hideandseek.util.GeoUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Nearest-landmark lookup over a read-only index file written by PoiIndexBuilder. Points are
+ * bucketed into a uniform grid of roughly CELL_METERS; a query scans rings of cells outward from
+ * the query's cell and stops once the next ring cannot hold anything closer. The file is memory
+ * mapped, so startup costs nothing and the OS pages in only the cells a game actually plays in.
+ * Distances are equirectangular meters, which is fine at city scale.
+ * Immutable after loading and safe to share between threads (only absolute reads are used).
+ *
+ * <pre>
+ * header   magic, version, count, cols, rows, minLatE7, minLonE7, cellLatE7, cellLonE7, nameBytes
+ * cells    int[cols * rows + 1], record index where each cell starts (row-major)
+ * records  count x {int latE7, int lonE7, int category << 28 | nameOffset}
+ * names    per name: unsigned short length + UTF-8 bytes
+ * </pre>
+ */
+final class PoiIndex {
+    static final int MAGIC = 0x504F4931; // "POI1"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 12;
+    private static final int NAME_OFFSET_MASK = 0x0FFFFFFF;
+    private static final double CELL_METERS = 250;
+    private static final int MAX_CELLS_PER_AXIS = 4096;
+    // Meters per 1e-7 degree of latitude, and of longitude at the equator
+    static final double METERS_PER_E7 = GeoUtils.METERS_PER_DEGREE_LON / 1e7;
+
+    /** Landmark kinds a hider may answer with; ordinal is stored in the file. */
+    enum Category {
+        STREET("street"),
+        LIBRARY("library"),
+        MUSEUM("museum"),
+        PARKING("parking lot");
+
+        private final String label;
+
+        Category(String label) {
+            this.label = label;
+        }
+
+        String getLabel() { return label; }
+    }
+
+    /** A lookup result. */
+    static final class Hit {
+        private final String name;
+        private final Category category;
+        private final double distanceMeters;
+
+        Hit(String name, Category category, double distanceMeters) {
+            this.name = name;
+            this.category = category;
+            this.distanceMeters = distanceMeters;
+        }
+
+        String getName() { return name; }
+        Category getCategory() { return category; }
+        double getDistanceMeters() { return distanceMeters; }
+    }
+
+    private final ByteBuffer data;
+    private final int count;
+    private final int cols;
+    private final int rows;
+    private final int minLat;
+    private final int minLon;
+    private final int cellLat;
+    private final int cellLon;
+    private final int cellsAt;
+    private final int recordsAt;
+    private final int namesAt;
+
+    private PoiIndex(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a POI index file");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported POI index version " + data.getInt(4));
+        }
+        this.count = data.getInt(8);
+        this.cols = data.getInt(12);
+        this.rows = data.getInt(16);
+        this.minLat = data.getInt(20);
+        this.minLon = data.getInt(24);
+        this.cellLat = data.getInt(28);
+        this.cellLon = data.getInt(32);
+        int nameBytes = data.getInt(36);
+        this.cellsAt = HEADER_BYTES;
+        this.recordsAt = cellsAt + (cols * rows + 1) * 4;
+        this.namesAt = recordsAt + count * RECORD_BYTES;
+        if (cols <= 0 || rows <= 0 || cellLat <= 0 || cellLon <= 0 || (long) namesAt + nameBytes > data.capacity()) {
+            throw new IOException("Truncated or corrupt POI index file");
+        }
+    }
+
+    /**
+     * Map an index file read-only.
+     */
+    static PoiIndex load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PoiIndex(mapped.order(ByteOrder.BIG_ENDIAN));
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * The closest landmark within maxMeters of the point, or null if there is none.
+     */
+    Hit nearest(double latitude, double longitude, double maxMeters) {
+        int qLat = (int) Math.round(latitude * 1e7);
+        int qLon = (int) Math.round(longitude * 1e7);
+        double yScale = METERS_PER_E7;
+        double xScale = METERS_PER_E7 * Math.cos(Math.toRadians(latitude));
+        // Anything outside ring r is at least r cells away on the shorter axis
+        double ringStep = Math.min(cellLat * yScale, cellLon * xScale);
+
+        int cx = clamp(Math.floorDiv(qLon - minLon, cellLon), cols);
+        int cy = clamp(Math.floorDiv(qLat - minLat, cellLat), rows);
+        int maxRing = Math.max(Math.max(cx, cols - 1 - cx), Math.max(cy, rows - 1 - cy));
+
+        double best = maxMeters * maxMeters;
+        int bestRecord = -1;
+        for (int r = 0; r <= maxRing; r++) {
+            double reach = (r - 1) * ringStep;
+            if (r > 0 && reach > 0 && reach * reach >= best) break;
+            int y0 = Math.max(0, cy - r);
+            int y1 = Math.min(rows - 1, cy + r);
+            for (int y = y0; y <= y1; y++) {
+                boolean edgeRow = y == cy - r || y == cy + r;
+                int step = edgeRow ? 1 : 2 * r;
+                for (int x = cx - r; x <= cx + r; x += Math.max(1, step)) {
+                    if (x < 0 || x >= cols) continue;
+                    int cell = y * cols + x;
+                    int end = data.getInt(cellsAt + (cell + 1) * 4);
+                    for (int i = data.getInt(cellsAt + cell * 4); i < end; i++) {
+                        int at = recordsAt + i * RECORD_BYTES;
+                        double dy = (data.getInt(at) - qLat) * yScale;
+                        double dx = (data.getInt(at + 4) - qLon) * xScale;
+                        double d = dx * dx + dy * dy;
+                        if (d < best) {
+                            best = d;
+                            bestRecord = i;
+                        }
+                    }
+                }
+            }
+        }
+        if (bestRecord < 0) return null;
+        int packed = data.getInt(recordsAt + bestRecord * RECORD_BYTES + 8);
+        return new Hit(name(packed & NAME_OFFSET_MASK), Category.values()[packed >>> 28], Math.sqrt(best));
+    }
+
+    private String name(int offset) {
+        int at = namesAt + offset;
+        int length = Short.toUnsignedInt(data.getShort(at));
+        byte[] bytes = new byte[length];
+        data.get(at + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * Write an index of the first count points (coordinates in 1e-7 degrees) atomically to target.
+     */
+    static void write(Path target, int count, int[] lat, int[] lon, byte[] category, String[] names) throws IOException {
+        int minLat = Integer.MAX_VALUE, maxLat = Integer.MIN_VALUE, minLon = Integer.MAX_VALUE, maxLon = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            minLat = Math.min(minLat, lat[i]);
+            maxLat = Math.max(maxLat, lat[i]);
+            minLon = Math.min(minLon, lon[i]);
+            maxLon = Math.max(maxLon, lon[i]);
+        }
+        if (count == 0) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+        double midLat = (minLat + (double) maxLat) / 2e7;
+        int cellLat = cellSize((long) maxLat - minLat, CELL_METERS / METERS_PER_E7);
+        int cellLon = cellSize((long) maxLon - minLon,
+                CELL_METERS / (METERS_PER_E7 * Math.max(0.01, Math.cos(Math.toRadians(midLat)))));
+        int cols = (int) (((long) maxLon - minLon) / cellLon) + 1;
+        int rows = (int) (((long) maxLat - minLat) / cellLat) + 1;
+
+        // Counting sort of the points into cells
+        int[] cellOf = new int[count];
+        int[] cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < count; i++) {
+            int x = (int) (((long) lon[i] - minLon) / cellLon);
+            int y = (int) (((long) lat[i] - minLat) / cellLat);
+            cellOf[i] = y * cols + x;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] order = new int[count];
+        int[] fill = Arrays.copyOf(cellStart, cols * rows);
+        for (int i = 0; i < count; i++) {
+            order[fill[cellOf[i]]++] = i;
+        }
+
+        // Names are shared, e.g. by every point along a street
+        Map<String, Integer> nameOffsets = new HashMap<>();
+        ByteBuffer namePool = ByteBuffer.allocate(1 << 16);
+        int[] nameOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            Integer offset = nameOffsets.get(names[i]);
+            if (offset == null) {
+                byte[] bytes = names[i].getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > 0xFFFF) bytes = Arrays.copyOf(bytes, 0xFFFF);
+                if (namePool.remaining() < bytes.length + 2) {
+                    namePool = ByteBuffer.allocate(Math.max(namePool.capacity() * 2, namePool.position() + bytes.length + 2))
+                            .put(namePool.flip());
+                }
+                offset = namePool.position();
+                if (offset > NAME_OFFSET_MASK) throw new IOException("Too many distinct names for the index format");
+                namePool.putShort((short) bytes.length).put(bytes);
+                nameOffsets.put(names[i], offset);
+            }
+            nameOf[i] = offset;
+        }
+
+        int nameBytes = namePool.position();
+        long total = (long) HEADER_BYTES + (cols * rows + 1) * 4L + (long) count * RECORD_BYTES + nameBytes;
+        if (total > Integer.MAX_VALUE) throw new IOException("POI index would exceed 2 GB; use a smaller extract");
+        ByteBuffer out = ByteBuffer.allocate((int) total).order(ByteOrder.BIG_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(cols).putInt(rows)
+                .putInt(minLat).putInt(minLon).putInt(cellLat).putInt(cellLon).putInt(nameBytes);
+        out.position(HEADER_BYTES);
+        for (int start : cellStart) {
+            out.putInt(start);
+        }
+        for (int i : order) {
+            out.putInt(lat[i]).putInt(lon[i]).putInt(category[i] << 28 | nameOf[i]);
+        }
+        out.put(namePool.flip());
+
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "pois-", ".part");
+        try {
+            Files.write(temp, out.array());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    // Cell edge in 1e-7 degrees: about CELL_METERS, coarser when the extract is very large
+    private static int cellSize(long span, double target) {
+        return (int) Math.max(1, Math.max(Math.round(target), span / (MAX_CELLS_PER_AXIS - 1) + 1));
+    }
+}
@@ -0,0 +1,222 @@
+package com.hideandseek.service;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Build step for the closest-building POI index: converts an OpenStreetMap XML extract (.osm or
+ * .osm.gz; convert .pbf first, e.g. with osmium cat) into the file PoiIndex maps at startup.
+ * Named highways become streets, sampled at their nodes and every STREET_STEP_METERS along each
+ * segment; libraries, museums and parking lots are taken from nodes, or ways at their centroid.
+ * Run with the poi-index Maven profile, or directly:
+ *
+ * <pre>
+ * java -cp target/classes com.hideandseek.service.PoiIndexBuilder city.osm.gz pois.idx
+ * </pre>
+ */
+public final class PoiIndexBuilder {
+
+    private static final double STREET_STEP_METERS = 40;
+
+    // Node coordinates, by id; OSM files list nodes in id order, anything else is sorted once
+    private long[] nodeIds = new long[1 << 16];
+    private int[] nodeLat = new int[1 << 16];
+    private int[] nodeLon = new int[1 << 16];
+    private int nodes;
+    private boolean nodesSorted = true;
+
+    // Points collected for the index
+    private int[] lat = new int[1 << 12];
+    private int[] lon = new int[1 << 12];
+    private byte[] category = new byte[1 << 12];
+    private String[] names = new String[1 << 12];
+    private int count;
+
+    private PoiIndexBuilder() {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("Usage: PoiIndexBuilder <extract.osm[.gz]> <output.idx>");
+            System.exit(2);
+        }
+        long started = System.nanoTime();
+        PoiIndexBuilder builder = new PoiIndexBuilder();
+        builder.read(Path.of(args[0]));
+        Path output = Path.of(args[1]);
+        builder.write(output);
+        System.out.printf("Indexed %d points into %s (%d bytes) in %d ms%n", builder.count, output,
+                Files.size(output), (System.nanoTime() - started) / 1000000);
+    }
+
+    private void read(Path extract) throws IOException, XMLStreamException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(extract), 1 << 16);
+             InputStream in = extract.toString().endsWith(".gz") ? new GZIPInputStream(raw, 1 << 16) : raw) {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                parse(xml);
+            } finally {
+                xml.close();
+            }
+        }
+    }
+
+    private void parse(XMLStreamReader xml) throws XMLStreamException {
+        Map<String, String> tags = new HashMap<>();
+        List<Long> wayNodes = new ArrayList<>();
+        int nodeLatE7 = 0, nodeLonE7 = 0;
+        while (xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "node" -> {
+                        tags.clear();
+                        nodeLatE7 = toE7(xml.getAttributeValue(null, "lat"));
+                        nodeLonE7 = toE7(xml.getAttributeValue(null, "lon"));
+                        addNode(Long.parseLong(xml.getAttributeValue(null, "id")), nodeLatE7, nodeLonE7);
+                    }
+                    case "way" -> {
+                        tags.clear();
+                        wayNodes.clear();
+                    }
+                    case "relation" -> tags.clear();
+                    case "nd" -> wayNodes.add(Long.parseLong(xml.getAttributeValue(null, "ref")));
+                    case "tag" -> tags.put(xml.getAttributeValue(null, "k"), xml.getAttributeValue(null, "v"));
+                    default -> {}
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                switch (xml.getLocalName()) {
+                    case "node" -> {
+                        PoiIndex.Category kind = landmarkOf(tags);
+                        if (kind != null) add(nodeLatE7, nodeLonE7, kind, tags.get("name"));
+                    }
+                    case "way" -> addWay(tags, wayNodes);
+                    default -> {}
+                }
+            }
+        }
+    }
+
+    // Libraries, museums and parking lots; streets only come from ways
+    private static PoiIndex.Category landmarkOf(Map<String, String> tags) {
+        String name = tags.get("name");
+        if (name == null || name.isBlank()) return null;
+        if ("library".equals(tags.get("amenity"))) return PoiIndex.Category.LIBRARY;
+        if ("museum".equals(tags.get("tourism"))) return PoiIndex.Category.MUSEUM;
+        if ("parking".equals(tags.get("amenity"))) return PoiIndex.Category.PARKING;
+        return null;
+    }
+
+    private void addWay(Map<String, String> tags, List<Long> wayNodes) {
+        String name = tags.get("name");
+        if (name == null || name.isBlank() || wayNodes.isEmpty()) return;
+        PoiIndex.Category kind = landmarkOf(tags);
+        if (kind != null) {
+            // Building or lot outline: its centroid (closed ways repeat the first node)
+            long sumLat = 0, sumLon = 0;
+            int found = 0;
+            int n = wayNodes.size() > 1 && wayNodes.get(0).equals(wayNodes.get(wayNodes.size() - 1)) ? wayNodes.size() - 1 : wayNodes.size();
+            for (int i = 0; i < n; i++) {
+                int at = findNode(wayNodes.get(i));
+                if (at < 0) continue;
+                sumLat += nodeLat[at];
+                sumLon += nodeLon[at];
+                found++;
+            }
+            if (found > 0) add((int) (sumLat / found), (int) (sumLon / found), kind, name);
+        } else if (tags.containsKey("highway")) {
+            int previous = -1;
+            for (Long ref : wayNodes) {
+                int at = findNode(ref);
+                if (at < 0) continue;
+                if (previous >= 0) {
+                    addSegment(nodeLat[previous], nodeLon[previous], nodeLat[at], nodeLon[at], name);
+                } else {
+                    add(nodeLat[at], nodeLon[at], PoiIndex.Category.STREET, name);
+                }
+                previous = at;
+            }
+        }
+    }
+
+    // Points along a street segment after its start, at most STREET_STEP_METERS apart
+    private void addSegment(int lat0, int lon0, int lat1, int lon1, String name) {
+        double dy = (lat1 - lat0) * PoiIndex.METERS_PER_E7;
+        double dx = (lon1 - lon0) * PoiIndex.METERS_PER_E7 * Math.cos(Math.toRadians(lat0 / 1e7));
+        int steps = Math.max(1, (int) Math.ceil(Math.hypot(dx, dy) / STREET_STEP_METERS));
+        for (int s = 1; s <= steps; s++) {
+            add((int) (lat0 + (long) (lat1 - lat0) * s / steps), (int) (lon0 + (long) (lon1 - lon0) * s / steps),
+                    PoiIndex.Category.STREET, name);
+        }
+    }
+
+    private void addNode(long id, int latE7, int lonE7) {
+        if (nodes == nodeIds.length) {
+            nodeIds = Arrays.copyOf(nodeIds, nodes * 2);
+            nodeLat = Arrays.copyOf(nodeLat, nodes * 2);
+            nodeLon = Arrays.copyOf(nodeLon, nodes * 2);
+        }
+        if (nodes > 0 && id <= nodeIds[nodes - 1]) nodesSorted = false;
+        nodeIds[nodes] = id;
+        nodeLat[nodes] = latE7;
+        nodeLon[nodes] = lonE7;
+        nodes++;
+    }
+
+    private int findNode(long id) {
+        if (!nodesSorted) sortNodes();
+        int at = Arrays.binarySearch(nodeIds, 0, nodes, id);
+        return at >= 0 ? at : -1;
+    }
+
+    private void sortNodes() {
+        Integer[] order = new Integer[nodes];
+        for (int i = 0; i < nodes; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingLong(i -> nodeIds[i]));
+        long[] ids = new long[nodeIds.length];
+        int[] lats = new int[nodeIds.length];
+        int[] lons = new int[nodeIds.length];
+        for (int i = 0; i < nodes; i++) {
+            ids[i] = nodeIds[order[i]];
+            lats[i] = nodeLat[order[i]];
+            lons[i] = nodeLon[order[i]];
+        }
+        nodeIds = ids;
+        nodeLat = lats;
+        nodeLon = lons;
+        nodesSorted = true;
+    }
+
+    private void add(int latE7, int lonE7, PoiIndex.Category kind, String name) {
+        if (count == lat.length) {
+            lat = Arrays.copyOf(lat, count * 2);
+            lon = Arrays.copyOf(lon, count * 2);
+            category = Arrays.copyOf(category, count * 2);
+            names = Arrays.copyOf(names, count * 2);
+        }
+        lat[count] = latE7;
+        lon[count] = lonE7;
+        category[count] = (byte) kind.ordinal();
+        names[count] = name.strip();
+        count++;
+    }
+
+    private void write(Path output) throws IOException {
+        PoiIndex.write(output, count, lat, lon, category, names);
+    }
+
+    private static int toE7(String degrees) {
+        return (int) Math.round(Double.parseDouble(degrees) * 1e7);
+    }
+}
@@ -0,0 +1,193 @@
+package com.hideandseek.service;
+
+import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Seeker-hider proximity alerts, driven by location fixes. A fix only rechecks the pairs that
+ * involve the moving team: opponents in the grid cells within exitMeters (from the GameStore
+ * spatial index) and pairs that were already close. A pair becomes close at enterMeters and is
+ * only cleared beyond exitMeters, so GPS jitter around the threshold does not flap.
+ * Crossings are logged as proximity.entered / proximity.left; the hider can optionally get a push.
+ */
+@Service
+public class ProximityAlertService {
+
+    private final GameStore gameStore;
+    private final GameEventLogger gameEventLogger;
+    private final PushService pushService;
+    private final double enterMeters;
+    private final double exitMeters;
+    private final long cooldownMs;
+    private final boolean pushEnabled;
+    private final Map<String, GameAlerts> games = new ConcurrentHashMap<>();
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "proximity-push");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ProximityAlertService(GameStore gameStore, GameEventLogger gameEventLogger, PushService pushService,
+                                 @Value("${proximity.enterMeters:50}") double enterMeters,
+                                 @Value("${proximity.exitMeters:75}") double exitMeters,
+                                 @Value("${proximity.cooldownMs:60000}") long cooldownMs,
+                                 @Value("${proximity.push.enabled:false}") boolean pushEnabled) {
+        this.gameStore = gameStore;
+        this.gameEventLogger = gameEventLogger;
+        this.pushService = pushService;
+        this.enterMeters = Math.max(1, enterMeters);
+        this.exitMeters = Math.max(this.enterMeters, exitMeters);
+        this.cooldownMs = Math.max(0, cooldownMs);
+        this.pushEnabled = pushEnabled;
+    }
+
+    private static final class GameAlerts {
+        // "seekerId|hiderId" -> pair state
+        final Map<String, Pair> pairs = new HashMap<>();
+        // teamId -> keys of its close pairs, so a fix can clear pairs that left the neighbourhood
+        final Map<String, Set<String>> closeByTeam = new HashMap<>();
+    }
+
+    private static final class Pair {
+        final String seekerId;
+        final String hiderId;
+        boolean close;
+        // Whether the current close spell was announced; a suppressed entry gets no matching "left"
+        boolean announced;
+        long closeSince;
+        long lastAlertAt;
+
+        Pair(String seekerId, String hiderId) {
+            this.seekerId = seekerId;
+            this.hiderId = hiderId;
+        }
+    }
+
+    /**
+     * Recheck the pairs of a team after its location changed (after GameStore.updateTeamLocationIndex).
+     */
+    public void onLocation(Game game, Team team) {
+        if (!"active".equals(game.getStatus()) || team.getLocation() == null) return;
+        String role = team.getRole();
+        String opponentRole;
+        if ("seeker".equals(role)) opponentRole = "hider";
+        else if ("hider".equals(role)) opponentRole = "seeker";
+        else return;
+
+        Map<String, Double> nearby = gameStore.getTeamsWithinRange(game.getId(), team, exitMeters, opponentRole);
+        GameAlerts alerts = games.computeIfAbsent(game.getId(), k -> new GameAlerts());
+        List<Runnable> emit = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (alerts) {
+            for (Map.Entry<String, Double> e : nearby.entrySet()) {
+                String seekerId = "seeker".equals(role) ? team.getId() : e.getKey();
+                String hiderId = "seeker".equals(role) ? e.getKey() : team.getId();
+                Pair pair = alerts.pairs.computeIfAbsent(seekerId + "|" + hiderId, k -> new Pair(seekerId, hiderId));
+                double distance = e.getValue();
+                if (!pair.close && distance <= enterMeters) {
+                    setClose(alerts, pair, true, now);
+                    // Re-entering right after leaving still counts as close, but is not announced again
+                    if (now - pair.lastAlertAt >= cooldownMs) {
+                        pair.lastAlertAt = now;
+                        pair.announced = true;
+                        emit.add(() -> announce(game, pair, distance, true));
+                    }
+                }
+            }
+            // Close pairs of this team that are no longer within exitMeters, or whose roles changed
+            Set<String> close = alerts.closeByTeam.get(team.getId());
+            if (close != null) {
+                for (String key : new ArrayList<>(close)) {
+                    Pair pair = alerts.pairs.get(key);
+                    String other = pair.seekerId.equals(team.getId()) ? pair.hiderId : pair.seekerId;
+                    if (nearby.containsKey(other)) continue;
+                    setClose(alerts, pair, false, now);
+                    if (!pair.announced) continue;
+                    pair.announced = false;
+                    emit.add(() -> announce(game, pair, gameStore.getTeamDistance(game.getId(), team,
+                            gameStore.getTeam(game.getId(), other)), false));
+                }
+            }
+        }
+        emit.forEach(Runnable::run);
+    }
+
+    private void setClose(GameAlerts alerts, Pair pair, boolean close, long now) {
+        pair.close = close;
+        String key = pair.seekerId + "|" + pair.hiderId;
+        if (close) {
+            pair.closeSince = now;
+            alerts.closeByTeam.computeIfAbsent(pair.seekerId, k -> new HashSet<>()).add(key);
+            alerts.closeByTeam.computeIfAbsent(pair.hiderId, k -> new HashSet<>()).add(key);
+        } else {
+            removeClose(alerts, pair.seekerId, key);
+            removeClose(alerts, pair.hiderId, key);
+        }
+    }
+
+    private static void removeClose(GameAlerts alerts, String teamId, String key) {
+        Set<String> keys = alerts.closeByTeam.get(teamId);
+        if (keys == null) return;
+        keys.remove(key);
+        if (keys.isEmpty()) alerts.closeByTeam.remove(teamId);
+    }
+
+    private void announce(Game game, Pair pair, double distance, boolean entered) {
+        try {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("seekerTeamId", pair.seekerId);
+            payload.put("hiderTeamId", pair.hiderId);
+            if (!Double.isNaN(distance)) payload.put("distanceMeters", Math.round(distance));
+            payload.put("thresholdMeters", entered ? enterMeters : exitMeters);
+            gameEventLogger.appendEvent(game.getId(), entered ? "proximity.entered" : "proximity.left", "system", null, payload);
+        } catch (Exception ignored) {}
+        if (entered && pushEnabled) {
+            String gameId = game.getId();
+            notifier.execute(() -> pushService.notifyProximity(gameId, pair.hiderId, Math.round(enterMeters)));
+        }
+    }
+
+    /**
+     * Currently close seeker-hider pairs of a game.
+     */
+    public List<Map<String, Object>> getActiveAlerts(String gameId) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        GameAlerts alerts = games.get(gameId);
+        if (alerts == null) return result;
+        synchronized (alerts) {
+            for (Pair pair : alerts.pairs.values()) {
+                if (!pair.close) continue;
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("seekerTeamId", pair.seekerId);
+                entry.put("hiderTeamId", pair.hiderId);
+                entry.put("since", pair.closeSince);
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedRate = 600000, initialDelay = 600000)
+    public void forgetInactiveGames() {
+        games.keySet().removeIf(gameId -> {
+            Game game = gameStore.getGame(gameId);
+            return game == null || "ended".equals(game.getStatus());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+    }
+}
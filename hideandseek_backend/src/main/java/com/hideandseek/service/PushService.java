@@ -154,6 +154,42 @@ public class PushService {
         }
     }
 
+    public void notifyOutOfBounds(String gameId, String teamId, String teamName) {
+        try {
+            Set<String> tokens = gameStore.getPushTokens(gameId, teamId);
+            if (tokens == null || tokens.isEmpty()) return;
+            String title = "Out of bounds!";
+            String body = "You have left the play area. Head back inside.";
+            Map<String, Object> data = Map.of(
+                    "event", "out_of_bounds",
+                    "gameId", gameId,
+                    "teamId", teamId,
+                    "teamName", teamName != null ? teamName : ""
+            );
+            sendToTokens(tokens, title, body, data);
+        } catch (Exception e) {
+            logger.warn("Failed to send out-of-bounds notification: {}", e.toString());
+        }
+    }
+
+    public void notifyProximity(String gameId, String hiderTeamId, long meters) {
+        try {
+            Set<String> tokens = gameStore.getPushTokens(gameId, hiderTeamId);
+            if (tokens == null || tokens.isEmpty()) return;
+            String title = "Seekers nearby!";
+            String body = "A seeker team is within " + meters + " m of you.";
+            Map<String, Object> data = Map.of(
+                    "event", "proximity_alert",
+                    "gameId", gameId,
+                    "hiderTeamId", hiderTeamId,
+                    "meters", meters
+            );
+            sendToTokens(tokens, title, body, data);
+        } catch (Exception e) {
+            logger.warn("Failed to send proximity notification: {}", e.toString());
+        }
+    }
+
     public void notifyClueTimeoutReward(String gameId, String requestingTeamId, String targetHiderTeamId, String clueTypeName, String hiderTeamName) {
         try {
             // Notify the requesting seeker team about their reward
@@ -0,0 +1,47 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+@Component
+public class RelativeDirectionClueHandler implements ClueTypeHandler {
+
+    @Override
+    public String getClueTypeId() {
+        return "relative-direction";
+    }
+
+    @Override
+    public Draft createClue(Context context) {
+        List<Target> targets = context.getTargets();
+        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
+        for (Target target : targets) {
+            Team hider = target.getTeam();
+            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
+            hiderData.setDirection(target.getDirection());
+            hiderData.setDistance(target.getDistance());
+            hiderData.setAdditionalData(String.format("Team %s is generally to the %s (%.0fm away)",
+                    hider.getName(), target.getDirection(), target.getDistance()));
+            hiderDataList.add(hiderData);
+        }
+
+        String clueText;
+        if (targets.size() == 1) {
+            clueText = String.format("The hider (%s) is generally to the %s of your current position.",
+                    targets.get(0).getTeam().getName(), targets.get(0).getDirection());
+        } else {
+            StringBuilder directions = new StringBuilder();
+            directions.append(String.format("Found %d hiders within range:\n", targets.size()));
+            for (Target target : targets) {
+                directions.append(String.format("• %s: %s (%.0fm away)\n",
+                        target.getTeam().getName(), target.getDirection(), target.getDistance()));
+            }
+            clueText = directions.toString().trim();
+        }
+
+        return Draft.completed(clueText, "automatic", hiderDataList);
+    }
+}
@@ -0,0 +1,54 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+@Component
+public class SelfieClueHandler implements ClueTypeHandler {
+
+    private static final String INSTRUCTIONS = "Take a selfie of your whole team at arm's length, including your surroundings.\n\n\"Surroundings\" is defined as:\n• The exterior of your nearest building, including its roof,\n• OR the interior of the building you are in,\n• OR if neither are possible, then your photo must capture your general surroundings and can be definitively photo-matched to the IRL spot it was taken at, with no room for doubt.";
+
+    @Override
+    public String getClueTypeId() {
+        return "selfie";
+    }
+
+    @Override
+    public Draft createClue(Context context) {
+        List<Target> targets = context.getTargets();
+        List<PurchasedClue.HiderClueData> hiderDataList = new ArrayList<>();
+        for (Target target : targets) {
+            Team hider = target.getTeam();
+            // Selfie URLs replace the placeholder as responses come in
+            PurchasedClue.HiderClueData hiderData = new PurchasedClue.HiderClueData(hider.getId(), hider.getName());
+            hiderData.setAdditionalData("Pending selfie from " + hider.getName());
+            hiderDataList.add(hiderData);
+        }
+
+        String clueText;
+        if (targets.size() == 1) {
+            clueText = "Waiting for selfie from " + targets.get(0).getTeam().getName() + "...";
+        } else {
+            clueText = String.format("Waiting for selfies from %d hider teams. You'll be able to swipe through all received selfies.", targets.size());
+        }
+
+        Draft draft = Draft.pending(clueText, "photo", hiderDataList);
+        for (Target target : targets) {
+            draft.request(target, INSTRUCTIONS);
+        }
+        return draft;
+    }
+
+    @Override
+    public String describeSingleResponse(PurchasedClue.HiderClueData hider) {
+        return "Selfie received from " + hider.getTeamName();
+    }
+
+    @Override
+    public String describeResponseLine(PurchasedClue.HiderClueData hider) {
+        return "Selfie received";
+    }
+}
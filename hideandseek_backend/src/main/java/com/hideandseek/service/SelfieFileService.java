@@ -0,0 +1,209 @@
+package com.hideandseek.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Looks up uploaded files for serving. Each file's content type and SHA-256 (its strong ETag; for
+ * content-addressed uploads simply the name) are worked out once and remembered while its size and
+ * modification time stay the same. Small files (thumbnails, screen variants) are also kept in an
+ * LRU with a byte budget, so repeated views by every seeker in a game are served from memory;
+ * larger ones are streamed from disk by Spring, which also answers Range and If-None-Match
+ * requests for Resource bodies.
+ */
+@Service
+public class SelfieFileService {
+
+    private static final int MAX_METADATA_ENTRIES = 10000;
+    private static final int HASH_CHUNK_BYTES = 64 * 1024;
+    private static final Pattern CONTENT_ADDRESS = Pattern.compile("[0-9a-f]{64}");
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "webp", "image/webp",
+            "heic", "image/heic",
+            "heif", "image/heif",
+            "gif", "image/gif");
+
+    private final long cacheMaxBytes;
+    private final long cacheMaxEntryBytes;
+    // Access-ordered; both guarded by "this"
+    private final LinkedHashMap<Path, Metadata> metadata = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Metadata> eldest) {
+            return size() > MAX_METADATA_ENTRIES;
+        }
+    };
+    private final LinkedHashMap<Path, byte[]> hot = new LinkedHashMap<>(64, 0.75f, true);
+    private long hotBytes;
+
+    public SelfieFileService(@Value("${uploads.selfies.cache.maxBytes:33554432}") long cacheMaxBytes,
+                             @Value("${uploads.selfies.cache.maxEntryBytes:524288}") long cacheMaxEntryBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.cacheMaxEntryBytes = Math.min(cacheMaxEntryBytes, cacheMaxBytes);
+    }
+
+    private static final class Metadata {
+        final long size;
+        final long modified;
+        final String etag;
+        final MediaType contentType;
+
+        Metadata(long size, long modified, String etag, MediaType contentType) {
+            this.size = size;
+            this.modified = modified;
+            this.etag = etag;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * A file ready to be returned as a ResponseEntity body.
+     */
+    public static final class ServedFile {
+        private final Resource resource;
+        private final String etag;
+        private final MediaType contentType;
+
+        ServedFile(Resource resource, String etag, MediaType contentType) {
+            this.resource = resource;
+            this.etag = etag;
+            this.contentType = contentType;
+        }
+
+        public Resource getResource() { return resource; }
+        public String getETag() { return etag; }
+        public MediaType getContentType() { return contentType; }
+    }
+
+    /**
+     * The file for serving, or null if it does not exist. Costs one stat when its metadata is known.
+     */
+    public ServedFile open(Path file) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            forget(file);
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        Metadata known;
+        byte[] cached;
+        synchronized (this) {
+            known = metadata.get(file);
+            if (known != null && (known.size != size || known.modified != modified)) {
+                forget(file);
+                known = null;
+            }
+            cached = known != null ? hot.get(file) : null;
+        }
+        if (known != null && cached != null) {
+            return new ServedFile(new ByteArrayResource(cached), known.etag, known.contentType);
+        }
+
+        if (known == null || size <= cacheMaxEntryBytes) {
+            // Small files are read once into memory and hashed from there; large ones are hashed once
+            byte[] content = size <= cacheMaxEntryBytes ? Files.readAllBytes(file) : null;
+            String etag = known != null ? known.etag : content != null ? sha256(content) : contentAddress(file);
+            known = new Metadata(size, modified, etag, contentTypeOf(file));
+            synchronized (this) {
+                metadata.put(file, known);
+                if (content != null && content.length == size) {
+                    cache(file, content);
+                }
+            }
+            if (content != null) {
+                return new ServedFile(new ByteArrayResource(content), known.etag, known.contentType);
+            }
+        }
+        return new ServedFile(new FileSystemResource(file), known.etag, known.contentType);
+    }
+
+    /**
+     * Drop what is remembered about a file, e.g. after deleting it.
+     */
+    public synchronized void forget(Path file) {
+        metadata.remove(file);
+        byte[] removed = hot.remove(file);
+        if (removed != null) {
+            hotBytes -= removed.length;
+        }
+    }
+
+    // Caller holds the lock
+    private void cache(Path file, byte[] content) {
+        byte[] previous = hot.put(file, content);
+        hotBytes += content.length - (previous != null ? previous.length : 0);
+        Iterator<Map.Entry<Path, byte[]>> eldest = hot.entrySet().iterator();
+        while (hotBytes > cacheMaxBytes && eldest.hasNext()) {
+            hotBytes -= eldest.next().getValue().length;
+            eldest.remove();
+        }
+    }
+
+    private static MediaType contentTypeOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String type = dot >= 0 ? CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+        if (type == null) {
+            try {
+                type = Files.probeContentType(file);
+            } catch (IOException ignored) {}
+        }
+        return type != null ? MediaType.parseMediaType(type) : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    // Content-addressed uploads are named by their SHA-256 already
+    private static String contentAddress(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        String base = dot >= 0 ? name.substring(0, dot) : name;
+        return CONTENT_ADDRESS.matcher(base).matches() && dot == name.lastIndexOf('.') ? base : sha256(file);
+    }
+
+    private static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(digest().digest(content));
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = digest();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] chunk = new byte[HASH_CHUNK_BYTES];
+            int n;
+            while ((n = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
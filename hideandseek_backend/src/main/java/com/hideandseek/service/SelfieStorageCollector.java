@@ -0,0 +1,127 @@
+package com.hideandseek.service;
+
+import com.hideandseek.store.GameStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reclaims selfie storage so disk use follows the live games. The upload directory of a game that
+ * no longer exists (removed by GameCleanupService or an admin) is deleted once it has been gone
+ * for the retention window. In live games, files no clue request links to, abandoned temp files
+ * and variants without an original are deleted after a grace period.
+ */
+@Service
+public class SelfieStorageCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(SelfieStorageCollector.class);
+
+    private final GameStore gameStore;
+    private final SelfieUploadService uploadService;
+    private final long retentionMs;
+    private final long graceMs;
+    // Game directory -> when it was first seen without a game; restarts begin the window again
+    private final Map<String, Long> orphanedSince = new ConcurrentHashMap<>();
+
+    public SelfieStorageCollector(GameStore gameStore, SelfieUploadService uploadService,
+                                  @Value("${uploads.selfies.retentionHours:24}") long retentionHours,
+                                  @Value("${uploads.selfies.orphanGraceMinutes:60}") long graceMinutes) {
+        this.gameStore = gameStore;
+        this.uploadService = uploadService;
+        this.retentionMs = retentionHours * 3600000L;
+        this.graceMs = graceMinutes * 60000L;
+    }
+
+    @Scheduled(fixedRateString = "${uploads.selfies.gc.intervalMs:600000}", initialDelayString = "${uploads.selfies.gc.intervalMs:600000}")
+    public void collect() {
+        Path root = uploadService.resolveUploadDir();
+        if (!Files.isDirectory(root)) return;
+        long now = System.currentTimeMillis();
+        Set<String> seen = new HashSet<>();
+        try (DirectoryStream<Path> games = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : games) {
+                String gameId = dir.getFileName().toString();
+                seen.add(gameId);
+                try {
+                    if (gameStore.getGame(gameId) != null) {
+                        orphanedSince.remove(gameId);
+                        collectUnused(dir, gameId, now);
+                    } else if (now - orphanedSince.computeIfAbsent(gameId, k -> now) >= retentionMs) {
+                        removeGameDirectory(dir);
+                        orphanedSince.remove(gameId);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to collect uploads of game {}: {}", gameId, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list upload directory {}: {}", root, e.getMessage());
+        }
+        orphanedSince.keySet().retainAll(seen);
+    }
+
+    private void collectUnused(Path dir, String gameId, long now) throws IOException {
+        Map<String, Integer> references = uploadService.referenceCounts(gameId);
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path file : files) {
+                if (now - Files.getLastModifiedTime(file).toMillis() < graceMs) continue;
+                String name = file.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    // Left behind by an upload or variant write that never finished
+                    if (Files.deleteIfExists(file)) removed++;
+                } else if (SelfieVariantService.isVariant(file)) {
+                    if (!hasOriginal(file) && Files.deleteIfExists(file)) removed++;
+                } else if (references.getOrDefault(name, 0) == 0 && uploadService.deleteIfUnused(gameId, file)) {
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            logger.info("Removed {} unused upload files of game {}", removed, gameId);
+        }
+    }
+
+    // Variants are {base}.{variant}.jpg; the original is {base} with any extension
+    private static boolean hasOriginal(Path variant) throws IOException {
+        String name = variant.getFileName().toString();
+        String base = name.substring(0, name.lastIndexOf('.', name.length() - 5) + 1);
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(variant.getParent(), base + "*")) {
+            for (Path sibling : siblings) {
+                if (!SelfieVariantService.isVariant(sibling) && !sibling.getFileName().toString().endsWith(".part")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void removeGameDirectory(Path dir) throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (uploadService.isPinned(file)) {
+                    // An upload is finishing; try again on the next run
+                    return;
+                }
+                if (Files.isRegularFile(file) && Files.deleteIfExists(file)) removed++;
+            }
+        }
+        try {
+            Files.deleteIfExists(dir);
+        } catch (DirectoryNotEmptyException ignored) {
+            // Something was added meanwhile; the next run gets it
+        }
+        logger.info("Removed upload directory of removed game {} ({} files)", dir.getFileName(), removed);
+    }
+}
@@ -0,0 +1,379 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.ClueRequest;
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.store.GameStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stores selfie uploads. Bodies are streamed in small chunks to a temp file in the game's upload
+ * directory while a SHA-256 is computed, forced to disk and then renamed into place, so a stored
+ * file is always complete. At most maxConcurrent uploads are written at once; a bounded number
+ * wait for a slot and the rest are turned away, so a burst at a clue deadline cannot tie up every
+ * servlet thread or fill the heap.
+ *
+ * Files are content addressed ({gameId}/{sha256}.ext), so a retried upload reuses the stored copy.
+ * A file is in use while an upload holding it is in flight (pinned) or a ClueRequest response
+ * links to it; unused files are removed here when an upload fails and by SelfieStorageCollector.
+ */
+@Service
+public class SelfieUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SelfieUploadService.class);
+    private static final int CHUNK_BYTES = 64 * 1024;
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/jpg", ".jpg",
+            "image/png", ".png",
+            "image/webp", ".webp",
+            "image/heic", ".heic",
+            "image/heif", ".heif",
+            "image/gif", ".gif");
+
+    private final ClueService clueService;
+    private final SelfieVariantService variantService;
+    private final GameStore gameStore;
+    private final String configuredUploadDir;
+    private final long maxBytes;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+    private final Semaphore slots;
+    private final AtomicInteger waiting = new AtomicInteger();
+    // Uploads in flight per stored file; also the lock for creating and deleting that file
+    private final Map<Path, Integer> pins = new ConcurrentHashMap<>();
+    private final ExecutorService completer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "selfie-complete");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SelfieUploadService(ClueService clueService, SelfieVariantService variantService, GameStore gameStore,
+                               @Value("${uploads.selfies.dir:}") String configuredUploadDir,
+                               @Value("${uploads.selfies.maxBytes:10485760}") long maxBytes,
+                               @Value("${uploads.selfies.maxConcurrent:4}") int maxConcurrent,
+                               @Value("${uploads.selfies.maxQueued:16}") int maxQueued,
+                               @Value("${uploads.selfies.queueTimeoutMs:10000}") long queueTimeoutMs) {
+        this.clueService = clueService;
+        this.variantService = variantService;
+        this.gameStore = gameStore;
+        this.configuredUploadDir = configuredUploadDir;
+        this.maxBytes = maxBytes;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.slots = new Semaphore(Math.max(1, maxConcurrent), true);
+    }
+
+    /**
+     * A selfie on disk, pinned until release() or discard() is called.
+     */
+    public static final class StoredFile {
+        private final String gameId;
+        private final String filename;
+        private final long size;
+        private final String sha256;
+        private final boolean deduplicated;
+
+        StoredFile(String gameId, String filename, long size, String sha256, boolean deduplicated) {
+            this.gameId = gameId;
+            this.filename = filename;
+            this.size = size;
+            this.sha256 = sha256;
+            this.deduplicated = deduplicated;
+        }
+
+        public String getGameId() { return gameId; }
+        public String getFilename() { return filename; }
+        public long getSize() { return size; }
+        public String getSha256() { return sha256; }
+        /** True when identical content was already stored and that copy is reused. */
+        public boolean isDeduplicated() { return deduplicated; }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public Path resolveUploadDir() {
+        // Prefer explicit configuration
+        if (configuredUploadDir != null && !configuredUploadDir.isBlank()) {
+            return Paths.get(configuredUploadDir).toAbsolutePath().normalize();
+        }
+        // WildFly/JBoss: use server data dir if available
+        String dataDir = System.getProperty("jboss.server.data.dir");
+        Path base;
+        if (dataDir != null && !dataDir.isBlank()) {
+            base = Paths.get(dataDir);
+        } else {
+            // Fallback to process working dir to avoid writing to filesystem root
+            base = Paths.get(System.getProperty("user.dir", "."));
+        }
+        return base.resolve("hideandseek").resolve("uploads").resolve("selfies").toAbsolutePath().normalize();
+    }
+
+    /**
+     * Reject an upload before its body is read: only images, and no larger than maxBytes when the
+     * client declared a length (-1 if unknown; the limit is enforced again while streaming).
+     */
+    public void checkUpload(String contentType, long declaredLength) {
+        if (contentType == null || !contentType.toLowerCase(Locale.ROOT).startsWith("image/")) {
+            throw new IllegalArgumentException("File must be an image");
+        }
+        if (declaredLength > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+    }
+
+    /**
+     * Stream the body into the game's upload directory under a new name. Waits for an upload slot;
+     * throws RejectedExecutionException when too many uploads are already waiting.
+     */
+    public StoredFile store(String gameId, String contentType, String originalFilename, InputStream body) throws IOException {
+        if (waiting.incrementAndGet() > maxQueued + slots.availablePermits()) {
+            waiting.decrementAndGet();
+            throw new RejectedExecutionException("Too many uploads in progress, try again shortly");
+        }
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for an upload slot");
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            throw new RejectedExecutionException("Too many uploads in progress, try again shortly");
+        }
+        try {
+            return write(gameId, extensionFor(contentType, originalFilename), body);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private StoredFile write(String gameId, String extension, InputStream body) throws IOException {
+        String safeGameId = Paths.get(gameId).getFileName().toString();
+        Path dir = resolveUploadDir().resolve(safeGameId);
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, "upload-", ".part");
+        MessageDigest digest = sha256();
+        long size = 0;
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                byte[] chunk = new byte[CHUNK_BYTES];
+                int n;
+                while ((n = body.read(chunk)) != -1) {
+                    size += n;
+                    if (size > maxBytes) {
+                        throw new UploadTooLargeException(maxBytes);
+                    }
+                    digest.update(chunk, 0, n);
+                    ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, n);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+                // Durable before anyone is told the file exists
+                out.force(true);
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("No file provided");
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String filename = sha256 + extension;
+            Path stored = dir.resolve(filename);
+            boolean[] existed = new boolean[1];
+            pins.compute(stored, (path, count) -> {
+                try {
+                    existed[0] = Files.exists(path);
+                    if (existed[0]) {
+                        Files.delete(temp);
+                    } else {
+                        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count == null ? 1 : count + 1;
+            });
+            if (!existed[0] || !Files.exists(SelfieVariantService.variantPath(stored, SelfieVariantService.Variant.THUMB))) {
+                variantService.generateAsync(stored);
+            }
+            return new StoredFile(safeGameId, filename, size, sha256, existed[0]);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Submit the stored file as the response to the clue request once the upload has returned.
+     * If the request can no longer be answered (e.g. it expired meanwhile) the file is discarded.
+     */
+    public void completeAsync(String requestId, String teamId, StoredFile file, String fileUrl) {
+        completer.execute(() -> {
+            try {
+                clueService.respondToClueRequest(requestId, teamId, fileUrl);
+                release(file);
+            } catch (Exception e) {
+                logger.warn("Could not complete clue request {} with upload {}: {}", requestId, file.getFilename(), e.getMessage());
+                discard(file);
+            }
+        });
+    }
+
+    /**
+     * The upload is done with the file; a ClueRequest response now links to it.
+     */
+    public void release(StoredFile file) {
+        pins.computeIfPresent(pathOf(file), (path, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * The upload failed: unpin the file and delete it unless another upload or a response uses it.
+     */
+    public void discard(StoredFile file) {
+        Path original = pathOf(file);
+        pins.compute(original, (path, count) -> {
+            int remaining = count == null ? 0 : count - 1;
+            if (remaining > 0) {
+                return remaining;
+            }
+            if (referenceCounts(file.getGameId()).getOrDefault(file.getFilename(), 0) == 0) {
+                deleteWithVariants(path);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Delete a stored file of the game unless an upload in flight pins it or a clue request links to
+     * it; both are checked under the file's lock. Returns whether it was deleted.
+     */
+    boolean deleteIfUnused(String gameId, Path original) {
+        boolean[] deleted = new boolean[1];
+        pins.compute(original, (path, count) -> {
+            if (count == null && referenceCounts(gameId).getOrDefault(path.getFileName().toString(), 0) == 0) {
+                deleted[0] = deleteWithVariants(path);
+            }
+            return count;
+        });
+        return deleted[0];
+    }
+
+    boolean isPinned(Path original) {
+        return pins.containsKey(original);
+    }
+
+    /**
+     * How many links to each stored file (by filename) the game's clue requests and purchased clues
+     * hold. Purchased clues count too: replay restores them but not the requests' responses.
+     */
+    Map<String, Integer> referenceCounts(String gameId) {
+        Map<String, Integer> counts = new HashMap<>();
+        String prefix = "/api/uploads/files/" + gameId + "/";
+        for (ClueRequest request : gameStore.getClueRequestsForGame(gameId)) {
+            countLinks(request.getResponse(), prefix, counts);
+        }
+        for (PurchasedClue clue : gameStore.getClueHistoryForGame(gameId)) {
+            countLinks(clue.getClueText(), prefix, counts);
+            List<PurchasedClue.HiderClueData> hiderData = clue.getHiderData();
+            if (hiderData == null) continue;
+            for (PurchasedClue.HiderClueData hider : new ArrayList<>(hiderData)) {
+                if (hider != null) countLinks(hider.getAdditionalData(), prefix, counts);
+            }
+        }
+        return counts;
+    }
+
+    // Text may hold several links (one selfie per hider), each ending at the first character a
+    // stored filename (sha256 + extension) cannot contain
+    private static void countLinks(String text, String prefix, Map<String, Integer> counts) {
+        if (text == null) return;
+        for (int at = text.indexOf(prefix); at >= 0; at = text.indexOf(prefix, at + prefix.length())) {
+            int start = at + prefix.length();
+            int end = start;
+            while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '.')) {
+                end++;
+            }
+            while (end > start && text.charAt(end - 1) == '.') {
+                end--; // sentence punctuation
+            }
+            if (end > start) counts.merge(text.substring(start, end), 1, Integer::sum);
+        }
+    }
+
+    private Path pathOf(StoredFile file) {
+        return resolveUploadDir().resolve(file.getGameId()).resolve(file.getFilename());
+    }
+
+    private static boolean deleteWithVariants(Path original) {
+        try {
+            boolean deleted = Files.deleteIfExists(original);
+            for (SelfieVariantService.Variant variant : SelfieVariantService.Variant.values()) {
+                Files.deleteIfExists(SelfieVariantService.variantPath(original, variant));
+            }
+            return deleted;
+        } catch (IOException e) {
+            logger.warn("Failed to delete upload {}: {}", original.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static String extensionFor(String contentType, String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            String extension = originalFilename.substring(originalFilename.lastIndexOf('.')).toLowerCase(Locale.ROOT);
+            if (extension.matches("\\.[a-z0-9]{1,5}")) {
+                return extension;
+            }
+        }
+        String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return EXTENSIONS.getOrDefault(type, ".jpg");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Upload body over the configured limit.
+     */
+    public static class UploadTooLargeException extends RuntimeException {
+        public UploadTooLargeException(long maxBytes) {
+            super("File is larger than " + (maxBytes >= 1024 * 1024 ? maxBytes / (1024 * 1024) + " MB" : maxBytes + " bytes"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        completer.shutdown();
+    }
+}
@@ -0,0 +1,318 @@
+package com.hideandseek.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downscaled JPEG copies of uploaded selfies, so the seeker's carousel does not pull full camera
+ * images over mobile data. Each upload gets a "screen" and a "thumb" variant, written next to the
+ * original as {name}.{variant}.jpg on a small bounded worker pool. Large originals are decoded with
+ * source subsampling, so a worker never holds the full-resolution bitmap.
+ */
+@Service
+public class SelfieVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SelfieVariantService.class);
+
+    /** Longest edge in pixels and JPEG quality per variant, largest first. */
+    public enum Variant {
+        SCREEN("screen", 1280, 0.8f),
+        THUMB("thumb", 320, 0.7f);
+
+        private final String id;
+        private final int maxEdge;
+        private final float quality;
+
+        Variant(String id, int maxEdge, float quality) {
+            this.id = id;
+            this.maxEdge = maxEdge;
+            this.quality = quality;
+        }
+
+        public String getId() { return id; }
+
+        /**
+         * The variant for a ?variant= value, null for the original; unknown names are rejected.
+         */
+        public static Variant parse(String value) {
+            if (value == null || value.isBlank() || "original".equalsIgnoreCase(value)) return null;
+            for (Variant variant : values()) {
+                if (variant.id.equalsIgnoreCase(value)) return variant;
+            }
+            throw new IllegalArgumentException("Unknown variant: " + value);
+        }
+    }
+
+    private static final int MAX_UNDECODABLE = 1024;
+
+    private final ThreadPoolExecutor workers;
+    // Originals with generation queued or running, so repeated requests do not pile up work
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    // Originals ImageIO cannot read (e.g. HEIC), most recent last; requests for their variants get
+    // the original without queueing a decode that fails again
+    private final Set<Path> undecodable = Collections.synchronizedSet(Collections.newSetFromMap(
+            new LinkedHashMap<Path, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+                    return size() > MAX_UNDECODABLE;
+                }
+            }));
+
+    public SelfieVariantService(@Value("${uploads.selfies.variants.threads:2}") int threads,
+                                @Value("${uploads.selfies.variants.queueSize:64}") int queueSize) {
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), r -> {
+                    Thread t = new Thread(r, "selfie-variants-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MIN_PRIORITY);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Path of a variant of the given original (whether or not it exists yet).
+     */
+    public static Path variantPath(Path original, Variant variant) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(base + "." + variant.getId() + ".jpg");
+    }
+
+    /**
+     * Whether the file is itself a variant ({name}.{variant}.jpg).
+     */
+    public static boolean isVariant(Path file) {
+        String name = file.getFileName().toString();
+        for (Variant variant : Variant.values()) {
+            if (name.endsWith("." + variant.getId() + ".jpg")) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Queue generation of every variant of the original. Dropped with a warning when the pool is
+     * saturated; a later request for a missing variant queues it again. Originals already found
+     * to be unreadable are skipped.
+     */
+    public void generateAsync(Path original) {
+        Path key = original.toAbsolutePath().normalize();
+        if (isVariant(key) || undecodable.contains(key) || !inFlight.add(key)) return;
+        try {
+            workers.execute(() -> {
+                try {
+                    generate(key);
+                } catch (Exception e) {
+                    logger.warn("Failed to create variants for {}: {}", key.getFileName(), e.getMessage());
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key);
+            logger.warn("Variant queue full, skipping {}", key.getFileName());
+        }
+    }
+
+    void generate(Path original) throws IOException {
+        BufferedImage image;
+        try {
+            image = decode(original, Variant.SCREEN.maxEdge);
+        } catch (IIOException e) {
+            // Corrupt or truncated; reading it again will not help
+            undecodable.add(original.toAbsolutePath().normalize());
+            throw e;
+        }
+        if (image == null) {
+            // Not a format ImageIO can read (e.g. HEIC); the original is served instead
+            logger.debug("No image reader for {}", original.getFileName());
+            undecodable.add(original.toAbsolutePath().normalize());
+            return;
+        }
+        for (Variant variant : Variant.values()) {
+            // Each variant is scaled from the previous, smaller one
+            image = scaleToFit(image, variant.maxEdge);
+            writeJpeg(image, variant.quality, variantPath(original, variant));
+        }
+    }
+
+    /**
+     * Decode the image at roughly twice the target size, upright per its EXIF orientation.
+     */
+    private static BufferedImage decode(Path file, int targetEdge) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, false);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / (targetEdge * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return orient(reader.read(0, param), exifOrientation(file));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleToFit(BufferedImage image, int maxEdge) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // Halve repeatedly, then one final step; bilinear alone aliases badly on big reductions
+        while (Math.max(width, height) > maxEdge) {
+            double scale = Math.max(0.5, (double) maxEdge / Math.max(width, height));
+            width = Math.max(1, (int) Math.round(width * scale));
+            height = Math.max(1, (int) Math.round(height * scale));
+            image = draw(image, width, height, null);
+        }
+        return image.getType() == BufferedImage.TYPE_INT_RGB ? image : draw(image, width, height, null);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            if (transform != null) {
+                g.drawImage(source, transform, null);
+            } else {
+                g.drawImage(source, 0, 0, width, height, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform t = new AffineTransform();
+        switch (orientation) {
+            case 3 -> { t.translate(w, h); t.rotate(Math.PI); }
+            case 6 -> { t.translate(h, 0); t.rotate(Math.PI / 2); }
+            case 8 -> { t.translate(0, w); t.rotate(-Math.PI / 2); }
+            default -> { return image; }
+        }
+        boolean swap = orientation == 6 || orientation == 8;
+        return draw(image, swap ? h : w, swap ? w : h, t);
+    }
+
+    /**
+     * EXIF orientation (1-8) from a JPEG's APP1 segment, 1 when absent or unreadable. Read from the
+     * markers directly; ImageIO's JPEG metadata rejects common layouts such as Exif before JFIF.
+     */
+    private static int exifOrientation(Path file) {
+        try (InputStream raw = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            if (in.readUnsignedShort() != 0xFFD8) return 1;
+            while (true) {
+                int marker = in.readUnsignedShort();
+                // Metadata segments come before the image data starts (SOS)
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) return 1;
+                int length = in.readUnsignedShort() - 2;
+                if (length < 0) return 1;
+                if (marker == 0xFFE1) {
+                    byte[] segment = new byte[length];
+                    in.readFully(segment);
+                    int orientation = parseOrientation(segment);
+                    if (orientation > 0) return orientation;
+                } else {
+                    in.skipNBytes(length);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return 1;
+        }
+    }
+
+    // "Exif\0\0" followed by a TIFF header and IFD0; orientation is tag 0x0112 (SHORT)
+    private static int parseOrientation(byte[] b) {
+        if (b.length < 14 || b[0] != 'E' || b[1] != 'x' || b[2] != 'i' || b[3] != 'f') return -1;
+        int tiff = 6;
+        boolean little = b[tiff] == 'I';
+        int ifd = tiff + readInt(b, tiff + 4, little);
+        if (ifd + 2 > b.length) return -1;
+        int entries = readShort(b, ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > b.length) return -1;
+            if (readShort(b, entry, little) == 0x0112) {
+                return readShort(b, entry + 8, little);
+            }
+        }
+        return -1;
+    }
+
+    private static int readShort(byte[] b, int at, boolean little) {
+        return little ? (b[at] & 0xFF) | (b[at + 1] & 0xFF) << 8 : (b[at] & 0xFF) << 8 | (b[at + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] b, int at, boolean little) {
+        return little
+                ? readShort(b, at, true) | readShort(b, at + 2, true) << 16
+                : readShort(b, at, false) << 16 | readShort(b, at + 2, false);
+    }
+
+    private static void writeJpeg(BufferedImage image, float quality, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temp = Files.createTempFile(target.getParent(), "variant-", ".part");
+        try {
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
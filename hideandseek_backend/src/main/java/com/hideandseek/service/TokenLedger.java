@@ -0,0 +1,277 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Every token balance change goes through here. Balances are changed with compare-and-set on the
+ * team, so concurrent purchases and rewards never lose an update or overdraw, and each change is
+ * appended to the team's history with the balance it produced.
+ *
+ * Operations may carry a client-supplied idempotency key (unique per team). The first request with
+ * a key does the work and stores its outcome on the entry; a retry with the same key gets that
+ * outcome back without touching the balance, also while the first request is still running.
+ */
+@Service
+public class TokenLedger {
+
+    private static final long REPLAY_WAIT_MS = 10000;
+
+    private final GameStore gameStore;
+    // "gameId|teamId" -> ledger of that team
+    private final Map<String, TeamLedger> ledgers = new ConcurrentHashMap<>();
+
+    public TokenLedger(GameStore gameStore) {
+        this.gameStore = gameStore;
+    }
+
+    private static final class TeamLedger {
+        final String gameId;
+        final List<Entry> entries = new ArrayList<>();
+        final Map<String, Entry> byKey = new HashMap<>();
+        long nextSeq = 1;
+
+        TeamLedger(String gameId) {
+            this.gameId = gameId;
+        }
+    }
+
+    public static final class Entry {
+        private final String teamId;
+        private final String reason;
+        private final String idempotencyKey;
+        private final Map<String, Object> details;
+        private final CompletableFuture<Map<String, Object>> outcome;
+        private final boolean replay;
+        private long seq;
+        private long timestamp;
+        private int delta;
+        private int balance;
+
+        private Entry(String teamId, String reason, String idempotencyKey, Map<String, Object> details) {
+            this(teamId, reason, idempotencyKey, details, new CompletableFuture<>(), false);
+        }
+
+        private Entry(String teamId, String reason, String idempotencyKey, Map<String, Object> details,
+                      CompletableFuture<Map<String, Object>> outcome, boolean replay) {
+            this.teamId = teamId;
+            this.reason = reason;
+            this.idempotencyKey = idempotencyKey;
+            this.details = details;
+            this.outcome = outcome;
+            this.replay = replay;
+        }
+
+        // Same entry as seen by a retry; shares the outcome of the original
+        private Entry asReplay() {
+            Entry view = new Entry(teamId, reason, idempotencyKey, details, outcome, true);
+            view.seq = seq;
+            view.timestamp = timestamp;
+            view.delta = delta;
+            view.balance = balance;
+            return view;
+        }
+
+        public long getSeq() { return seq; }
+        public String getTeamId() { return teamId; }
+        public String getReason() { return reason; }
+        public int getDelta() { return delta; }
+        public int getBalance() { return balance; }
+
+        /**
+         * True when this key was already used; the balance was not changed and the caller should
+         * return awaitOutcome() instead of doing the work again.
+         */
+        public boolean isReplay() { return replay; }
+
+        /**
+         * Store the response of the operation, returned to retries with the same key.
+         */
+        public void complete(Map<String, Object> result) {
+            outcome.complete(result);
+        }
+
+        /**
+         * The response of the first request with this key, waiting for it if still running.
+         */
+        public Map<String, Object> awaitOutcome() {
+            try {
+                return outcome.get(REPLAY_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("A request with this idempotency key is still being processed");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A request with this idempotency key failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an earlier request");
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("seq", seq);
+            map.put("timestamp", timestamp);
+            map.put("delta", delta);
+            map.put("balance", balance);
+            map.put("reason", reason);
+            if (idempotencyKey != null) map.put("idempotencyKey", idempotencyKey);
+            if (details != null && !details.isEmpty()) map.put("details", details);
+            return map;
+        }
+    }
+
+    /**
+     * Outcome of an earlier operation with this key, or null when the key has not been used.
+     * Lets a retry skip validation that would now fail (e.g. tokens already spent).
+     */
+    public Map<String, Object> replay(String gameId, String teamId, String idempotencyKey, String reason) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) return null;
+        TeamLedger ledger = ledgers.get(gameId + "|" + teamId);
+        if (ledger == null) return null;
+        Entry prior;
+        synchronized (ledger) {
+            prior = ledger.byKey.get(idempotencyKey);
+        }
+        if (prior == null) return null;
+        checkSameOperation(prior, reason);
+        return prior.awaitOutcome();
+    }
+
+    /**
+     * Take tokens from a team; fails with "Insufficient tokens" rather than going negative.
+     */
+    public Entry debit(String gameId, Team team, int amount, String reason, String idempotencyKey, Map<String, Object> details) {
+        if (amount < 0) throw new IllegalArgumentException("Debit amount must not be negative");
+        return apply(gameId, team, -amount, null, reason, idempotencyKey, details);
+    }
+
+    public Entry credit(String gameId, Team team, int amount, String reason, String idempotencyKey, Map<String, Object> details) {
+        if (amount < 0) throw new IllegalArgumentException("Credit amount must not be negative");
+        return apply(gameId, team, amount, null, reason, idempotencyKey, details);
+    }
+
+    /**
+     * Set an absolute balance (admin corrections, restarts); recorded as the resulting delta.
+     */
+    public Entry set(String gameId, Team team, int tokens, String reason, String idempotencyKey, Map<String, Object> details) {
+        if (tokens < 0) throw new IllegalArgumentException("Token balance must not be negative");
+        return apply(gameId, team, 0, tokens, reason, idempotencyKey, details);
+    }
+
+    /**
+     * Undo an entry whose operation failed after the balance changed. Frees its idempotency key so
+     * the client can retry. Tokens spent in the meantime can make a full reversal impossible; the
+     * balance then stops at zero and the missing amount is recorded as the reversal's shortfall.
+     * Retries waiting on the entry always get the cause, even if recording the reversal fails.
+     */
+    public void reverse(String gameId, Team team, Entry entry, Exception cause) {
+        if (entry.isReplay()) return;
+        try {
+            TeamLedger ledger = ledgerFor(gameId, team.getId());
+            synchronized (ledger) {
+                if (entry.idempotencyKey != null) ledger.byKey.remove(entry.idempotencyKey, entry);
+            }
+            int before;
+            int after;
+            do {
+                before = team.getTokens();
+                after = Math.max(0, before - entry.getDelta());
+            } while (!team.compareAndSetTokens(before, after));
+
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("reversedSeq", entry.getSeq());
+            int shortfall = after - (before - entry.getDelta());
+            if (shortfall > 0) details.put("shortfall", shortfall);
+            append(ledger, new Entry(team.getId(), "reversal", null, details), before, after);
+        } finally {
+            entry.outcome.completeExceptionally(cause);
+        }
+    }
+
+    private Entry apply(String gameId, Team team, int delta, Integer absolute, String reason, String idempotencyKey,
+                        Map<String, Object> details) {
+        String key = idempotencyKey == null || idempotencyKey.isBlank() ? null : idempotencyKey;
+        TeamLedger ledger = ledgerFor(gameId, team.getId());
+        Entry entry = new Entry(team.getId(), reason, key, details);
+        if (key != null) {
+            Entry prior;
+            synchronized (ledger) {
+                prior = ledger.byKey.putIfAbsent(key, entry);
+            }
+            if (prior != null) {
+                checkSameOperation(prior, reason);
+                return prior.asReplay();
+            }
+        }
+
+        int before;
+        int after;
+        do {
+            before = team.getTokens();
+            after = absolute != null ? absolute : before + delta;
+            if (after < 0) {
+                IllegalStateException rejected = new IllegalStateException("Insufficient tokens");
+                if (key != null) {
+                    // Retries already waiting on this entry get the rejection, later ones may try again
+                    entry.outcome.completeExceptionally(rejected);
+                    synchronized (ledger) {
+                        ledger.byKey.remove(key, entry);
+                    }
+                }
+                throw rejected;
+            }
+        } while (!team.compareAndSetTokens(before, after));
+
+        append(ledger, entry, before, after);
+        return entry;
+    }
+
+    private static void append(TeamLedger ledger, Entry entry, int before, int after) {
+        synchronized (ledger) {
+            entry.seq = ledger.nextSeq++;
+            entry.timestamp = System.currentTimeMillis();
+            entry.delta = after - before;
+            entry.balance = after;
+            ledger.entries.add(entry);
+        }
+    }
+
+    private static void checkSameOperation(Entry prior, String reason) {
+        if (!Objects.equals(prior.reason, reason)) {
+            throw new IllegalStateException("Idempotency key was already used for a different operation");
+        }
+    }
+
+    /**
+     * Append-only history of a team, oldest first, starting after the given sequence number.
+     */
+    public List<Map<String, Object>> getHistory(String gameId, String teamId, long afterSeq) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        TeamLedger ledger = ledgers.get(gameId + "|" + teamId);
+        if (ledger == null) return result;
+        synchronized (ledger) {
+            for (Entry entry : ledger.entries) {
+                if (entry.seq > afterSeq) result.add(entry.toMap());
+            }
+        }
+        return result;
+    }
+
+    private TeamLedger ledgerFor(String gameId, String teamId) {
+        return ledgers.computeIfAbsent(gameId + "|" + teamId, k -> new TeamLedger(gameId));
+    }
+
+    @Scheduled(fixedRate = 600000, initialDelay = 600000)
+    public void forgetRemovedGames() {
+        ledgers.values().removeIf(ledger -> gameStore.getGame(ledger.gameId) == null);
+    }
+}
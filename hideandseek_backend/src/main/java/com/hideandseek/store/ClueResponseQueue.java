@@ -0,0 +1,56 @@
+package com.hideandseek.store;
+
+import com.hideandseek.model.ClueResponse;
+
+import java.util.*;
+
+/**
+ * Clue responses waiting to be delivered to one requesting team, in delivery sequence order.
+ * Acknowledgements are cumulative, so delivered responses are dropped from the head and reads only
+ * walk the responses after the client's last seen sequence number. The queue is bounded; when it
+ * is full the oldest response is dropped, which is safe because every response is also applied to
+ * the team's clue history when it arrives.
+ */
+final class ClueResponseQueue {
+    static final int MAX_QUEUED = 100;
+
+    private final ArrayDeque<ClueResponse> responses = new ArrayDeque<>();
+    private long lastSeq;
+
+    synchronized long add(ClueResponse response) {
+        response.setDeliverySeq(++lastSeq);
+        responses.addLast(response);
+        if (responses.size() > MAX_QUEUED) {
+            responses.removeFirst();
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Queued responses with a sequence number above afterSeq, oldest first.
+     */
+    synchronized List<ClueResponse> after(long afterSeq) {
+        List<ClueResponse> result = new ArrayList<>();
+        Iterator<ClueResponse> it = responses.descendingIterator();
+        while (it.hasNext()) {
+            ClueResponse response = it.next();
+            if (response.getDeliverySeq() <= afterSeq) break;
+            result.add(response);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Drop every response up to and including seq.
+     */
+    synchronized void acknowledge(long seq) {
+        while (!responses.isEmpty() && responses.peekFirst().getDeliverySeq() <= seq) {
+            responses.removeFirst();
+        }
+    }
+
+    synchronized long getLastSeq() {
+        return lastSeq;
+    }
+}
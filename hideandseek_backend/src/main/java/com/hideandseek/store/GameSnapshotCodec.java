@@ -0,0 +1,384 @@
+package com.hideandseek.store;
+
+import com.hideandseek.model.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the GameStore model used by snapshots.
+ * Writes go through a DataOutputStream (big-endian) and reads come from a ByteBuffer,
+ * so a memory-mapped snapshot file can be decoded without an intermediate copy.
+ * Strings are length-prefixed UTF-8 (-1 = null); nullable numbers carry a presence byte.
+ */
+final class GameSnapshotCodec {
+
+    private GameSnapshotCodec() {}
+
+    /**
+     * A game and the last event-log sequence number its state reflects (-1 if unknown), so
+     * recovery can replay only the events logged after it.
+     */
+    static final class GameEntry {
+        final Game game;
+        final long eventSequence;
+
+        GameEntry(Game game, long eventSequence) {
+            this.game = game;
+            this.eventSequence = eventSequence;
+        }
+    }
+
+    // ---- writing ----
+
+    static void writeGameEntry(DataOutputStream out, Game game, long eventSequence) throws IOException {
+        out.writeLong(eventSequence);
+        writeGame(out, game);
+    }
+
+    static void writeGame(DataOutputStream out, Game game) throws IOException {
+        writeString(out, game.getId());
+        writeString(out, game.getCode());
+        writeString(out, game.getStatus());
+        writeNullableInt(out, game.getRound());
+        writeNullableInt(out, game.getRoundLengthMinutes());
+        writeNullableLong(out, game.getStartTime());
+        writeNullableLong(out, game.getPauseTime());
+        writeNullableLong(out, game.getTotalPausedDuration());
+        writeNullableLong(out, game.getEndTime());
+        out.writeByte(game.getPausedByTimeLimit() == null ? -1 : (game.getPausedByTimeLimit() ? 1 : 0));
+        writeNullableLong(out, game.getLastActivityTime());
+        writeNullableLong(out, game.getGameStartTime());
+        writeNullableLong(out, game.getRoundStartTime());
+        writeNullableLong(out, game.getPausedDurationAtRoundStart());
+        List<Team> teams = game.getTeams() != null ? game.getTeams() : List.of();
+        out.writeInt(teams.size());
+        for (Team team : teams) {
+            writeTeam(out, team);
+        }
+    }
+
+    private static void writeTeam(DataOutputStream out, Team team) throws IOException {
+        writeString(out, team.getId());
+        writeString(out, team.getName());
+        writeString(out, team.getRole());
+        out.writeInt(team.getTokens());
+        Team.TeamLocation loc = team.getLocation();
+        out.writeBoolean(loc != null);
+        if (loc != null) {
+            out.writeDouble(loc.getLatitude());
+            out.writeDouble(loc.getLongitude());
+            out.writeLong(loc.getTimestamp());
+        }
+        writeStrings(out, team.getCompletedChallenges());
+        writeStrings(out, team.getCompletedCurses());
+        ActiveChallenge ac = team.getActiveChallenge();
+        out.writeBoolean(ac != null);
+        if (ac != null) {
+            writeChallenge(out, ac.getChallenge());
+            out.writeLong(ac.getStartTime());
+            out.writeBoolean(ac.isCompleted());
+        }
+        List<ActiveCurse> active = team.getActiveCurses() != null ? team.getActiveCurses() : List.of();
+        out.writeInt(active.size());
+        for (ActiveCurse c : active) {
+            writeCurse(out, c.getCurse());
+            out.writeLong(c.getStartTime());
+            out.writeLong(c.getEndTime());
+            out.writeBoolean(c.isCompleted());
+            writeNullableLong(out, c.getCompletedAt());
+            out.writeBoolean(c.isAcknowledged());
+        }
+        List<AppliedCurse> applied = team.getAppliedCurses() != null ? team.getAppliedCurses() : List.of();
+        out.writeInt(applied.size());
+        for (AppliedCurse c : applied) {
+            writeCurse(out, c.getCurse());
+            writeString(out, c.getTargetTeamId());
+            writeString(out, c.getTargetTeamName());
+            out.writeLong(c.getStartTime());
+            out.writeLong(c.getEndTime());
+        }
+        writeNullableLong(out, team.getVetoEndTime());
+        writeNullableLong(out, team.getHiderStartTime());
+        out.writeLong(team.getTotalHiderTime());
+    }
+
+    private static void writeChallenge(DataOutputStream out, Challenge challenge) throws IOException {
+        out.writeBoolean(challenge != null);
+        if (challenge == null) return;
+        writeString(out, challenge.getId());
+        writeString(out, challenge.getTitle());
+        writeString(out, challenge.getDescription());
+        writeNullableInt(out, challenge.getTokenReward());
+        writeCurse(out, challenge.getCurse());
+    }
+
+    private static void writeCurse(DataOutputStream out, Curse curse) throws IOException {
+        out.writeBoolean(curse != null);
+        if (curse == null) return;
+        writeString(out, curse.getId());
+        writeString(out, curse.getTitle());
+        writeString(out, curse.getDescription());
+        out.writeInt(curse.getTokenCount());
+        writeNullableInt(out, curse.getTimeSeconds());
+        writeNullableInt(out, curse.getPenalty());
+    }
+
+    static void writeClue(DataOutputStream out, PurchasedClue clue) throws IOException {
+        writeString(out, clue.getId());
+        writeString(out, clue.getClueTypeId());
+        writeString(out, clue.getTeamId());
+        writeString(out, clue.getGameId());
+        writeString(out, clue.getClueText());
+        out.writeInt(clue.getCost());
+        out.writeLong(clue.getTimestamp());
+        writeString(out, clue.getStatus());
+        writeString(out, clue.getRequestId());
+        writeString(out, clue.getResponseType());
+        writeString(out, clue.getTargetHiderTeamId());
+        writeNullableDouble(out, clue.getLatitude());
+        writeNullableDouble(out, clue.getLongitude());
+        writeString(out, clue.getTargetTeamName());
+        writeStrings(out, clue.getTargetHiderTeamIds());
+        List<PurchasedClue.HiderClueData> data = clue.getHiderData();
+        out.writeInt(data == null ? -1 : data.size());
+        if (data != null) {
+            for (PurchasedClue.HiderClueData d : data) {
+                writeString(out, d.getTeamId());
+                writeString(out, d.getTeamName());
+                writeNullableDouble(out, d.getLatitude());
+                writeNullableDouble(out, d.getLongitude());
+                writeNullableDouble(out, d.getDistance());
+                writeString(out, d.getDirection());
+                writeString(out, d.getAdditionalData());
+            }
+        }
+    }
+
+    static void writeClueRequest(DataOutputStream out, ClueRequest req) throws IOException {
+        writeString(out, req.getId());
+        writeString(out, req.getGameId());
+        writeString(out, req.getRequestingTeamId());
+        writeString(out, req.getTargetHiderTeamId());
+        writeString(out, req.getClueTypeId());
+        writeString(out, req.getClueTypeName());
+        writeString(out, req.getStatus());
+        out.writeLong(req.getRequestTimestamp());
+        out.writeLong(req.getExpirationTimestamp());
+        writeString(out, req.getResponse());
+        writeString(out, req.getResponseType());
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static void writeStrings(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list == null ? -1 : list.size());
+        if (list == null) return;
+        for (String s : list) {
+            writeString(out, s);
+        }
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer v) throws IOException {
+        out.writeBoolean(v != null);
+        if (v != null) out.writeInt(v);
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long v) throws IOException {
+        out.writeBoolean(v != null);
+        if (v != null) out.writeLong(v);
+    }
+
+    private static void writeNullableDouble(DataOutputStream out, Double v) throws IOException {
+        out.writeBoolean(v != null);
+        if (v != null) out.writeDouble(v);
+    }
+
+    // ---- reading ----
+
+    static GameEntry readGameEntry(ByteBuffer in) {
+        long eventSequence = in.getLong();
+        return new GameEntry(readGame(in), eventSequence);
+    }
+
+    static Game readGame(ByteBuffer in) {
+        Game game = new Game();
+        game.setId(readString(in));
+        game.setCode(readString(in));
+        game.setStatus(readString(in));
+        game.setRound(readNullableInt(in));
+        game.setRoundLengthMinutes(readNullableInt(in));
+        game.setStartTime(readNullableLong(in));
+        game.setPauseTime(readNullableLong(in));
+        game.setTotalPausedDuration(readNullableLong(in));
+        game.setEndTime(readNullableLong(in));
+        byte paused = in.get();
+        game.setPausedByTimeLimit(paused < 0 ? null : paused == 1);
+        game.setLastActivityTime(readNullableLong(in));
+        game.setGameStartTime(readNullableLong(in));
+        game.setRoundStartTime(readNullableLong(in));
+        game.setPausedDurationAtRoundStart(readNullableLong(in));
+        int teamCount = in.getInt();
+        List<Team> teams = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            teams.add(readTeam(in));
+        }
+        game.setTeams(teams);
+        return game;
+    }
+
+    private static Team readTeam(ByteBuffer in) {
+        Team team = new Team();
+        team.setId(readString(in));
+        team.setName(readString(in));
+        team.setRole(readString(in));
+        team.setTokens(in.getInt());
+        if (in.get() != 0) {
+            team.setLocation(new Team.TeamLocation(in.getDouble(), in.getDouble(), in.getLong()));
+        }
+        team.setCompletedChallenges(readStrings(in));
+        List<String> completedCurses = readStrings(in);
+        team.setCompletedCurses(completedCurses != null ? completedCurses : new ArrayList<>());
+        if (in.get() != 0) {
+            Challenge challenge = readChallenge(in);
+            long start = in.getLong();
+            boolean completed = in.get() != 0;
+            team.setActiveChallenge(new ActiveChallenge(challenge, start, completed));
+        }
+        int activeCount = in.getInt();
+        List<ActiveCurse> active = new ArrayList<>(activeCount);
+        for (int i = 0; i < activeCount; i++) {
+            ActiveCurse c = new ActiveCurse(readCurse(in), in.getLong(), in.getLong());
+            c.setCompleted(in.get() != 0);
+            c.setCompletedAt(readNullableLong(in));
+            c.setAcknowledged(in.get() != 0);
+            active.add(c);
+        }
+        team.setActiveCurses(active);
+        int appliedCount = in.getInt();
+        List<AppliedCurse> applied = new ArrayList<>(appliedCount);
+        for (int i = 0; i < appliedCount; i++) {
+            applied.add(new AppliedCurse(readCurse(in), readString(in), readString(in), in.getLong(), in.getLong()));
+        }
+        team.setAppliedCurses(applied);
+        team.setVetoEndTime(readNullableLong(in));
+        team.setHiderStartTime(readNullableLong(in));
+        team.setTotalHiderTime(in.getLong());
+        return team;
+    }
+
+    private static Challenge readChallenge(ByteBuffer in) {
+        if (in.get() == 0) return null;
+        Challenge challenge = new Challenge();
+        challenge.setId(readString(in));
+        challenge.setTitle(readString(in));
+        challenge.setDescription(readString(in));
+        challenge.setTokenReward(readNullableInt(in));
+        challenge.setCurse(readCurse(in));
+        return challenge;
+    }
+
+    private static Curse readCurse(ByteBuffer in) {
+        if (in.get() == 0) return null;
+        Curse curse = new Curse();
+        curse.setId(readString(in));
+        curse.setTitle(readString(in));
+        curse.setDescription(readString(in));
+        curse.setTokenCount(in.getInt());
+        curse.setTimeSeconds(readNullableInt(in));
+        curse.setPenalty(readNullableInt(in));
+        return curse;
+    }
+
+    static PurchasedClue readClue(ByteBuffer in) {
+        PurchasedClue clue = new PurchasedClue();
+        clue.setId(readString(in));
+        clue.setClueTypeId(readString(in));
+        clue.setTeamId(readString(in));
+        clue.setGameId(readString(in));
+        clue.setClueText(readString(in));
+        clue.setCost(in.getInt());
+        clue.setTimestamp(in.getLong());
+        clue.setStatus(readString(in));
+        clue.setRequestId(readString(in));
+        clue.setResponseType(readString(in));
+        clue.setTargetHiderTeamId(readString(in));
+        clue.setLatitude(readNullableDouble(in));
+        clue.setLongitude(readNullableDouble(in));
+        clue.setTargetTeamName(readString(in));
+        clue.setTargetHiderTeamIds(readStrings(in));
+        int dataCount = in.getInt();
+        if (dataCount >= 0) {
+            List<PurchasedClue.HiderClueData> data = new ArrayList<>(dataCount);
+            for (int i = 0; i < dataCount; i++) {
+                PurchasedClue.HiderClueData d = new PurchasedClue.HiderClueData(readString(in), readString(in));
+                d.setLatitude(readNullableDouble(in));
+                d.setLongitude(readNullableDouble(in));
+                d.setDistance(readNullableDouble(in));
+                d.setDirection(readString(in));
+                d.setAdditionalData(readString(in));
+                data.add(d);
+            }
+            clue.setHiderData(data);
+        }
+        return clue;
+    }
+
+    static ClueRequest readClueRequest(ByteBuffer in) {
+        ClueRequest req = new ClueRequest();
+        req.setId(readString(in));
+        req.setGameId(readString(in));
+        req.setRequestingTeamId(readString(in));
+        req.setTargetHiderTeamId(readString(in));
+        req.setClueTypeId(readString(in));
+        req.setClueTypeName(readString(in));
+        req.setStatus(readString(in));
+        req.setRequestTimestamp(in.getLong());
+        req.setExpirationTimestamp(in.getLong());
+        req.setResponse(readString(in));
+        req.setResponseType(readString(in));
+        return req;
+    }
+
+    static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static List<String> readStrings(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0) return null;
+        List<String> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(readString(in));
+        }
+        return list;
+    }
+
+    private static Integer readNullableInt(ByteBuffer in) {
+        return in.get() != 0 ? in.getInt() : null;
+    }
+
+    private static Long readNullableLong(ByteBuffer in) {
+        return in.get() != 0 ? in.getLong() : null;
+    }
+
+    private static Double readNullableDouble(ByteBuffer in) {
+        return in.get() != 0 ? in.getDouble() : null;
+    }
+}
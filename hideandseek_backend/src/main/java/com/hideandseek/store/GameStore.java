@@ -15,6 +15,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,13 +28,23 @@ public class GameStore {
     private List<ClueType> clueTypes = new ArrayList<>();
     // Store clues per game and per team (seeker)
     private final Map<String, List<PurchasedClue>> teamClueHistory = new ConcurrentHashMap<>();
+    // History versions from one store-wide clock, so a version is never reused after a restore
+    // (key: gameId:teamId -> latest version, gameId:teamId:clueId -> version the clue last changed)
+    private final AtomicLong clueHistoryClock = new AtomicLong();
+    private final Map<String, Long> clueHistoryVersions = new ConcurrentHashMap<>();
+    private final Map<String, Long> clueEntryVersions = new ConcurrentHashMap<>();
     // Store async clue requests and responses
     private final Map<String, ClueRequest> clueRequests = new ConcurrentHashMap<>();
-    private final Map<String, List<ClueResponse>> clueResponses = new ConcurrentHashMap<>();
+    // Undelivered responses per requesting team (key: gameId:teamId). The queues are not persisted,
+    // so sequence numbers restart after a reboot; the epoch tells clients their old ones are void
+    private final Map<String, ClueResponseQueue> clueResponses = new ConcurrentHashMap<>();
+    private final long clueResponseEpoch = System.currentTimeMillis();
     // Store Expo push tokens per game/team (key: gameId:teamId)
     private final Map<String, Set<String>> teamPushTokens = new ConcurrentHashMap<>();
     // Track which team each device token is currently active with (key: token -> gameId:teamId)
     private final Map<String, String> deviceToActiveTeam = new ConcurrentHashMap<>();
+    // Per-game grid and distance matrix of team locations for hider range/nearest queries
+    private final Map<String, TeamSpatialIndex> spatialIndexes = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
     private final Random random = new Random();
 
@@ -266,22 +277,63 @@ public class GameStore {
         }
     }
 
+    /**
+     * Re-insert a game rebuilt from checkpoints/event logs without touching its activity timestamp.
+     */
+    public void restoreGame(Game game) {
+        if (game != null && game.getId() != null) {
+            games.putIfAbsent(game.getId(), game);
+        }
+    }
+
     public void deleteGame(String gameId) {
         // Remove the game itself
         games.remove(gameId);
         
         // Clean up all associated data to prevent memory leaks
         teamClueHistory.entrySet().removeIf(entry -> entry.getKey().startsWith(gameId + ":"));
-        clueRequests.entrySet().removeIf(entry -> entry.getKey().startsWith(gameId + ":"));
+        clueHistoryVersions.keySet().removeIf(key -> key.startsWith(gameId + ":"));
+        clueEntryVersions.keySet().removeIf(key -> key.startsWith(gameId + ":"));
+        clueRequests.values().removeIf(request -> gameId.equals(request.getGameId())); // keyed by request id
         clueResponses.entrySet().removeIf(entry -> entry.getKey().startsWith(gameId + ":"));
         teamPushTokens.entrySet().removeIf(entry -> entry.getKey().startsWith(gameId + ":"));
         
         // Clean up device-to-team mappings for this game
         deviceToActiveTeam.entrySet().removeIf(entry -> entry.getValue().startsWith(gameId + ":"));
+        spatialIndexes.remove(gameId);
         
         logger.info("Cleaned up all data for game {}", gameId);
     }
 
+    // Raw state views and restore hooks used by GameStoreSnapshotter (same package)
+    Collection<Game> snapshotGames() {
+        return games.values();
+    }
+
+    Map<String, List<PurchasedClue>> snapshotClueHistory() {
+        return teamClueHistory;
+    }
+
+    Collection<ClueRequest> snapshotClueRequests() {
+        return clueRequests.values();
+    }
+
+    Map<String, Set<String>> snapshotPushTokens() {
+        return teamPushTokens;
+    }
+
+    Map<String, String> snapshotDeviceAssignments() {
+        return deviceToActiveTeam;
+    }
+
+    void restorePushTokens(String teamKey, Collection<String> tokens) {
+        teamPushTokens.computeIfAbsent(teamKey, k -> ConcurrentHashMap.newKeySet()).addAll(tokens);
+    }
+
+    void restoreDeviceAssignment(String token, String teamKey) {
+        deviceToActiveTeam.putIfAbsent(token, teamKey);
+    }
+
     public Team getTeam(String gameId, String teamId) {
         Game game = getGame(gameId);
         if (game != null) {
@@ -362,6 +414,11 @@ public class GameStore {
                             clueType.setRange(null); // null means unlimited range
                         }
                         
+                        Object expiryValue = clueTypeData.get("expirySeconds");
+                        if (expiryValue instanceof Integer) {
+                            clueType.setExpirySeconds((Integer) expiryValue);
+                        }
+                        
                         clueTypes.add(clueType);
                     }
                 }
@@ -388,6 +445,7 @@ public class GameStore {
     public void addPurchasedClue(PurchasedClue purchasedClue) {
     String key = purchasedClue.getGameId() + ":" + purchasedClue.getTeamId();
     teamClueHistory.computeIfAbsent(key, k -> new ArrayList<>()).add(purchasedClue);
+    touchClue(key, purchasedClue);
     }
 
     public List<PurchasedClue> getClueHistory(String gameId) {
@@ -397,8 +455,13 @@ public class GameStore {
     public void addClueToHistory(String gameId, PurchasedClue clue) {
         String key = clue.getGameId() + ":" + clue.getTeamId();
         teamClueHistory.computeIfAbsent(key, k -> new ArrayList<>()).add(clue);
+        touchClue(key, clue);
     }
     
+    /**
+     * Store a changed clue. Clues are often edited in place before this is called; either way it
+     * moves the clue to a new history version so cached history is refreshed.
+     */
     public void updateClueInHistory(String gameId, PurchasedClue updatedClue) {
         String key = gameId + ":" + updatedClue.getTeamId();
         List<PurchasedClue> clues = teamClueHistory.get(key);
@@ -406,18 +469,58 @@ public class GameStore {
             for (int i = 0; i < clues.size(); i++) {
                 if (clues.get(i).getId().equals(updatedClue.getId())) {
                     clues.set(i, updatedClue);
+                    touchClue(key, updatedClue);
                     break;
                 }
             }
         }
     }
 
+    /**
+     * Version of a team's clue history; it grows whenever a clue is added or changed (0 if none).
+     */
+    public long getClueHistoryVersion(String gameId, String teamId) {
+        return clueHistoryVersions.getOrDefault(gameId + ":" + teamId, 0L);
+    }
+
+    /**
+     * History version at which the clue was last added or changed.
+     */
+    public long getClueVersion(String gameId, String teamId, String clueId) {
+        return clueEntryVersions.getOrDefault(gameId + ":" + teamId + ":" + clueId, 0L);
+    }
+
+    private void touchClue(String clueHistoryKey, PurchasedClue clue) {
+        long version = clueHistoryClock.incrementAndGet();
+        clueEntryVersions.put(clueHistoryKey + ":" + clue.getId(), version);
+        clueHistoryVersions.merge(clueHistoryKey, version, Math::max);
+    }
+
     // New method: get clue history for a specific team in a game
     public List<PurchasedClue> getClueHistoryForTeam(String gameId, String teamId) {
         String key = gameId + ":" + teamId;
         return teamClueHistory.getOrDefault(key, new ArrayList<>());
     }
     
+    /**
+     * Every team's purchased clues in the game, including teams that have since left.
+     */
+    public List<PurchasedClue> getClueHistoryForGame(String gameId) {
+        String prefix = gameId + ":";
+        List<PurchasedClue> clues = new ArrayList<>();
+        teamClueHistory.forEach((key, list) -> {
+            if (key.startsWith(prefix)) clues.addAll(new ArrayList<>(list));
+        });
+        return clues;
+    }
+    
+    public void restoreClueHistory(String gameId, String teamId, List<PurchasedClue> clues) {
+        if (clues == null || clues.isEmpty()) return;
+        String key = gameId + ":" + teamId;
+        teamClueHistory.put(key, new ArrayList<>(clues));
+        clues.forEach(clue -> touchClue(key, clue));
+    }
+    
     // Async clue request methods
     public void addClueRequest(ClueRequest request) {
         clueRequests.put(request.getId(), request);
@@ -436,37 +539,65 @@ public class GameStore {
                 .collect(java.util.stream.Collectors.toList());
     }
     
+    public List<ClueRequest> getClueRequestsForGame(String gameId) {
+        return clueRequests.values().stream()
+                .filter(req -> gameId.equals(req.getGameId()))
+                .collect(java.util.stream.Collectors.toList());
+    }
+    
     public void updateClueRequest(ClueRequest request) {
         clueRequests.put(request.getId(), request);
     }
     
+    public List<ClueRequest> getPendingClueRequests() {
+        return clueRequests.values().stream()
+                .filter(req -> "pending".equals(req.getStatus()))
+                .collect(java.util.stream.Collectors.toList());
+    }
+    
     public List<ClueRequest> getExpiredClueRequests() {
         return clueRequests.values().stream()
                 .filter(req -> "pending".equals(req.getStatus()) && req.isExpired())
                 .collect(java.util.stream.Collectors.toList());
     }
     
-    public void addClueResponse(ClueResponse response) {
-        String key = response.getRequestingTeamId() + ":" + response.getGameId();
-        clueResponses.computeIfAbsent(key, k -> new ArrayList<>()).add(response);
+    /**
+     * Queue a response for the requesting team; returns its delivery sequence number.
+     */
+    public long addClueResponse(ClueResponse response) {
+        String key = response.getGameId() + ":" + response.getRequestingTeamId();
+        return clueResponses.computeIfAbsent(key, k -> new ClueResponseQueue()).add(response);
     }
     
-    public List<ClueResponse> getUndeliveredClueResponsesForTeam(String gameId, String teamId) {
-        String key = teamId + ":" + gameId;
-        return clueResponses.getOrDefault(key, new ArrayList<>()).stream()
-                .filter(response -> !response.isDelivered())
-                .collect(java.util.stream.Collectors.toList());
+    /**
+     * Responses the team has not acknowledged yet with a sequence number above afterSeq, oldest first.
+     */
+    public List<ClueResponse> getClueResponsesAfter(String gameId, String teamId, long afterSeq) {
+        ClueResponseQueue queue = clueResponses.get(gameId + ":" + teamId);
+        return queue == null ? new ArrayList<>() : queue.after(afterSeq);
     }
     
-    public void markClueResponseAsDelivered(String requestId, String teamId, String gameId) {
-        String key = teamId + ":" + gameId;
-        List<ClueResponse> responses = clueResponses.get(key);
-        if (responses != null) {
-            responses.stream()
-                    .filter(response -> response.getRequestId().equals(requestId))
-                    .forEach(response -> response.setDelivered(true));
+    /**
+     * Remove every response up to and including seq from the team's queue.
+     */
+    public void acknowledgeClueResponses(String gameId, String teamId, long seq) {
+        ClueResponseQueue queue = clueResponses.get(gameId + ":" + teamId);
+        if (queue != null) {
+            queue.acknowledge(seq);
         }
     }
+    
+    public long getLastClueResponseSeq(String gameId, String teamId) {
+        ClueResponseQueue queue = clueResponses.get(gameId + ":" + teamId);
+        return queue == null ? 0 : queue.getLastSeq();
+    }
+    
+    /**
+     * Identifies this run's clue response sequence numbers; a seq from another epoch means nothing.
+     */
+    public long getClueResponseEpoch() {
+        return clueResponseEpoch;
+    }
 
     // Push token management
     public void registerPushToken(String gameId, String teamId, String token) {
@@ -575,17 +706,11 @@ public class GameStore {
         Team requestingTeam = getTeam(gameId, requestingTeamId);
         if (requestingTeam == null || requestingTeam.getLocation() == null) return null;
         
-        return game.getTeams().stream()
-                .filter(team -> "hider".equals(team.getRole()) && team.getLocation() != null)
-                .min((h1, h2) -> {
-                    double dist1 = calculateDistance(requestingTeam.getLocation(), h1.getLocation());
-                    double dist2 = calculateDistance(requestingTeam.getLocation(), h2.getLocation());
-                    return Double.compare(dist1, dist2);
-                })
-                .orElse(null);
+        TeamSpatialIndex.Hit hit = spatialIndex(game).closestHider(requestingTeam);
+        return hit != null ? hit.team : null;
     }
     
-    // Find all hider teams within specified range of requesting seeker team
+    // Find all hider teams within specified range of requesting seeker team, closest first
     public List<Team> getHidersWithinRange(String gameId, String requestingTeamId, Integer rangeMeters) {
         Game game = getGame(gameId);
         if (game == null) return new ArrayList<>();
@@ -593,40 +718,65 @@ public class GameStore {
         Team requestingTeam = getTeam(gameId, requestingTeamId);
         if (requestingTeam == null || requestingTeam.getLocation() == null) return new ArrayList<>();
         
-        return game.getTeams().stream()
-                .filter(team -> "hider".equals(team.getRole()) && team.getLocation() != null)
-                .filter(team -> {
-                    if (rangeMeters == null) {
-                        return true; // Unlimited range
-                    }
-                    double distance = calculateDistance(requestingTeam.getLocation(), team.getLocation());
-                    return distance <= rangeMeters;
-                })
-                .sorted((h1, h2) -> {
-                    // Sort by distance (closest first)
-                    double dist1 = calculateDistance(requestingTeam.getLocation(), h1.getLocation());
-                    double dist2 = calculateDistance(requestingTeam.getLocation(), h2.getLocation());
-                    return Double.compare(dist1, dist2);
-                })
-                .collect(java.util.stream.Collectors.toList());
+        List<TeamSpatialIndex.Hit> hits = spatialIndex(game).hidersWithin(requestingTeam, rangeMeters);
+        List<Team> result = new ArrayList<>(hits.size());
+        for (TeamSpatialIndex.Hit hit : hits) {
+            result.add(hit.team);
+        }
+        return result;
+    }
+    
+    /**
+     * Re-index a team after its location changed. Call after every location update so that
+     * range and nearest queries only touch nearby grid cells.
+     */
+    public void updateTeamLocationIndex(String gameId, Team team) {
+        if (team == null || !games.containsKey(gameId)) return;
+        spatialIndexes.computeIfAbsent(gameId, k -> new TeamSpatialIndex()).update(team);
     }
     
-    // Utility method to calculate distance between team locations
-    private double calculateDistance(Team.TeamLocation loc1, Team.TeamLocation loc2) {
-        double lat1 = Math.toRadians(loc1.getLatitude());
-        double lon1 = Math.toRadians(loc1.getLongitude());
-        double lat2 = Math.toRadians(loc2.getLatitude());
-        double lon2 = Math.toRadians(loc2.getLongitude());
-
-        double dlat = lat2 - lat1;
-        double dlon = lon2 - lon1;
-
-        double a = Math.sin(dlat / 2) * Math.sin(dlat / 2) +
-                Math.cos(lat1) * Math.cos(lat2) *
-                        Math.sin(dlon / 2) * Math.sin(dlon / 2);
-        double c = 2 * Math.asin(Math.sqrt(a));
-        double radius = 6371000; // Earth's radius in meters
-
-        return radius * c;
+    /**
+     * Distance in meters between two teams of a game, from the per-game distance matrix. NaN if either has no location.
+     */
+    public double getTeamDistance(String gameId, Team from, Team to) {
+        if (from == null || to == null || !games.containsKey(gameId)) return Double.NaN;
+        return spatialIndexes.computeIfAbsent(gameId, k -> new TeamSpatialIndex()).distance(from, to);
+    }
+
+    /**
+     * Initial bearing in degrees (0 = north, clockwise) from one team to another. NaN if either has no location.
+     */
+    public double getTeamBearing(String gameId, Team from, Team to) {
+        if (from == null || to == null || !games.containsKey(gameId)) return Double.NaN;
+        return spatialIndexes.computeIfAbsent(gameId, k -> new TeamSpatialIndex()).bearing(from, to);
+    }
+
+    /**
+     * Teams with the given role within rangeMeters of a team, as teamId -> distance, closest first.
+     * Only the grid cells around the team are visited.
+     */
+    public Map<String, Double> getTeamsWithinRange(String gameId, Team from, double rangeMeters, String role) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        if (from == null || from.getLocation() == null || !games.containsKey(gameId)) return result;
+        TeamSpatialIndex index = spatialIndexes.computeIfAbsent(gameId, k -> new TeamSpatialIndex());
+        for (TeamSpatialIndex.Hit hit : index.withinRange(from, rangeMeters, role)) {
+            result.put(hit.team.getId(), hit.distance);
+        }
+        return result;
+    }
+
+    /**
+     * Distance from a team to the closest team with the given role. NaN if there is none.
+     */
+    public double getNearestTeamDistance(Game game, Team from, String role) {
+        if (game == null || from == null || from.getLocation() == null) return Double.NaN;
+        return spatialIndex(game).nearestWithRole(from, role);
+    }
+
+    private TeamSpatialIndex spatialIndex(Game game) {
+        TeamSpatialIndex index = spatialIndexes.computeIfAbsent(game.getId(), k -> new TeamSpatialIndex());
+        // Catches locations set outside updateTeamLocationIndex (restore, replay, resets)
+        index.sync(game.getTeams());
+        return index;
     }
 }
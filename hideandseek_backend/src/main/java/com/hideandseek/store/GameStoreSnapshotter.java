@@ -0,0 +1,370 @@
+package com.hideandseek.store;
+
+import com.hideandseek.logging.GameEventLogger;
+import com.hideandseek.model.ClueRequest;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.PurchasedClue;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Periodically (and on shutdown) writes the whole GameStore to a single binary snapshot file.
+ * Each game is stored with the last event-log sequence number its state reflects. The snapshot
+ * is not applied on its own: startup recovery (GameEventReplayer) reads it, replays the events
+ * logged after each game's sequence on top and restores the result, and no snapshot is written
+ * until that has finished, so a half-recovered store never replaces the file.
+ */
+@Component
+public class GameStoreSnapshotter {
+    private static final Logger logger = LoggerFactory.getLogger(GameStoreSnapshotter.class);
+    private static final int MAGIC = 0x48534E50; // "HSNP"
+    // 2: per-game event sequence; version 1 files are still read (sequence unknown)
+    private static final int FORMAT_VERSION = 2;
+
+    private final GameStore gameStore;
+    private final GameEventLogger gameEventLogger;
+    private final boolean enabled;
+    private final Path snapshotFile;
+    private volatile boolean recovered;
+    private volatile Map<String, Object> lastLoad = Map.of("status", "not run");
+    private volatile Map<String, Object> lastWrite = Map.of("status", "not run");
+
+    public GameStoreSnapshotter(GameStore gameStore,
+                                GameEventLogger gameEventLogger,
+                                @Value("${store.snapshot.enabled:true}") boolean enabled,
+                                @Value("${store.snapshot.file:}") String snapshotFile) {
+        this.gameStore = gameStore;
+        this.gameEventLogger = gameEventLogger;
+        this.enabled = enabled;
+        this.snapshotFile = resolveSnapshotFile(snapshotFile);
+    }
+
+    private Path resolveSnapshotFile(String configured) {
+        if (configured != null && !configured.isBlank()) {
+            return Paths.get(configured).toAbsolutePath().normalize();
+        }
+        String dataDir = System.getProperty("jboss.server.data.dir");
+        Path base = dataDir != null && !dataDir.isBlank() ? Paths.get(dataDir) : Paths.get(System.getProperty("user.dir", "."));
+        return base.resolve("hideandseek").resolve("snapshot").resolve("gamestore.bin").toAbsolutePath().normalize();
+    }
+
+    /**
+     * A decoded snapshot file, not yet applied to the GameStore.
+     */
+    public static final class Snapshot {
+        private final Map<String, Game> games = new LinkedHashMap<>();
+        private final Map<String, Long> eventSequences = new HashMap<>();
+        // gameId -> teamId -> clues
+        private final Map<String, Map<String, List<PurchasedClue>>> clueHistory = new HashMap<>();
+        private final Map<String, List<ClueRequest>> clueRequests = new HashMap<>();
+        private final Map<String, List<String>> pushTokens = new HashMap<>();
+        private final Map<String, String> deviceAssignments = new HashMap<>();
+
+        public Collection<Game> getGames() { return games.values(); }
+
+        public Game getGame(String gameId) { return games.get(gameId); }
+
+        /**
+         * Last event sequence reflected in the game's state, -1 if the file predates sequences.
+         */
+        public long getEventSequence(String gameId) { return eventSequences.getOrDefault(gameId, -1L); }
+
+        public Map<String, List<PurchasedClue>> getClueHistory(String gameId) {
+            return clueHistory.getOrDefault(gameId, Map.of());
+        }
+
+        public List<ClueRequest> getClueRequests(String gameId) {
+            return clueRequests.getOrDefault(gameId, List.of());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Decode the snapshot file, or null if snapshots are disabled or there is none yet.
+     */
+    public Snapshot readSnapshot() throws IOException {
+        if (!enabled) return null;
+        return read(snapshotFile);
+    }
+
+    /**
+     * Restore push tokens and device assignments of the given (restored) games.
+     */
+    public void restorePushRegistrations(Snapshot snapshot, Collection<String> gameIds) {
+        Set<String> prefixes = new HashSet<>();
+        for (String gameId : gameIds) {
+            prefixes.add(gameId + ":");
+        }
+        snapshot.pushTokens.forEach((key, list) -> {
+            if (list != null && prefixes.contains(gamePrefix(key))) gameStore.restorePushTokens(key, list);
+        });
+        snapshot.deviceAssignments.forEach((token, key) -> {
+            if (key != null && prefixes.contains(gamePrefix(key))) gameStore.restoreDeviceAssignment(token, key);
+        });
+    }
+
+    /**
+     * Called once startup recovery has restored the store; snapshots are written from then on.
+     */
+    public void recoveryFinished() {
+        recovered = true;
+    }
+
+    private static String gamePrefix(String teamKey) {
+        int colon = teamKey.indexOf(':');
+        return colon >= 0 ? teamKey.substring(0, colon + 1) : teamKey;
+    }
+
+    @Scheduled(fixedRateString = "${store.snapshot.intervalMs:30000}", initialDelayString = "${store.snapshot.intervalMs:30000}")
+    public void periodicSnapshot() {
+        if (!enabled) return;
+        writeSnapshot();
+    }
+
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        if (!enabled) return;
+        writeSnapshot();
+    }
+
+    public Map<String, Object> getLastLoad() {
+        return lastLoad;
+    }
+
+    public Map<String, Object> getLastWrite() {
+        return lastWrite;
+    }
+
+    /**
+     * Write the snapshot, retrying a couple of times if a game is mutated while it is being encoded.
+     */
+    public synchronized Map<String, Object> writeSnapshot() {
+        if (!recovered) {
+            // The store is still empty or half restored; keep the previous file
+            return Map.of("status", "skipped", "reason", "startup recovery has not finished");
+        }
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            try {
+                lastWrite = write(snapshotFile);
+                return lastWrite;
+            } catch (ConcurrentModificationException e) {
+                logger.debug("GameStore changed during snapshot (attempt {}), retrying", attempt);
+            } catch (Exception e) {
+                logger.warn("Failed to write GameStore snapshot {}: {}", snapshotFile, e.getMessage());
+                break;
+            }
+        }
+        return lastWrite;
+    }
+
+    /**
+     * Deep copy of a live game through the snapshot codec, for writers that serialize one game
+     * outside the snapshot (GameStateCheckpointer); retried like a snapshot if the game is changed
+     * while it is copied.
+     */
+    public Game copyGame(Game game) {
+        return copy(out -> GameSnapshotCodec.writeGame(out, game), GameSnapshotCodec::readGame);
+    }
+
+    public List<PurchasedClue> copyClues(List<PurchasedClue> clues) {
+        List<PurchasedClue> source = new ArrayList<>(clues);
+        return copy(out -> {
+            out.writeInt(source.size());
+            for (PurchasedClue clue : source) GameSnapshotCodec.writeClue(out, clue);
+        }, in -> {
+            int n = in.getInt();
+            List<PurchasedClue> copies = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) copies.add(GameSnapshotCodec.readClue(in));
+            return copies;
+        });
+    }
+
+    public List<ClueRequest> copyClueRequests(List<ClueRequest> requests) {
+        List<ClueRequest> source = new ArrayList<>(requests);
+        return copy(out -> {
+            out.writeInt(source.size());
+            for (ClueRequest req : source) GameSnapshotCodec.writeClueRequest(out, req);
+        }, in -> {
+            int n = in.getInt();
+            List<ClueRequest> copies = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) copies.add(GameSnapshotCodec.readClueRequest(in));
+            return copies;
+        });
+    }
+
+    private interface Encoder {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static <T> T copy(Encoder encoder, Function<ByteBuffer, T> decoder) {
+        ConcurrentModificationException changed = null;
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                encoder.write(out);
+            } catch (ConcurrentModificationException e) {
+                changed = e;
+                continue;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return decoder.apply(ByteBuffer.wrap(bytes.toByteArray()));
+        }
+        throw changed;
+    }
+
+    Map<String, Object> write(Path target) throws IOException {
+        long started = System.nanoTime();
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        int gameCount = 0;
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+
+            List<Game> games = new ArrayList<>(gameStore.snapshotGames());
+            out.writeInt(games.size());
+            for (Game game : games) {
+                // Sequence before state: events racing with the encoding are replayed again, and
+                // every replay handler sets absolute values
+                GameSnapshotCodec.writeGameEntry(out, game, gameEventLogger.getCurrentSequence(game.getId()));
+            }
+            gameCount = games.size();
+
+            List<Map.Entry<String, List<PurchasedClue>>> history = new ArrayList<>(gameStore.snapshotClueHistory().entrySet());
+            out.writeInt(history.size());
+            for (Map.Entry<String, List<PurchasedClue>> e : history) {
+                GameSnapshotCodec.writeString(out, e.getKey());
+                List<PurchasedClue> clues = new ArrayList<>(e.getValue());
+                out.writeInt(clues.size());
+                for (PurchasedClue clue : clues) {
+                    GameSnapshotCodec.writeClue(out, clue);
+                }
+            }
+
+            List<ClueRequest> requests = new ArrayList<>(gameStore.snapshotClueRequests());
+            out.writeInt(requests.size());
+            for (ClueRequest req : requests) {
+                GameSnapshotCodec.writeClueRequest(out, req);
+            }
+
+            List<Map.Entry<String, Set<String>>> tokens = new ArrayList<>(gameStore.snapshotPushTokens().entrySet());
+            out.writeInt(tokens.size());
+            for (Map.Entry<String, Set<String>> e : tokens) {
+                GameSnapshotCodec.writeString(out, e.getKey());
+                GameSnapshotCodec.writeStrings(out, new ArrayList<>(e.getValue()));
+            }
+
+            List<Map.Entry<String, String>> devices = new ArrayList<>(gameStore.snapshotDeviceAssignments().entrySet());
+            out.writeInt(devices.size());
+            for (Map.Entry<String, String> e : devices) {
+                GameSnapshotCodec.writeString(out, e.getKey());
+                GameSnapshotCodec.writeString(out, e.getValue());
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "written");
+        result.put("file", target.toString());
+        result.put("games", gameCount);
+        result.put("bytes", Files.size(target));
+        result.put("durationMs", (System.nanoTime() - started) / 1_000_000L);
+        result.put("at", System.currentTimeMillis());
+        return result;
+    }
+
+    Snapshot read(Path source) throws IOException {
+        if (!Files.exists(source)) {
+            lastLoad = Map.of("status", "no snapshot", "file", source.toString());
+            return null;
+        }
+        long started = System.nanoTime();
+        Snapshot snapshot = new Snapshot();
+        int clueLists;
+        int requests;
+        try (FileChannel ch = FileChannel.open(source, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.getInt() != MAGIC) throw new IOException("Not a GameStore snapshot");
+            int version = buf.getInt();
+            if (version != 1 && version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version " + version);
+            buf.getLong(); // written at
+
+            int games = buf.getInt();
+            for (int i = 0; i < games; i++) {
+                GameSnapshotCodec.GameEntry entry = version == 1
+                        ? new GameSnapshotCodec.GameEntry(GameSnapshotCodec.readGame(buf), -1L)
+                        : GameSnapshotCodec.readGameEntry(buf);
+                snapshot.games.put(entry.game.getId(), entry.game);
+                snapshot.eventSequences.put(entry.game.getId(), entry.eventSequence);
+            }
+            clueLists = buf.getInt();
+            for (int i = 0; i < clueLists; i++) {
+                String key = GameSnapshotCodec.readString(buf);
+                int n = buf.getInt();
+                List<PurchasedClue> clues = new ArrayList<>(n);
+                for (int j = 0; j < n; j++) {
+                    clues.add(GameSnapshotCodec.readClue(buf));
+                }
+                // Key is gameId:teamId
+                int colon = key.indexOf(':');
+                if (colon > 0) {
+                    snapshot.clueHistory.computeIfAbsent(key.substring(0, colon), k -> new HashMap<>())
+                            .put(key.substring(colon + 1), clues);
+                }
+            }
+            requests = buf.getInt();
+            for (int i = 0; i < requests; i++) {
+                ClueRequest req = GameSnapshotCodec.readClueRequest(buf);
+                snapshot.clueRequests.computeIfAbsent(req.getGameId(), k -> new ArrayList<>()).add(req);
+            }
+            int tokenKeys = buf.getInt();
+            for (int i = 0; i < tokenKeys; i++) {
+                snapshot.pushTokens.put(GameSnapshotCodec.readString(buf), GameSnapshotCodec.readStrings(buf));
+            }
+            int deviceCount = buf.getInt();
+            for (int i = 0; i < deviceCount; i++) {
+                snapshot.deviceAssignments.put(GameSnapshotCodec.readString(buf), GameSnapshotCodec.readString(buf));
+            }
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Snapshot file is truncated", e);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("status", "read");
+        result.put("file", source.toString());
+        result.put("games", snapshot.games.size());
+        result.put("clueHistories", clueLists);
+        result.put("clueRequests", requests);
+        result.put("durationMs", (System.nanoTime() - started) / 1_000_000L);
+        lastLoad = result;
+        logger.info("Read GameStore snapshot: {}", result);
+        return snapshot;
+    }
+}
@@ -0,0 +1,142 @@
+package com.hideandseek.store;
+
+import com.hideandseek.util.GeoUtils;
+
+import java.util.*;
+
+/**
+ * Pairwise distance (meters) and initial bearing (degrees) between the located teams of one
+ * game, in flat row-major double[] matrices. Moving a team recomputes only its row and column;
+ * lookups are a single array read. Cells involving a team without a location hold NaN.
+ * Not thread-safe; TeamSpatialIndex guards it.
+ */
+final class TeamDistanceMatrix {
+    private final Map<String, Slot> slots = new HashMap<>();
+    private final ArrayDeque<Slot> freeSlots = new ArrayDeque<>();
+    private int capacity;
+    private int used;
+    private double[] lat = new double[0];
+    private double[] lon = new double[0];
+    private double[] distance = new double[0];
+    private double[] bearing = new double[0];
+
+    private static final class Slot {
+        final int index;
+        Slot(int index) {
+            this.index = index;
+        }
+    }
+
+    void move(String teamId, double latitude, double longitude) {
+        Slot slot = slots.get(teamId);
+        if (slot == null) {
+            slot = freeSlots.isEmpty() ? new Slot(allocate()) : freeSlots.pop();
+            slots.put(teamId, slot);
+        }
+        int i = slot.index;
+        lat[i] = latitude;
+        lon[i] = longitude;
+        double lat1 = Math.toRadians(latitude);
+        double cosLat1 = Math.cos(lat1);
+        double sinLat1 = Math.sin(lat1);
+        for (Slot other : slots.values()) {
+            int j = other.index;
+            if (j == i) {
+                distance[i * capacity + i] = 0;
+                bearing[i * capacity + i] = 0;
+                continue;
+            }
+            if (Double.isNaN(lat[j])) {
+                clearPair(i, j);
+                continue;
+            }
+            double lat2 = Math.toRadians(lat[j]);
+            double cosLat2 = Math.cos(lat2);
+            double sinLat2 = Math.sin(lat2);
+            double dlon = Math.toRadians(lon[j] - longitude);
+
+            double d = GeoUtils.distanceMeters(lat1, cosLat1, lat2, cosLat2, dlon);
+            distance[i * capacity + j] = d;
+            distance[j * capacity + i] = d;
+
+            double sinDlon = Math.sin(dlon);
+            double cosDlon = Math.cos(dlon);
+            bearing[i * capacity + j] = normalize(Math.toDegrees(Math.atan2(sinDlon * cosLat2,
+                    cosLat1 * sinLat2 - sinLat1 * cosLat2 * cosDlon)));
+            // Reverse direction: from j back to i, with dlon negated
+            bearing[j * capacity + i] = normalize(Math.toDegrees(Math.atan2(-sinDlon * cosLat1,
+                    cosLat2 * sinLat1 - sinLat2 * cosLat1 * cosDlon)));
+        }
+    }
+
+    /** Mark a team as having no location; it keeps its slot. */
+    void clear(String teamId) {
+        Slot slot = slots.get(teamId);
+        if (slot == null) return;
+        clearSlot(slot.index);
+    }
+
+    void remove(String teamId) {
+        Slot slot = slots.remove(teamId);
+        if (slot == null) return;
+        clearSlot(slot.index);
+        freeSlots.push(slot);
+    }
+
+    double distance(String fromTeamId, String toTeamId) {
+        return read(distance, fromTeamId, toTeamId);
+    }
+
+    double bearing(String fromTeamId, String toTeamId) {
+        return read(bearing, fromTeamId, toTeamId);
+    }
+
+    private double read(double[] matrix, String fromTeamId, String toTeamId) {
+        Slot from = slots.get(fromTeamId);
+        Slot to = slots.get(toTeamId);
+        if (from == null || to == null) return Double.NaN;
+        return matrix[from.index * capacity + to.index];
+    }
+
+    private void clearSlot(int i) {
+        lat[i] = Double.NaN;
+        lon[i] = Double.NaN;
+        for (int j = 0; j < capacity; j++) {
+            clearPair(i, j);
+        }
+    }
+
+    private void clearPair(int i, int j) {
+        distance[i * capacity + j] = Double.NaN;
+        distance[j * capacity + i] = Double.NaN;
+        bearing[i * capacity + j] = Double.NaN;
+        bearing[j * capacity + i] = Double.NaN;
+    }
+
+    private int allocate() {
+        if (used == capacity) grow(Math.max(8, capacity * 2));
+        return used++;
+    }
+
+    private void grow(int newCapacity) {
+        double[] newDistance = new double[newCapacity * newCapacity];
+        double[] newBearing = new double[newCapacity * newCapacity];
+        Arrays.fill(newDistance, Double.NaN);
+        Arrays.fill(newBearing, Double.NaN);
+        for (int i = 0; i < capacity; i++) {
+            System.arraycopy(distance, i * capacity, newDistance, i * newCapacity, capacity);
+            System.arraycopy(bearing, i * capacity, newBearing, i * newCapacity, capacity);
+        }
+        lat = Arrays.copyOf(lat, newCapacity);
+        lon = Arrays.copyOf(lon, newCapacity);
+        Arrays.fill(lat, capacity, newCapacity, Double.NaN);
+        Arrays.fill(lon, capacity, newCapacity, Double.NaN);
+        distance = newDistance;
+        bearing = newBearing;
+        capacity = newCapacity;
+    }
+
+    private static double normalize(double degrees) {
+        return (degrees + 360) % 360;
+    }
+}
@@ -0,0 +1,232 @@
+package com.hideandseek.store;
+
+import com.hideandseek.model.Team;
+import com.hideandseek.util.GeoUtils;
+
+import java.util.*;
+
+/**
+ * Uniform lat/lon cell grid over the located teams of one game, plus their TeamDistanceMatrix.
+ * Range and nearest-hider queries only look at the cells around the requesting team and read
+ * candidate distances from the matrix.
+ *
+ * Entries remember the TeamLocation instance they were indexed with, so locations replaced
+ * outside updateLocation (restore, replay, role resets) are picked up by sync().
+ */
+final class TeamSpatialIndex {
+    static final double CELL_METERS = 200.0;
+    private static final double CELL_DEGREES = CELL_METERS / GeoUtils.METERS_PER_DEGREE_LAT;
+    private static final int MAX_RINGS = 32;
+
+    private final Map<Long, Set<String>> cells = new HashMap<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TeamDistanceMatrix matrix = new TeamDistanceMatrix();
+
+    private static final class Entry {
+        final Team team;
+        final Team.TeamLocation location;
+        final long cell;
+
+        Entry(Team team, Team.TeamLocation location, long cell) {
+            this.team = team;
+            this.location = location;
+            this.cell = cell;
+        }
+    }
+
+    /** A hider and its distance from the query point, computed once. */
+    static final class Hit {
+        final Team team;
+        final double distance;
+
+        Hit(Team team, double distance) {
+            this.team = team;
+            this.distance = distance;
+        }
+    }
+
+    synchronized void update(Team team) {
+        Entry prev = entries.get(team.getId());
+        Team.TeamLocation loc = team.getLocation();
+        if (prev != null && prev.location == loc && prev.team == team) return;
+        if (prev != null) removeFromCell(prev.cell, team.getId());
+        if (loc == null) {
+            entries.remove(team.getId());
+            matrix.clear(team.getId());
+            return;
+        }
+        matrix.move(team.getId(), loc.getLatitude(), loc.getLongitude());
+        long cell = cellOf(loc.getLatitude(), loc.getLongitude());
+        entries.put(team.getId(), new Entry(team, loc, cell));
+        cells.computeIfAbsent(cell, k -> new HashSet<>()).add(team.getId());
+    }
+
+    /**
+     * Bring the index in line with the game's current teams; only reference checks unless something moved.
+     */
+    synchronized void sync(List<Team> teams) {
+        Set<String> present = new HashSet<>();
+        for (Team team : teams) {
+            present.add(team.getId());
+            update(team);
+        }
+        if (present.size() != entries.size()) {
+            for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Entry> e = it.next();
+                if (!present.contains(e.getKey())) {
+                    removeFromCell(e.getValue().cell, e.getKey());
+                    matrix.remove(e.getKey());
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Distance in meters between two teams, NaN when either has no location.
+     */
+    synchronized double distance(Team from, Team to) {
+        update(from);
+        update(to);
+        return matrix.distance(from.getId(), to.getId());
+    }
+
+    /**
+     * Initial bearing in degrees (0 = north) from one team to another, NaN when either has no location.
+     */
+    synchronized double bearing(Team from, Team to) {
+        update(from);
+        update(to);
+        return matrix.bearing(from.getId(), to.getId());
+    }
+
+    /**
+     * Distance to the closest team with the given role, NaN when there is none. Scans one matrix row.
+     */
+    synchronized double nearestWithRole(Team from, String role) {
+        double best = Double.NaN;
+        for (Entry e : entries.values()) {
+            if (e.team == from || !role.equals(e.team.getRole())) continue;
+            double d = matrix.distance(from.getId(), e.team.getId());
+            if (!Double.isNaN(d) && (Double.isNaN(best) || d < best)) best = d;
+        }
+        return best;
+    }
+
+    /**
+     * Hiders within rangeMeters of the team (all located hiders when rangeMeters is null), closest first.
+     */
+    synchronized List<Hit> hidersWithin(Team fromTeam, Integer rangeMeters) {
+        return withinRange(fromTeam, rangeMeters == null ? null : rangeMeters.doubleValue(), "hider");
+    }
+
+    /**
+     * Teams with the given role within rangeMeters of the team (no limit when rangeMeters is null), closest first.
+     */
+    synchronized List<Hit> withinRange(Team fromTeam, Double rangeMeters, String role) {
+        Team.TeamLocation from = fromTeam.getLocation();
+        String fromId = fromTeam.getId();
+        List<Hit> hits = new ArrayList<>();
+        int latSpan = rangeMeters == null ? 0 : (int) Math.ceil(rangeMeters / CELL_METERS);
+        int lonSpan = rangeMeters == null ? 0 : (int) Math.ceil(rangeMeters / lonCellMeters(from.getLatitude(), rangeMeters));
+        if (rangeMeters == null || (2L * latSpan + 1) * (2L * lonSpan + 1) > cells.size()) {
+            // Unlimited or very wide range: visiting the occupied cells beats probing empty ones
+            double range = rangeMeters == null ? Double.MAX_VALUE : rangeMeters;
+            for (Entry e : entries.values()) {
+                addIfRole(hits, e, fromId, range, role);
+            }
+        } else {
+            long center = cellOf(from.getLatitude(), from.getLongitude());
+            int cLat = (int) (center >> 32);
+            int cLon = (int) center;
+            for (int dLat = -latSpan; dLat <= latSpan; dLat++) {
+                for (int dLon = -lonSpan; dLon <= lonSpan; dLon++) {
+                    Set<String> ids = cells.get(key(cLat + dLat, cLon + dLon));
+                    if (ids == null) continue;
+                    for (String id : ids) {
+                        addIfRole(hits, entries.get(id), fromId, rangeMeters, role);
+                    }
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(h -> h.distance));
+        return hits;
+    }
+
+    /**
+     * Closest located hider, searching rings of cells outward from the location.
+     */
+    synchronized Hit closestHider(Team fromTeam) {
+        if (entries.isEmpty()) return null;
+        Team.TeamLocation from = fromTeam.getLocation();
+        String fromId = fromTeam.getId();
+        long center = cellOf(from.getLatitude(), from.getLongitude());
+        int cLat = (int) (center >> 32);
+        int cLon = (int) center;
+        Hit best = null;
+        int seen = 0;
+        for (int k = 0; seen < entries.size(); k++) {
+            if (k > MAX_RINGS) {
+                // Teams are spread far apart; a plain scan is cheaper than more rings
+                for (Entry e : entries.values()) {
+                    best = closer(best, e, fromId);
+                }
+                return best;
+            }
+            for (int dLat = -k; dLat <= k; dLat++) {
+                // Full rows at the top and bottom of the ring, only the two edge cells in between
+                int step = (dLat == -k || dLat == k) ? 1 : Math.max(1, 2 * k);
+                for (int dLon = -k; dLon <= k; dLon += step) {
+                    Set<String> ids = cells.get(key(cLat + dLat, cLon + dLon));
+                    if (ids == null) continue;
+                    for (String id : ids) {
+                        seen++;
+                        best = closer(best, entries.get(id), fromId);
+                    }
+                }
+            }
+            // Anything in ring k+1 or further is at least k whole cells away north/south or east/west
+            double ringMeters = Math.min(CELL_METERS, lonCellMeters(from.getLatitude(), (k + 1) * CELL_METERS));
+            if (best != null && best.distance <= k * ringMeters) break;
+        }
+        return best;
+    }
+
+    private Hit closer(Hit best, Entry e, String fromId) {
+        if (!isHider(e)) return best;
+        double d = matrix.distance(fromId, e.team.getId());
+        return best == null || d < best.distance ? new Hit(e.team, d) : best;
+    }
+
+    private void addIfRole(List<Hit> hits, Entry e, String fromId, double range, String role) {
+        if (e == null || !role.equals(e.team.getRole())) return;
+        double d = matrix.distance(fromId, e.team.getId());
+        if (d <= range) hits.add(new Hit(e.team, d));
+    }
+
+    private static boolean isHider(Entry e) {
+        // Roles change without moving the team, so they are checked at query time
+        return e != null && "hider".equals(e.team.getRole());
+    }
+
+    private void removeFromCell(long cell, String teamId) {
+        Set<String> ids = cells.get(cell);
+        if (ids == null) return;
+        ids.remove(teamId);
+        if (ids.isEmpty()) cells.remove(cell);
+    }
+
+    // Narrowest east-west cell width within withinMeters north or south of the latitude
+    private static double lonCellMeters(double latitude, double withinMeters) {
+        double poleward = Math.min(90, Math.abs(latitude) + withinMeters / GeoUtils.METERS_PER_DEGREE_LAT);
+        return CELL_METERS * Math.max(0.01, Math.cos(Math.toRadians(poleward)));
+    }
+
+    private static long cellOf(double latitude, double longitude) {
+        return key((int) Math.floor(latitude / CELL_DEGREES), (int) Math.floor(longitude / CELL_DEGREES));
+    }
+
+    private static long key(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xffffffffL);
+    }
+}
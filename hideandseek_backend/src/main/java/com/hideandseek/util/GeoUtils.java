@@ -0,0 +1,44 @@
+package com.hideandseek.util;
+
+/**
+ * Distances between WGS84 coordinates. distanceMeters is the great-circle (haversine) distance on
+ * a spherical Earth; the meters-per-degree constants are for local planar frames, where a multiply
+ * is much cheaper than trigonometry. Both use the same sphere, so a grid sized with the constants
+ * agrees with distanceMeters on where a cell ends.
+ */
+public final class GeoUtils {
+    public static final double EARTH_RADIUS_METERS = 6371000.0;
+    public static final double METERS_PER_DEGREE_LAT = EARTH_RADIUS_METERS * Math.PI / 180;
+    // At the equator; scale by cos(latitude), see metersPerDegreeLon
+    public static final double METERS_PER_DEGREE_LON = EARTH_RADIUS_METERS * Math.PI / 180;
+
+    private GeoUtils() {
+    }
+
+    /**
+     * Great-circle distance in meters between two points given in degrees.
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        return distanceMeters(phi1, Math.cos(phi1), phi2, Math.cos(phi2), Math.toRadians(lon2 - lon1));
+    }
+
+    /**
+     * Great-circle distance in meters from latitudes in radians with their cosines precomputed and
+     * the longitude difference in radians, for loops that measure from one point to many.
+     */
+    public static double distanceMeters(double phi1, double cosPhi1, double phi2, double cosPhi2, double deltaLambda) {
+        double sinHalfPhi = Math.sin((phi2 - phi1) / 2);
+        double sinHalfLambda = Math.sin(deltaLambda / 2);
+        double a = sinHalfPhi * sinHalfPhi + cosPhi1 * cosPhi2 * sinHalfLambda * sinHalfLambda;
+        return EARTH_RADIUS_METERS * 2 * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Length of one degree of longitude at the given latitude (degrees) in a local planar frame.
+     */
+    public static double metersPerDegreeLon(double latitude) {
+        return METERS_PER_DEGREE_LON * Math.cos(Math.toRadians(latitude));
+    }
+}
@@ -3,6 +3,7 @@ package com.hideandseek.websocket;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.hideandseek.model.Game;
+import com.hideandseek.model.Team;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
@@ -10,6 +11,9 @@ import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -20,7 +24,39 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
     private final Map<String, CopyOnWriteArraySet<WebSocketSession>> gameConnections = new ConcurrentHashMap<>();
     private final Map<WebSocketSession, String> sessionGameMap = new ConcurrentHashMap<>();
     private final Map<WebSocketSession, Object> sessionLocks = new ConcurrentHashMap<>();
+    // Team a session joined as (optional in "join"); needed for "loc" messages
+    private final Map<WebSocketSession, String> sessionTeamMap = new ConcurrentHashMap<>();
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile LocationMessageHandler locationHandler;
+    private volatile ClueResponseDelivery clueResponseDelivery;
+
+    /**
+     * Receives "loc" messages for the session's game and team. Registered by LocationService,
+     * which itself depends on this handler for broadcasts.
+     */
+    @FunctionalInterface
+    public interface LocationMessageHandler {
+        void onLocation(String gameId, String teamId, double latitude, double longitude);
+    }
+
+    public void setLocationHandler(LocationMessageHandler locationHandler) {
+        this.locationHandler = locationHandler;
+    }
+
+    /**
+     * Per-team clue response queue, registered by ClueService. A "join" with a teamId and
+     * lastClueResponseSeq gets the responses it missed; "clueAck" removes delivered ones. Both may
+     * carry the clueResponseEpoch the seq came from (null if the client has none).
+     */
+    public interface ClueResponseDelivery {
+        List<Map<String, Object>> missedSince(String gameId, String teamId, Long epoch, long afterSeq);
+
+        void acknowledge(String gameId, String teamId, Long epoch, long seq);
+    }
+
+    public void setClueResponseDelivery(ClueResponseDelivery clueResponseDelivery) {
+        this.clueResponseDelivery = clueResponseDelivery;
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
@@ -35,9 +71,25 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
             );
             String type = (String) payload.get("type");
             
-            if ("join".equals(type)) {
+            if ("loc".equals(type)) {
+                handleLocationMessage(session, payload);
+            } else if ("join".equals(type)) {
                 String gameId = (String) payload.get("gameId");
                 joinGame(session, gameId);
+                Object teamId = payload.get("teamId");
+                if (teamId instanceof String t && !t.isBlank() && gameId != null && gameId.equals(sessionGameMap.get(session))) {
+                    sessionTeamMap.put(session, t);
+                    if (payload.get("lastClueResponseSeq") instanceof Number lastSeq) {
+                        sendMissedClueResponses(session, gameId, t, epochOf(payload), lastSeq.longValue());
+                    }
+                }
+            } else if ("clueAck".equals(type)) {
+                String gameId = sessionGameMap.get(session);
+                String teamId = sessionTeamMap.get(session);
+                ClueResponseDelivery delivery = clueResponseDelivery;
+                if (gameId != null && teamId != null && delivery != null && payload.get("seq") instanceof Number seq) {
+                    delivery.acknowledge(gameId, teamId, epochOf(payload), seq.longValue());
+                }
             } else if ("ping".equals(type)) {
                 // Heartbeat response
                 Object lock = sessionLocks.computeIfAbsent(session, s -> new Object());
@@ -61,22 +113,72 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
-    @Override
-    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+    private void handleLocationMessage(WebSocketSession session, Map<String, Object> payload) throws IOException {
+        Object seq = payload.get("seq");
+        String seqJson = seq instanceof Number n ? String.valueOf(n.longValue()) : "null";
         String gameId = sessionGameMap.get(session);
-        if (gameId != null) {
-            leaveGame(session, gameId);
+        String teamId = sessionTeamMap.get(session);
+        String error = null;
+        if (gameId == null || teamId == null) {
+            error = "Join the game with a teamId before sending locations";
+        } else if (!(payload.get("lat") instanceof Number lat) || !(payload.get("lon") instanceof Number lon)) {
+            error = "lat and lon are required";
+        } else if (locationHandler == null) {
+            error = "Location updates are not available";
+        } else {
+            try {
+                locationHandler.onLocation(gameId, teamId, lat.doubleValue(), lon.doubleValue());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                error = e.getMessage();
+            }
+        }
+        // Acks are tiny and built without the ObjectMapper; errors are rare
+        String reply = error == null
+                ? "{\"type\":\"locAck\",\"seq\":" + seqJson + "}"
+                : "{\"type\":\"locError\",\"seq\":" + seqJson + ",\"message\":" + objectMapper.writeValueAsString(error) + "}";
+        Object lock = sessionLocks.computeIfAbsent(session, s -> new Object());
+        synchronized (lock) {
+            if (session.isOpen()) {
+                session.sendMessage(new TextMessage(reply));
+            }
+        }
+    }
+
+    private static Long epochOf(Map<String, Object> payload) {
+        return payload.get("clueResponseEpoch") instanceof Number epoch ? epoch.longValue() : null;
+    }
+
+    private void sendMissedClueResponses(WebSocketSession session, String gameId, String teamId, Long epoch, long afterSeq) throws IOException {
+        ClueResponseDelivery delivery = clueResponseDelivery;
+        if (delivery == null) {
+            return;
+        }
+        Object lock = sessionLocks.computeIfAbsent(session, s -> new Object());
+        for (Map<String, Object> response : delivery.missedSince(gameId, teamId, epoch, afterSeq)) {
+            String responseJson = objectMapper.writeValueAsString(Map.of(
+                "type", "clueResponse",
+                "requestingTeamId", teamId,
+                "response", response
+            ));
+            synchronized (lock) {
+                if (!session.isOpen()) {
+                    return;
+                }
+                session.sendMessage(new TextMessage(responseJson));
+            }
         }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+        removeSession(session, null);
         System.out.println("WebSocket connection closed: " + session.getId());
     }
 
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         System.err.println("WebSocket transport error for session " + session.getId() + ": " + exception.getMessage());
-        String gameId = sessionGameMap.get(session);
-        if (gameId != null) {
-            leaveGame(session, gameId);
-        }
+        removeSession(session, null);
     }
 
     public void joinGame(WebSocketSession session, String gameId) {
@@ -99,19 +201,28 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
     }
 
     public void leaveGame(WebSocketSession session, String gameId) {
-        CopyOnWriteArraySet<WebSocketSession> sessions = gameConnections.get(gameId);
-        if (sessions != null) {
-            sessions.remove(session);
-            if (sessions.isEmpty()) {
-                gameConnections.remove(gameId);
-            }
-        }
-        sessionGameMap.remove(session);
-    sessionLocks.remove(session);
+        removeSession(session, gameId);
 
         System.out.println("Session " + session.getId() + " left game " + gameId);
     }
 
+    /**
+     * Forget a session everywhere: the connection set of gameId and of the game it joined, and
+     * every per-session map. Used on leave, close, transport errors and failed sends alike.
+     */
+    private void removeSession(WebSocketSession session, String gameId) {
+        String joined = sessionGameMap.remove(session);
+        sessionTeamMap.remove(session);
+        sessionLocks.remove(session);
+        for (String id : new String[]{gameId, joined}) {
+            if (id == null) continue;
+            gameConnections.computeIfPresent(id, (k, sessions) -> {
+                sessions.remove(session);
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+    }
+
     public void broadcastToGame(String gameId, Game game) {
         CopyOnWriteArraySet<WebSocketSession> sessions = gameConnections.get(gameId);
         if (sessions == null || sessions.isEmpty()) {
@@ -135,8 +246,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                 } catch (IOException e) {
                     System.err.println("Error sending message to session " + session.getId() + ": " + e.getMessage());
                     // Remove broken session
-                    sessions.remove(session);
-                    sessionGameMap.remove(session);
+                    removeSession(session, gameId);
                 }
             }
         } catch (Exception e) {
@@ -144,6 +254,62 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
         }
     }
 
+    /**
+     * Send a compact "locations" frame: {"type":"locations","t":..,"teams":[[teamId,lat,lon,ts],..]}.
+     * Admin sessions see every position; a team session sees positions of teams sharing its role
+     * and only timestamps (lat/lon null) for the other role; sessions without a team get timestamps only.
+     */
+    void broadcastLocations(Game game, List<LocationFrameBroadcaster.LocationTuple> tuples) {
+        CopyOnWriteArraySet<WebSocketSession> sessions = gameConnections.get(game.getId());
+        if (sessions == null || sessions.isEmpty()) {
+            return;
+        }
+        Map<String, String> roles = new HashMap<>();
+        for (Team team : game.getTeams()) {
+            roles.put(team.getId(), team.getRole());
+        }
+        long now = System.currentTimeMillis();
+        // One serialized frame per visibility class ("*" = everything, a role, or "" = none)
+        Map<String, String> frames = new HashMap<>();
+
+        for (WebSocketSession session : sessions) {
+            try {
+                if (!session.isOpen()) continue;
+                String visible;
+                if (Boolean.TRUE.equals(session.getAttributes().get("ADMIN_AUTH"))) {
+                    visible = "*";
+                } else {
+                    String teamId = sessionTeamMap.get(session);
+                    String role = teamId != null ? roles.get(teamId) : null;
+                    visible = role != null ? role : "";
+                }
+                String json = frames.get(visible);
+                if (json == null) {
+                    List<Object[]> rows = new ArrayList<>(tuples.size());
+                    for (LocationFrameBroadcaster.LocationTuple t : tuples) {
+                        boolean show = "*".equals(visible) || (!visible.isEmpty() && visible.equals(roles.get(t.teamId)));
+                        rows.add(show
+                                ? new Object[]{t.teamId, round6(t.latitude), round6(t.longitude), t.timestamp}
+                                : new Object[]{t.teamId, null, null, t.timestamp});
+                    }
+                    json = objectMapper.writeValueAsString(Map.of("type", "locations", "t", now, "teams", rows));
+                    frames.put(visible, json);
+                }
+                Object lock = sessionLocks.computeIfAbsent(session, s -> new Object());
+                synchronized (lock) {
+                    session.sendMessage(new TextMessage(json));
+                }
+            } catch (IOException e) {
+                System.err.println("Error sending locations to session " + session.getId() + ": " + e.getMessage());
+                removeSession(session, game.getId());
+            }
+        }
+    }
+
+    private static double round6(double degrees) {
+        return Math.round(degrees * 1e6) / 1e6;
+    }
+
     public int getActiveConnections(String gameId) {
         CopyOnWriteArraySet<WebSocketSession> sessions = gameConnections.get(gameId);
         return sessions != null ? sessions.size() : 0;
@@ -173,8 +339,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                     }
                 } catch (IOException e) {
                     System.err.println("Error sending clue request to session " + session.getId() + ": " + e.getMessage());
-                    sessions.remove(session);
-                    sessionGameMap.remove(session);
+                    removeSession(session, gameId);
                 }
             }
         } catch (Exception e) {
@@ -206,8 +371,7 @@ public class GameWebSocketHandler extends TextWebSocketHandler {
                     }
                 } catch (IOException e) {
                     System.err.println("Error sending clue response to session " + session.getId() + ": " + e.getMessage());
-                    sessions.remove(session);
-                    sessionGameMap.remove(session);
+                    removeSession(session, gameId);
                 }
             }
         } catch (Exception e) {
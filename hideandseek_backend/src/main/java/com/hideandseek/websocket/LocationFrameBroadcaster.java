@@ -0,0 +1,69 @@
+package com.hideandseek.websocket;
+
+import com.hideandseek.model.Game;
+import com.hideandseek.store.GameStore;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces team movements into compact "locations" frames instead of full gameUpdate messages.
+ * Moves queued between two ticks are sent once per game, keeping only the latest position of
+ * each team; GameWebSocketHandler applies per-session role visibility.
+ */
+@Component
+public class LocationFrameBroadcaster {
+
+    private final GameStore gameStore;
+    private final GameWebSocketHandler webSocketHandler;
+    // gameId -> teamId -> latest unsent position; the inner maps are only touched inside compute on
+    // their game's key, so a move is either in the map flush takes or in the one that replaces it
+    private final Map<String, Map<String, LocationTuple>> pending = new ConcurrentHashMap<>();
+
+    public LocationFrameBroadcaster(GameStore gameStore, GameWebSocketHandler webSocketHandler) {
+        this.gameStore = gameStore;
+        this.webSocketHandler = webSocketHandler;
+    }
+
+    static final class LocationTuple {
+        final String teamId;
+        final double latitude;
+        final double longitude;
+        final long timestamp;
+
+        LocationTuple(String teamId, double latitude, double longitude, long timestamp) {
+            this.teamId = teamId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.timestamp = timestamp;
+        }
+    }
+
+    public void queue(String gameId, String teamId, double latitude, double longitude, long timestamp) {
+        LocationTuple tuple = new LocationTuple(teamId, latitude, longitude, timestamp);
+        pending.compute(gameId, (k, moves) -> {
+            if (moves == null) moves = new HashMap<>();
+            moves.put(teamId, tuple);
+            return moves;
+        });
+    }
+
+    @Scheduled(fixedRateString = "${locations.frame.intervalMs:2000}", initialDelayString = "${locations.frame.intervalMs:2000}")
+    public void flush() {
+        for (String gameId : new ArrayList<>(pending.keySet())) {
+            List<LocationTuple> tuples = new ArrayList<>();
+            pending.computeIfPresent(gameId, (k, moves) -> {
+                tuples.addAll(moves.values());
+                return null;
+            });
+            Game game = gameStore.getGame(gameId);
+            if (game == null || tuples.isEmpty()) continue;
+            webSocketHandler.broadcastLocations(game, tuples);
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.hideandseek.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hideandseek.model.ClueRequest;
+import com.hideandseek.model.Game;
+import com.hideandseek.model.PurchasedClue;
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import com.hideandseek.store.GameStoreSnapshotter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Recovery from synthetic event logs: replaying from a checkpoint must reach the same state as a
+ * full replay while applying only the events logged after it.
+ */
+class GameEventReplayerTest {
+
+    private static final int GAMES = 20;
+    private static final int EVENTS_PER_GAME = 5000;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private GameEventReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        GameStore gameStore = new GameStore();
+        GameEventLogger logger = new GameEventLogger(dir.resolve("unused").toString(), gameStore);
+        GameStoreSnapshotter snapshotter = new GameStoreSnapshotter(gameStore, logger, false, "");
+        replayer = new GameEventReplayer(gameStore, logger, snapshotter, true, 12, 2);
+    }
+
+    @Test
+    void checkpointReplayMatchesFullReplay() throws Exception {
+        Path logs = dir.resolve("logs");
+        writeSyntheticLogs(logs, GAMES, EVENTS_PER_GAME, false);
+        Map<String, Object> full = replayer.recover(logs, null, false);
+        Map<String, GameEventReplayer.ReplayState> fullStates = replayAll(logs);
+
+        writeSyntheticLogs(logs, GAMES, EVENTS_PER_GAME, true);
+        Map<String, Object> fromCheckpoint = replayer.recover(logs, null, false);
+        Map<String, GameEventReplayer.ReplayState> checkpointStates = replayAll(logs);
+
+        assertEquals((long) GAMES * EVENTS_PER_GAME, ((Number) full.get("eventsReplayed")).longValue());
+        assertEquals((long) GAMES * (EVENTS_PER_GAME / 10), ((Number) fromCheckpoint.get("eventsReplayed")).longValue());
+        assertEquals(GAMES, ((Number) fromCheckpoint.get("checkpointsUsed")).intValue());
+        for (String gameId : fullStates.keySet()) {
+            Game expected = fullStates.get(gameId).game;
+            Game actual = checkpointStates.get(gameId).game;
+            assertEquals(expected.getStatus(), actual.getStatus());
+            for (int i = 0; i < expected.getTeams().size(); i++) {
+                Team.TeamLocation a = expected.getTeams().get(i).getLocation();
+                Team.TeamLocation b = actual.getTeams().get(i).getLocation();
+                assertEquals(a.getLatitude(), b.getLatitude(), 0);
+                assertEquals(a.getLongitude(), b.getLongitude(), 0);
+            }
+        }
+    }
+
+    @Test
+    void deletedGameIsSkipped() throws Exception {
+        Path logs = dir.resolve("logs");
+        writeSyntheticLogs(logs, 1, 10, false);
+        try (Writer w = Files.newBufferedWriter(logs.resolve("bench-0").resolve("events.ndjson"), StandardCharsets.UTF_8,
+                java.nio.file.StandardOpenOption.APPEND)) {
+            writeEvent(w, "bench-0", 11, System.currentTimeMillis(), "game.deleted", null, Map.of());
+        }
+        Map<String, Object> report = replayer.recover(logs, null, false);
+        assertEquals(1, ((Number) report.get("gamesSkipped")).intValue());
+    }
+
+    @Test
+    void clueRequestsResponsesAndRevealsAreRebuilt() throws Exception {
+        Path gameDir = Files.createDirectories(dir.resolve("logs").resolve("clues"));
+        long start = System.currentTimeMillis() - 60_000L;
+        try (Writer w = Files.newBufferedWriter(gameDir.resolve("events.ndjson"), StandardCharsets.UTF_8)) {
+            List<Map<String, Object>> teams = List.of(
+                    Map.of("id", "s", "name", "Seekers", "role", "seeker", "tokens", 10),
+                    Map.of("id", "h1", "name", "Hiders 1", "role", "hider", "tokens", 10),
+                    Map.of("id", "h2", "name", "Hiders 2", "role", "hider", "tokens", 10));
+            writeEvent(w, "clues", 1, start, "game.created", null, Map.of("gameCode", "CLUES", "teams", teams));
+            writeEvent(w, "clues", 2, start, "game.started", null, Map.of("round", 1));
+
+            Map<String, Object> purchased = new HashMap<>();
+            purchased.put("clueId", "c1");
+            purchased.put("clueTypeId", "selfie");
+            purchased.put("cost", 5);
+            purchased.put("clueText", "Waiting for selfies from 2 hider teams...");
+            purchased.put("status", "pending");
+            purchased.put("responseType", "photo");
+            purchased.put("requestIds", List.of("r1", "r2"));
+            purchased.put("targetHiderTeamIds", List.of("h1", "h2"));
+            purchased.put("hiderData", List.of(hider("h1", "Pending selfie"), hider("h2", "Pending selfie")));
+            writeEvent(w, "clues", 3, start + 1000, "clue.purchased", "s", purchased);
+            writeEvent(w, "clues", 4, start + 1000, "clue.requested", "s", request("r1", "h1", start + 61_000));
+            writeEvent(w, "clues", 5, start + 1000, "clue.requested", "s", request("r2", "h2", start + 61_000));
+
+            Map<String, Object> afterResponse = new HashMap<>();
+            afterResponse.put("clueId", "c1");
+            afterResponse.put("teamId", "s");
+            afterResponse.put("clueText", "Waiting for selfies from 2 hider teams...");
+            afterResponse.put("status", "pending");
+            afterResponse.put("hiderData", List.of(hider("h1", "/api/uploads/selfie-1.jpg"), hider("h2", "Pending selfie")));
+            Map<String, Object> response = new HashMap<>();
+            response.put("requestId", "r1");
+            response.put("responseData", "/api/uploads/selfie-1.jpg");
+            response.put("clue", afterResponse);
+            writeEvent(w, "clues", 6, start + 5000, "clue.response_received", "h1", response);
+
+            writeEvent(w, "clues", 7, start + 61_000, "clue.request_expired", null, Map.of("requestId", "r2"));
+            Map<String, Object> afterTimeout = new HashMap<>(afterResponse);
+            afterTimeout.put("status", "completed");
+            afterTimeout.put("clueText", "Received responses from 1/2 hider teams");
+            Map<String, Object> revealed = new HashMap<>();
+            revealed.put("timeoutClueId", "t1");
+            revealed.put("requestId", "r2");
+            revealed.put("requestingTeamId", "s");
+            revealed.put("hiderTeamId", "h2");
+            revealed.put("clueText", "Exact location of Hiders 2 (auto-revealed): 49.260000, -123.250000");
+            revealed.put("hiderData", List.of(hider("h2", "Auto-revealed due to no response")));
+            revealed.put("originalClue", afterTimeout);
+            writeEvent(w, "clues", 8, start + 61_000, "clue.auto_revealed", null, revealed);
+
+            Map<String, Object> open = new HashMap<>(purchased);
+            open.put("clueId", "c2");
+            open.put("requestIds", List.of("r3"));
+            writeEvent(w, "clues", 9, start + 62_000, "clue.purchased", "s", open);
+            writeEvent(w, "clues", 10, start + 62_000, "clue.requested", "s", request("r3", "h1", start + 122_000));
+        }
+
+        GameEventReplayer.ReplayState st = replayer.replayGame(gameDir, null);
+        assertEquals("completed", st.clueRequests.get("r1").getStatus());
+        assertEquals("/api/uploads/selfie-1.jpg", st.clueRequests.get("r1").getResponse());
+        assertEquals("expired", st.clueRequests.get("r2").getStatus());
+        ClueRequest pending = st.clueRequests.get("r3");
+        assertEquals("pending", pending.getStatus());
+        assertEquals("s", pending.getRequestingTeamId());
+        assertEquals("h1", pending.getTargetHiderTeamId());
+        assertEquals(start + 122_000, pending.getExpirationTimestamp());
+
+        List<PurchasedClue> clues = st.clueHistory.get("s");
+        assertEquals(List.of("c1", "t1", "c2"), clues.stream().map(PurchasedClue::getId).toList());
+        PurchasedClue original = clues.get(0);
+        assertEquals("r1,r2", original.getRequestId());
+        assertEquals("completed", original.getStatus());
+        assertEquals("Received responses from 1/2 hider teams", original.getClueText());
+        assertEquals("/api/uploads/selfie-1.jpg", original.getHiderData().get(0).getAdditionalData());
+        PurchasedClue timeout = clues.get(1);
+        assertEquals("exact-location", timeout.getClueTypeId());
+        assertEquals("completed", timeout.getStatus());
+        assertEquals(49.26, timeout.getHiderData().get(0).getLatitude(), 0);
+        assertEquals("pending", clues.get(2).getStatus());
+    }
+
+    private static Map<String, Object> hider(String teamId, String additionalData) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("teamId", teamId);
+        m.put("teamName", teamId);
+        m.put("latitude", 49.26);
+        m.put("longitude", -123.25);
+        m.put("additionalData", additionalData);
+        return m;
+    }
+
+    private static Map<String, Object> request(String requestId, String hiderId, long expiresAt) {
+        Map<String, Object> m = new HashMap<>();
+        m.put("requestId", requestId);
+        m.put("clueTypeId", "selfie");
+        m.put("clueTypeName", "Selfie");
+        m.put("responseType", "photo");
+        m.put("targetHiderTeamId", hiderId);
+        m.put("expiresAt", expiresAt);
+        return m;
+    }
+
+    private Map<String, GameEventReplayer.ReplayState> replayAll(Path logs) throws IOException {
+        Map<String, GameEventReplayer.ReplayState> states = new HashMap<>();
+        try (var dirs = Files.list(logs)) {
+            for (Path gameDir : dirs.toList()) {
+                states.put(gameDir.getFileName().toString(), replayer.replayGame(gameDir, null));
+            }
+        }
+        return states;
+    }
+
+    private void writeSyntheticLogs(Path baseDir, int games, int events, boolean withCheckpoint) throws IOException {
+        long start = System.currentTimeMillis() - events * 1000L;
+        for (int g = 0; g < games; g++) {
+            String gameId = "bench-" + g;
+            Path gameDir = Files.createDirectories(baseDir.resolve(gameId));
+            Game game = new Game();
+            game.setId(gameId);
+            game.setCode("BENCH" + g);
+            game.setRound(1);
+            game.setStatus("active");
+            game.setTeams(new ArrayList<>());
+            String[] teamIds = {gameId + "-s", gameId + "-h1", gameId + "-h2"};
+            for (int i = 0; i < teamIds.length; i++) {
+                Team team = new Team();
+                team.setId(teamIds[i]);
+                team.setName("Team " + i);
+                team.setRole(i == 0 ? "seeker" : "hider");
+                team.setTokens(10);
+                game.getTeams().add(team);
+            }
+
+            try (Writer w = Files.newBufferedWriter(gameDir.resolve("events.ndjson"), StandardCharsets.UTF_8)) {
+                Map<String, Object> created = new HashMap<>();
+                created.put("gameCode", game.getCode());
+                List<Map<String, Object>> teams = new ArrayList<>();
+                for (Team t : game.getTeams()) {
+                    teams.add(Map.of("id", t.getId(), "name", t.getName(), "role", t.getRole(), "tokens", t.getTokens()));
+                }
+                created.put("teams", teams);
+                writeEvent(w, gameId, 1, start, "game.created", null, created);
+                writeEvent(w, gameId, 2, start, "game.started", null, Map.of("round", 1));
+                for (long seq = 3; seq <= events; seq++) {
+                    String teamId = teamIds[(int) (seq % teamIds.length)];
+                    Map<String, Object> loc = new HashMap<>();
+                    loc.put("teamId", teamId);
+                    loc.put("latitude", 49.26 + seq * 1e-6);
+                    loc.put("longitude", -123.25 + seq * 1e-6);
+                    writeEvent(w, gameId, seq, start + seq * 1000L, "team.location_update", teamId, loc);
+                }
+            }
+
+            File cp = gameDir.resolve("checkpoint.json").toFile();
+            if (withCheckpoint) {
+                GameCheckpoint checkpoint = new GameCheckpoint();
+                checkpoint.setGameId(gameId);
+                checkpoint.setSequence(events - events / 10);
+                checkpoint.setTakenAt(System.currentTimeMillis());
+                checkpoint.setGame(game);
+                mapper.writeValue(cp, checkpoint);
+            } else {
+                Files.deleteIfExists(cp.toPath());
+            }
+        }
+    }
+
+    private void writeEvent(Writer w, String gameId, long seq, long ts, String type, String actorId, Map<String, Object> payload) throws IOException {
+        GameEvent evt = new GameEvent("1.0", "bench-" + seq, gameId, seq, ts, type,
+                actorId != null ? "team" : "system", actorId, payload);
+        w.write(mapper.writeValueAsString(evt));
+        w.write("\n");
+    }
+}
@@ -0,0 +1,128 @@
+package com.hideandseek.logging;
+
+import com.hideandseek.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The simplified line must stay within the tolerance of every raw point it replaced, end at the
+ * newest point, and answer time-range queries consistently with count().
+ */
+class TrailSimplifierTest {
+
+    private static final double LAT0 = 49.2606;
+    private static final double LON0 = -123.2460;
+
+    @Test
+    void everyRawPointIsWithinToleranceOfTheSimplifiedLine() {
+        for (double tolerance : new double[]{1, 5, 25}) {
+            Random random = new Random(42);
+            int n = 20_000;
+            long[] ts = new long[n];
+            int[] lat = new int[n];
+            int[] lon = new int[n];
+            TrailSimplifier simplifier = new TrailSimplifier(tolerance);
+            // A wandering walk: mostly straight stretches with turns and GPS-sized jitter
+            double north = 0, east = 0, heading = 0;
+            for (int i = 0; i < n; i++) {
+                if (random.nextInt(40) == 0) heading += (random.nextDouble() - 0.5) * Math.PI;
+                north += Math.cos(heading) * 1.5 + random.nextGaussian() * 0.5;
+                east += Math.sin(heading) * 1.5 + random.nextGaussian() * 0.5;
+                ts[i] = 1_000_000L + i * 1000L;
+                lat[i] = toE7(LAT0 + north / GeoUtils.METERS_PER_DEGREE_LAT);
+                lon[i] = toE7(LON0 + east / GeoUtils.metersPerDegreeLon(LAT0));
+                simplifier.add(ts[i], lat[i], lon[i]);
+            }
+
+            TeamTrailStore.TrailWindow window = query(simplifier, Long.MIN_VALUE, Long.MAX_VALUE);
+            long[] keptTs = window.getTimestamps();
+            double[] keptLat = window.getLatitudes();
+            double[] keptLon = window.getLongitudes();
+            assertEquals(simplifier.size(), keptTs.length);
+            assertEquals(ts[0], keptTs[0]);
+            assertEquals(ts[n - 1], keptTs[keptTs.length - 1]);
+            assertTrue(keptTs.length < n / 4, "kept " + keptTs.length + " of " + n + " at " + tolerance + " m");
+
+            int segment = 0;
+            for (int i = 0; i < n; i++) {
+                while (keptTs[segment + 1] < ts[i]) segment++;
+                double error = distanceToSegment(lat[i] / 1e7, lon[i] / 1e7,
+                        keptLat[segment], keptLon[segment], keptLat[segment + 1], keptLon[segment + 1]);
+                assertTrue(error <= tolerance + 1e-6, "point " + i + " is " + error + " m off at " + tolerance + " m");
+            }
+        }
+    }
+
+    @Test
+    void straightLineKeepsFewPoints() {
+        TrailSimplifier simplifier = new TrailSimplifier(2);
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            simplifier.add(i * 1000L, toE7(LAT0 + i * 10 / GeoUtils.METERS_PER_DEGREE_LAT), toE7(LON0));
+        }
+        // Only the window cap forces points on a straight line
+        assertTrue(simplifier.size() <= n / 127 + 2, "kept " + simplifier.size());
+        TeamTrailStore.TrailWindow window = query(simplifier, Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(0L, window.getTimestamps()[0]);
+        assertEquals((n - 1) * 1000L, window.getTimestamps()[window.getCount() - 1]);
+    }
+
+    @Test
+    void zigzagWiderThanToleranceKeepsEveryTurn() {
+        TrailSimplifier simplifier = new TrailSimplifier(5);
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            double east = (i % 2 == 0 ? 0 : 20);
+            simplifier.add(i * 1000L, toE7(LAT0 + i * 10 / GeoUtils.METERS_PER_DEGREE_LAT),
+                    toE7(LON0 + east / GeoUtils.metersPerDegreeLon(LAT0)));
+        }
+        assertEquals(n, simplifier.size());
+    }
+
+    @Test
+    void rangeQueriesMatchCount() {
+        Random random = new Random(3);
+        TrailSimplifier simplifier = new TrailSimplifier(5);
+        for (int i = 0; i < 5000; i++) {
+            simplifier.add(i * 1000L, toE7(LAT0 + random.nextGaussian() * 1e-4), toE7(LON0 + random.nextGaussian() * 1e-4));
+        }
+        for (int k = 0; k < 500; k++) {
+            long from = random.nextInt(5_000_000);
+            long to = from + random.nextInt(1_000_000);
+            TeamTrailStore.TrailWindow window = query(simplifier, from, to);
+            assertEquals(simplifier.count(from, to), window.getCount());
+            long previous = Long.MIN_VALUE;
+            for (long t : window.getTimestamps()) {
+                assertTrue(t >= from && t <= to);
+                assertTrue(t > previous);
+                previous = t;
+            }
+        }
+        assertEquals(0, simplifier.count(10_000_000L, 20_000_000L));
+    }
+
+    private static TeamTrailStore.TrailWindow query(TrailSimplifier simplifier, long from, long to) {
+        TeamTrailStore.TrailWindow window = new TeamTrailStore.TrailWindow("team");
+        simplifier.query(from, to, window);
+        return window;
+    }
+
+    private static int toE7(double degrees) {
+        return (int) Math.round(degrees * 1e7);
+    }
+
+    // Distance in meters from a point to a segment, in the planar frame around the segment start
+    private static double distanceToSegment(double lat, double lon, double lat0, double lon0, double lat1, double lon1) {
+        double lonScale = GeoUtils.metersPerDegreeLon(lat0);
+        double bx = (lon1 - lon0) * lonScale;
+        double by = (lat1 - lat0) * GeoUtils.METERS_PER_DEGREE_LAT;
+        double px = (lon - lon0) * lonScale;
+        double py = (lat - lat0) * GeoUtils.METERS_PER_DEGREE_LAT;
+        double len2 = bx * bx + by * by;
+        double t = len2 == 0 ? 0 : Math.max(0, Math.min(1, (px * bx + py * by) / len2));
+        return Math.hypot(px - t * bx, py - t * by);
+    }
+}
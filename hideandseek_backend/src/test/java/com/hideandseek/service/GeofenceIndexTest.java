@@ -0,0 +1,129 @@
+package com.hideandseek.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The grid index against plain even-odd ray casting over every edge, on a synthetic campus: a
+ * jagged outer boundary with a grid of building-shaped holes.
+ */
+class GeofenceIndexTest {
+
+    private static final double LAT0 = 49.2606;
+    private static final double LON0 = -123.2460;
+    private static final double METERS_LAT = 1 / 110540.0;
+    private static final double METERS_LON = 1 / (111320.0 * Math.cos(Math.toRadians(LAT0)));
+
+    @Test
+    void indexMatchesBruteForce() {
+        Random random = new Random(42);
+        List<double[][]> rings = campus(random, 2000, 100);
+        GeofenceIndex index = new GeofenceIndex(rings);
+
+        double[] bounds = index.getBounds();
+        int inside = 0;
+        for (int i = 0; i < 200_000; i++) {
+            double lon = bounds[0] + random.nextDouble() * (bounds[2] - bounds[0]);
+            double lat = bounds[1] + random.nextDouble() * (bounds[3] - bounds[1]);
+            boolean expected = containsBruteForce(rings, lat, lon);
+            assertEquals(expected, index.contains(lat, lon), "at " + lat + "," + lon);
+            if (expected) inside++;
+        }
+        // The samples must exercise both answers
+        assertTrue(inside > 10_000);
+        assertTrue(inside < 190_000);
+    }
+
+    @Test
+    void pointsNearEdgesMatchBruteForce() {
+        Random random = new Random(7);
+        List<double[][]> rings = campus(random, 500, 16);
+        GeofenceIndex index = new GeofenceIndex(rings);
+
+        // Within a meter of a vertex, where cell centers and crossings are hardest to get right
+        for (double[][] ring : rings) {
+            for (int v = 0; v < ring[0].length; v++) {
+                for (int k = 0; k < 4; k++) {
+                    double lon = ring[0][v] + (random.nextDouble() * 2 - 1) * METERS_LON;
+                    double lat = ring[1][v] + (random.nextDouble() * 2 - 1) * METERS_LAT;
+                    assertEquals(containsBruteForce(rings, lat, lon), index.contains(lat, lon), "at " + lat + "," + lon);
+                }
+            }
+        }
+    }
+
+    @Test
+    void pointsOutsideTheBoundsAreOutside() {
+        GeofenceIndex index = new GeofenceIndex(campus(new Random(1), 100, 0));
+        double[] bounds = index.getBounds();
+        assertFalse(index.contains(bounds[1] - 0.001, LON0));
+        assertFalse(index.contains(bounds[3] + 0.001, LON0));
+        assertFalse(index.contains(LAT0, bounds[0] - 0.001));
+        assertFalse(index.contains(LAT0, bounds[2] + 0.001));
+        assertTrue(index.contains(LAT0, LON0));
+    }
+
+    @Test
+    void latticeAcrossTheBoundsMatchesBruteForce() {
+        List<double[][]> rings = campus(new Random(42), 2000, 100);
+        GeofenceIndex index = new GeofenceIndex(rings);
+        double[] bounds = index.getBounds();
+        // Regular steps land on cell borders and vertex latitudes more often than random samples do
+        int steps = 150;
+        for (int y = 0; y <= steps; y++) {
+            double lat = bounds[1] + (bounds[3] - bounds[1]) * y / steps;
+            for (int x = 0; x <= steps; x++) {
+                double lon = bounds[0] + (bounds[2] - bounds[0]) * x / steps;
+                assertEquals(containsBruteForce(rings, lat, lon), index.contains(lat, lon), "at " + lat + "," + lon);
+            }
+        }
+    }
+
+    private static List<double[][]> campus(Random random, int boundaryVertices, int buildings) {
+        List<double[][]> rings = new ArrayList<>();
+        rings.add(jaggedRing(random, LAT0, LON0, 900, 120, boundaryVertices));
+        int perRow = (int) Math.ceil(Math.sqrt(buildings));
+        for (int b = 0; b < buildings; b++) {
+            // Holes on a regular grid well inside the boundary, spaced so they never overlap
+            double north = ((b / perRow) - (perRow - 1) / 2.0) * 1000.0 / perRow;
+            double east = ((b % perRow) - (perRow - 1) / 2.0) * 1000.0 / perRow;
+            rings.add(jaggedRing(random, LAT0 + north * METERS_LAT, LON0 + east * METERS_LON,
+                    Math.min(40, 400.0 / perRow), 5, 24));
+        }
+        return rings;
+    }
+
+    private static double[][] jaggedRing(Random random, double lat, double lon, double radius, double jitter, int vertices) {
+        double[] lons = new double[vertices];
+        double[] lats = new double[vertices];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double r = radius + (random.nextDouble() * 2 - 1) * jitter;
+            lats[i] = lat + Math.sin(angle) * r * METERS_LAT;
+            lons[i] = lon + Math.cos(angle) * r * METERS_LON;
+        }
+        return new double[][]{lons, lats};
+    }
+
+    // Plain even-odd ray casting over every edge of every ring
+    private static boolean containsBruteForce(List<double[][]> rings, double latitude, double longitude) {
+        boolean inside = false;
+        for (double[][] ring : rings) {
+            double[] xs = ring[0];
+            double[] ys = ring[1];
+            for (int i = 0; i < xs.length; i++) {
+                int j = (i + 1) % xs.length;
+                if ((ys[i] > latitude) != (ys[j] > latitude)
+                        && longitude < xs[i] + (latitude - ys[i]) * (xs[j] - xs[i]) / (ys[j] - ys[i])) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+}
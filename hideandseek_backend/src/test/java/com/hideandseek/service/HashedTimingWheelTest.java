@@ -0,0 +1,110 @@
+package com.hideandseek.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A small wheel (8 buckets of 10 ms, so one turn is 80 ms) with deadlines several turns out: every
+ * timeout must fire once, never before its deadline and not long after, unless it was cancelled.
+ */
+class HashedTimingWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+    // Scheduling jitter allowed on top of the one-tick lateness the wheel promises
+    private static final long SLACK_MS = 150;
+
+    private HashedTimingWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        // Run tasks on the worker itself so the recorded time is when the wheel fired them
+        wheel = new HashedTimingWheel(TICK_MS, WHEEL_SIZE, Runnable::run, "test-wheel");
+    }
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void timeoutsSeveralRoundsOutFireAfterTheirDeadline() throws InterruptedException {
+        Random random = new Random(42);
+        int n = 200;
+        long now = System.currentTimeMillis();
+        long[] deadlines = new long[n];
+        AtomicLongArray firedAt = new AtomicLongArray(n);
+        AtomicInteger firings = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(n);
+        for (int i = 0; i < n; i++) {
+            int id = i;
+            // Up to six full turns of the wheel
+            deadlines[i] = now + random.nextInt((int) (6 * WHEEL_SIZE * TICK_MS));
+            wheel.schedule(deadlines[i], () -> {
+                firedAt.set(id, System.currentTimeMillis());
+                firings.incrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS), "only " + (n - done.getCount()) + " of " + n + " fired");
+        for (int i = 0; i < n; i++) {
+            long late = firedAt.get(i) - deadlines[i];
+            assertTrue(late >= 0, "timeout " + i + " fired " + -late + " ms early");
+            assertTrue(late <= TICK_MS + SLACK_MS, "timeout " + i + " fired " + late + " ms late");
+        }
+        Thread.sleep(3 * TICK_MS);
+        assertEquals(n, firings.get());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long scheduled = System.currentTimeMillis();
+        wheel.schedule(scheduled - 10_000, done::countDown);
+        assertTrue(done.await(TICK_MS + SLACK_MS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFire() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        AtomicInteger cancelledFired = new AtomicInteger();
+        // Cancelled before the worker has placed it in a bucket
+        wheel.schedule(now + 50, cancelledFired::incrementAndGet).cancel();
+        // Cancelled while it sits in its bucket, a few rounds out
+        HashedTimingWheel.Timeout placed = wheel.schedule(now + 3 * WHEEL_SIZE * TICK_MS, cancelledFired::incrementAndGet);
+        HashedTimingWheel.Timeout kept = wheel.schedule(now + 100, () -> { });
+        Thread.sleep(5 * TICK_MS);
+        placed.cancel();
+
+        CountDownLatch sentinel = new CountDownLatch(1);
+        wheel.schedule(now + 5 * WHEEL_SIZE * TICK_MS, sentinel::countDown);
+        assertTrue(sentinel.await(5, TimeUnit.SECONDS));
+        assertEquals(0, cancelledFired.get());
+        assertEquals(now + 100, kept.getDeadline());
+    }
+
+    @Test
+    void failingExecutorDoesNotStopTheWheel() throws InterruptedException {
+        wheel.stop();
+        AtomicInteger calls = new AtomicInteger();
+        wheel = new HashedTimingWheel(TICK_MS, WHEEL_SIZE, task -> {
+            if (calls.incrementAndGet() == 1) throw new IllegalStateException("rejected");
+            task.run();
+        }, "test-wheel");
+        long now = System.currentTimeMillis();
+        CountDownLatch second = new CountDownLatch(1);
+        wheel.schedule(now + 20, () -> { });
+        wheel.schedule(now + 60, second::countDown);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertEquals(2, calls.get());
+    }
+}
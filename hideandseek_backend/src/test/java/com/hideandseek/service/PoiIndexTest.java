@@ -0,0 +1,199 @@
+package com.hideandseek.service;
+
+import com.hideandseek.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Nearest-landmark lookups against a linear scan over the same points, using the index's own
+ * equirectangular distance, for queries inside and around a city-sized extract.
+ */
+class PoiIndexTest {
+
+    private static final double LAT0 = 49.26;
+    private static final double LON0 = -123.25;
+    // About 10 km across
+    private static final double SPAN_DEGREES = 0.09;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void nearestMatchesLinearScan() throws IOException {
+        Random random = new Random(42);
+        Points points = randomPoints(random, 20_000);
+        PoiIndex index = points.writeAndLoad(dir.resolve("pois.idx"));
+        assertEquals(points.count, index.size());
+
+        for (int q = 0; q < 2000; q++) {
+            // Over half of the queries fall outside the extract's bounds
+            double latitude = LAT0 + (random.nextDouble() - 0.5) * SPAN_DEGREES * 1.5;
+            double longitude = LON0 + (random.nextDouble() - 0.5) * SPAN_DEGREES * 1.5;
+            PoiIndex.Hit hit = index.nearest(latitude, longitude, Double.MAX_VALUE);
+            int expected = points.nearest(latitude, longitude);
+            assertNotNull(hit);
+            assertEquals(points.distance(expected, latitude, longitude), hit.getDistanceMeters(), 1e-6,
+                    "at " + latitude + "," + longitude);
+        }
+    }
+
+    @Test
+    void sparsePointsAreFoundManyCellsAway() throws IOException {
+        Random random = new Random(7);
+        Points points = randomPoints(random, 40);
+        PoiIndex index = points.writeAndLoad(dir.resolve("sparse.idx"));
+        for (int q = 0; q < 2000; q++) {
+            double latitude = LAT0 + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            double longitude = LON0 + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            PoiIndex.Hit hit = index.nearest(latitude, longitude, Double.MAX_VALUE);
+            assertEquals(points.distance(points.nearest(latitude, longitude), latitude, longitude),
+                    hit.getDistanceMeters(), 1e-6);
+        }
+    }
+
+    @Test
+    void maxDistanceLimitsTheSearch() throws IOException {
+        Random random = new Random(3);
+        Points points = randomPoints(random, 2000);
+        PoiIndex index = points.writeAndLoad(dir.resolve("limited.idx"));
+        for (int q = 0; q < 2000; q++) {
+            double latitude = LAT0 + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            double longitude = LON0 + (random.nextDouble() - 0.5) * SPAN_DEGREES;
+            double expected = points.distance(points.nearest(latitude, longitude), latitude, longitude);
+            double maxMeters = 100;
+            PoiIndex.Hit hit = index.nearest(latitude, longitude, maxMeters);
+            if (expected < maxMeters) {
+                assertNotNull(hit);
+                assertEquals(expected, hit.getDistanceMeters(), 1e-6);
+            } else {
+                assertNull(hit);
+            }
+        }
+    }
+
+    @Test
+    void cityScaleExtractMatchesLinearScan() throws IOException {
+        // Shaped like a real 20 km extract: mostly street samples sharing names, a few other places
+        Random random = new Random(42);
+        double latSpan = 20000 / GeoUtils.METERS_PER_DEGREE_LAT;
+        double lonSpan = 20000 / GeoUtils.metersPerDegreeLon(LAT0);
+        Points points = new Points(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            int roll = random.nextInt(100);
+            PoiIndex.Category kind = roll < 85 ? PoiIndex.Category.STREET : roll < 87 ? PoiIndex.Category.LIBRARY
+                    : roll < 89 ? PoiIndex.Category.MUSEUM : PoiIndex.Category.PARKING;
+            points.add(LAT0 + (random.nextDouble() - 0.5) * latSpan, LON0 + (random.nextDouble() - 0.5) * lonSpan,
+                    kind, kind.getLabel() + " " + (kind == PoiIndex.Category.STREET ? i / 50 : i));
+        }
+        PoiIndex index = points.writeAndLoad(dir.resolve("city.idx"));
+        assertEquals(points.count, index.size());
+
+        for (int q = 0; q < 500; q++) {
+            double latitude = LAT0 + (random.nextDouble() - 0.5) * latSpan;
+            double longitude = LON0 + (random.nextDouble() - 0.5) * lonSpan;
+            int expected = points.nearest(latitude, longitude);
+            PoiIndex.Hit hit = index.nearest(latitude, longitude, 1500);
+            assertNotNull(hit);
+            assertEquals(points.distance(expected, latitude, longitude), hit.getDistanceMeters(), 1e-6,
+                    "at " + latitude + "," + longitude);
+        }
+    }
+
+    @Test
+    void namesAndCategoriesRoundTrip() throws IOException {
+        Points points = new Points(3);
+        points.add(LAT0, LON0, PoiIndex.Category.LIBRARY, "Koerner Library");
+        points.add(LAT0 + 0.01, LON0, PoiIndex.Category.MUSEUM, "Museum of Anthropology");
+        points.add(LAT0, LON0 + 0.01, PoiIndex.Category.STREET, "Main Mall – été");
+        PoiIndex index = points.writeAndLoad(dir.resolve("names.idx"));
+
+        PoiIndex.Hit hit = index.nearest(LAT0 + 0.0099, LON0, 1000);
+        assertEquals("Museum of Anthropology", hit.getName());
+        assertEquals(PoiIndex.Category.MUSEUM, hit.getCategory());
+        hit = index.nearest(LAT0, LON0 + 0.0099, 1000);
+        assertEquals("Main Mall – été", hit.getName());
+        assertEquals(PoiIndex.Category.STREET, hit.getCategory());
+        hit = index.nearest(LAT0, LON0, 1000);
+        assertEquals(PoiIndex.Category.LIBRARY, hit.getCategory());
+        assertEquals(0.0, hit.getDistanceMeters(), 1e-9);
+    }
+
+    @Test
+    void emptyIndexFindsNothing() throws IOException {
+        PoiIndex index = new Points(0).writeAndLoad(dir.resolve("empty.idx"));
+        assertEquals(0, index.size());
+        assertNull(index.nearest(LAT0, LON0, Double.MAX_VALUE));
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Path file = dir.resolve("not-an-index.idx");
+        Files.write(file, new byte[128]);
+        assertThrows(IOException.class, () -> PoiIndex.load(file));
+    }
+
+    private static Points randomPoints(Random random, int count) {
+        Points points = new Points(count);
+        PoiIndex.Category[] categories = PoiIndex.Category.values();
+        for (int i = 0; i < count; i++) {
+            points.add(LAT0 + (random.nextDouble() - 0.5) * SPAN_DEGREES, LON0 + (random.nextDouble() - 0.5) * SPAN_DEGREES,
+                    categories[random.nextInt(categories.length)], "Point " + i);
+        }
+        return points;
+    }
+
+    private static final class Points {
+        final int[] lat;
+        final int[] lon;
+        final byte[] category;
+        final String[] names;
+        int count;
+
+        Points(int capacity) {
+            lat = new int[capacity];
+            lon = new int[capacity];
+            category = new byte[capacity];
+            names = new String[capacity];
+        }
+
+        void add(double latitude, double longitude, PoiIndex.Category kind, String name) {
+            lat[count] = (int) Math.round(latitude * 1e7);
+            lon[count] = (int) Math.round(longitude * 1e7);
+            category[count] = (byte) kind.ordinal();
+            names[count] = name;
+            count++;
+        }
+
+        PoiIndex writeAndLoad(Path file) throws IOException {
+            PoiIndex.write(file, count, lat, lon, category, names);
+            return PoiIndex.load(file);
+        }
+
+        int nearest(double latitude, double longitude) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                double d = distance(i, latitude, longitude);
+                if (d < bestDistance) {
+                    best = i;
+                    bestDistance = d;
+                }
+            }
+            return best;
+        }
+
+        // The same equirectangular meters the index measures in
+        double distance(int i, double latitude, double longitude) {
+            double dy = (lat[i] - (int) Math.round(latitude * 1e7)) * PoiIndex.METERS_PER_E7;
+            double dx = (lon[i] - (int) Math.round(longitude * 1e7)) * PoiIndex.METERS_PER_E7 * Math.cos(Math.toRadians(latitude));
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+}
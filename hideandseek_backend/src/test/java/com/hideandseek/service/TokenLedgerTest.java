@@ -0,0 +1,219 @@
+package com.hideandseek.service;
+
+import com.hideandseek.model.Team;
+import com.hideandseek.store.GameStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Balance changes, idempotency-key replays and rejections, including concurrent debits that must
+ * never overdraw and retries racing the first request with the same key.
+ */
+class TokenLedgerTest {
+
+    private static final String GAME = "game1";
+
+    private TokenLedger ledger;
+    private Team team;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new TokenLedger(new GameStore());
+        team = new Team();
+        team.setId("team1");
+        team.setTokens(100);
+    }
+
+    @Test
+    void changesAreRecordedWithTheResultingBalance() {
+        ledger.credit(GAME, team, 30, "challenge", null, null);
+        ledger.debit(GAME, team, 50, "clue", null, Map.of("clueTypeId", "exact-location"));
+        ledger.set(GAME, team, 10, "admin", null, null);
+        assertEquals(10, team.getTokens());
+
+        List<Map<String, Object>> history = ledger.getHistory(GAME, team.getId(), 0);
+        assertEquals(3, history.size());
+        assertEquals(30, history.get(0).get("delta"));
+        assertEquals(130, history.get(0).get("balance"));
+        assertEquals(-50, history.get(1).get("delta"));
+        assertEquals(80, history.get(1).get("balance"));
+        assertEquals(Map.of("clueTypeId", "exact-location"), history.get(1).get("details"));
+        assertEquals(-70, history.get(2).get("delta"));
+        assertEquals(10, history.get(2).get("balance"));
+        assertEquals(2, ledger.getHistory(GAME, team.getId(), 1).size());
+    }
+
+    @Test
+    void sameKeyChangesTheBalanceOnce() {
+        TokenLedger.Entry first = ledger.debit(GAME, team, 40, "clue", "key-1", null);
+        assertFalse(first.isReplay());
+        first.complete(Map.of("clueId", "c1"));
+
+        TokenLedger.Entry retry = ledger.debit(GAME, team, 40, "clue", "key-1", null);
+        assertTrue(retry.isReplay());
+        assertEquals(first.getSeq(), retry.getSeq());
+        assertEquals(Map.of("clueId", "c1"), retry.awaitOutcome());
+        assertEquals(Map.of("clueId", "c1"), ledger.replay(GAME, team.getId(), "key-1", "clue"));
+        assertEquals(60, team.getTokens());
+        assertEquals(1, ledger.getHistory(GAME, team.getId(), 0).size());
+
+        // Keys are per team
+        Team other = new Team();
+        other.setId("team2");
+        other.setTokens(100);
+        assertFalse(ledger.debit(GAME, other, 40, "clue", "key-1", null).isReplay());
+        assertEquals(60, other.getTokens());
+    }
+
+    @Test
+    void keyReusedForAnotherOperationIsRejected() {
+        ledger.debit(GAME, team, 10, "clue", "key-1", null).complete(Map.of());
+        assertThrows(IllegalStateException.class, () -> ledger.credit(GAME, team, 10, "challenge", "key-1", null));
+        assertThrows(IllegalStateException.class, () -> ledger.replay(GAME, team.getId(), "key-1", "challenge"));
+        assertEquals(90, team.getTokens());
+    }
+
+    @Test
+    void unknownKeyHasNothingToReplay() {
+        assertNull(ledger.replay(GAME, team.getId(), "never-used", "clue"));
+        assertNull(ledger.replay(GAME, team.getId(), null, "clue"));
+    }
+
+    @Test
+    void insufficientTokensLeaveTheBalanceAndFreeTheKey() {
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> ledger.debit(GAME, team, 150, "clue", "key-1", null));
+        assertEquals("Insufficient tokens", e.getMessage());
+        assertEquals(100, team.getTokens());
+        assertTrue(ledger.getHistory(GAME, team.getId(), 0).isEmpty());
+        assertNull(ledger.replay(GAME, team.getId(), "key-1", "clue"));
+
+        // A retry with the same key after earning more tokens goes through
+        ledger.credit(GAME, team, 100, "challenge", null, null);
+        TokenLedger.Entry retry = ledger.debit(GAME, team, 150, "clue", "key-1", null);
+        assertFalse(retry.isReplay());
+        assertEquals(50, team.getTokens());
+    }
+
+    @Test
+    void retryWaitingOnARejectedRequestGetsTheRejection() throws Exception {
+        // Park the first request between claiming the key and checking the balance
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Team slow = new Team() {
+            @Override
+            public int getTokens() {
+                claimed.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getTokens();
+            }
+        };
+        slow.setId("team1");
+        slow.setTokens(10);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = executor.submit(() -> ledger.debit(GAME, slow, 50, "clue", "key-1", null));
+            claimed.await();
+            CompletableFuture<Map<String, Object>> waiting = CompletableFuture.supplyAsync(
+                    () -> ledger.replay(GAME, slow.getId(), "key-1", "clue"), executor);
+            Thread.sleep(50);
+            assertFalse(waiting.isDone());
+            release.countDown();
+
+            Exception firstFailure = assertThrows(Exception.class, first::get);
+            assertEquals("Insufficient tokens", firstFailure.getCause().getMessage());
+            Exception retryFailure = assertThrows(Exception.class, waiting::get);
+            assertTrue(retryFailure.getCause().getMessage().contains("Insufficient tokens"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void reversalUndoesTheChangeAndFreesTheKey() {
+        TokenLedger.Entry entry = ledger.credit(GAME, team, 25, "challenge", "key-1", null);
+        assertEquals(125, team.getTokens());
+        ledger.reverse(GAME, team, entry, new IllegalStateException("Challenge already completed"));
+        assertEquals(100, team.getTokens());
+
+        List<Map<String, Object>> history = ledger.getHistory(GAME, team.getId(), 0);
+        assertEquals(2, history.size());
+        assertEquals("reversal", history.get(1).get("reason"));
+        assertEquals(-25, history.get(1).get("delta"));
+        assertThrows(IllegalStateException.class, entry::awaitOutcome);
+        assertFalse(ledger.credit(GAME, team, 25, "challenge", "key-1", null).isReplay());
+        assertEquals(125, team.getTokens());
+    }
+
+    @Test
+    void reversalAfterTheTokensWereSpentStopsAtZero() {
+        TokenLedger.Entry entry = ledger.credit(GAME, team, 25, "challenge", "key-1", null);
+        ledger.debit(GAME, team, 110, "clue", null, null);
+        assertEquals(15, team.getTokens());
+
+        IllegalStateException cause = new IllegalStateException("Challenge already completed");
+        ledger.reverse(GAME, team, entry, cause);
+        assertEquals(0, team.getTokens());
+        Map<String, Object> reversal = ledger.getHistory(GAME, team.getId(), 0).get(2);
+        assertEquals(-15, reversal.get("delta"));
+        assertEquals(Map.of("reversedSeq", 1L, "shortfall", 10), reversal.get("details"));
+
+        // Retries see the original failure, not the shortfall
+        IllegalStateException replayed = assertThrows(IllegalStateException.class, entry::awaitOutcome);
+        assertTrue(replayed.getMessage().contains("Challenge already completed"));
+        assertNull(ledger.replay(GAME, team.getId(), "key-1", "challenge"));
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        team.setTokens(1000);
+        int threads = 8;
+        int attemptsPerThread = 500;
+        AtomicInteger succeeded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        // Every other attempt is a retry of a key another thread may also be using
+                        String key = i % 2 == 0 ? "shared-" + i : "own-" + thread + "-" + i;
+                        try {
+                            TokenLedger.Entry entry = ledger.debit(GAME, team, 3, "clue", key, null);
+                            if (!entry.isReplay()) {
+                                succeeded.incrementAndGet();
+                                entry.complete(Map.of());
+                            }
+                        } catch (IllegalStateException e) {
+                            assertTrue(e.getMessage().contains("Insufficient tokens"), e.getMessage());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(team.getTokens() >= 0);
+        assertEquals(1000 - 3 * succeeded.get(), team.getTokens());
+        assertEquals(succeeded.get(), ledger.getHistory(GAME, team.getId(), 0).size());
+    }
+}
@@ -0,0 +1,356 @@
+package com.hideandseek.store;
+
+import com.hideandseek.model.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Games, clues and clue requests written by the codec must read back field for field, with nulls
+ * preserved, and each read must consume exactly the bytes its write produced.
+ */
+class GameSnapshotCodecTest {
+
+    @Test
+    void fullyPopulatedGameRoundTrips() throws IOException {
+        Game game = fullGame();
+        ByteBuffer in = encode(out -> GameSnapshotCodec.writeGameEntry(out, game, 4242L));
+
+        GameSnapshotCodec.GameEntry entry = GameSnapshotCodec.readGameEntry(in);
+        assertEquals(0, in.remaining());
+        assertEquals(4242L, entry.eventSequence);
+        assertGameEquals(game, entry.game);
+    }
+
+    @Test
+    void sparseGameKeepsItsNulls() throws IOException {
+        Game game = new Game();
+        game.setId("g2");
+        game.setPausedByTimeLimit(null);
+        game.setLastActivityTime(null);
+        game.setTotalPausedDuration(null);
+        game.setGameStartTime(null);
+        game.setRoundStartTime(null);
+        game.setPausedDurationAtRoundStart(null);
+        Team team = new Team();
+        team.setId("t1");
+        game.setTeams(List.of(team));
+        ByteBuffer in = encode(out -> GameSnapshotCodec.writeGameEntry(out, game, -1L));
+
+        GameSnapshotCodec.GameEntry entry = GameSnapshotCodec.readGameEntry(in);
+        assertEquals(0, in.remaining());
+        assertEquals(-1L, entry.eventSequence);
+        assertGameEquals(game, entry.game);
+        Team read = entry.game.getTeams().get(0);
+        assertNull(read.getLocation());
+        assertNull(read.getActiveChallenge());
+        assertEquals(List.of(), read.getCompletedChallenges());
+        assertEquals(List.of(), read.getCompletedCurses());
+    }
+
+    @Test
+    void cluesRoundTrip() throws IOException {
+        PurchasedClue full = new PurchasedClue("c1", "exact-location", "seekers", "g1", "The hider is at the library ✓", 25);
+        full.setTimestamp(1_700_000_000_123L);
+        full.setStatus("completed");
+        full.setRequestId("r1");
+        full.setResponseType("selfie");
+        full.setTargetHiderTeamId("hiders");
+        full.setLatitude(49.2606);
+        full.setLongitude(-123.2460);
+        full.setTargetTeamName("Hiders");
+        full.setTargetHiderTeamIds(List.of("hiders", "hiders2"));
+        PurchasedClue.HiderClueData located = new PurchasedClue.HiderClueData("hiders", "Hiders");
+        located.setLatitude(49.26);
+        located.setLongitude(-123.25);
+        located.setDistance(312.5);
+        located.setDirection("NE");
+        located.setAdditionalData("/api/uploads/selfie-1.jpg");
+        PurchasedClue.HiderClueData pending = new PurchasedClue.HiderClueData("hiders2", null);
+        full.setHiderData(new ArrayList<>(List.of(located, pending)));
+
+        PurchasedClue sparse = new PurchasedClue();
+        sparse.setId("c2");
+        sparse.setHiderData(null);
+        sparse.setTargetHiderTeamIds(null);
+
+        ByteBuffer in = encode(out -> {
+            GameSnapshotCodec.writeClue(out, full);
+            GameSnapshotCodec.writeClue(out, sparse);
+        });
+        assertClueEquals(full, GameSnapshotCodec.readClue(in));
+        assertClueEquals(sparse, GameSnapshotCodec.readClue(in));
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    void clueRequestsRoundTrip() throws IOException {
+        ClueRequest answered = new ClueRequest();
+        answered.setId("r1");
+        answered.setGameId("g1");
+        answered.setRequestingTeamId("seekers");
+        answered.setTargetHiderTeamId("hiders");
+        answered.setClueTypeId("selfie");
+        answered.setClueTypeName("Selfie");
+        answered.setStatus("completed");
+        answered.setRequestTimestamp(1_700_000_000_000L);
+        answered.setExpirationTimestamp(1_700_000_300_000L);
+        answered.setResponse("/api/uploads/selfie-1.jpg");
+        answered.setResponseType("image");
+
+        ClueRequest open = new ClueRequest();
+        open.setId("r2");
+        open.setStatus("pending");
+
+        ByteBuffer in = encode(out -> {
+            GameSnapshotCodec.writeClueRequest(out, answered);
+            GameSnapshotCodec.writeClueRequest(out, open);
+        });
+        assertClueRequestEquals(answered, GameSnapshotCodec.readClueRequest(in));
+        assertClueRequestEquals(open, GameSnapshotCodec.readClueRequest(in));
+        assertEquals(0, in.remaining());
+    }
+
+    @Test
+    void stringsRoundTrip() throws IOException {
+        List<String> strings = new ArrayList<>(List.of("", "plain", "naïve – 東京 🎯"));
+        strings.add(null);
+        ByteBuffer in = encode(out -> {
+            GameSnapshotCodec.writeStrings(out, strings);
+            GameSnapshotCodec.writeStrings(out, null);
+            GameSnapshotCodec.writeString(out, null);
+        });
+        assertEquals(strings, GameSnapshotCodec.readStrings(in));
+        assertNull(GameSnapshotCodec.readStrings(in));
+        assertNull(GameSnapshotCodec.readString(in));
+        assertEquals(0, in.remaining());
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static ByteBuffer encode(Writer writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static Game fullGame() {
+        Game game = new Game();
+        game.setId("g1");
+        game.setCode("ABC123");
+        game.setStatus("paused");
+        game.setRound(3);
+        game.setRoundLengthMinutes(45);
+        game.setStartTime(1_700_000_000_000L);
+        game.setPauseTime(1_700_000_600_000L);
+        game.setTotalPausedDuration(120_000L);
+        game.setEndTime(null);
+        game.setPausedByTimeLimit(true);
+        game.setLastActivityTime(1_700_000_650_000L);
+        game.setGameStartTime(1_700_000_000_000L);
+        game.setRoundStartTime(1_700_000_300_000L);
+        game.setPausedDurationAtRoundStart(60_000L);
+
+        Curse curse = new Curse("curse-1", "Curse of the zoologist", "Photograph an animal", 2, 600, null);
+        Curse penalty = new Curse("curse-2", "Curse of the lemon", "Carry a lemon", 1, null, 15);
+
+        Team seekers = new Team();
+        seekers.setId("seekers");
+        seekers.setName("Seekers");
+        seekers.setRole("seeker");
+        seekers.setTokens(75);
+        seekers.setLocation(new Team.TeamLocation(49.2606, -123.2460, 1_700_000_640_000L));
+        seekers.setCompletedChallenges(new ArrayList<>(List.of("ch-1", "ch-2")));
+        seekers.setCompletedCurses(new ArrayList<>(List.of("curse-3")));
+        seekers.setActiveChallenge(new ActiveChallenge(
+                new Challenge("ch-3", "Do a cartwheel", "In public", 20, curse), 1_700_000_500_000L, false));
+        seekers.setActiveCurses(new ArrayList<>());
+        List<AppliedCurse> applied = new ArrayList<>();
+        applied.add(new AppliedCurse(penalty, "hiders", "Hiders", 1_700_000_400_000L, 1_700_000_460_000L));
+        seekers.setAppliedCurses(applied);
+        seekers.setVetoEndTime(1_700_000_700_000L);
+        seekers.setHiderStartTime(null);
+        seekers.setTotalHiderTime(0L);
+
+        Team hiders = new Team();
+        hiders.setId("hiders");
+        hiders.setName("Hiders");
+        hiders.setRole("hider");
+        hiders.setTokens(0);
+        hiders.setCompletedChallenges(new ArrayList<>());
+        hiders.setCompletedCurses(new ArrayList<>());
+        hiders.setActiveChallenge(new ActiveChallenge(null, 1_700_000_100_000L, true));
+        List<ActiveCurse> active = new ArrayList<>();
+        ActiveCurse running = new ActiveCurse(penalty, 1_700_000_400_000L, 1_700_000_460_000L);
+        ActiveCurse done = new ActiveCurse(curse, 1_700_000_200_000L, 1_700_000_800_000L);
+        done.setCompleted(true);
+        done.setCompletedAt(1_700_000_300_000L);
+        done.setAcknowledged(true);
+        active.add(running);
+        active.add(done);
+        hiders.setActiveCurses(active);
+        hiders.setAppliedCurses(new ArrayList<>());
+        hiders.setHiderStartTime(1_700_000_300_000L);
+        hiders.setTotalHiderTime(250_000L);
+
+        game.setTeams(new ArrayList<>(List.of(seekers, hiders)));
+        return game;
+    }
+
+    private static void assertGameEquals(Game expected, Game actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getCode(), actual.getCode());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getRound(), actual.getRound());
+        assertEquals(expected.getRoundLengthMinutes(), actual.getRoundLengthMinutes());
+        assertEquals(expected.getStartTime(), actual.getStartTime());
+        assertEquals(expected.getPauseTime(), actual.getPauseTime());
+        assertEquals(expected.getTotalPausedDuration(), actual.getTotalPausedDuration());
+        assertEquals(expected.getEndTime(), actual.getEndTime());
+        assertEquals(expected.getPausedByTimeLimit(), actual.getPausedByTimeLimit());
+        assertEquals(expected.getLastActivityTime(), actual.getLastActivityTime());
+        assertEquals(expected.getGameStartTime(), actual.getGameStartTime());
+        assertEquals(expected.getRoundStartTime(), actual.getRoundStartTime());
+        assertEquals(expected.getPausedDurationAtRoundStart(), actual.getPausedDurationAtRoundStart());
+        List<Team> teams = expected.getTeams() != null ? expected.getTeams() : List.of();
+        assertEquals(teams.size(), actual.getTeams().size());
+        for (int i = 0; i < teams.size(); i++) {
+            assertTeamEquals(teams.get(i), actual.getTeams().get(i));
+        }
+    }
+
+    private static void assertTeamEquals(Team expected, Team actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getRole(), actual.getRole());
+        assertEquals(expected.getTokens(), actual.getTokens());
+        if (expected.getLocation() == null) {
+            assertNull(actual.getLocation());
+        } else {
+            assertEquals(expected.getLocation().getLatitude(), actual.getLocation().getLatitude());
+            assertEquals(expected.getLocation().getLongitude(), actual.getLocation().getLongitude());
+            assertEquals(expected.getLocation().getTimestamp(), actual.getLocation().getTimestamp());
+        }
+        assertEquals(expected.getCompletedChallenges(), actual.getCompletedChallenges());
+        if (expected.getCompletedCurses() != null) {
+            assertEquals(expected.getCompletedCurses(), actual.getCompletedCurses());
+        }
+        if (expected.getActiveChallenge() == null) {
+            assertNull(actual.getActiveChallenge());
+        } else {
+            assertChallengeEquals(expected.getActiveChallenge().getChallenge(), actual.getActiveChallenge().getChallenge());
+            assertEquals(expected.getActiveChallenge().getStartTime(), actual.getActiveChallenge().getStartTime());
+            assertEquals(expected.getActiveChallenge().isCompleted(), actual.getActiveChallenge().isCompleted());
+        }
+        List<ActiveCurse> active = expected.getActiveCurses() != null ? expected.getActiveCurses() : List.of();
+        assertEquals(active.size(), actual.getActiveCurses().size());
+        for (int i = 0; i < active.size(); i++) {
+            ActiveCurse e = active.get(i);
+            ActiveCurse a = actual.getActiveCurses().get(i);
+            assertCurseEquals(e.getCurse(), a.getCurse());
+            assertEquals(e.getStartTime(), a.getStartTime());
+            assertEquals(e.getEndTime(), a.getEndTime());
+            assertEquals(e.isCompleted(), a.isCompleted());
+            assertEquals(e.getCompletedAt(), a.getCompletedAt());
+            assertEquals(e.isAcknowledged(), a.isAcknowledged());
+        }
+        List<AppliedCurse> applied = expected.getAppliedCurses() != null ? expected.getAppliedCurses() : List.of();
+        assertEquals(applied.size(), actual.getAppliedCurses().size());
+        for (int i = 0; i < applied.size(); i++) {
+            AppliedCurse e = applied.get(i);
+            AppliedCurse a = actual.getAppliedCurses().get(i);
+            assertCurseEquals(e.getCurse(), a.getCurse());
+            assertEquals(e.getTargetTeamId(), a.getTargetTeamId());
+            assertEquals(e.getTargetTeamName(), a.getTargetTeamName());
+            assertEquals(e.getStartTime(), a.getStartTime());
+            assertEquals(e.getEndTime(), a.getEndTime());
+        }
+        assertEquals(expected.getVetoEndTime(), actual.getVetoEndTime());
+        assertEquals(expected.getHiderStartTime(), actual.getHiderStartTime());
+        assertEquals(expected.getTotalHiderTime(), actual.getTotalHiderTime());
+    }
+
+    private static void assertChallengeEquals(Challenge expected, Challenge actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getTokenReward(), actual.getTokenReward());
+        assertCurseEquals(expected.getCurse(), actual.getCurse());
+    }
+
+    private static void assertCurseEquals(Curse expected, Curse actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getTokenCount(), actual.getTokenCount());
+        assertEquals(expected.getTimeSeconds(), actual.getTimeSeconds());
+        assertEquals(expected.getPenalty(), actual.getPenalty());
+    }
+
+    private static void assertClueEquals(PurchasedClue expected, PurchasedClue actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getClueTypeId(), actual.getClueTypeId());
+        assertEquals(expected.getTeamId(), actual.getTeamId());
+        assertEquals(expected.getGameId(), actual.getGameId());
+        assertEquals(expected.getClueText(), actual.getClueText());
+        assertEquals(expected.getCost(), actual.getCost());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getRequestId(), actual.getRequestId());
+        assertEquals(expected.getResponseType(), actual.getResponseType());
+        assertEquals(expected.getTargetHiderTeamId(), actual.getTargetHiderTeamId());
+        assertEquals(expected.getLatitude(), actual.getLatitude());
+        assertEquals(expected.getLongitude(), actual.getLongitude());
+        assertEquals(expected.getTargetTeamName(), actual.getTargetTeamName());
+        assertEquals(expected.getTargetHiderTeamIds(), actual.getTargetHiderTeamIds());
+        if (expected.getHiderData() == null) {
+            assertNull(actual.getHiderData());
+            return;
+        }
+        assertEquals(expected.getHiderData().size(), actual.getHiderData().size());
+        for (int i = 0; i < expected.getHiderData().size(); i++) {
+            PurchasedClue.HiderClueData e = expected.getHiderData().get(i);
+            PurchasedClue.HiderClueData a = actual.getHiderData().get(i);
+            assertEquals(e.getTeamId(), a.getTeamId());
+            assertEquals(e.getTeamName(), a.getTeamName());
+            assertEquals(e.getLatitude(), a.getLatitude());
+            assertEquals(e.getLongitude(), a.getLongitude());
+            assertEquals(e.getDistance(), a.getDistance());
+            assertEquals(e.getDirection(), a.getDirection());
+            assertEquals(e.getAdditionalData(), a.getAdditionalData());
+        }
+    }
+
+    private static void assertClueRequestEquals(ClueRequest expected, ClueRequest actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getGameId(), actual.getGameId());
+        assertEquals(expected.getRequestingTeamId(), actual.getRequestingTeamId());
+        assertEquals(expected.getTargetHiderTeamId(), actual.getTargetHiderTeamId());
+        assertEquals(expected.getClueTypeId(), actual.getClueTypeId());
+        assertEquals(expected.getClueTypeName(), actual.getClueTypeName());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getRequestTimestamp(), actual.getRequestTimestamp());
+        assertEquals(expected.getExpirationTimestamp(), actual.getExpirationTimestamp());
+        assertEquals(expected.getResponse(), actual.getResponse());
+        assertEquals(expected.getResponseType(), actual.getResponseType());
+    }
+}
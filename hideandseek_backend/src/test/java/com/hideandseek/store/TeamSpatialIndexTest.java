@@ -0,0 +1,83 @@
+package com.hideandseek.store;
+
+import com.hideandseek.model.Team;
+import com.hideandseek.util.GeoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Range and closest-hider queries against haversine, with hiders placed just inside the range,
+ * where cell sizing that disagrees with distanceMeters drops them.
+ */
+class TeamSpatialIndexTest {
+
+    private static final double RANGE_METERS = 2 * TeamSpatialIndex.CELL_METERS;
+
+    @Test
+    void hidersJustInsideTheRangeAreFoundFromAnywhereInACell() {
+        for (double lat0 : new double[]{0.0005, 49.2606, -33.87, 69.65}) {
+            double lon0 = -123.246;
+            Team seeker = team("seeker", "seeker", lat0, lon0);
+            Team north = team("north", "hider", lat0, lon0);
+            Team east = team("east", "hider", lat0, lon0);
+            List<Team> teams = new ArrayList<>(List.of(seeker, north, east));
+            // Far-away hiders in cells of their own, so queries probe cells instead of scanning every team
+            for (int i = 0; i < 80; i++) {
+                teams.add(team("filler" + i, "hider", lat0 + 0.1 + i * 0.01, lon0 + 0.1));
+            }
+            TeamSpatialIndex index = new TeamSpatialIndex();
+            index.sync(teams);
+
+            // Walk the seeker across a whole cell, so it also sits within centimeters of the cell's far edges
+            double inside = RANGE_METERS - 0.1;
+            for (double step = 0; step < TeamSpatialIndex.CELL_METERS; step += 0.1) {
+                double lat = lat0 + step / GeoUtils.METERS_PER_DEGREE_LAT;
+                double lon = lon0 + step / GeoUtils.metersPerDegreeLon(lat);
+                move(seeker, lat, lon);
+                move(north, lat + inside / GeoUtils.METERS_PER_DEGREE_LAT, lon);
+                move(east, lat, lon + inside / GeoUtils.metersPerDegreeLon(lat));
+                index.sync(teams);
+
+                assertTrue(distance(seeker, north) <= RANGE_METERS);
+                assertTrue(distance(seeker, east) <= RANGE_METERS);
+                List<TeamSpatialIndex.Hit> hits = index.hidersWithin(seeker, (int) RANGE_METERS);
+                assertEquals(2, hits.size(), "seeker at " + lat + "," + lon);
+                double closest = Math.min(distance(seeker, north), distance(seeker, east));
+                assertEquals(closest, index.closestHider(seeker).distance, 1e-9, "seeker at " + lat + "," + lon);
+            }
+        }
+    }
+
+    @Test
+    void closestHiderManyCellsAwayIsFound() {
+        Team seeker = team("seeker", "seeker", 49.2606, -123.246);
+        Team near = team("near", "hider", 49.2606 + 0.02, -123.246);
+        Team far = team("far", "hider", 49.2606, -123.246 + 0.05);
+        TeamSpatialIndex index = new TeamSpatialIndex();
+        index.sync(List.of(seeker, near, far));
+        TeamSpatialIndex.Hit hit = index.closestHider(seeker);
+        assertSame(near, hit.team);
+        assertEquals(distance(seeker, near), hit.distance, 1e-9);
+    }
+
+    private static double distance(Team from, Team to) {
+        return GeoUtils.distanceMeters(from.getLocation().getLatitude(), from.getLocation().getLongitude(),
+                to.getLocation().getLatitude(), to.getLocation().getLongitude());
+    }
+
+    private static void move(Team team, double latitude, double longitude) {
+        team.setLocation(new Team.TeamLocation(latitude, longitude, 0));
+    }
+
+    private static Team team(String id, String role, double latitude, double longitude) {
+        Team team = new Team();
+        team.setId(id);
+        team.setRole(role);
+        team.setLocation(new Team.TeamLocation(latitude, longitude, 0));
+        return team;
+    }
+}